@@ -9,6 +9,8 @@
 plugins {
     // Apply the application plugin to add support for building a CLI application in Java.
     application
+    // Compiles and runs the Spock specifications under src/test/groovy.
+    groovy
     id("org.springframework.boot") version "3.2.2"
     id("io.spring.dependency-management") version "1.1.4"
     id("org.flywaydb.flyway") version "10.8.1"
@@ -23,6 +25,11 @@ repositories {
 dependencies {
     implementation("com.google.guava:guava:31.1-jre")
     implementation("org.springframework.boot:spring-boot-starter-web")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+    implementation("org.springframework.boot:spring-boot-starter-webflux")
+    implementation("org.springframework.boot:spring-boot-starter-data-r2dbc")
+    runtimeOnly("org.postgresql:r2dbc-postgresql")
+    implementation("org.postgresql:postgresql")
 	implementation("org.springframework.boot:spring-boot-starter-data-jpa")
     implementation("org.projectlombok:lombok:1.18.30")
     annotationProcessor("org.projectlombok:lombok:1.18.30")
@@ -33,6 +40,7 @@ dependencies {
     implementation("org.codehaus.groovy:groovy-all:3.0.10")
     testImplementation("org.spockframework:spock-core:2.0-M5-groovy-3.0")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
+    testRuntimeOnly("com.h2database:h2")
 }
 
 application {
@@ -44,3 +52,75 @@ tasks.named<Test>("test") {
     // Use JUnit Platform for unit tests.
     useJUnitPlatform()
 }
+
+val cdsDir = layout.buildDirectory.dir("cds")
+
+tasks.register<JavaExec>("cdsArchive") {
+    // Train the application until the context is refreshed and dump the loaded
+    // classes into an AppCDS archive. CDS only archives classes from jars, so the
+    // plain application jar is used instead of the compiled classes directory.
+    group = "application"
+    description = "Produces an AppCDS archive for the fast-startup profile in build/cds."
+    dependsOn(tasks.named("jar"))
+
+    val appJar = tasks.named<Jar>("jar").flatMap { it.archiveFile }
+    val cdsClasspath = files(appJar) + configurations.runtimeClasspath.get()
+    val archive = cdsDir.map { it.file("app.jsa") }
+    val classpathFile = cdsDir.map { it.file("classpath.txt") }
+
+    classpath = cdsClasspath
+    mainClass.set("crud.App")
+    args("--spring.profiles.active=fast-startup")
+    jvmArgs("-Dspring.context.exit=onRefresh")
+    outputs.files(archive, classpathFile)
+
+    doFirst {
+        cdsDir.get().asFile.mkdirs()
+        archive.get().asFile.delete()
+        // The archive is only valid with the exact same classpath at runtime.
+        classpathFile.get().asFile.writeText(cdsClasspath.asPath)
+        jvmArgs("-XX:ArchiveClassesAtExit=${archive.get().asFile.absolutePath}")
+    }
+}
+
+val loadTest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[loadTest.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[loadTest.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+dependencies {
+    "loadTestRuntimeOnly"("com.h2database:h2")
+    "loadTestRuntimeOnly"("io.r2dbc:r2dbc-h2")
+}
+
+tasks.register<JavaExec>("loadTest") {
+    // Boots the application against an in-memory H2 database, seeds it and drives
+    // a mixed workload. Settings are passed as -Ploadtest.<name>=<value>, see
+    // crud.loadtest.LoadTestConfig for the available names.
+    group = "verification"
+    description = "Runs the load-test harness against an embedded database."
+    classpath = loadTest.runtimeClasspath
+    mainClass.set("crud.loadtest.LoadTest")
+    systemProperties(project.properties.filterKeys { it.startsWith("loadtest.") })
+}
+
+tasks.register<JavaExec>("heapFootprint") {
+    // Prints the heap retained per entity by a MEDIUM read of all providers, as
+    // read-model records and as entities. The graph is sized like the loadTest
+    // one; the defaults give one million entities.
+    group = "verification"
+    description = "Measures the heap retained per entity by a MEDIUM read."
+    classpath = loadTest.runtimeClasspath
+    mainClass.set("crud.loadtest.HeapFootprint")
+    maxHeapSize = "4g"
+    jvmArgs("-XX:+UseSerialGC")
+    systemProperties(mapOf(
+        "loadtest.providers" to "200000",
+        "loadtest.services" to "10000",
+        "loadtest.avgDegree" to "4",
+        "loadtest.zipfExponent" to "0.5"))
+    systemProperties(project.properties.filterKeys { it.startsWith("loadtest.") })
+}
@@ -0,0 +1,80 @@
+package crud.loadtest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Seeds the embedded database with providers, services and a power-law
+ * distributed set of links between them.
+ * Both ends of every link are drawn from a Zipf distribution, so a few
+ * providers and services act as hubs, as in production. Ids are assigned
+ * sequentially from 1, and rank k maps to id k, which makes low ids the hubs.
+ */
+final class GraphSeeder {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LoadTestConfig config;
+
+    GraphSeeder(JdbcTemplate jdbcTemplate, LoadTestConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.config = config;
+    }
+
+    /**
+     * Inserts the graph and brings the association counters up to date.
+     *
+     * @return The seeded links as {providerId, serviceId} pairs.
+     */
+    List<long[]> seed() {
+        insertNamed("INSERT INTO providers (name, is_deleted) VALUES (?, false)", "Provider ", config.providers);
+        insertNamed("INSERT INTO services (name, is_deleted) VALUES (?, false)", "Service ", config.services);
+
+        Random random = new Random(config.seed);
+        ZipfSampler providerRanks = new ZipfSampler(config.providers, config.zipfExponent);
+        ZipfSampler serviceRanks = new ZipfSampler(config.services, config.zipfExponent);
+
+        long target = Math.min(Math.round(config.avgDegree * config.providers),
+                (long) config.providers * config.services);
+        Set<Long> seen = new HashSet<>();
+        List<long[]> links = new ArrayList<>();
+        for (long attempt = 0; links.size() < target && attempt < target * 10; attempt++) {
+            long providerId = providerRanks.next(random);
+            long serviceId = serviceRanks.next(random);
+            if (seen.add(providerId * (config.services + 1L) + serviceId)) {
+                links.add(new long[] { providerId, serviceId });
+            }
+        }
+
+        for (int from = 0; from < links.size(); from += BATCH_SIZE) {
+            List<long[]> batch = links.subList(from, Math.min(from + BATCH_SIZE, links.size()));
+            jdbcTemplate.batchUpdate("INSERT INTO provider_service (provider_id, service_id) VALUES (?, ?)", batch,
+                    batch.size(), (ps, link) -> {
+                        ps.setLong(1, link[0]);
+                        ps.setLong(2, link[1]);
+                    });
+        }
+
+        jdbcTemplate.update("UPDATE providers p SET service_count = " +
+                "(SELECT count(*) FROM provider_service ps WHERE ps.provider_id = p.id)");
+        jdbcTemplate.update("UPDATE services s SET provider_count = " +
+                "(SELECT count(*) FROM provider_service ps WHERE ps.service_id = s.id)");
+        return links;
+    }
+
+    private void insertNamed(String sql, String prefix, int count) {
+        for (int from = 1; from <= count; from += BATCH_SIZE) {
+            List<String> names = new ArrayList<>(BATCH_SIZE);
+            for (int i = from; i < from + BATCH_SIZE && i <= count; i++) {
+                names.add(prefix + i);
+            }
+            jdbcTemplate.batchUpdate(sql, names, names.size(), (ps, name) -> ps.setString(1, name));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package crud.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import crud.entity.ProviderEntity;
+import crud.entity.ServiceEntity;
+import crud.mapper.ProviderResultExtractor;
+
+/**
+ * Measures the heap retained per entity by a MEDIUM read of all providers, run
+ * with {@code ./gradlew heapFootprint}.
+ * Seeds the graph of {@link GraphSeeder} into an in-memory H2 database, reads
+ * it once into the read-model records and once into the entities the read
+ * path used to build, and prints the heap each result retains after a full
+ * collection, divided by the number of providers and services in it. Both
+ * reads run twice and the second run counts, once the classes are loaded and
+ * the database is warm. The graph is sized with the {@code loadtest.*}
+ * properties; the defaults of the task give about one million entities.
+ */
+public final class HeapFootprint {
+
+    private static final String URL =
+            "jdbc:h2:mem:footprint;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    // The names are concatenated so that H2 returns a new string per row, as a
+    // network driver does, instead of the instance stored in its own pages.
+    private static final String MEDIUM_SQL = "SELECT " +
+            "    p.id AS provider_id, " +
+            "    p.name || '' AS provider_name, " +
+            "    s.id AS service_id, " +
+            "    s.name || '' AS service_name " +
+            "FROM providers p " +
+            "JOIN provider_service ps ON p.id = ps.provider_id " +
+            "JOIN services s ON ps.service_id = s.id " +
+            "WHERE p.is_deleted = false AND s.is_deleted = false " +
+            "ORDER BY p.id";
+
+    private HeapFootprint() {
+    }
+
+    public static void main(String[] args) {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", ""));
+        new ResourceDatabasePopulator(new ClassPathResource("loadtest-schema.sql")).execute(jdbcTemplate.getDataSource());
+        List<long[]> links = new GraphSeeder(jdbcTemplate, config).seed();
+        long entities = (long) jdbcTemplate.queryForObject(
+                "SELECT count(DISTINCT provider_id) FROM provider_service", Long.class) + links.size();
+        System.out.printf("Seeded %d providers, %d services and %d links, %d entities per MEDIUM read%n",
+                config.providers, config.services, links.size(), entities);
+
+        for (int run = 1; run <= 2; run++) {
+            measure("entities", entities, () -> jdbcTemplate.query(MEDIUM_SQL, new EntityExtractor()));
+            measure("records", entities, () -> jdbcTemplate.query(MEDIUM_SQL, new ProviderResultExtractor()));
+        }
+    }
+
+    private static void measure(String name, long entities, Supplier<List<?>> read) {
+        long before = usedHeap();
+        List<?> result = read.get();
+        long retained = usedHeap() - before;
+        System.out.printf("%-8s %,14d bytes retained, %6.1f bytes per entity (%d providers)%n",
+                name, retained, (double) retained / entities, result.size());
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        // Collect until the heap stops shrinking, so that garbage of the
+        // previous read is not counted.
+        for (int i = 0; i < 10; i++) {
+            memory.gc();
+            long now = memory.getHeapMemoryUsage().getUsed();
+            if (now >= used) {
+                return now;
+            }
+            used = now;
+        }
+        return used;
+    }
+
+    /**
+     * The MEDIUM extraction as the read path did it before the read-model
+     * records, kept to measure against.
+     */
+    private static final class EntityExtractor implements ResultSetExtractor<List<ProviderEntity>> {
+
+        @Override
+        public List<ProviderEntity> extractData(ResultSet rs) throws SQLException {
+            Map<Long, ProviderEntity> providers = new LinkedHashMap<>();
+            while (rs.next()) {
+                Long id = rs.getLong("provider_id");
+                ProviderEntity provider = providers.get(id);
+                if (provider == null) {
+                    provider = new ProviderEntity(id, rs.getString("provider_name"));
+                    providers.put(id, provider);
+                }
+                ServiceEntity service = new ServiceEntity(rs.getLong("service_id"), rs.getString("service_name"));
+                if (!provider.containsService(service.getId())) {
+                    provider.addService(service);
+                }
+            }
+            return new ArrayList<>(providers.values());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package crud.loadtest;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects response latencies and errors per endpoint and prints throughput
+ * and percentiles.
+ * Latencies are measured from the time a request was scheduled to start, not
+ * from when it was actually sent, so a stalled server cannot hide queueing
+ * delay (coordinated omission).
+ */
+final class LatencyRecorder {
+
+    private final Map<String, Series> series = new TreeMap<>();
+
+    /**
+     * Records one completed request.
+     *
+     * @param endpoint     The endpoint label.
+     * @param latencyNanos The latency in nanoseconds.
+     * @param success      False if the request failed or returned an error
+     *                     status.
+     */
+    synchronized void record(String endpoint, long latencyNanos, boolean success) {
+        series.computeIfAbsent(endpoint, key -> new Series()).add(latencyNanos, success);
+    }
+
+    /**
+     * Prints one line per endpoint and a total line.
+     *
+     * @param out             The stream to print to.
+     * @param durationSeconds The length of the measured phase.
+     */
+    synchronized void print(PrintStream out, double durationSeconds) {
+        String header = String.format("%-44s %9s %7s %9s %9s %9s %9s %9s",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        out.println(header);
+        out.println("-".repeat(header.length()));
+
+        Series total = new Series();
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            print(out, entry.getKey(), entry.getValue(), durationSeconds);
+            total.addAll(entry.getValue());
+        }
+        out.println("-".repeat(header.length()));
+        print(out, "total", total, durationSeconds);
+    }
+
+    private static void print(PrintStream out, String label, Series s, double durationSeconds) {
+        long[] sorted = Arrays.copyOf(s.latencies, s.size);
+        Arrays.sort(sorted);
+        out.println(String.format("%-44s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f",
+                label, s.size, s.errors, s.size / durationSeconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1e6));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Growable array of latencies of one endpoint.
+     */
+    private static final class Series {
+        private long[] latencies = new long[1024];
+        private int size;
+        private long errors;
+
+        private void add(long latencyNanos, boolean success) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        private void addAll(Series other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.latencies[i], true);
+            }
+            errors += other.errors;
+        }
+    }
+}
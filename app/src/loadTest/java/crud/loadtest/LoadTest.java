@@ -0,0 +1,52 @@
+package crud.loadtest;
+
+import java.net.URI;
+import java.util.List;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import crud.App;
+
+/**
+ * Entry point of the load-test harness, run with {@code ./gradlew loadTest}.
+ * Boots the application with the loadtest profile on a random port against an
+ * in-memory H2 database, seeds a power-law graph, drives the configured
+ * workload at the target rate and prints throughput and p50/p99/p999 latency
+ * per endpoint. With {@code loadtest.stack=reactive} the reactive profile is
+ * added and the endpoints are served by WebFlux on R2DBC.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        System.out.println("Load test: " + config);
+
+        SpringApplication application = new SpringApplication(App.class);
+        if (config.stack.equals("reactive")) {
+            application.setAdditionalProfiles("loadtest", "reactive");
+        } else {
+            application.setAdditionalProfiles("loadtest");
+        }
+
+        try (ConfigurableApplicationContext context = application.run("--server.port=0")) {
+            int port = Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+
+            long seedStart = System.nanoTime();
+            List<long[]> links = new GraphSeeder(context.getBean(JdbcTemplate.class), config).seed();
+            System.out.printf("Seeded %d providers, %d services and %d links in %d ms%n",
+                    config.providers, config.services, links.size(), (System.nanoTime() - seedStart) / 1_000_000);
+
+            Workload workload = new Workload(URI.create("http://localhost:" + port), config, links);
+            LatencyRecorder recorder = workload.run();
+
+            System.out.println();
+            recorder.print(System.out, config.durationSeconds);
+        }
+        System.exit(0);
+    }
+}
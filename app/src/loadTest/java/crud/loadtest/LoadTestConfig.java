@@ -0,0 +1,112 @@
+package crud.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of a load-test run, read from {@code loadtest.*} system properties.
+ */
+public final class LoadTestConfig {
+
+    /**
+     * Number of seeded providers ({@code loadtest.providers}).
+     */
+    final int providers;
+
+    /**
+     * Number of seeded services ({@code loadtest.services}).
+     */
+    final int services;
+
+    /**
+     * Average number of services per provider ({@code loadtest.avgDegree}).
+     */
+    final double avgDegree;
+
+    /**
+     * Exponent of the power-law link distribution ({@code loadtest.zipfExponent}).
+     */
+    final double zipfExponent;
+
+    /**
+     * Target request rate in requests per second ({@code loadtest.rate}).
+     */
+    final int rate;
+
+    /**
+     * Length of the measured phase ({@code loadtest.durationSeconds}).
+     */
+    final int durationSeconds;
+
+    /**
+     * Length of the unmeasured warm-up phase ({@code loadtest.warmupSeconds}).
+     */
+    final int warmupSeconds;
+
+    /**
+     * Number of creates issued by one bulk write ({@code loadtest.bulkSize}).
+     */
+    final int bulkSize;
+
+    /**
+     * Relative weight of each operation ({@code loadtest.mix}), for example
+     * {@code getById=60,getAll=5,link=15,unlink=10,bulk=10}.
+     */
+    final Map<String, Integer> mix;
+
+    /**
+     * Seed of the random generators ({@code loadtest.seed}).
+     */
+    final long seed;
+
+    /**
+     * Web stack under test ({@code loadtest.stack}), {@code servlet} or
+     * {@code reactive}.
+     */
+    final String stack;
+
+    private LoadTestConfig() {
+        providers = Integer.getInteger("loadtest.providers", 10_000);
+        services = Integer.getInteger("loadtest.services", 2_000);
+        avgDegree = Double.parseDouble(System.getProperty("loadtest.avgDegree", "5"));
+        zipfExponent = Double.parseDouble(System.getProperty("loadtest.zipfExponent", "1.1"));
+        rate = Integer.getInteger("loadtest.rate", 500);
+        durationSeconds = Integer.getInteger("loadtest.durationSeconds", 60);
+        warmupSeconds = Integer.getInteger("loadtest.warmupSeconds", 10);
+        bulkSize = Integer.getInteger("loadtest.bulkSize", 20);
+        mix = parseMix(System.getProperty("loadtest.mix", "getById=60,getAll=5,link=15,unlink=10,bulk=10"));
+        seed = Long.getLong("loadtest.seed", 42L);
+        stack = System.getProperty("loadtest.stack", "servlet");
+        if (!stack.equals("servlet") && !stack.equals("reactive")) {
+            throw new IllegalArgumentException("Invalid loadtest.stack: " + stack);
+        }
+    }
+
+    /**
+     * Reads the settings from the system properties.
+     *
+     * @return The settings.
+     */
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig();
+    }
+
+    private static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid loadtest.mix entry: " + part);
+            }
+            weights.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+        }
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        return "providers=" + providers + ", services=" + services + ", avgDegree=" + avgDegree
+                + ", zipfExponent=" + zipfExponent + ", rate=" + rate + "/s, duration=" + durationSeconds
+                + "s, warmup=" + warmupSeconds + "s, bulkSize=" + bulkSize + ", mix=" + mix + ", stack=" + stack;
+    }
+}
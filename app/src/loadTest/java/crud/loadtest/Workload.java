@@ -0,0 +1,228 @@
+package crud.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop mixed workload against the running application.
+ * Requests are scheduled at a fixed rate regardless of how fast responses
+ * arrive. Each scheduled slot picks an operation according to the configured
+ * mix: reads by id and list reads at every depth level, link and unlink, and
+ * bulk writes of several creates at once. Reads by id favour hub ids through
+ * the same power-law distribution used for seeding.
+ */
+final class Workload {
+
+    private static final String[] ID_DEPTHS = { "shallow", "medium", "deep" };
+    private static final String[] LIST_DEPTHS = { "shallow", "medium" };
+
+    private final URI baseUri;
+    private final LoadTestConfig config;
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final LatencyRecorder recorder = new LatencyRecorder();
+    private final Random random;
+    private final ZipfSampler providerRanks;
+    private final ZipfSampler serviceRanks;
+    private final String[] operations;
+    private final Set<Long> links = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<long[]> unlinkCandidates = new ConcurrentLinkedQueue<>();
+    private final List<CompletableFuture<?>> inFlight = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile long measureFrom;
+
+    Workload(URI baseUri, LoadTestConfig config, List<long[]> seededLinks) {
+        this.baseUri = baseUri;
+        this.config = config;
+        this.executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+        this.random = new Random(config.seed + 1);
+        this.providerRanks = new ZipfSampler(config.providers, config.zipfExponent);
+        this.serviceRanks = new ZipfSampler(config.services, config.zipfExponent);
+        this.operations = expandMix(config.mix);
+
+        List<long[]> shuffled = new ArrayList<>(seededLinks);
+        Collections.shuffle(shuffled, random);
+        for (long[] link : shuffled) {
+            links.add(linkKey(link[0], link[1]));
+            unlinkCandidates.add(link);
+        }
+    }
+
+    /**
+     * Runs the warm-up and measured phases and waits for outstanding requests.
+     *
+     * @return The latencies recorded during the measured phase.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    LatencyRecorder run() throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / config.rate;
+        long start = System.nanoTime();
+        measureFrom = start + TimeUnit.SECONDS.toNanos(config.warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+
+        for (long slot = 0;; slot++) {
+            long scheduled = start + slot * intervalNanos;
+            if (scheduled >= end) {
+                break;
+            }
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            dispatch(operations[random.nextInt(operations.length)], scheduled);
+        }
+
+        try {
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            System.err.println("Not all requests completed: " + e);
+        }
+        executor.shutdownNow();
+        return recorder;
+    }
+
+    private void dispatch(String operation, long scheduled) {
+        switch (operation) {
+            case "getById": {
+                boolean provider = random.nextBoolean();
+                String depth = ID_DEPTHS[random.nextInt(ID_DEPTHS.length)];
+                long id = provider ? providerRanks.next(random) : serviceRanks.next(random);
+                String path = provider ? "/providers/" : "/services/";
+                send(HttpRequest.newBuilder(uri(path + id + "?depth=" + depth)).GET(),
+                        "GET " + path + "{id}?depth=" + depth, scheduled);
+                break;
+            }
+            case "getAll": {
+                String path = random.nextBoolean() ? "/providers" : "/services";
+                String depth = LIST_DEPTHS[random.nextInt(LIST_DEPTHS.length)];
+                send(HttpRequest.newBuilder(uri(path + "?depth=" + depth)).GET(),
+                        "GET " + path + "?depth=" + depth, scheduled);
+                break;
+            }
+            case "link":
+                link(scheduled);
+                break;
+            case "unlink":
+                unlink(scheduled);
+                break;
+            case "bulk":
+                bulk(scheduled);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation in loadtest.mix: " + operation);
+        }
+    }
+
+    private void link(long scheduled) {
+        for (int attempt = 0; attempt < 10; attempt++) {
+            long providerId = providerRanks.next(random);
+            long serviceId = serviceRanks.next(random);
+            if (links.add(linkKey(providerId, serviceId))) {
+                CompletableFuture<Boolean> done = send(HttpRequest.newBuilder(
+                        uri("/providers/" + providerId + "/services/" + serviceId))
+                        .POST(HttpRequest.BodyPublishers.noBody()),
+                        "POST /providers/{id}/services/{id}", scheduled);
+                done.thenAccept(success -> {
+                    if (success) {
+                        unlinkCandidates.add(new long[] { providerId, serviceId });
+                    } else {
+                        links.remove(linkKey(providerId, serviceId));
+                    }
+                });
+                return;
+            }
+        }
+    }
+
+    private void unlink(long scheduled) {
+        long[] link = unlinkCandidates.poll();
+        if (link == null) {
+            return;
+        }
+        links.remove(linkKey(link[0], link[1]));
+        send(HttpRequest.newBuilder(uri("/providers/" + link[0] + "/services/" + link[1])).DELETE(),
+                "DELETE /providers/{id}/services/{id}", scheduled);
+    }
+
+    private void bulk(long scheduled) {
+        String path = random.nextBoolean() ? "/providers" : "/services";
+        List<CompletableFuture<Boolean>> creates = new ArrayList<>(config.bulkSize);
+        for (int i = 0; i < config.bulkSize; i++) {
+            String body = "{\"name\":\"Load " + random.nextInt(Integer.MAX_VALUE) + "\"}";
+            creates.add(send(HttpRequest.newBuilder(uri(path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body)), null, scheduled));
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(creates.toArray(new CompletableFuture<?>[0]));
+        inFlight.add(all.whenComplete((ignored, error) -> {
+            boolean success = creates.stream().allMatch(create -> create.getNow(false));
+            record("POST " + path + " x" + config.bulkSize, scheduled, success);
+        }));
+    }
+
+    /**
+     * Sends a request and records its latency under the given label, unless the
+     * label is null.
+     *
+     * @return Completes with true if the response had a 2xx status.
+     */
+    private CompletableFuture<Boolean> send(HttpRequest.Builder request, String label, long scheduled) {
+        CompletableFuture<Boolean> result = client
+                .sendAsync(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> error == null && response.statusCode() / 100 == 2);
+        if (label != null) {
+            inFlight.add(result.thenAccept(success -> record(label, scheduled, success)));
+        }
+        return result;
+    }
+
+    private void record(String label, long scheduled, boolean success) {
+        if (scheduled >= measureFrom) {
+            recorder.record(label, System.nanoTime() - scheduled, success);
+        }
+    }
+
+    private URI uri(String path) {
+        return baseUri.resolve(path);
+    }
+
+    private long linkKey(long providerId, long serviceId) {
+        return providerId * (config.services + 1L) + serviceId;
+    }
+
+    private static String[] expandMix(Map<String, Integer> mix) {
+        List<String> slots = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                slots.add(operation);
+            }
+        });
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix must contain at least one positive weight");
+        }
+        return slots.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,43 @@
+package crud.loadtest;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Samples ranks 1..n from a Zipf (power-law) distribution.
+ * Rank 1 is the most likely; the probability of rank k is proportional to
+ * 1 / k^exponent.
+ */
+final class ZipfSampler {
+
+    private final double[] cumulative;
+
+    /**
+     * Precomputes the cumulative distribution.
+     *
+     * @param n        The number of ranks.
+     * @param exponent The power-law exponent.
+     */
+    ZipfSampler(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 1; k <= n; k++) {
+            sum += 1.0 / Math.pow(k, exponent);
+            cumulative[k - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    /**
+     * Draws a rank.
+     *
+     * @param random The random generator to draw from.
+     * @return A rank between 1 and n.
+     */
+    int next(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1) + 1;
+    }
+}
@@ -0,0 +1,57 @@
+-- Equivalent of the Flyway migrations without the PostgreSQL-only indexes
+CREATE TABLE IF NOT EXISTS providers (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    is_deleted BOOLEAN NOT NULL DEFAULT FALSE,
+    service_count INTEGER NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS services (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    is_deleted BOOLEAN NOT NULL DEFAULT FALSE,
+    provider_count INTEGER NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS provider_service (
+    provider_id BIGINT NOT NULL REFERENCES providers (id),
+    service_id BIGINT NOT NULL REFERENCES services (id),
+    PRIMARY KEY (provider_id, service_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_provider_service_service ON provider_service (service_id);
+
+CREATE TABLE IF NOT EXISTS change_outbox (
+    seq BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    entity_type VARCHAR(16) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    operation VARCHAR(16) NOT NULL,
+    related_id BIGINT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS imports (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    status VARCHAR(16) NOT NULL,
+    rows_processed BIGINT NOT NULL DEFAULT 0,
+    rows_failed BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS import_keys (
+    import_id BIGINT NOT NULL REFERENCES imports (id) ON DELETE CASCADE,
+    entity_type VARCHAR(16) NOT NULL,
+    external_key VARCHAR(255) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    PRIMARY KEY (import_id, entity_type, external_key)
+);
+
+CREATE TABLE IF NOT EXISTS hot_keys (
+    entity_type VARCHAR(16) NOT NULL,
+    depth VARCHAR(16) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    hits BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (entity_type, depth, entity_id)
+);
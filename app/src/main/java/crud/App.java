@@ -5,14 +5,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Lazy;
 
 /**
  * Main class for starting the CRUD application.
  * This class contains the main method that initializes and runs the Spring Boot
- * application.
+ * application. The R2DBC connection factory is not auto-configured because it
+ * would displace the JDBC data source; the reactive profile creates its own.
  */
-@SpringBootApplication
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class App {
 
     private static final Logger logger = LoggerFactory.getLogger(App.class);
@@ -29,10 +32,13 @@ public class App {
 
     /**
      * Configures and loads environment variables using Dotenv.
+     * The bean is created on first use so the .env file is not read on the
+     * startup path.
      *
      * @return Dotenv instance with loaded environment variables.
      */
     @Bean
+    @Lazy
     public Dotenv dotenv() {
         logger.info("Configuring and loading environment variables using Dotenv...");
         Dotenv dotenv = Dotenv.configure().load();
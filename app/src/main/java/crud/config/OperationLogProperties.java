@@ -0,0 +1,32 @@
+package crud.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration properties for sampled operation logging.
+ * Rates are fractions between 0 (never logged) and 1 (always logged), keyed by
+ * operation name such as {@code provider.findById}.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "crud.logging.sampling")
+public class OperationLogProperties {
+
+    /**
+     * Rate applied to operations without an explicit rate.
+     */
+    private double defaultRate = 1.0;
+
+    /**
+     * Rates per operation name.
+     */
+    private Map<String, Double> rates = new HashMap<>();
+}
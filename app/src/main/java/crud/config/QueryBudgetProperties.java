@@ -0,0 +1,57 @@
+package crud.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration properties for per-request SQL statement budgets.
+ * Budgets are keyed by HTTP method and path pattern, such as
+ * {@code GET /providers/{id}}. A budget of 0 means no limit.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "crud.query-budget")
+public class QueryBudgetProperties {
+
+    /**
+     * What happens when a request exceeds its budget.
+     */
+    public enum Mode {
+        /**
+         * Log a warning listing the statements of the request.
+         */
+        WARN,
+
+        /**
+         * Reject the first statement over the budget, failing the request.
+         */
+        FAIL
+    }
+
+    /**
+     * Whether statement budgets are checked.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The reaction to an exceeded budget.
+     */
+    private Mode mode = Mode.WARN;
+
+    /**
+     * Budget applied to endpoints without an explicit budget.
+     */
+    private int defaultBudget = 0;
+
+    /**
+     * Budgets per endpoint.
+     */
+    private Map<String, Integer> budgets = new HashMap<>();
+}
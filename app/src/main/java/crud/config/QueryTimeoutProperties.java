@@ -0,0 +1,57 @@
+package crud.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration properties for SQL statement timeouts and request deadlines.
+ * A statement's timeout is looked up by its query name, such as
+ * {@code provider.findAll.medium}, then by the name without its depth, such as
+ * {@code provider.findAll}, then by its depth alone. A timeout of 0 means no
+ * limit. Independently, a request may carry its own deadline in a header; its
+ * statements are cancelled once the deadline passes.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "crud.query-timeouts")
+public class QueryTimeoutProperties {
+
+    /**
+     * Whether statements are cancelled on timeouts and deadlines.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Timeout in milliseconds of statements without a more specific timeout.
+     */
+    private long defaultTimeoutMs = 0;
+
+    /**
+     * Timeouts in milliseconds per depth: shallow, medium or deep.
+     */
+    private Map<String, Long> depths = new HashMap<>();
+
+    /**
+     * Timeouts in milliseconds per query name, with or without the depth.
+     */
+    private Map<String, Long> operations = new HashMap<>();
+
+    /**
+     * The request header carrying the milliseconds the client is willing to
+     * wait.
+     */
+    private String deadlineHeader = "X-Request-Timeout-Ms";
+
+    /**
+     * Deadline in milliseconds of requests without the header, or 0 for none.
+     * A header may shorten but not extend it.
+     */
+    private long requestTimeoutMs = 0;
+}
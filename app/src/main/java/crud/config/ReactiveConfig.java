@@ -0,0 +1,117 @@
+package crud.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import crud.controller.ReactiveProviderHandler;
+import crud.controller.ReactiveServiceHandler;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+
+/**
+ * Configuration class for the non-blocking stack of the reactive profile.
+ * The R2DBC pool is deliberately not exposed as a ConnectionFactory bean: Spring
+ * Boot backs off from the JDBC data source when one exists, and Flyway, the
+ * change feed and the statistics still run on JDBC in this profile.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig implements DisposableBean {
+
+    private final ConnectionPool connectionPool;
+
+    /**
+     * Constructs a new ReactiveConfig and creates the R2DBC connection pool.
+     *
+     * @param url         The R2DBC URL of the database.
+     * @param username    The database user, or empty if given by the URL.
+     * @param password    The database password, or empty if given by the URL.
+     * @param initialSize The number of connections opened on first use.
+     * @param maxSize     The maximum number of pooled connections.
+     */
+    public ReactiveConfig(@Value("${spring.r2dbc.url}") String url,
+            @Value("${spring.r2dbc.username:}") String username,
+            @Value("${spring.r2dbc.password:}") String password,
+            @Value("${spring.r2dbc.pool.initial-size:10}") int initialSize,
+            @Value("${spring.r2dbc.pool.max-size:10}") int maxSize) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (StringUtils.hasText(username)) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (StringUtils.hasText(password)) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options.build()))
+                .initialSize(initialSize)
+                .maxSize(maxSize)
+                .build());
+    }
+
+    /**
+     * Configures the client running the SQL of the reactive repositories.
+     *
+     * @return DatabaseClient bean on the R2DBC pool.
+     */
+    @Bean
+    public DatabaseClient reactiveDatabaseClient() {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    /**
+     * Configures the operator running reactive writes in R2DBC transactions. The
+     * transaction manager stays private so that it does not compete with the JDBC
+     * one for {@code @Transactional}.
+     *
+     * @return TransactionalOperator bean on the R2DBC pool.
+     */
+    @Bean
+    public TransactionalOperator reactiveTransactionalOperator() {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionPool));
+    }
+
+    /**
+     * Routes the provider and service endpoints to the reactive handlers.
+     *
+     * @param providerHandler The handler of the provider endpoints.
+     * @param serviceHandler  The handler of the service endpoints.
+     * @return RouterFunction bean with the same paths as the servlet controllers.
+     */
+    @Bean
+    public RouterFunction<ServerResponse> reactiveRoutes(ReactiveProviderHandler providerHandler,
+            ReactiveServiceHandler serviceHandler) {
+        return RouterFunctions.route()
+                .POST("/providers", providerHandler::createProvider)
+                .GET("/providers", providerHandler::getAllProviders)
+                .GET("/providers/{id}", providerHandler::getProviderById)
+                .PUT("/providers/{id}", providerHandler::updateProvider)
+                .DELETE("/providers/{id}", providerHandler::deleteProvider)
+                .POST("/providers/{providerId}/services/{serviceId}", providerHandler::addServiceToProvider)
+                .DELETE("/providers/{providerId}/services/{serviceId}", providerHandler::removeServiceFromProvider)
+                .POST("/services", serviceHandler::createService)
+                .GET("/services", serviceHandler::getAllServices)
+                .GET("/services/{id}", serviceHandler::getServiceById)
+                .PUT("/services/{id}", serviceHandler::updateService)
+                .DELETE("/services/{id}", serviceHandler::deleteService)
+                .POST("/services/{serviceId}/providers/{providerId}", serviceHandler::addProviderToService)
+                .DELETE("/services/{serviceId}/providers/{providerId}", serviceHandler::removeProviderFromService)
+                .build();
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+}
@@ -1,5 +1,6 @@
 package crud.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import springfox.documentation.builders.PathSelectors;
@@ -10,10 +11,12 @@ import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 /**
  * Configuration class for Swagger documentation.
- * Enables Swagger2 for API documentation generation.
+ * Enables Swagger2 for API documentation generation unless
+ * {@code swagger.enabled} is false, which skips the controller scan at startup.
  */
 @Configuration
 @EnableSwagger2
+@ConditionalOnProperty(prefix = "swagger", name = "enabled", havingValue = "true", matchIfMissing = true)
 public class SwaggerConfig {
 
     /**
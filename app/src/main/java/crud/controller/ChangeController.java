@@ -0,0 +1,40 @@
+package crud.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import crud.model.ChangeBatch;
+import crud.service.ChangeFeedService;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("/changes")
+@Api(tags = "Change Feed", description = "APIs for following changes to providers and services")
+public class ChangeController {
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiOperation(value = "Stream changes as Server-Sent Events")
+    public SseEmitter streamChanges(
+            @ApiParam(value = "Sequence number to resume after") @RequestParam(required = false) Long from,
+            @ApiParam(value = "Sequence number of the last received event") @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return changeFeedService.subscribe(lastEventId != null ? lastEventId : from);
+    }
+
+    @GetMapping(params = "since")
+    @ApiOperation(value = "Get a batch of changes after a sequence number")
+    public ChangeBatch getChanges(
+            @ApiParam(value = "Sequence number to start after", required = true) @RequestParam long since,
+            @ApiParam(value = "Maximum number of changes", defaultValue = "500") @RequestParam(defaultValue = "500") int limit) {
+        return changeFeedService.getChanges(since, limit);
+    }
+}
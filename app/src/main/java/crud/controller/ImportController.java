@@ -0,0 +1,56 @@
+package crud.controller;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import crud.model.ImportProgress;
+import crud.service.ImportService;
+import jakarta.servlet.http.HttpServletRequest;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("/import")
+@Api(tags = "Bulk Import", description = "APIs for importing providers, services and links in bulk")
+public class ImportController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private ImportService importService;
+
+    @PostMapping(consumes = { "text/csv", NDJSON })
+    @ApiOperation(value = "Import a CSV or NDJSON stream of providers, services and links")
+    public ImportProgress importStream(HttpServletRequest request,
+            @ApiParam(value = "ID of a failed import to resume") @RequestParam(required = false) Long resume)
+            throws IOException {
+        ImportService.Format format = request.getContentType().startsWith(NDJSON)
+                ? ImportService.Format.NDJSON
+                : ImportService.Format.CSV;
+        try {
+            return importService.importStream(request.getInputStream(), format, resume);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    @GetMapping("/{id}")
+    @ApiOperation(value = "Get the progress of an import")
+    public ImportProgress getProgress(@ApiParam(value = "Import ID", required = true) @PathVariable long id) {
+        try {
+            return importService.getProgress(id);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package crud.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import crud.model.QueryProfile;
+import crud.model.RegisteredQuery;
+import crud.profiling.QueryProfiler;
+import crud.repository.QueryRegistry;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+
+@RestController
+@RequestMapping("/profiling")
+@Api(tags = "Profiling", description = "APIs for SQL statement profiling")
+public class ProfilingController {
+
+    @Autowired
+    private QueryProfiler queryProfiler;
+
+    @Autowired
+    private QueryRegistry queryRegistry;
+
+    @GetMapping("/queries")
+    @ApiOperation(value = "Get the slowest SQL statements with their latency histograms")
+    public List<QueryProfile> getSlowestQueries(
+            @ApiParam(value = "Maximum number of statements", defaultValue = "20") @RequestParam(defaultValue = "20") int limit,
+            @ApiParam(value = "Ordering (max, mean, total)", defaultValue = "max") @RequestParam(defaultValue = "max") String sort) {
+        return queryProfiler.getSlowest(limit, sort);
+    }
+
+    @GetMapping("/registered-queries")
+    @ApiOperation(value = "Get the registered statements with their preparation and execution statistics")
+    public List<RegisteredQuery> getRegisteredQueries() {
+        return queryRegistry.getQueries();
+    }
+
+    @DeleteMapping("/queries")
+    @ApiOperation(value = "Reset the collected statement statistics")
+    public void resetQueries() {
+        queryProfiler.reset();
+    }
+}
@@ -1,13 +1,29 @@
 package crud.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import crud.entity.ProviderEntity;
-import crud.entity.ServiceEntity;
+import crud.model.Neighborhood;
+import crud.model.ProviderPath;
+import crud.model.ProviderRecord;
+import crud.model.SearchPage;
+import crud.service.DepthDegrader;
+import crud.service.HotKeys;
+import crud.service.NeighborhoodService;
+import crud.service.ResponseCache;
+import crud.service.TableGenerations.Table;
+import crud.service.ExistenceFilter;
 import crud.service.ProviderService;
 import crud.service.ServiceService;
 import crud.utils.DepthLevel;
+import crud.utils.EntityType;
+import jakarta.servlet.http.HttpServletResponse;
 
 import java.util.List;
 
@@ -16,6 +32,7 @@ import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/providers")
 @Api(tags = "Provider Management", description = "APIs for managing providers")
 public class ProviderController {
@@ -26,6 +43,21 @@ public class ProviderController {
     @Autowired
     private ServiceService serviceService;
 
+    @Autowired
+    private ExistenceFilter existenceFilter;
+
+    @Autowired
+    private DepthDegrader depthDegrader;
+
+    @Autowired
+    private HotKeys hotKeys;
+
+    @Autowired
+    private NeighborhoodService neighborhoodService;
+
+    @Autowired
+    private ResponseCache responseCache;
+
     @PostMapping
     @ApiOperation(value = "Create a new provider")
     public ProviderEntity createProvider(@RequestBody ProviderEntity provider) {
@@ -34,19 +66,77 @@ public class ProviderController {
 
     @GetMapping
     @ApiOperation(value = "Get all providers")
-    public List<ProviderEntity> getAllProviders(
-            @ApiParam(value = "Depth level for fetching related entities", defaultValue = "shallow") @RequestParam(defaultValue = "shallow") String depth) {
-        DepthLevel depthLevel = DepthLevel.fromString(depth);
-        return providerService.getAllProviders(depthLevel);
+    public ResponseEntity<?> getAllProviders(
+            @ApiParam(value = "Depth level for fetching related entities", defaultValue = "shallow") @RequestParam(defaultValue = "shallow") String depth,
+            @ApiParam(value = "Set to allow to accept a lower depth under load") @RequestParam(required = false) String degrade,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletResponse response) {
+        DepthLevel depthLevel = serve(depth, degrade, response);
+        return responseCache.serve(Table.PROVIDERS, depthLevel, ifNoneMatch, () -> providerService.getAllProviders(depthLevel));
+    }
+
+    @GetMapping("/search")
+    @ApiOperation(value = "Search providers by name")
+    public SearchPage<ProviderRecord> searchProviders(
+            @ApiParam(value = "Text to match against provider names", required = true) @RequestParam String q,
+            @ApiParam(value = "Maximum number of results", defaultValue = "20") @RequestParam(defaultValue = "20") int limit,
+            @ApiParam(value = "Cursor returned by the previous page") @RequestParam(required = false) String cursor) {
+        return providerService.searchProviders(q, limit, cursor);
+    }
+
+    @GetMapping("/autocomplete")
+    @ApiOperation(value = "Autocomplete provider names")
+    public List<ProviderRecord> autocompleteProviders(
+            @ApiParam(value = "Name prefix", required = true) @RequestParam String prefix,
+            @ApiParam(value = "Maximum number of suggestions", defaultValue = "10") @RequestParam(defaultValue = "10") int limit) {
+        return providerService.autocompleteProviders(prefix, limit);
     }
 
     @GetMapping("/{id}")
     @ApiOperation(value = "Get provider by ID")
-    public ProviderEntity getProviderById(
+    public ProviderRecord getProviderById(
+            @ApiParam(value = "Provider ID", required = true) @PathVariable Long id,
+            @ApiParam(value = "Depth level for fetching related entities", defaultValue = "shallow") @RequestParam(defaultValue = "shallow") String depth,
+            @ApiParam(value = "Set to allow to accept a lower depth under load") @RequestParam(required = false) String degrade,
+            HttpServletResponse response) {
+        DepthLevel depthLevel = serve(depth, degrade, response);
+        ProviderRecord provider = providerService.getProviderById(id, depthLevel);
+        if (provider != null) {
+            hotKeys.record(EntityType.PROVIDER, id, depthLevel);
+        }
+        return provider;
+    }
+
+    @GetMapping("/{id}/neighborhood")
+    @ApiOperation(value = "Get the providers and services within a number of hops of a provider")
+    public Neighborhood getProviderNeighborhood(
+            @ApiParam(value = "Provider ID", required = true) @PathVariable Long id,
+            @ApiParam(value = "Number of links to follow", defaultValue = "2") @RequestParam(defaultValue = "2") int hops,
+            @ApiParam(value = "Maximum number of entities, including the provider", defaultValue = "1000") @RequestParam(defaultValue = "1000") int limit) {
+        Neighborhood neighborhood = existenceFilter.mightExist(EntityType.PROVIDER, id)
+                ? neighborhoodService.getNeighborhood(EntityType.PROVIDER, id, hops, limit)
+                : null;
+        if (neighborhood == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Provider " + id + " not found");
+        }
+        return neighborhood;
+    }
+
+    @GetMapping("/{id}/path/{otherId}")
+    @ApiOperation(value = "Get a shortest chain of shared services between two providers")
+    public ProviderPath getPath(
             @ApiParam(value = "Provider ID", required = true) @PathVariable Long id,
-            @ApiParam(value = "Depth level for fetching related entities", defaultValue = "shallow") @RequestParam(defaultValue = "shallow") String depth) {
-        DepthLevel depthLevel = DepthLevel.fromString(depth);
-        return providerService.getProviderById(id, depthLevel);
+            @ApiParam(value = "ID of the other provider", required = true) @PathVariable Long otherId,
+            @ApiParam(value = "Maximum number of links in the path", defaultValue = "6") @RequestParam(defaultValue = "6") int hops) {
+        ProviderPath path = existenceFilter.mightExist(EntityType.PROVIDER, id)
+                && existenceFilter.mightExist(EntityType.PROVIDER, otherId)
+                        ? neighborhoodService.findPath(id, otherId, hops)
+                        : null;
+        if (path == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Provider " + id + " or provider " + otherId + " not found");
+        }
+        return path;
     }
 
     @PutMapping("/{id}")
@@ -66,25 +156,43 @@ public class ProviderController {
 
     @PostMapping("/{providerId}/services/{serviceId}")
     @ApiOperation(value = "Add service to provider")
-    public ProviderEntity addServiceToProvider(
+    public ResponseEntity<Void> addServiceToProvider(
             @ApiParam(value = "Provider ID", required = true) @PathVariable Long providerId,
             @ApiParam(value = "Service ID", required = true) @PathVariable Long serviceId) {
-        ProviderEntity provider = providerService.getProviderById(providerId, DepthLevel.MEDIUM);
-        ServiceEntity service = serviceService.getServiceById(serviceId, DepthLevel.SHALLOW);
-
-        provider.addService(service);
-        return providerService.updateProvider(providerId, provider);
+        requireExisting(providerId, serviceId);
+        if (!providerService.linkService(providerId, serviceId)) {
+            throw notFound(providerId, serviceId);
+        }
+        return ResponseEntity.noContent().build();
     }
 
     @DeleteMapping("/{providerId}/services/{serviceId}")
     @ApiOperation(value = "Remove service from provider")
-    public ProviderEntity removeServiceFromProvider(
+    public ResponseEntity<Void> removeServiceFromProvider(
             @ApiParam(value = "Provider ID", required = true) @PathVariable Long providerId,
             @ApiParam(value = "Service ID", required = true) @PathVariable Long serviceId) {
-        ProviderEntity provider = providerService.getProviderById(providerId, DepthLevel.MEDIUM);
-        ServiceEntity service = serviceService.getServiceById(serviceId, DepthLevel.SHALLOW);
+        requireExisting(providerId, serviceId);
+        if (!providerService.unlinkService(providerId, serviceId)) {
+            throw notFound(providerId, serviceId);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private void requireExisting(Long providerId, Long serviceId) {
+        if (!existenceFilter.mightExist(EntityType.PROVIDER, providerId)
+                || !existenceFilter.mightExist(EntityType.SERVICE, serviceId)) {
+            throw notFound(providerId, serviceId);
+        }
+    }
+
+    private DepthLevel serve(String depth, String degrade, HttpServletResponse response) {
+        DepthLevel depthLevel = depthDegrader.serve(DepthLevel.fromString(depth), "allow".equalsIgnoreCase(degrade));
+        response.setHeader(DepthDegrader.HEADER, depthLevel.getValue());
+        return depthLevel;
+    }
 
-        provider.removeService(service);
-        return providerService.updateProvider(providerId, provider);
+    private static ResponseStatusException notFound(Long providerId, Long serviceId) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND,
+                "Provider " + providerId + " or service " + serviceId + " not found");
     }
 }
@@ -0,0 +1,85 @@
+package crud.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import crud.entity.ProviderEntity;
+import crud.repository.ReactiveLinkRepository;
+import crud.repository.ReactiveProviderRepository;
+import crud.utils.DepthLevel;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux handler serving the provider endpoints of {@link ProviderController}
+ * in the reactive profile. Search and autocomplete are only served by the
+ * servlet stack.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveProviderHandler {
+
+    @Autowired
+    private ReactiveProviderRepository providerRepository;
+
+    @Autowired
+    private ReactiveLinkRepository linkRepository;
+
+    public Mono<ServerResponse> createProvider(ServerRequest request) {
+        return request.bodyToMono(ProviderEntity.class)
+                .flatMap(providerRepository::save)
+                .flatMap(provider -> ServerResponse.ok().bodyValue(provider));
+    }
+
+    public Mono<ServerResponse> getAllProviders(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(providerRepository.findAll(depthOf(request)), ProviderEntity.class);
+    }
+
+    public Mono<ServerResponse> getProviderById(ServerRequest request) {
+        return providerRepository.findById(idOf(request, "id"), depthOf(request))
+                .flatMap(provider -> ServerResponse.ok().bodyValue(provider))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> updateProvider(ServerRequest request) {
+        Long id = idOf(request, "id");
+        return request.bodyToMono(ProviderEntity.class)
+                .flatMap(updatedProvider -> providerRepository.update(new ProviderEntity(id, updatedProvider.getName())))
+                .flatMap(provider -> ServerResponse.ok().bodyValue(provider))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> deleteProvider(ServerRequest request) {
+        return providerRepository.delete(idOf(request, "id"))
+                .then(ServerResponse.ok().build());
+    }
+
+    public Mono<ServerResponse> addServiceToProvider(ServerRequest request) {
+        Long providerId = idOf(request, "providerId");
+        return linkRepository.addLink(providerId, idOf(request, "serviceId"))
+                .then(providerRepository.findById(providerId, DepthLevel.MEDIUM))
+                .flatMap(provider -> ServerResponse.ok().bodyValue(provider))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> removeServiceFromProvider(ServerRequest request) {
+        Long providerId = idOf(request, "providerId");
+        return linkRepository.removeLink(providerId, idOf(request, "serviceId"))
+                .then(providerRepository.findById(providerId, DepthLevel.MEDIUM))
+                .flatMap(provider -> ServerResponse.ok().bodyValue(provider))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    private static Long idOf(ServerRequest request, String name) {
+        return Long.valueOf(request.pathVariable(name));
+    }
+
+    private static DepthLevel depthOf(ServerRequest request) {
+        return DepthLevel.fromString(request.queryParam("depth").orElse("shallow"));
+    }
+}
@@ -0,0 +1,85 @@
+package crud.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import crud.entity.ServiceEntity;
+import crud.repository.ReactiveLinkRepository;
+import crud.repository.ReactiveServiceRepository;
+import crud.utils.DepthLevel;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux handler serving the service endpoints of {@link ServiceController}
+ * in the reactive profile. Search and autocomplete are only served by the
+ * servlet stack.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveServiceHandler {
+
+    @Autowired
+    private ReactiveServiceRepository serviceRepository;
+
+    @Autowired
+    private ReactiveLinkRepository linkRepository;
+
+    public Mono<ServerResponse> createService(ServerRequest request) {
+        return request.bodyToMono(ServiceEntity.class)
+                .flatMap(serviceRepository::save)
+                .flatMap(service -> ServerResponse.ok().bodyValue(service));
+    }
+
+    public Mono<ServerResponse> getAllServices(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(serviceRepository.findAll(depthOf(request)), ServiceEntity.class);
+    }
+
+    public Mono<ServerResponse> getServiceById(ServerRequest request) {
+        return serviceRepository.findById(idOf(request, "id"), depthOf(request))
+                .flatMap(service -> ServerResponse.ok().bodyValue(service))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> updateService(ServerRequest request) {
+        Long id = idOf(request, "id");
+        return request.bodyToMono(ServiceEntity.class)
+                .flatMap(updatedService -> serviceRepository.update(new ServiceEntity(id, updatedService.getName())))
+                .flatMap(service -> ServerResponse.ok().bodyValue(service))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> deleteService(ServerRequest request) {
+        return serviceRepository.delete(idOf(request, "id"))
+                .then(ServerResponse.ok().build());
+    }
+
+    public Mono<ServerResponse> addProviderToService(ServerRequest request) {
+        Long serviceId = idOf(request, "serviceId");
+        return linkRepository.addLink(idOf(request, "providerId"), serviceId)
+                .then(serviceRepository.findById(serviceId, DepthLevel.MEDIUM))
+                .flatMap(service -> ServerResponse.ok().bodyValue(service))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> removeProviderFromService(ServerRequest request) {
+        Long serviceId = idOf(request, "serviceId");
+        return linkRepository.removeLink(idOf(request, "providerId"), serviceId)
+                .then(serviceRepository.findById(serviceId, DepthLevel.MEDIUM))
+                .flatMap(service -> ServerResponse.ok().bodyValue(service))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    private static Long idOf(ServerRequest request, String name) {
+        return Long.valueOf(request.pathVariable(name));
+    }
+
+    private static DepthLevel depthOf(ServerRequest request) {
+        return DepthLevel.fromString(request.queryParam("depth").orElse("shallow"));
+    }
+}
@@ -3,19 +3,35 @@ package crud.controller;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import crud.entity.ServiceEntity;
-import crud.entity.ProviderEntity;
+import crud.model.Neighborhood;
+import crud.model.SearchPage;
+import crud.model.ServiceRecord;
+import crud.service.DepthDegrader;
+import crud.service.HotKeys;
+import crud.service.NeighborhoodService;
+import crud.service.ResponseCache;
+import crud.service.TableGenerations.Table;
+import crud.service.ExistenceFilter;
 import crud.service.ServiceService;
 import crud.service.ProviderService;
 import crud.utils.DepthLevel;
+import crud.utils.EntityType;
+import jakarta.servlet.http.HttpServletResponse;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/services")
 @Api(tags = "Service Management", description = "APIs for managing services")
 public class ServiceController {
@@ -26,6 +42,21 @@ public class ServiceController {
     @Autowired
     private ProviderService providerService;
 
+    @Autowired
+    private ExistenceFilter existenceFilter;
+
+    @Autowired
+    private DepthDegrader depthDegrader;
+
+    @Autowired
+    private HotKeys hotKeys;
+
+    @Autowired
+    private NeighborhoodService neighborhoodService;
+
+    @Autowired
+    private ResponseCache responseCache;
+
     @PostMapping
     @ApiOperation(value = "Create a new service")
     public ServiceEntity createService(
@@ -35,19 +66,60 @@ public class ServiceController {
 
     @GetMapping
     @ApiOperation(value = "Get all services")
-    public List<ServiceEntity> getAllServices(
-            @ApiParam(value = "Depth level for fetching related entities", defaultValue = "shallow") @RequestParam(defaultValue = "shallow") String depth) {
-        DepthLevel depthLevel = DepthLevel.fromString(depth);
-        return serviceService.getAllServices(depthLevel);
+    public ResponseEntity<?> getAllServices(
+            @ApiParam(value = "Depth level for fetching related entities", defaultValue = "shallow") @RequestParam(defaultValue = "shallow") String depth,
+            @ApiParam(value = "Set to allow to accept a lower depth under load") @RequestParam(required = false) String degrade,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletResponse response) {
+        DepthLevel depthLevel = serve(depth, degrade, response);
+        return responseCache.serve(Table.SERVICES, depthLevel, ifNoneMatch, () -> serviceService.getAllServices(depthLevel));
+    }
+
+    @GetMapping("/search")
+    @ApiOperation(value = "Search services by name")
+    public SearchPage<ServiceRecord> searchServices(
+            @ApiParam(value = "Text to match against service names", required = true) @RequestParam String q,
+            @ApiParam(value = "Maximum number of results", defaultValue = "20") @RequestParam(defaultValue = "20") int limit,
+            @ApiParam(value = "Cursor returned by the previous page") @RequestParam(required = false) String cursor) {
+        return serviceService.searchServices(q, limit, cursor);
+    }
+
+    @GetMapping("/autocomplete")
+    @ApiOperation(value = "Autocomplete service names")
+    public List<ServiceRecord> autocompleteServices(
+            @ApiParam(value = "Name prefix", required = true) @RequestParam String prefix,
+            @ApiParam(value = "Maximum number of suggestions", defaultValue = "10") @RequestParam(defaultValue = "10") int limit) {
+        return serviceService.autocompleteServices(prefix, limit);
     }
 
     @GetMapping("/{id}")
     @ApiOperation(value = "Get service by ID")
-    public ServiceEntity getServiceById(
+    public ServiceRecord getServiceById(
+            @ApiParam(value = "Service ID", required = true) @PathVariable Long id,
+            @ApiParam(value = "Depth level for fetching related entities", defaultValue = "shallow") @RequestParam(defaultValue = "shallow") String depth,
+            @ApiParam(value = "Set to allow to accept a lower depth under load") @RequestParam(required = false) String degrade,
+            HttpServletResponse response) {
+        DepthLevel depthLevel = serve(depth, degrade, response);
+        ServiceRecord service = serviceService.getServiceById(id, depthLevel);
+        if (service != null) {
+            hotKeys.record(EntityType.SERVICE, id, depthLevel);
+        }
+        return service;
+    }
+
+    @GetMapping("/{id}/neighborhood")
+    @ApiOperation(value = "Get the providers and services within a number of hops of a service")
+    public Neighborhood getServiceNeighborhood(
             @ApiParam(value = "Service ID", required = true) @PathVariable Long id,
-            @ApiParam(value = "Depth level for fetching related entities", defaultValue = "shallow") @RequestParam(defaultValue = "shallow") String depth) {
-        DepthLevel depthLevel = DepthLevel.fromString(depth);
-        return serviceService.getServiceById(id, depthLevel);
+            @ApiParam(value = "Number of links to follow", defaultValue = "2") @RequestParam(defaultValue = "2") int hops,
+            @ApiParam(value = "Maximum number of entities, including the service", defaultValue = "1000") @RequestParam(defaultValue = "1000") int limit) {
+        Neighborhood neighborhood = existenceFilter.mightExist(EntityType.SERVICE, id)
+                ? neighborhoodService.getNeighborhood(EntityType.SERVICE, id, hops, limit)
+                : null;
+        if (neighborhood == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Service " + id + " not found");
+        }
+        return neighborhood;
     }
 
     @PutMapping("/{id}")
@@ -67,25 +139,43 @@ public class ServiceController {
 
     @PostMapping("/{serviceId}/providers/{providerId}")
     @ApiOperation(value = "Add provider to service")
-    public ServiceEntity addProviderToService(
+    public ResponseEntity<Void> addProviderToService(
             @ApiParam(value = "Service ID", required = true) @PathVariable Long serviceId,
             @ApiParam(value = "Provider ID", required = true) @PathVariable Long providerId) {
-        ServiceEntity service = serviceService.getServiceById(serviceId, DepthLevel.MEDIUM);
-        ProviderEntity provider = providerService.getProviderById(providerId, DepthLevel.SHALLOW);
-
-        service.addProvider(provider);
-        return serviceService.updateService(serviceId, service);
+        requireExisting(providerId, serviceId);
+        if (!serviceService.linkProvider(serviceId, providerId)) {
+            throw notFound(providerId, serviceId);
+        }
+        return ResponseEntity.noContent().build();
     }
 
     @DeleteMapping("/{serviceId}/providers/{providerId}")
     @ApiOperation(value = "Remove provider from service")
-    public ServiceEntity removeProviderFromService(
+    public ResponseEntity<Void> removeProviderFromService(
             @ApiParam(value = "Service ID", required = true) @PathVariable Long serviceId,
             @ApiParam(value = "Provider ID", required = true) @PathVariable Long providerId) {
-        ServiceEntity service = serviceService.getServiceById(serviceId, DepthLevel.MEDIUM);
-        ProviderEntity provider = providerService.getProviderById(providerId, DepthLevel.SHALLOW);
+        requireExisting(providerId, serviceId);
+        if (!serviceService.unlinkProvider(serviceId, providerId)) {
+            throw notFound(providerId, serviceId);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private void requireExisting(Long providerId, Long serviceId) {
+        if (!existenceFilter.mightExist(EntityType.PROVIDER, providerId)
+                || !existenceFilter.mightExist(EntityType.SERVICE, serviceId)) {
+            throw notFound(providerId, serviceId);
+        }
+    }
+
+    private DepthLevel serve(String depth, String degrade, HttpServletResponse response) {
+        DepthLevel depthLevel = depthDegrader.serve(DepthLevel.fromString(depth), "allow".equalsIgnoreCase(degrade));
+        response.setHeader(DepthDegrader.HEADER, depthLevel.getValue());
+        return depthLevel;
+    }
 
-        service.removeProvider(provider);
-        return serviceService.updateService(serviceId, service);
+    private static ResponseStatusException notFound(Long providerId, Long serviceId) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND,
+                "Provider " + providerId + " or service " + serviceId + " not found");
     }
 }
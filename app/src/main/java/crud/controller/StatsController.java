@@ -0,0 +1,40 @@
+package crud.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import crud.model.HotKey;
+import crud.model.StatsSnapshot;
+import crud.service.HotKeys;
+import crud.service.StatsService;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+
+@RestController
+@RequestMapping("/stats")
+@Api(tags = "Statistics", description = "APIs for aggregate statistics")
+public class StatsController {
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private HotKeys hotKeys;
+
+    @GetMapping
+    @ApiOperation(value = "Get totals, degree histograms and the most connected providers and services")
+    public StatsSnapshot getStats() {
+        return statsService.getStats();
+    }
+
+    @GetMapping("/hot-keys")
+    @ApiOperation(value = "Get the most requested providers and services per depth")
+    public List<HotKey> getHotKeys(
+            @ApiParam(value = "Maximum number of keys", defaultValue = "20") @RequestParam(defaultValue = "20") int limit) {
+        return hotKeys.getTop(limit);
+    }
+}
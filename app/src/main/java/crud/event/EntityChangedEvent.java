@@ -0,0 +1,38 @@
+package crud.event;
+
+import crud.utils.ChangeOperation;
+import crud.utils.EntityType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Application event published for every write appended to the change outbox.
+ * Listeners that must only observe committed data should use
+ * {@code @TransactionalEventListener}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class EntityChangedEvent {
+
+    /**
+     * The type of the changed entity.
+     */
+    private final EntityType entityType;
+
+    /**
+     * The ID of the changed entity.
+     */
+    private final long entityId;
+
+    /**
+     * The operation that changed the entity.
+     */
+    private final ChangeOperation operation;
+
+    /**
+     * The ID of the related entity for LINK and UNLINK, otherwise null.
+     */
+    private final Long relatedId;
+}
@@ -0,0 +1,95 @@
+package crud.logging;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import crud.config.OperationLogProperties;
+
+/**
+ * Emits sampled, structured log events for service operations.
+ * Each event carries the operation name, its duration and key-value fields
+ * such as ids, depth level and row counts instead of rendered entities. An
+ * operation that is not sampled costs one random draw and builds no event.
+ */
+@Component
+public class OperationLogger {
+
+    private final OperationLogProperties properties;
+
+    /**
+     * Constructs a new OperationLogger.
+     *
+     * @param properties The sampling configuration.
+     */
+    @Autowired
+    public OperationLogger(OperationLogProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Starts a log event for a finished operation, if the operation is sampled.
+     *
+     * @param logger     The logger to write to.
+     * @param operation  The operation name, for example provider.findById.
+     * @param startNanos The {@link System#nanoTime()} at which the operation
+     *                   started.
+     * @return The event to add fields to and log.
+     */
+    public Event info(Logger logger, String operation, long startNanos) {
+        if (!logger.isInfoEnabled() || !isSampled(operation)) {
+            return Event.DISABLED;
+        }
+        long durationMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        return new Event(logger.atInfo()
+                .setMessage(operation)
+                .addKeyValue("operation", operation)
+                .addKeyValue("durationMs", durationMicros / 1000.0));
+    }
+
+    private boolean isSampled(String operation) {
+        double rate = properties.getRates().getOrDefault(operation, properties.getDefaultRate());
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * A log event under construction.
+     */
+    public static class Event {
+
+        private static final Event DISABLED = new Event(null);
+
+        private final LoggingEventBuilder builder;
+
+        private Event(LoggingEventBuilder builder) {
+            this.builder = builder;
+        }
+
+        /**
+         * Adds a structured field to the event.
+         *
+         * @param key   The field name.
+         * @param value The field value.
+         * @return This event.
+         */
+        public Event with(String key, Object value) {
+            if (builder != null) {
+                builder.addKeyValue(key, value);
+            }
+            return this;
+        }
+
+        /**
+         * Writes the event.
+         */
+        public void log() {
+            if (builder != null) {
+                builder.log();
+            }
+        }
+    }
+}
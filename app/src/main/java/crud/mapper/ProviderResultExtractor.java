@@ -2,70 +2,130 @@ package crud.mapper;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.List;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.springframework.jdbc.core.ResultSetExtractor;
 
-import crud.entity.ProviderEntity;
-import crud.entity.ServiceEntity;
+import crud.model.ProviderRecord;
+import crud.model.ServiceRecord;
+import crud.profiling.RequestResources;
+import crud.profiling.RequestResources.Phase;
+import crud.profiling.RequestResources.PhaseScope;
 
 /**
- * ResultSetExtractor implementation for extracting a list of ProviderEntity
+ * ResultSetExtractor implementation for extracting a list of ProviderRecord
  * objects from a ResultSet.
+ * Rows are grouped by provider and service id. Names repeated within one
+ * result are kept once, and the innermost records, which carry no children,
+ * are shared between all the parents that show them.
  */
-public class ProviderResultExtractor implements ResultSetExtractor<List<ProviderEntity>> {
+public class ProviderResultExtractor implements ResultSetExtractor<List<ProviderRecord>> {
 
     /**
-     * Extracts data from the ResultSet and constructs a list of ProviderEntity
+     * Extracts data from the ResultSet and constructs a list of ProviderRecord
      * objects.
+     * The work is measured as the extraction phase of the current request.
      *
      * @param rs The ResultSet containing the data.
-     * @return List of ProviderEntity objects.
+     * @return List of ProviderRecord objects.
      * @throws SQLException If a SQL exception occurs during data extraction.
      */
     @Override
-    public List<ProviderEntity> extractData(ResultSet rs) throws SQLException {
-        Map<Long, ProviderEntity> providers = new HashMap<>();
+    public List<ProviderRecord> extractData(ResultSet rs) throws SQLException {
+        try (PhaseScope ignored = RequestResources.enter(Phase.EXTRACTION)) {
+            return extract(rs);
+        }
+    }
 
-        while (rs.next()) {
-            Long id = rs.getLong("provider_id");
+    private List<ProviderRecord> extract(ResultSet rs) throws SQLException {
+        Set<String> labels = ResultColumns.labels(rs);
+        boolean withServices = labels.contains("service_id");
+        boolean withServiceProviders = labels.contains("provider_service_id");
+        Map<Long, Provider> providers = new LinkedHashMap<>();
+        Map<String, String> names = new HashMap<>();
+        Map<Long, ServiceRecord> leafServices = new HashMap<>();
+        Map<Long, ProviderRecord> leafProviders = new HashMap<>();
 
-            ProviderEntity provider;
-            if (providers.containsKey(id)) {
-                provider = providers.get(id);
-            } else {
-                provider = new ProviderEntity(rs.getLong("provider_id"), rs.getString("provider_name"));
-                providers.put(provider.getId(), provider);
+        while (rs.next()) {
+            long id = rs.getLong("provider_id");
+            Provider provider = providers.get(id);
+            if (provider == null) {
+                provider = new Provider(id, ResultColumns.dedup(names, rs.getString("provider_name")));
+                providers.put(id, provider);
+            }
+            if (!withServices) {
+                continue;
             }
 
-            ServiceEntity service;
+            long serviceId = rs.getLong("service_id");
+            if (rs.wasNull()) {
+                continue;
+            }
+            Service service = provider.services.get(serviceId);
+            if (service == null) {
+                service = new Service(serviceId, ResultColumns.dedup(names, rs.getString("service_name")));
+                provider.services.put(serviceId, service);
+            }
+            if (!withServiceProviders) {
+                continue;
+            }
 
-            try {
-                service = new ServiceEntity(rs.getLong("service_id"), rs.getString("service_name"));
-                if (!provider.containsService(service.getId())) {
-                    provider.addService(service);
-                }
-            } catch (SQLException e) {
+            long serviceProviderId = rs.getLong("provider_service_id");
+            if (rs.wasNull()) {
                 continue;
             }
+            ProviderRecord serviceProvider = leafProviders.get(serviceProviderId);
+            if (serviceProvider == null) {
+                serviceProvider = ProviderRecord.shallow(serviceProviderId,
+                        ResultColumns.dedup(names, rs.getString("provider_service_name")));
+                leafProviders.put(serviceProviderId, serviceProvider);
+            }
+            service.providers.add(serviceProvider);
+        }
 
-            try {
-                var serviceProvider = new ProviderEntity(rs.getLong("provider_service_id"),
-                        rs.getString("provider_service_name"));
+        List<ProviderRecord> records = new ArrayList<>(providers.size());
+        for (Provider provider : providers.values()) {
+            List<ServiceRecord> services = new ArrayList<>(provider.services.size());
+            for (Service service : provider.services.values()) {
+                services.add(service.providers.isEmpty()
+                        ? leafServices.computeIfAbsent(service.id, id -> ServiceRecord.shallow(id, service.name))
+                        : new ServiceRecord(service.id, service.name, service.providers));
+            }
+            records.add(new ProviderRecord(provider.id, provider.name, services));
+        }
+        return records;
+    }
 
-                var optionalService = provider.getService(service.getId());
-                if (optionalService.isPresent()) {
-                    service = optionalService.get();
-                }
+    /**
+     * A provider being extracted, with its services by id.
+     */
+    private static final class Provider {
+        private final long id;
+        private final String name;
+        private final Map<Long, Service> services = new LinkedHashMap<>();
 
-                service.addProvider(serviceProvider);
-            } catch (SQLException e) {
-                continue;
-            }
+        private Provider(long id, String name) {
+            this.id = id;
+            this.name = name;
         }
+    }
+
+    /**
+     * A service being extracted, with the providers read for it.
+     */
+    private static final class Service {
+        private final long id;
+        private final String name;
+        private final List<ProviderRecord> providers = new ArrayList<>();
 
-        return (List<ProviderEntity>) providers.values();
+        private Service(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
     }
 }
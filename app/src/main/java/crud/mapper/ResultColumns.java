@@ -0,0 +1,51 @@
+package crud.mapper;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Helpers shared by the result extractors.
+ */
+final class ResultColumns {
+
+    private ResultColumns() {
+    }
+
+    /**
+     * Returns the lower-case labels of the columns of a result, so that an
+     * extractor can tell which depth was queried without failing on every row.
+     *
+     * @param rs The result.
+     * @return The column labels.
+     * @throws SQLException If the metadata cannot be read.
+     */
+    static Set<String> labels(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        Set<String> labels = new HashSet<>();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            labels.add(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT));
+        }
+        return labels;
+    }
+
+    /**
+     * Returns the first equal instance of a name read from the same result, so
+     * that a name repeated on many rows is kept once.
+     *
+     * @param names The names read so far.
+     * @param name  The name just read.
+     * @return The shared instance.
+     */
+    static String dedup(Map<String, String> names, String name) {
+        if (name == null) {
+            return null;
+        }
+        String existing = names.putIfAbsent(name, name);
+        return existing != null ? existing : name;
+    }
+}
@@ -2,70 +2,130 @@ package crud.mapper;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.List;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.springframework.jdbc.core.ResultSetExtractor;
 
-import crud.entity.ProviderEntity;
-import crud.entity.ServiceEntity;
+import crud.model.ProviderRecord;
+import crud.model.ServiceRecord;
+import crud.profiling.RequestResources;
+import crud.profiling.RequestResources.Phase;
+import crud.profiling.RequestResources.PhaseScope;
 
 /**
- * ResultSetExtractor implementation for extracting a list of ServiceEntity
+ * ResultSetExtractor implementation for extracting a list of ServiceRecord
  * objects from a ResultSet.
+ * Rows are grouped by service and provider id. Names repeated within one
+ * result are kept once, and the innermost records, which carry no children,
+ * are shared between all the parents that show them.
  */
-public class ServiceResultExtractor implements ResultSetExtractor<List<ServiceEntity>> {
+public class ServiceResultExtractor implements ResultSetExtractor<List<ServiceRecord>> {
 
     /**
-     * Extracts data from the ResultSet and constructs a list of ServiceEntity
+     * Extracts data from the ResultSet and constructs a list of ServiceRecord
      * objects.
+     * The work is measured as the extraction phase of the current request.
      *
      * @param rs The ResultSet containing the data.
-     * @return List of ServiceEntity objects.
+     * @return List of ServiceRecord objects.
      * @throws SQLException If a SQL exception occurs during data extraction.
      */
     @Override
-    public List<ServiceEntity> extractData(ResultSet rs) throws SQLException {
-        Map<Long, ServiceEntity> services = new HashMap<>();
+    public List<ServiceRecord> extractData(ResultSet rs) throws SQLException {
+        try (PhaseScope ignored = RequestResources.enter(Phase.EXTRACTION)) {
+            return extract(rs);
+        }
+    }
 
-        while (rs.next()) {
-            Long id = rs.getLong("service_id");
+    private List<ServiceRecord> extract(ResultSet rs) throws SQLException {
+        Set<String> labels = ResultColumns.labels(rs);
+        boolean withProviders = labels.contains("provider_id");
+        boolean withProviderServices = labels.contains("provider_service_id");
+        Map<Long, Service> services = new LinkedHashMap<>();
+        Map<String, String> names = new HashMap<>();
+        Map<Long, ProviderRecord> leafProviders = new HashMap<>();
+        Map<Long, ServiceRecord> leafServices = new HashMap<>();
 
-            ServiceEntity service;
-            if (services.containsKey(id)) {
-                service = services.get(id);
-            } else {
-                service = new ServiceEntity(rs.getLong("service_id"), rs.getString("service_name"));
-                services.put(service.getId(), service);
+        while (rs.next()) {
+            long id = rs.getLong("service_id");
+            Service service = services.get(id);
+            if (service == null) {
+                service = new Service(id, ResultColumns.dedup(names, rs.getString("service_name")));
+                services.put(id, service);
+            }
+            if (!withProviders) {
+                continue;
             }
 
-            ProviderEntity provider;
+            long providerId = rs.getLong("provider_id");
+            if (rs.wasNull()) {
+                continue;
+            }
+            Provider provider = service.providers.get(providerId);
+            if (provider == null) {
+                provider = new Provider(providerId, ResultColumns.dedup(names, rs.getString("provider_name")));
+                service.providers.put(providerId, provider);
+            }
+            if (!withProviderServices) {
+                continue;
+            }
 
-            try {
-                provider = new ProviderEntity(rs.getLong("provider_id"), rs.getString("provider_name"));
-                if (!service.containsProvider(provider.getId())) {
-                    service.addProvider(provider);
-                }
-            } catch (SQLException e) {
+            long providerServiceId = rs.getLong("provider_service_id");
+            if (rs.wasNull()) {
                 continue;
             }
+            ServiceRecord providerService = leafServices.get(providerServiceId);
+            if (providerService == null) {
+                providerService = ServiceRecord.shallow(providerServiceId,
+                        ResultColumns.dedup(names, rs.getString("provider_service_name")));
+                leafServices.put(providerServiceId, providerService);
+            }
+            provider.services.add(providerService);
+        }
 
-            try {
-                var serviceProvider = new ServiceEntity(rs.getLong("provider_service_id"),
-                        rs.getString("provider_service_name"));
+        List<ServiceRecord> records = new ArrayList<>(services.size());
+        for (Service service : services.values()) {
+            List<ProviderRecord> providers = new ArrayList<>(service.providers.size());
+            for (Provider provider : service.providers.values()) {
+                providers.add(provider.services.isEmpty()
+                        ? leafProviders.computeIfAbsent(provider.id, id -> ProviderRecord.shallow(id, provider.name))
+                        : new ProviderRecord(provider.id, provider.name, provider.services));
+            }
+            records.add(new ServiceRecord(service.id, service.name, providers));
+        }
+        return records;
+    }
 
-                var optionalProvider = service.getProvider(provider.getId());
-                if (optionalProvider.isPresent()) {
-                    provider = optionalProvider.get();
-                }
+    /**
+     * A service being extracted, with its providers by id.
+     */
+    private static final class Service {
+        private final long id;
+        private final String name;
+        private final Map<Long, Provider> providers = new LinkedHashMap<>();
 
-                provider.addService(serviceProvider);
-            } catch (SQLException e) {
-                continue;
-            }
+        private Service(long id, String name) {
+            this.id = id;
+            this.name = name;
         }
+    }
+
+    /**
+     * A provider being extracted, with the services read for it.
+     */
+    private static final class Provider {
+        private final long id;
+        private final String name;
+        private final List<ServiceRecord> services = new ArrayList<>();
 
-        return (List<ServiceEntity>) services.values();
+        private Provider(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
     }
 }
@@ -0,0 +1,29 @@
+package crud.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents a batch of change feed entries for catch-up reads.
+ */
+@Getter
+@AllArgsConstructor
+public class ChangeBatch {
+
+    /**
+     * The changes in the batch, in feed order.
+     */
+    private final List<ChangeEvent> events;
+
+    /**
+     * The sequence number to pass as {@code since} for the next batch.
+     */
+    private final long nextSince;
+
+    /**
+     * True if more changes were available than fitted into the batch.
+     */
+    private final boolean hasMore;
+}
@@ -0,0 +1,46 @@
+package crud.model;
+
+import java.time.Instant;
+
+import crud.utils.ChangeOperation;
+import crud.utils.EntityType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents one entry of the change feed.
+ */
+@Getter
+@AllArgsConstructor
+public class ChangeEvent {
+
+    /**
+     * The position of the change in the feed.
+     */
+    private final long seq;
+
+    /**
+     * The type of the changed entity.
+     */
+    private final EntityType entityType;
+
+    /**
+     * The ID of the changed entity.
+     */
+    private final long entityId;
+
+    /**
+     * The operation that changed the entity.
+     */
+    private final ChangeOperation operation;
+
+    /**
+     * The ID of the related entity for LINK and UNLINK, otherwise null.
+     */
+    private final Long relatedId;
+
+    /**
+     * The time at which the change was recorded.
+     */
+    private final Instant createdAt;
+}
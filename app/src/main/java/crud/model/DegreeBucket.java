@@ -0,0 +1,28 @@
+package crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents one bucket of a degree histogram.
+ * Buckets are powers of two: [0, 0], [1, 1], [2, 3], [4, 7], ...
+ */
+@Getter
+@AllArgsConstructor
+public class DegreeBucket {
+
+    /**
+     * The smallest degree in the bucket.
+     */
+    private final long minDegree;
+
+    /**
+     * The largest degree in the bucket.
+     */
+    private final long maxDegree;
+
+    /**
+     * The number of entities whose degree falls into the bucket.
+     */
+    private final long count;
+}
@@ -0,0 +1,27 @@
+package crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents an entity together with its number of associations.
+ */
+@Getter
+@AllArgsConstructor
+public class DegreeEntry {
+
+    /**
+     * The unique identifier of the entity.
+     */
+    private final long id;
+
+    /**
+     * The name of the entity.
+     */
+    private final String name;
+
+    /**
+     * The number of entities of the other type associated with this entity.
+     */
+    private final long degree;
+}
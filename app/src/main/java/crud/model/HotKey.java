@@ -0,0 +1,38 @@
+package crud.model;
+
+import crud.utils.EntityType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents a frequently requested entity at one depth.
+ */
+@Getter
+@AllArgsConstructor
+public class HotKey {
+
+    /**
+     * The type of the entity.
+     */
+    private final EntityType entityType;
+
+    /**
+     * The unique identifier of the entity.
+     */
+    private final long id;
+
+    /**
+     * The requested depth.
+     */
+    private final String depth;
+
+    /**
+     * The estimated number of requests, which is never too low.
+     */
+    private final long hits;
+
+    /**
+     * By how much the number of requests may be too high.
+     */
+    private final long error;
+}
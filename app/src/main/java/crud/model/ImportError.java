@@ -0,0 +1,22 @@
+package crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents a row of a bulk import that could not be imported.
+ */
+@Getter
+@AllArgsConstructor
+public class ImportError {
+
+    /**
+     * The 1-based number of the row, not counting a CSV header.
+     */
+    private final long row;
+
+    /**
+     * Why the row was rejected.
+     */
+    private final String message;
+}
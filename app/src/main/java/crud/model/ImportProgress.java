@@ -0,0 +1,52 @@
+package crud.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents the progress of a bulk import.
+ */
+@Getter
+@AllArgsConstructor
+public class ImportProgress {
+
+    /**
+     * The ID of the import, used to query its progress and to resume it.
+     */
+    private final long id;
+
+    /**
+     * RUNNING, COMPLETED or FAILED.
+     */
+    private final String status;
+
+    /**
+     * The number of rows up to the last checkpoint, imported or rejected. A
+     * resumed import skips this many rows.
+     */
+    private final long rowsProcessed;
+
+    /**
+     * The number of rejected rows up to the last checkpoint.
+     */
+    private final long rowsFailed;
+
+    /**
+     * The number of rows read by the running or last request, including rows
+     * not yet checkpointed.
+     */
+    private final long rowsRead;
+
+    /**
+     * The rows read per second by the running or last request.
+     */
+    private final double rowsPerSecond;
+
+    /**
+     * The rejected rows of the running or last request, up to the configured
+     * maximum.
+     */
+    private final List<ImportError> errors;
+}
@@ -0,0 +1,42 @@
+package crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Represents one row of a bulk import: a provider, a service, or a link
+ * between them, identified by external keys.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRecord {
+
+    /**
+     * The kind of row: provider, service or link.
+     */
+    private String type;
+
+    /**
+     * The external key of a provider or service row.
+     */
+    private String key;
+
+    /**
+     * The name of a provider or service row.
+     */
+    private String name;
+
+    /**
+     * The external key of the provider of a link row.
+     */
+    private String provider;
+
+    /**
+     * The external key of the service of a link row.
+     */
+    private String service;
+}
@@ -0,0 +1,28 @@
+package crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents one bucket of a latency histogram.
+ * Buckets are powers of two in microseconds: [0, 1), [1, 2), [2, 4), ...
+ */
+@Getter
+@AllArgsConstructor
+public class LatencyBucket {
+
+    /**
+     * The lower bound of the bucket in milliseconds, inclusive.
+     */
+    private final double fromMs;
+
+    /**
+     * The upper bound of the bucket in milliseconds, exclusive.
+     */
+    private final double toMs;
+
+    /**
+     * The number of executions whose latency falls into the bucket.
+     */
+    private final long count;
+}
@@ -0,0 +1,52 @@
+package crud.model;
+
+import java.util.List;
+
+import crud.utils.EntityType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents the entities within a number of hops of a provider or service
+ * and the links between them.
+ */
+@Getter
+@AllArgsConstructor
+public class Neighborhood {
+
+    /**
+     * The type of the entity the traversal started from.
+     */
+    private final EntityType rootType;
+
+    /**
+     * The unique identifier of the entity the traversal started from.
+     */
+    private final long rootId;
+
+    /**
+     * The number of hops requested.
+     */
+    private final int hops;
+
+    /**
+     * The largest hop at which an entity was found.
+     */
+    private final int hopsReached;
+
+    /**
+     * Whether the node or link limit stopped the traversal before all
+     * entities within the requested hops were found.
+     */
+    private final boolean truncated;
+
+    /**
+     * The entities found, including the root at hop 0, in order of hop.
+     */
+    private final List<NeighborhoodNode> nodes;
+
+    /**
+     * The links between consecutive hops.
+     */
+    private final List<NeighborhoodLink> links;
+}
@@ -0,0 +1,22 @@
+package crud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents a provider-service link between two entities of a neighborhood.
+ */
+@Getter
+@AllArgsConstructor
+public class NeighborhoodLink {
+
+    /**
+     * The unique identifier of the provider.
+     */
+    private final long providerId;
+
+    /**
+     * The unique identifier of the service.
+     */
+    private final long serviceId;
+}
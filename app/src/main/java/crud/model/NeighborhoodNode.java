@@ -0,0 +1,28 @@
+package crud.model;
+
+import crud.utils.EntityType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents an entity reached by a neighborhood traversal.
+ */
+@Getter
+@AllArgsConstructor
+public class NeighborhoodNode {
+
+    /**
+     * The type of the entity.
+     */
+    private final EntityType type;
+
+    /**
+     * The unique identifier of the entity.
+     */
+    private final long id;
+
+    /**
+     * The number of links between the root and the entity.
+     */
+    private final int hop;
+}
@@ -0,0 +1,41 @@
+package crud.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents a shortest chain of shared services between two providers.
+ */
+@Getter
+@AllArgsConstructor
+public class ProviderPath {
+
+    /**
+     * The unique identifier of the provider the path starts at.
+     */
+    private final long fromId;
+
+    /**
+     * The unique identifier of the provider the path ends at.
+     */
+    private final long toId;
+
+    /**
+     * Whether a path was found within the limits.
+     */
+    private final boolean found;
+
+    /**
+     * Whether the node or link limit stopped the search, so that a longer
+     * search might still find a path.
+     */
+    private final boolean truncated;
+
+    /**
+     * The providers and services of the path in order, alternating, each with
+     * its distance from the start; empty if no path was found.
+     */
+    private final List<NeighborhoodNode> path;
+}
@@ -0,0 +1,36 @@
+package crud.model;
+
+import java.util.List;
+
+/**
+ * Immutable read model of a provider, as returned by queries.
+ * Unlike {@link crud.entity.ProviderEntity}, which remains the write model,
+ * the id is primitive and the services are held in a compact immutable list,
+ * so records can be shared between callers and caches without copying. The
+ * services are empty for SHALLOW reads.
+ *
+ * @param id       The unique identifier of the provider.
+ * @param name     The name of the provider.
+ * @param services The services of the provider, empty if not read.
+ */
+public record ProviderRecord(long id, String name, List<ServiceRecord> services) {
+
+    /**
+     * Constructs a new ProviderRecord, copying the services unless they are
+     * already immutable.
+     */
+    public ProviderRecord {
+        services = services == null ? List.of() : List.copyOf(services);
+    }
+
+    /**
+     * Creates a provider without services.
+     *
+     * @param id   The unique identifier of the provider.
+     * @param name The name of the provider.
+     * @return The shallow provider.
+     */
+    public static ProviderRecord shallow(long id, String name) {
+        return new ProviderRecord(id, name, List.of());
+    }
+}
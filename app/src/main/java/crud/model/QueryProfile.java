@@ -0,0 +1,66 @@
+package crud.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents the latency profile of one SQL statement.
+ */
+@Getter
+@AllArgsConstructor
+public class QueryProfile {
+
+    /**
+     * The logical query name, for example provider.findById.deep.
+     */
+    private final String name;
+
+    /**
+     * The SQL text of the statement, with whitespace collapsed.
+     */
+    private final String sql;
+
+    /**
+     * The number of executions.
+     */
+    private final long count;
+
+    /**
+     * The number of executions that failed.
+     */
+    private final long errors;
+
+    /**
+     * The total number of rows returned or affected.
+     */
+    private final long rows;
+
+    /**
+     * The mean latency in milliseconds.
+     */
+    private final double meanMs;
+
+    /**
+     * The upper bound of the histogram bucket holding the median, capped at the
+     * largest latency, in milliseconds.
+     */
+    private final double p50Ms;
+
+    /**
+     * The upper bound of the histogram bucket holding the 99th percentile,
+     * capped at the largest latency, in milliseconds.
+     */
+    private final double p99Ms;
+
+    /**
+     * The largest latency in milliseconds.
+     */
+    private final double maxMs;
+
+    /**
+     * The non-empty buckets of the latency histogram.
+     */
+    private final List<LatencyBucket> histogram;
+}
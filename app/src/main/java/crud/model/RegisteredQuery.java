@@ -0,0 +1,91 @@
+package crud.model;
+
+import java.util.List;
+
+import crud.repository.QueryRegistry.Operation;
+import crud.utils.DepthLevel;
+import crud.utils.EntityType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents a statement of the query registry with its preparation at startup
+ * and its executions since.
+ */
+@Getter
+@AllArgsConstructor
+public class RegisteredQuery {
+
+    /**
+     * The logical query name, for example provider.findById.deep.
+     */
+    private final String name;
+
+    /**
+     * The entity type the statement reads or writes.
+     */
+    private final EntityType type;
+
+    /**
+     * The operation the statement implements.
+     */
+    private final Operation operation;
+
+    /**
+     * The depth level the statement reads at.
+     */
+    private final DepthLevel depth;
+
+    /**
+     * The SQL text of the statement.
+     */
+    private final String sql;
+
+    /**
+     * Whether the statement prepared against the schema with the expected
+     * parameters and columns, or null if it was not validated.
+     */
+    private final Boolean valid;
+
+    /**
+     * Why the statement is invalid, or null.
+     */
+    private final String error;
+
+    /**
+     * The time it took to prepare and describe the statement at startup, in
+     * milliseconds.
+     */
+    private final double prepareMs;
+
+    /**
+     * The number of bind parameters.
+     */
+    private final int parameters;
+
+    /**
+     * The result columns the extractors read.
+     */
+    private final List<String> columns;
+
+    /**
+     * The number of executions.
+     */
+    private final long executions;
+
+    /**
+     * The number of executions that failed.
+     */
+    private final long errors;
+
+    /**
+     * The mean latency of the executions in milliseconds.
+     */
+    private final double meanMs;
+
+    /**
+     * The upper bound of the histogram bucket holding the 99th percentile of
+     * the executions, in milliseconds.
+     */
+    private final double p99Ms;
+}
@@ -0,0 +1,27 @@
+package crud.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents one page of name search results.
+ *
+ * @param <T> The type of the entities in the page.
+ */
+@Getter
+@AllArgsConstructor
+public class SearchPage<T> {
+
+    /**
+     * The matching entities, best ranked first.
+     */
+    private final List<T> items;
+
+    /**
+     * Opaque cursor for fetching the next page, or null if there are no more
+     * results.
+     */
+    private final String nextCursor;
+}
@@ -0,0 +1,36 @@
+package crud.model;
+
+import java.util.List;
+
+/**
+ * Immutable read model of a service, as returned by queries.
+ * Unlike {@link crud.entity.ServiceEntity}, which remains the write model,
+ * the id is primitive and the providers are held in a compact immutable list,
+ * so records can be shared between callers and caches without copying. The
+ * providers are empty for SHALLOW reads.
+ *
+ * @param id        The unique identifier of the service.
+ * @param name      The name of the service.
+ * @param providers The providers of the service, empty if not read.
+ */
+public record ServiceRecord(long id, String name, List<ProviderRecord> providers) {
+
+    /**
+     * Constructs a new ServiceRecord, copying the providers unless they are
+     * already immutable.
+     */
+    public ServiceRecord {
+        providers = providers == null ? List.of() : List.copyOf(providers);
+    }
+
+    /**
+     * Creates a service without providers.
+     *
+     * @param id   The unique identifier of the service.
+     * @param name The name of the service.
+     * @return The shallow service.
+     */
+    public static ServiceRecord shallow(long id, String name) {
+        return new ServiceRecord(id, name, List.of());
+    }
+}
@@ -0,0 +1,56 @@
+package crud.model;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents precomputed aggregate statistics over providers, services and
+ * their associations.
+ */
+@Getter
+@AllArgsConstructor
+public class StatsSnapshot {
+
+    /**
+     * The number of non-deleted providers.
+     */
+    private final long providerCount;
+
+    /**
+     * The number of non-deleted services.
+     */
+    private final long serviceCount;
+
+    /**
+     * The number of provider-service links.
+     */
+    private final long linkCount;
+
+    /**
+     * Histogram of the number of services per provider.
+     */
+    private final List<DegreeBucket> providerDegrees;
+
+    /**
+     * Histogram of the number of providers per service.
+     */
+    private final List<DegreeBucket> serviceDegrees;
+
+    /**
+     * Providers with the most services, highest first.
+     */
+    private final List<DegreeEntry> topProviders;
+
+    /**
+     * Services with the most providers, highest first.
+     */
+    private final List<DegreeEntry> topServices;
+
+    /**
+     * The time at which the snapshot was computed.
+     */
+    private final Instant generatedAt;
+}
@@ -0,0 +1,46 @@
+package crud.profiling;
+
+import java.util.function.Consumer;
+
+/**
+ * A response body written by the {@link MeasuredJacksonConverter} straight to
+ * the response, whose serialized bytes are also handed to a consumer once the
+ * write completes, unless they exceed the capture limit.
+ */
+public final class CapturedBody {
+
+    private final Object value;
+    private final int maxBytes;
+    private final Consumer<byte[]> consumer;
+
+    /**
+     * Constructs a new CapturedBody.
+     *
+     * @param value    The value to serialize.
+     * @param maxBytes The size of the serialized value at most to capture.
+     * @param consumer The consumer receiving the serialized value if it was
+     *                 captured.
+     */
+    public CapturedBody(Object value, long maxBytes, Consumer<byte[]> consumer) {
+        this.value = value;
+        this.maxBytes = (int) Math.min(maxBytes, Integer.MAX_VALUE - 8);
+        this.consumer = consumer;
+    }
+
+    /**
+     * Returns the value to serialize.
+     *
+     * @return The value.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    int getMaxBytes() {
+        return maxBytes;
+    }
+
+    void captured(byte[] bytes) {
+        consumer.accept(bytes);
+    }
+}
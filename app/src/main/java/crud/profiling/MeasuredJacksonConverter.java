@@ -0,0 +1,116 @@
+package crud.profiling;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import crud.profiling.RequestResources.Phase;
+import crud.profiling.RequestResources.PhaseScope;
+
+/**
+ * JSON converter measuring response serialization as the serialization phase
+ * of the current request.
+ * A {@link CapturedBody} is serialized like its value and streamed to the
+ * response, while a copy of the bytes is kept up to the body's capture limit.
+ */
+public class MeasuredJacksonConverter extends MappingJackson2HttpMessageConverter {
+
+    /**
+     * Constructs a new MeasuredJacksonConverter.
+     *
+     * @param objectMapper The mapper of the converter it replaces.
+     */
+    public MeasuredJacksonConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return clazz == CapturedBody.class ? canWrite(mediaType) : super.canWrite(clazz, mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return clazz == CapturedBody.class ? canWrite(mediaType) : super.canWrite(type, clazz, mediaType);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        try (PhaseScope ignored = RequestResources.enter(Phase.SERIALIZATION)) {
+            if (object instanceof CapturedBody) {
+                CapturedBody body = (CapturedBody) object;
+                CapturingOutputStream capture = new CapturingOutputStream(outputMessage.getBody(), body.getMaxBytes());
+                super.writeInternal(body.getValue(), null, new HttpOutputMessage() {
+                    @Override
+                    public OutputStream getBody() {
+                        return capture;
+                    }
+
+                    @Override
+                    public HttpHeaders getHeaders() {
+                        return outputMessage.getHeaders();
+                    }
+                });
+                if (capture.copy != null) {
+                    body.captured(capture.copy.toByteArray());
+                }
+            } else {
+                super.writeInternal(object, type, outputMessage);
+            }
+        }
+    }
+
+    /**
+     * Writes through to the response and keeps a copy until it grows past the
+     * limit.
+     */
+    private static final class CapturingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final int maxBytes;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        private CapturingOutputStream(OutputStream out, int maxBytes) {
+            this.out = out;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (copy != null) {
+                copy.write(b);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        private void checkLimit() {
+            if (copy.size() > maxBytes) {
+                copy = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package crud.profiling;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * DataSource wrapper that times every statement and reports it to the
+ * {@link QueryProfiler}.
+ * Connections, statements and result sets are wrapped in dynamic proxies. A
+ * query is timed from its execution until its result set is closed, so the
+ * time spent fetching rows is included, and the rows read are counted. Updates
+ * report their update count. Bind parameters are captured for the slow-query
+ * log. Every statement is also reported to the {@link StatementCounter} of
+ * the executing thread and, if timeouts are configured, guarded by
+ * {@link QueryTimeouts} until it completes.
+ */
+public class ProfilingDataSource extends DelegatingDataSource {
+
+    private final QueryProfiler profiler;
+    private final QueryTimeouts timeouts;
+
+    /**
+     * Constructs a new ProfilingDataSource without statement timeouts.
+     *
+     * @param targetDataSource The data source to profile.
+     * @param profiler         The profiler receiving the measurements.
+     */
+    public ProfilingDataSource(DataSource targetDataSource, QueryProfiler profiler) {
+        this(targetDataSource, profiler, null);
+    }
+
+    /**
+     * Constructs a new ProfilingDataSource.
+     *
+     * @param targetDataSource The data source to profile.
+     * @param profiler         The profiler receiving the measurements.
+     * @param timeouts         The timeouts cancelling slow statements, or null.
+     */
+    public ProfilingDataSource(DataSource targetDataSource, QueryProfiler profiler, QueryTimeouts timeouts) {
+        super(targetDataSource);
+        this.profiler = profiler;
+        this.timeouts = timeouts;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(super.getConnection(username, password));
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof PreparedStatement && method.getName().equals("prepareStatement")) {
+                        return wrapStatement((Statement) result, PreparedStatement.class, (String) args[0]);
+                    }
+                    if (result instanceof Statement && method.getName().equals("createStatement")) {
+                        return wrapStatement((Statement) result, Statement.class, null);
+                    }
+                    return result;
+                });
+    }
+
+    private Statement wrapStatement(Statement statement, Class<? extends Statement> type, String sql) {
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { type }, new StatementHandler(statement, sql));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Times the executions of one statement.
+     */
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final String preparedSql;
+        private Object[] params = new Object[8];
+        private int paramCount;
+        private Execution pending;
+
+        private StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bind((Integer) args[0], args[1]);
+                return ProfilingDataSource.invoke(target, method, args);
+            }
+            if (name.equals("clearParameters")) {
+                Arrays.fill(params, null);
+                paramCount = 0;
+                return ProfilingDataSource.invoke(target, method, args);
+            }
+            if (name.equals("close")) {
+                finishPending();
+                return ProfilingDataSource.invoke(target, method, args);
+            }
+            if (!name.startsWith("execute")) {
+                return ProfilingDataSource.invoke(target, method, args);
+            }
+
+            finishPending();
+            String queryName = QueryScope.currentName();
+            StatementCounter.onExecute(queryName);
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            QueryTimeouts.Guard guard = timeouts != null ? timeouts.start(queryName, target) : null;
+            Execution execution = new Execution(queryName, sql, Arrays.copyOf(params, paramCount), guard);
+            Object result;
+            try (RequestResources.PhaseScope ignored = RequestResources.enter(RequestResources.Phase.SQL)) {
+                result = ProfilingDataSource.invoke(target, method, args);
+            } catch (Throwable e) {
+                execution.finish(0, true);
+                throw execution.translate(e);
+            }
+
+            if (result instanceof ResultSet) {
+                pending = execution;
+                return wrapResultSet((ResultSet) result, execution);
+            }
+            if (result instanceof Integer || result instanceof Long) {
+                execution.finish(((Number) result).longValue(), false);
+            } else if (result instanceof int[]) {
+                execution.finish(Arrays.stream((int[]) result).filter(count -> count > 0).sum(), false);
+            } else {
+                // execute() may have produced a result set that is read later.
+                pending = execution;
+            }
+            return result;
+        }
+
+        private void bind(int index, Object value) {
+            if (index < 1) {
+                return;
+            }
+            if (index > params.length) {
+                params = Arrays.copyOf(params, Math.max(index, params.length * 2));
+            }
+            params[index - 1] = value;
+            paramCount = Math.max(paramCount, index);
+        }
+
+        private void finishPending() {
+            if (pending != null) {
+                pending.finish(pending.rows, false);
+                pending = null;
+            }
+        }
+
+        private ResultSet wrapResultSet(ResultSet resultSet, Execution execution) {
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                        Object result;
+                        try {
+                            result = ProfilingDataSource.invoke(resultSet, method, args);
+                        } catch (Throwable e) {
+                            throw execution.translate(e);
+                        }
+                        if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                            execution.rows++;
+                        } else if (method.getName().equals("close")) {
+                            finishPending();
+                        }
+                        return result;
+                    });
+        }
+    }
+
+    /**
+     * One timed statement execution.
+     */
+    private final class Execution {
+
+        private final String name;
+        private final String sql;
+        private final Object[] params;
+        private final QueryTimeouts.Guard guard;
+        private final long startNanos = System.nanoTime();
+        private long rows;
+        private boolean finished;
+
+        private Execution(String name, String sql, Object[] params, QueryTimeouts.Guard guard) {
+            this.name = name;
+            this.sql = sql;
+            this.params = params;
+            this.guard = guard;
+        }
+
+        private Throwable translate(Throwable failure) {
+            return guard != null ? guard.translate(failure) : failure;
+        }
+
+        private void finish(long rowCount, boolean failed) {
+            if (!finished) {
+                finished = true;
+                if (guard != null) {
+                    guard.close();
+                }
+                profiler.record(name, sql != null ? sql : "", params, System.nanoTime() - startNanos, rowCount,
+                        failed);
+            }
+        }
+    }
+}
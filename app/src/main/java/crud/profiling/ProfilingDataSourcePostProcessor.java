@@ -0,0 +1,45 @@
+package crud.profiling;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wraps the application's DataSource in a {@link ProfilingDataSource}.
+ * The profiler and the statement timeouts are looked up only when the
+ * DataSource is created, so this post-processor does not force them to be
+ * instantiated early. Profiling can be turned off with
+ * {@code crud.profiling.enabled=false}, which also turns off the timeouts.
+ */
+@Component
+@ConditionalOnProperty(prefix = "crud.profiling", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ProfilingDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<QueryProfiler> profiler;
+    private final ObjectProvider<QueryTimeouts> timeouts;
+
+    /**
+     * Constructs a new ProfilingDataSourcePostProcessor.
+     *
+     * @param profiler The provider of the profiler.
+     * @param timeouts The provider of the statement timeouts.
+     */
+    public ProfilingDataSourcePostProcessor(ObjectProvider<QueryProfiler> profiler,
+            ObjectProvider<QueryTimeouts> timeouts) {
+        this.profiler = profiler;
+        this.timeouts = timeouts;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !(bean instanceof ProfilingDataSource)) {
+            QueryProfiler queryProfiler = profiler.getObject();
+            queryProfiler.setExplainDataSource((DataSource) bean);
+            return new ProfilingDataSource((DataSource) bean, queryProfiler, timeouts.getIfAvailable());
+        }
+        return bean;
+    }
+}
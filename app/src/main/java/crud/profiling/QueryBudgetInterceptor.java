@@ -0,0 +1,87 @@
+package crud.profiling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import crud.config.QueryBudgetProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Counts the SQL statements issued while handling each request and checks them
+ * against the budget of the endpoint.
+ * In WARN mode a request over budget is logged with its statement counts per
+ * query name, which makes N+1 patterns easy to spot. In FAIL mode the first
+ * statement over the budget is rejected and the request fails.
+ */
+@Component
+public class QueryBudgetInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryBudgetInterceptor.class);
+
+    private static final String COUNTER_ATTRIBUTE = QueryBudgetInterceptor.class.getName() + ".counter";
+
+    private final QueryBudgetProperties properties;
+
+    /**
+     * Constructs a new QueryBudgetInterceptor.
+     *
+     * @param properties The budget configuration.
+     */
+    @Autowired
+    public QueryBudgetInterceptor(QueryBudgetProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (properties.isEnabled()) {
+            String endpoint = endpointOf(request);
+            int budget = properties.getBudgets().getOrDefault(endpoint, properties.getDefaultBudget());
+            request.setAttribute(COUNTER_ATTRIBUTE, StatementCounter.start(endpoint, budget,
+                    properties.getMode() == QueryBudgetProperties.Mode.FAIL));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        // The request continues on another thread; statements of the async part
+        // are not counted.
+        StatementCounter counter = (StatementCounter) request.getAttribute(COUNTER_ATTRIBUTE);
+        if (counter != null) {
+            request.removeAttribute(COUNTER_ATTRIBUTE);
+            counter.stop();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        StatementCounter counter = (StatementCounter) request.getAttribute(COUNTER_ATTRIBUTE);
+        if (counter == null) {
+            return;
+        }
+        counter.stop();
+
+        if (counter.isOverBudget() && properties.getMode() == QueryBudgetProperties.Mode.WARN) {
+            logger.atWarn()
+                    .setMessage("Query budget exceeded")
+                    .addKeyValue("endpoint", endpointOf(request))
+                    .addKeyValue("statements", counter.getCount())
+                    .addKeyValue("budget", counter.getBudget())
+                    .addKeyValue("queries", counter.getCountsByName())
+                    .log();
+        }
+    }
+
+    private static String endpointOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+}
@@ -0,0 +1,169 @@
+package crud.profiling;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Lets the statements executed by the current thread be cancelled from another
+ * thread, and carries the deadline of the work they belong to.
+ * The {@link QueryTimeouts} attach each statement to the active scope while it
+ * runs. Cancelling the scope cancels the attached statements and
+ * rejects the statements that follow, so the work fails fast and returns its
+ * connection to the pool. Tasks the work hands to other threads run in the
+ * same scope when wrapped with {@link #propagate(Callable)}.
+ */
+public final class QueryCancellation {
+
+    /**
+     * Why statements were cancelled.
+     */
+    public enum Reason {
+        /**
+         * A statement ran longer than the timeout of its operation.
+         */
+        TIMEOUT,
+
+        /**
+         * The deadline of the request passed.
+         */
+        DEADLINE,
+
+        /**
+         * The client went away.
+         */
+        DISCONNECT;
+
+        /**
+         * Returns the value used for the reason tag of metrics.
+         *
+         * @return The lower-case name.
+         */
+        public String tagValue() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final ThreadLocal<QueryCancellation> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private final QueryCancellation previous;
+    private volatile Reason reason;
+    private final Set<QueryTimeouts.Guard> running = new HashSet<>();
+
+    private QueryCancellation(long deadlineNanos, QueryCancellation previous) {
+        this.deadlineNanos = deadlineNanos;
+        this.previous = previous;
+    }
+
+    /**
+     * Starts a cancellation scope for the statements of the current thread.
+     *
+     * @param deadlineNanos The {@link System#nanoTime()} at which the work is
+     *                      abandoned, or 0 for no deadline.
+     * @return The scope, to be stopped when the work is done.
+     */
+    public static QueryCancellation start(long deadlineNanos) {
+        QueryCancellation scope = new QueryCancellation(deadlineNanos, CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * Returns the active scope of the current thread.
+     *
+     * @return The scope, or null if none is active.
+     */
+    public static QueryCancellation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Wraps a task so that it runs in the scope active on the current thread,
+     * wherever it is executed. The statements of the task are then cancelled
+     * with the scope and limited by its deadline.
+     *
+     * @param task The task.
+     * @param <T>  The result type.
+     * @return The wrapped task, or the task itself if no scope is active.
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        QueryCancellation scope = CURRENT.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            QueryCancellation previous = CURRENT.get();
+            CURRENT.set(scope);
+            try {
+                return task.call();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    /**
+     * Stops the scope and reactivates the scope that was active when this one
+     * was started.
+     */
+    public void stop() {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Cancels the running statements and rejects further statements. Only the
+     * first reason is kept.
+     *
+     * @param reason Why the work is abandoned.
+     */
+    public void cancel(Reason reason) {
+        List<QueryTimeouts.Guard> guards;
+        synchronized (this) {
+            if (this.reason == null) {
+                this.reason = reason;
+            }
+            guards = new ArrayList<>(running);
+        }
+        for (QueryTimeouts.Guard guard : guards) {
+            guard.cancel();
+        }
+    }
+
+    /**
+     * Returns why the scope was cancelled.
+     *
+     * @return The reason, or null if the scope was not cancelled.
+     */
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * Returns the time left until the deadline.
+     *
+     * @return The remaining nanoseconds, which may be negative, or
+     *         {@link Long#MAX_VALUE} without a deadline.
+     */
+    public long remainingNanos() {
+        return deadlineNanos != 0 ? deadlineNanos - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    synchronized void attach(QueryTimeouts.Guard guard) {
+        running.add(guard);
+    }
+
+    synchronized void detach(QueryTimeouts.Guard guard) {
+        running.remove(guard);
+    }
+}
@@ -0,0 +1,216 @@
+package crud.profiling;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import crud.model.QueryProfile;
+
+/**
+ * Collects latency and row-count statistics per SQL statement.
+ * Statements are keyed by the name of the enclosing {@link QueryScope} and
+ * their SQL text. Executions slower than the configured threshold are logged
+ * with their bind parameters and, if enabled, the EXPLAIN plan of the
+ * statement, which is fetched on a background thread so the slow request is
+ * not delayed further.
+ */
+@Component
+public class QueryProfiler implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryProfiler.class);
+
+    /**
+     * The maximum number of distinct statements tracked. Further statements are
+     * folded into a single overflow entry.
+     */
+    static final int MAX_STATEMENTS = 1000;
+
+    private static final String OVERFLOW_SQL = "(other statements)";
+
+    private final long slowThresholdNanos;
+    private final boolean explainSlow;
+    private final Map<String, QueryStats> statements = new ConcurrentHashMap<>();
+    private final LongAdder windowNanos = new LongAdder();
+    private final LongAdder windowCount = new LongAdder();
+    private final ExecutorService explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(16), runnable -> {
+                Thread thread = new Thread(runnable, "slow-query-explain");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    private volatile DataSource explainDataSource;
+
+    /**
+     * Constructs a new QueryProfiler.
+     *
+     * @param slowThresholdMs The latency above which an execution is logged.
+     * @param explainSlow     Whether to log the EXPLAIN plan of slow SELECT
+     *                        statements.
+     */
+    @Autowired
+    public QueryProfiler(@Value("${crud.profiling.slow-threshold-ms:250}") long slowThresholdMs,
+            @Value("${crud.profiling.explain-slow:false}") boolean explainSlow) {
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.explainSlow = explainSlow;
+    }
+
+    /**
+     * Sets the unprofiled data source used to fetch EXPLAIN plans.
+     *
+     * @param dataSource The data source.
+     */
+    void setExplainDataSource(DataSource dataSource) {
+        this.explainDataSource = dataSource;
+    }
+
+    /**
+     * Records one statement execution.
+     *
+     * @param name   The query name.
+     * @param sql    The SQL text.
+     * @param params The bind parameters, indexed from zero.
+     * @param nanos  The latency in nanoseconds.
+     * @param rows   The number of rows returned or affected.
+     * @param failed True if the execution threw.
+     */
+    void record(String name, String sql, Object[] params, long nanos, long rows, boolean failed) {
+        statsFor(name, sql).record(nanos, rows, failed);
+        windowNanos.add(nanos);
+        windowCount.increment();
+
+        if (nanos >= slowThresholdNanos) {
+            logger.atWarn()
+                    .setMessage("Slow statement")
+                    .addKeyValue("query", name)
+                    .addKeyValue("durationMs", TimeUnit.NANOSECONDS.toMicros(nanos) / 1000.0)
+                    .addKeyValue("rows", rows)
+                    .addKeyValue("params", Arrays.toString(params))
+                    .addKeyValue("sql", normalize(sql))
+                    .log();
+            if (explainSlow && !failed && isSelect(sql) && explainDataSource != null) {
+                explainExecutor.execute(() -> explain(name, sql, params));
+            }
+        }
+    }
+
+    /**
+     * Returns the profiles of the statements with the highest latency.
+     *
+     * @param limit The maximum number of statements to return.
+     * @param sort  The ordering: "max", "mean" or "total" latency.
+     * @return The statement profiles, slowest first.
+     * @throws IllegalArgumentException if the ordering is unknown.
+     */
+    public List<QueryProfile> getSlowest(int limit, String sort) {
+        Comparator<QueryStats> order;
+        switch (sort) {
+            case "max":
+                order = Comparator.comparingLong(QueryStats::getMaxNanos);
+                break;
+            case "mean":
+                order = Comparator.comparingDouble(QueryStats::getMeanNanos);
+                break;
+            case "total":
+                order = Comparator.comparingLong(QueryStats::getTotalNanos);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown sort order: " + sort);
+        }
+        return statements.values().stream()
+                .sorted(order.reversed())
+                .limit(limit)
+                .map(QueryStats::toProfile)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the profile of one statement.
+     *
+     * @param name The query name.
+     * @param sql  The SQL text.
+     * @return The profile, or null if the statement was not executed.
+     */
+    public QueryProfile getProfile(String name, String sql) {
+        QueryStats stats = statements.get(name + '\n' + sql);
+        return stats != null ? stats.toProfile() : null;
+    }
+
+    /**
+     * Returns the mean latency of the statements recorded since the previous
+     * call and starts a new window.
+     *
+     * @return The mean latency in nanoseconds, or 0 if no statement was
+     *         recorded.
+     */
+    public long takeRecentMeanNanos() {
+        long count = windowCount.sumThenReset();
+        long nanos = windowNanos.sumThenReset();
+        return count > 0 ? nanos / count : 0;
+    }
+
+    /**
+     * Discards all collected statistics.
+     */
+    public void reset() {
+        statements.clear();
+    }
+
+    @Override
+    public void destroy() {
+        explainExecutor.shutdownNow();
+    }
+
+    private QueryStats statsFor(String name, String sql) {
+        String key = name + '\n' + sql;
+        QueryStats stats = statements.get(key);
+        if (stats != null) {
+            return stats;
+        }
+        if (statements.size() >= MAX_STATEMENTS) {
+            return statements.computeIfAbsent(QueryScope.UNNAMED + '\n' + OVERFLOW_SQL,
+                    ignored -> new QueryStats(QueryScope.UNNAMED, OVERFLOW_SQL));
+        }
+        return statements.computeIfAbsent(key, ignored -> new QueryStats(name, normalize(sql)));
+    }
+
+    private void explain(String name, String sql, Object[] params) {
+        try {
+            List<String> plan = new JdbcTemplate(explainDataSource)
+                    .query("EXPLAIN " + sql, (rs, rowNum) -> rs.getString(1), params);
+            logger.atWarn()
+                    .setMessage("Plan of slow statement")
+                    .addKeyValue("query", name)
+                    .addKeyValue("plan", String.join("\n", plan))
+                    .log();
+        } catch (RuntimeException e) {
+            logger.warn("Could not explain slow statement {}: {}", name, e.getMessage());
+        }
+    }
+
+    private static boolean isSelect(String sql) {
+        return sql.stripLeading().regionMatches(true, 0, "SELECT", 0, 6);
+    }
+
+    private static String normalize(String sql) {
+        return sql.trim().replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,55 @@
+package crud.profiling;
+
+/**
+ * Names the SQL statements executed by the current thread.
+ * Repositories open a scope around each logical statement so the profiler can
+ * key its statistics by a stable name such as {@code provider.findById.deep}
+ * rather than by SQL text. Scopes nest: the innermost open scope names the
+ * statement, and closing it restores the enclosing name.
+ */
+public final class QueryScope implements AutoCloseable {
+
+    /**
+     * The name recorded for statements executed outside any scope.
+     */
+    public static final String UNNAMED = "unnamed";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private final String previous;
+
+    private QueryScope(String previous) {
+        this.previous = previous;
+    }
+
+    /**
+     * Opens a scope naming the statements executed until it is closed.
+     *
+     * @param name The query name.
+     * @return The scope to close when the statements have completed.
+     */
+    public static QueryScope open(String name) {
+        QueryScope scope = new QueryScope(CURRENT.get());
+        CURRENT.set(name);
+        return scope;
+    }
+
+    /**
+     * Returns the name of the innermost open scope of the current thread.
+     *
+     * @return The query name, or {@link #UNNAMED} if no scope is open.
+     */
+    public static String currentName() {
+        String name = CURRENT.get();
+        return name != null ? name : UNNAMED;
+    }
+
+    @Override
+    public void close() {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package crud.profiling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import crud.model.LatencyBucket;
+import crud.model.QueryProfile;
+
+/**
+ * Lock-free latency statistics of one statement.
+ * Latencies are counted in power-of-two microsecond buckets, which bounds the
+ * memory per statement and keeps recording to a few atomic increments.
+ */
+class QueryStats {
+
+    private static final int BUCKETS = 40;
+
+    private final String name;
+    private final String sql;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    QueryStats(String name, String sql) {
+        this.name = name;
+        this.sql = sql;
+    }
+
+    /**
+     * Records one execution.
+     *
+     * @param nanos    The latency in nanoseconds.
+     * @param rowCount The number of rows returned or affected.
+     * @param failed   True if the execution threw.
+     */
+    void record(long nanos, long rowCount, boolean failed) {
+        count.increment();
+        if (failed) {
+            errors.increment();
+        }
+        rows.add(rowCount);
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        buckets.incrementAndGet(bucketOf(nanos / 1000));
+    }
+
+    long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    double getMeanNanos() {
+        long executions = count.sum();
+        return executions == 0 ? 0.0 : (double) totalNanos.sum() / executions;
+    }
+
+    /**
+     * Copies the statistics into a profile.
+     *
+     * @return The profile.
+     */
+    QueryProfile toProfile() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+
+        List<LatencyBucket> histogram = new ArrayList<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] > 0) {
+                histogram.add(new LatencyBucket(lowerMicros(i) / 1000.0, upperMicros(i) / 1000.0, counts[i]));
+            }
+        }
+        double maxMs = maxNanos.get() / 1_000_000.0;
+        return new QueryProfile(name, sql, count.sum(), errors.sum(), rows.sum(),
+                getMeanNanos() / 1_000_000.0,
+                Math.min(percentile(counts, total, 0.50), maxMs),
+                Math.min(percentile(counts, total, 0.99), maxMs),
+                maxMs,
+                histogram);
+    }
+
+    private static double percentile(long[] counts, long total, double quantile) {
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return upperMicros(i) / 1000.0;
+            }
+        }
+        return 0.0;
+    }
+
+    static int bucketOf(long micros) {
+        if (micros <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    private static long lowerMicros(int bucket) {
+        return bucket == 0 ? 0 : 1L << (bucket - 1);
+    }
+
+    private static long upperMicros(int bucket) {
+        return 1L << bucket;
+    }
+}
@@ -0,0 +1,256 @@
+package crud.profiling;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import crud.config.QueryTimeoutProperties;
+import crud.profiling.QueryCancellation.Reason;
+import crud.utils.DepthLevel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cancels SQL statements that exceed the timeout of their operation or the
+ * deadline of their request.
+ * The {@link ProfilingDataSource} guards every statement while it runs. A
+ * single timer thread cancels the statement when the earlier of the two limits
+ * passes; JDBC query timeouts are avoided because they only have a resolution
+ * of seconds. A cancel reaching the database just before the statement starts
+ * is lost, so it is repeated until the statement completes. A cancelled statement fails with a {@link SQLTimeoutException},
+ * which Spring translates to a {@code QueryTimeoutException}, and is counted in
+ * crud.queries.cancelled by query name and reason.
+ */
+@Component
+public class QueryTimeouts implements DisposableBean {
+
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+
+    private static final long CANCEL_RETRY_MS = 100;
+
+    private final QueryTimeoutProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Long> timeoutsByName = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "query-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructs a new QueryTimeouts.
+     *
+     * @param properties    The timeout configuration.
+     * @param meterRegistry The registry receiving the cancellation counts.
+     */
+    @Autowired
+    public QueryTimeouts(QueryTimeoutProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Starts guarding a statement about to be executed.
+     *
+     * @param queryName The query name of the statement.
+     * @param statement The statement, which is cancelled if a limit passes.
+     * @return The guard, to be closed when the statement has completed, or null
+     *         if the statement is not limited.
+     * @throws SQLTimeoutException if the request of the statement has already
+     *                             been cancelled or its deadline has passed.
+     */
+    Guard start(String queryName, Statement statement) throws SQLTimeoutException {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        QueryCancellation scope = QueryCancellation.current();
+        long remainingNanos = NO_LIMIT;
+        if (scope != null) {
+            remainingNanos = scope.remainingNanos();
+            if (scope.getReason() == null && remainingNanos <= 0) {
+                scope.cancel(Reason.DEADLINE);
+            }
+            if (scope.getReason() != null) {
+                throw cancelled(queryName, scope.getReason(), null);
+            }
+        }
+        long timeoutNanos = timeoutOf(queryName);
+        if (scope == null && timeoutNanos == NO_LIMIT) {
+            return null;
+        }
+
+        Guard guard = new Guard(queryName, statement, scope);
+        if (scope != null) {
+            scope.attach(guard);
+            if (scope.getReason() != null) {
+                // Cancelled since the check above, before the guard was attached.
+                guard.close();
+                throw cancelled(queryName, scope.getReason(), null);
+            }
+        }
+        synchronized (guard) {
+            if (timeoutNanos < remainingNanos) {
+                guard.expiry = timer.schedule(guard::expire, timeoutNanos, TimeUnit.NANOSECONDS);
+            } else if (remainingNanos != NO_LIMIT) {
+                guard.expiry = timer.schedule(() -> scope.cancel(Reason.DEADLINE), remainingNanos,
+                        TimeUnit.NANOSECONDS);
+            }
+        }
+        return guard;
+    }
+
+    /**
+     * Resolves the timeout of a query name.
+     *
+     * @param queryName The query name, such as {@code provider.findById.deep}.
+     * @return The timeout in milliseconds, or 0 for no limit.
+     */
+    long timeoutMs(String queryName) {
+        Long timeout = properties.getOperations().get(queryName);
+        String depth = null;
+        int lastDot = queryName.lastIndexOf('.');
+        if (lastDot > 0 && isDepth(queryName.substring(lastDot + 1))) {
+            depth = queryName.substring(lastDot + 1);
+            if (timeout == null) {
+                timeout = properties.getOperations().get(queryName.substring(0, lastDot));
+            }
+        }
+        if (timeout == null && depth != null) {
+            timeout = properties.getDepths().get(depth);
+        }
+        return timeout != null ? timeout : properties.getDefaultTimeoutMs();
+    }
+
+    private long timeoutOf(String queryName) {
+        return timeoutsByName.computeIfAbsent(queryName, name -> {
+            long timeoutMs = timeoutMs(name);
+            return timeoutMs > 0 ? TimeUnit.MILLISECONDS.toNanos(timeoutMs) : NO_LIMIT;
+        });
+    }
+
+    private static boolean isDepth(String value) {
+        for (DepthLevel depth : DepthLevel.values()) {
+            if (depth.equalsString(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts a cancelled query.
+     *
+     * @param queryName The query name, or the endpoint if the query is not
+     *                  known.
+     * @param reason    Why the query was cancelled.
+     */
+    public void recordCancelled(String queryName, Reason reason) {
+        Counter.builder("crud.queries.cancelled")
+                .description("Statements cancelled on a timeout, a passed deadline or a disconnect")
+                .tag("query", queryName)
+                .tag("reason", reason.tagValue())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private SQLTimeoutException cancelled(String queryName, Reason reason, Throwable cause) {
+        recordCancelled(queryName, reason);
+        String message = reason == Reason.TIMEOUT
+                ? "Statement " + queryName + " exceeded its timeout of " + timeoutMs(queryName) + " ms"
+                : "Statement " + queryName + " cancelled: " + reason.tagValue();
+        // 57014 is the SQL state of a cancelled statement in PostgreSQL.
+        return new SQLTimeoutException(message, "57014", cause);
+    }
+
+    @Override
+    public void destroy() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * The limits of one running statement.
+     */
+    final class Guard {
+
+        private final String queryName;
+        private final Statement statement;
+        private final QueryCancellation scope;
+        private ScheduledFuture<?> expiry;
+        private boolean closed;
+        private boolean timedOut;
+        private boolean reported;
+
+        private Guard(String queryName, Statement statement, QueryCancellation scope) {
+            this.queryName = queryName;
+            this.statement = statement;
+            this.scope = scope;
+        }
+
+        private synchronized void expire() {
+            if (!closed) {
+                timedOut = true;
+                cancel();
+            }
+        }
+
+        /**
+         * Cancels the statement, and again shortly after until it completes.
+         * The statement is only cancelled while the guard is open: PostgreSQL
+         * cancels whatever its connection runs, which must not be a later
+         * statement.
+         */
+        synchronized void cancel() {
+            if (closed) {
+                return;
+            }
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                // The statement has completed or its connection is gone.
+            }
+            expiry = timer.schedule(this::cancel, CANCEL_RETRY_MS, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Replaces the failure of a cancelled statement by a timeout.
+         *
+         * @param failure The failure of the statement.
+         * @return A {@link SQLTimeoutException} if the statement was cancelled,
+         *         otherwise the failure itself.
+         */
+        synchronized Throwable translate(Throwable failure) {
+            Reason reason = timedOut ? Reason.TIMEOUT : scope != null ? scope.getReason() : null;
+            if (reason == null || reported || !(failure instanceof SQLException)) {
+                return failure;
+            }
+            reported = true;
+            return cancelled(queryName, reason, failure);
+        }
+
+        /**
+         * Stops guarding the statement once it has completed.
+         */
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (expiry != null) {
+                expiry.cancel(false);
+            }
+            if (scope != null) {
+                scope.detach(this);
+            }
+        }
+    }
+}
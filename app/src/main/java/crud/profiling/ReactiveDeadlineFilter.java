@@ -0,0 +1,61 @@
+package crud.profiling;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import crud.config.QueryTimeoutProperties;
+import crud.profiling.QueryCancellation.Reason;
+import reactor.core.publisher.Mono;
+
+/**
+ * Applies request deadlines in the reactive profile and counts the requests
+ * abandoned by their clients.
+ * Cancelling the request's subscription also cancels its R2DBC query, which
+ * happens both when the deadline passes, answered with 504 Gateway Timeout,
+ * and when the client disconnects. Both are counted in crud.queries.cancelled,
+ * tagged with the route rather than a query name.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveDeadlineFilter implements WebFilter {
+
+    @Autowired
+    private QueryTimeoutProperties properties;
+
+    @Autowired
+    private QueryTimeouts queryTimeouts;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        long timeoutMs = RequestDeadlineFilter.timeoutMs(
+                exchange.getRequest().getHeaders().getFirst(properties.getDeadlineHeader()),
+                properties.getRequestTimeoutMs());
+        Mono<Void> result = chain.filter(exchange);
+        if (timeoutMs > 0) {
+            result = result.timeout(Duration.ofMillis(timeoutMs))
+                    .onErrorMap(TimeoutException.class, e -> {
+                        queryTimeouts.recordCancelled(routeOf(exchange), Reason.DEADLINE);
+                        return new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Request deadline passed");
+                    });
+        }
+        return result.doOnCancel(() -> queryTimeouts.recordCancelled(routeOf(exchange), Reason.DISCONNECT));
+    }
+
+    private static String routeOf(ServerWebExchange exchange) {
+        Object pattern = exchange.getAttribute(RouterFunctions.MATCHING_PATTERN_ATTRIBUTE);
+        return exchange.getRequest().getMethod() + " " + (pattern != null ? pattern : "unmatched");
+    }
+}
@@ -0,0 +1,95 @@
+package crud.profiling;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import crud.config.QueryTimeoutProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Gives each request a {@link QueryCancellation} scope with the deadline taken
+ * from its deadline header or the configured request timeout, whichever is
+ * earlier.
+ * Statements still running when the deadline passes are cancelled and later
+ * statements are rejected. A request failing because a statement was cancelled
+ * or timed out is answered with 504 Gateway Timeout. A blocking request cannot
+ * notice that its client went away before it writes the response, so clients
+ * that give up should send the time they are willing to wait.
+ */
+@Component
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    private final QueryTimeoutProperties properties;
+
+    /**
+     * Constructs a new RequestDeadlineFilter.
+     *
+     * @param properties The timeout configuration.
+     */
+    @Autowired
+    public RequestDeadlineFilter(QueryTimeoutProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long timeoutMs = timeoutMs(request.getHeader(properties.getDeadlineHeader()), properties.getRequestTimeoutMs());
+        QueryCancellation scope = QueryCancellation.start(
+                timeoutMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs) : 0);
+        try {
+            chain.doFilter(request, response);
+        } catch (ServletException | RuntimeException e) {
+            if (!isQueryTimeout(e) || response.isCommitted()) {
+                throw e;
+            }
+            response.sendError(HttpServletResponse.SC_GATEWAY_TIMEOUT, e.getMessage());
+        } finally {
+            scope.stop();
+        }
+    }
+
+    /**
+     * Combines the timeout requested by the client with the configured one.
+     *
+     * @param header           The value of the deadline header, or null.
+     * @param requestTimeoutMs The configured request timeout, or 0 for none.
+     * @return The timeout in milliseconds, or 0 for none.
+     */
+    static long timeoutMs(String header, long requestTimeoutMs) {
+        long requested = 0;
+        if (header != null) {
+            try {
+                requested = Math.max(1, Long.parseLong(header.trim()));
+            } catch (NumberFormatException e) {
+                requested = 0;
+            }
+        }
+        if (requested == 0 || requestTimeoutMs <= 0) {
+            return Math.max(requested, Math.max(requestTimeoutMs, 0));
+        }
+        return Math.min(requested, requestTimeoutMs);
+    }
+
+    private static boolean isQueryTimeout(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof QueryTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
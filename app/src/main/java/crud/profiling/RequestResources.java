@@ -0,0 +1,175 @@
+package crud.profiling;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated and the CPU time spent by the current thread
+ * while it handles a request, broken down by phase.
+ * The {@link ResourceUsageFilter} starts a measurement per request. Code doing
+ * phase work enters the phase around it: the {@link ProfilingDataSource} for
+ * statement execution, the result extractors for extraction and the JSON
+ * converter for serialization. Phases do not nest: a phase entered while
+ * another is active is counted as part of the outer one. Whatever is not
+ * covered by a phase is reported as {@link Phase#OTHER}.
+ */
+public final class RequestResources {
+
+    /**
+     * The phases of a request.
+     */
+    public enum Phase {
+        SQL, EXTRACTION, SERIALIZATION, OTHER;
+
+        /**
+         * Returns the name used in metric tags and the debug header.
+         *
+         * @return The lower-case phase name.
+         */
+        public String tagValue() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private static final ThreadLocal<RequestResources> CURRENT = new ThreadLocal<>();
+
+    private static final PhaseScope NO_PHASE = () -> {
+    };
+
+    private final long startBytes;
+    private final long startCpuNanos;
+    private final long[] bytes = new long[Phase.values().length];
+    private final long[] cpuNanos = new long[Phase.values().length];
+    private long totalBytes;
+    private long totalCpuNanos;
+    private boolean inPhase;
+
+    private RequestResources() {
+        this.startBytes = THREADS.getCurrentThreadAllocatedBytes();
+        this.startCpuNanos = THREADS.getCurrentThreadCpuTime();
+    }
+
+    /**
+     * Checks whether the JVM reports per-thread allocation and CPU time.
+     *
+     * @return True if measurements can be taken.
+     */
+    public static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    /**
+     * Starts measuring the current thread.
+     *
+     * @return The measurement, to be stopped when the request is done.
+     */
+    public static RequestResources start() {
+        RequestResources resources = new RequestResources();
+        CURRENT.set(resources);
+        return resources;
+    }
+
+    /**
+     * Enters a phase on the current thread.
+     *
+     * @param phase The phase.
+     * @return The scope to close when the phase is done; a no-op if no
+     *         measurement is active or another phase already is.
+     */
+    public static PhaseScope enter(Phase phase) {
+        RequestResources resources = CURRENT.get();
+        if (resources == null || resources.inPhase) {
+            return NO_PHASE;
+        }
+        resources.inPhase = true;
+        long phaseStartBytes = THREADS.getCurrentThreadAllocatedBytes();
+        long phaseStartCpuNanos = THREADS.getCurrentThreadCpuTime();
+        return () -> {
+            resources.bytes[phase.ordinal()] += THREADS.getCurrentThreadAllocatedBytes() - phaseStartBytes;
+            resources.cpuNanos[phase.ordinal()] += THREADS.getCurrentThreadCpuTime() - phaseStartCpuNanos;
+            resources.inPhase = false;
+        };
+    }
+
+    /**
+     * Stops measuring and computes the totals and the {@link Phase#OTHER} share.
+     */
+    public void stop() {
+        CURRENT.remove();
+        totalBytes = THREADS.getCurrentThreadAllocatedBytes() - startBytes;
+        totalCpuNanos = THREADS.getCurrentThreadCpuTime() - startCpuNanos;
+        long phaseBytes = 0;
+        long phaseCpuNanos = 0;
+        for (Phase phase : Phase.values()) {
+            if (phase != Phase.OTHER) {
+                phaseBytes += bytes[phase.ordinal()];
+                phaseCpuNanos += cpuNanos[phase.ordinal()];
+            }
+        }
+        bytes[Phase.OTHER.ordinal()] = Math.max(0, totalBytes - phaseBytes);
+        cpuNanos[Phase.OTHER.ordinal()] = Math.max(0, totalCpuNanos - phaseCpuNanos);
+    }
+
+    /**
+     * Returns the bytes allocated in a phase.
+     *
+     * @param phase The phase.
+     * @return The allocated bytes.
+     */
+    public long getBytes(Phase phase) {
+        return bytes[phase.ordinal()];
+    }
+
+    /**
+     * Returns the CPU time spent in a phase.
+     *
+     * @param phase The phase.
+     * @return The CPU time in nanoseconds.
+     */
+    public long getCpuNanos(Phase phase) {
+        return cpuNanos[phase.ordinal()];
+    }
+
+    /**
+     * Returns the bytes allocated by the whole request.
+     *
+     * @return The allocated bytes.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the CPU time spent by the whole request.
+     *
+     * @return The CPU time in nanoseconds.
+     */
+    public long getTotalCpuNanos() {
+        return totalCpuNanos;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isCurrentThreadCpuTimeSupported()) {
+            return null;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        threads.setThreadCpuTimeEnabled(true);
+        return threads;
+    }
+
+    /**
+     * A phase entered on the current thread.
+     */
+    @FunctionalInterface
+    public interface PhaseScope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,143 @@
+package crud.profiling;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import crud.profiling.RequestResources.Phase;
+import crud.service.DepthDegrader;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Measures the bytes allocated and the CPU time spent by each request, per
+ * phase, and exports them tagged by endpoint and by the depth that was served,
+ * which differs from the requested one when the request was degraded.
+ * The crud.request.allocation summary and the crud.request.cpu timer carry
+ * one series per phase (sql, extraction, serialization, other) plus the
+ * request total. In debug mode the numbers are also returned in the
+ * X-Request-Resources header; this buffers the response body, so it is meant
+ * for comparing changes rather than for production. Streaming and async
+ * requests are not measured.
+ */
+@Component
+public class ResourceUsageFilter extends OncePerRequestFilter {
+
+    /**
+     * The response header carrying the measurements in debug mode.
+     */
+    public static final String HEADER = "X-Request-Resources";
+
+    private static final String TOTAL = "total";
+
+    private final boolean enabled;
+    private final boolean debugHeader;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DistributionSummary> allocations = new ConcurrentHashMap<>();
+    private final Map<String, Timer> cpuTimers = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new ResourceUsageFilter.
+     *
+     * @param enabled       Whether requests are measured at all.
+     * @param debugHeader   Whether the measurements are returned in a response
+     *                      header.
+     * @param meterRegistry The registry receiving the measurements.
+     */
+    @Autowired
+    public ResourceUsageFilter(@Value("${crud.resources.enabled:true}") boolean enabled,
+            @Value("${crud.resources.debug-header:false}") boolean debugHeader, MeterRegistry meterRegistry) {
+        this.enabled = enabled && RequestResources.isSupported();
+        this.debugHeader = debugHeader;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        return !enabled || (accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper buffered = debugHeader ? new ContentCachingResponseWrapper(response) : null;
+        RequestResources resources = RequestResources.start();
+        try {
+            chain.doFilter(request, buffered != null ? buffered : response);
+        } finally {
+            resources.stop();
+        }
+
+        if (request.isAsyncStarted()) {
+            if (buffered != null) {
+                buffered.copyBodyToResponse();
+            }
+            return;
+        }
+        record(endpointOf(request), depthOf(response), resources);
+        if (buffered != null) {
+            buffered.setHeader(HEADER, headerValue(resources));
+            buffered.copyBodyToResponse();
+        }
+    }
+
+    private void record(String endpoint, String depth, RequestResources resources) {
+        for (Phase phase : Phase.values()) {
+            record(endpoint, depth, phase.tagValue(), resources.getBytes(phase), resources.getCpuNanos(phase));
+        }
+        record(endpoint, depth, TOTAL, resources.getTotalBytes(), resources.getTotalCpuNanos());
+    }
+
+    private void record(String endpoint, String depth, String phase, long bytes, long cpuNanos) {
+        String key = endpoint + '|' + depth + '|' + phase;
+        allocations.computeIfAbsent(key, k -> DistributionSummary.builder("crud.request.allocation")
+                .description("Bytes allocated by the request thread")
+                .baseUnit("bytes")
+                .tag("endpoint", endpoint)
+                .tag("depth", depth)
+                .tag("phase", phase)
+                .register(meterRegistry)).record(bytes);
+        cpuTimers.computeIfAbsent(key, k -> Timer.builder("crud.request.cpu")
+                .description("CPU time spent by the request thread")
+                .tag("endpoint", endpoint)
+                .tag("depth", depth)
+                .tag("phase", phase)
+                .register(meterRegistry)).record(cpuNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String headerValue(RequestResources resources) {
+        StringBuilder value = new StringBuilder();
+        value.append(TOTAL).append(";bytes=").append(resources.getTotalBytes())
+                .append(";cpu-us=").append(TimeUnit.NANOSECONDS.toMicros(resources.getTotalCpuNanos()));
+        for (Phase phase : Phase.values()) {
+            value.append(", ").append(phase.tagValue()).append(";bytes=").append(resources.getBytes(phase))
+                    .append(";cpu-us=").append(TimeUnit.NANOSECONDS.toMicros(resources.getCpuNanos(phase)));
+        }
+        return value.toString();
+    }
+
+    private static String endpointOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : "unmatched");
+    }
+
+    private static String depthOf(HttpServletResponse response) {
+        String depth = response.getHeader(DepthDegrader.HEADER);
+        return depth != null ? depth : "none";
+    }
+}
@@ -0,0 +1,146 @@
+package crud.profiling;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the SQL statements executed by the current thread while it is
+ * active.
+ * The {@link ProfilingDataSource} reports every statement to the active
+ * counter of its thread. A counter may enforce a budget: once more statements
+ * than budgeted have been executed, further statements are rejected with an
+ * {@link IllegalStateException} before they reach the database.
+ */
+public final class StatementCounter {
+
+    private static final ThreadLocal<StatementCounter> CURRENT = new ThreadLocal<>();
+
+    private final String label;
+    private final int budget;
+    private final boolean enforce;
+    private final StatementCounter previous;
+    private final Map<String, Integer> countsByName = new LinkedHashMap<>();
+    private int count;
+
+    private StatementCounter(String label, int budget, boolean enforce, StatementCounter previous) {
+        this.label = label;
+        this.budget = budget;
+        this.enforce = enforce;
+        this.previous = previous;
+    }
+
+    /**
+     * Starts counting the statements of the current thread.
+     *
+     * @param label   A description of the counted work, used in error messages.
+     * @param budget  The number of statements allowed, or 0 for no limit.
+     * @param enforce Whether statements over the budget are rejected.
+     * @return The counter, to be stopped when the work is done.
+     */
+    public static StatementCounter start(String label, int budget, boolean enforce) {
+        StatementCounter counter = new StatementCounter(label, budget, enforce, CURRENT.get());
+        CURRENT.set(counter);
+        return counter;
+    }
+
+    /**
+     * Returns the active counter of the current thread.
+     *
+     * @return The counter, or null if none is active.
+     */
+    public static StatementCounter current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Records a statement about to be executed on the current thread.
+     *
+     * @param name The query name of the statement.
+     * @throws IllegalStateException if the active counter enforces its budget and
+     *                               the budget is exhausted.
+     */
+    static void onExecute(String name) {
+        StatementCounter counter = CURRENT.get();
+        if (counter != null) {
+            counter.increment(name);
+        }
+    }
+
+    /**
+     * Stops counting and reactivates the counter that was active when this one
+     * was started.
+     */
+    public void stop() {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Returns the number of statements executed, including rejected ones.
+     *
+     * @return The statement count.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of statements allowed.
+     *
+     * @return The budget, or 0 for no limit.
+     */
+    public int getBudget() {
+        return budget;
+    }
+
+    /**
+     * Returns the number of statements executed per query name.
+     *
+     * @return The counts in order of first execution.
+     */
+    public Map<String, Integer> getCountsByName() {
+        return Collections.unmodifiableMap(countsByName);
+    }
+
+    /**
+     * Checks whether more statements were executed than budgeted.
+     *
+     * @return True if the budget was exceeded.
+     */
+    public boolean isOverBudget() {
+        return budget > 0 && count > budget;
+    }
+
+    /**
+     * Adds statements executed for this counter's work by another thread. The
+     * budget is not enforced on them, but statements executed on this thread
+     * afterwards are rejected if they exhausted it.
+     *
+     * @param counts The number of statements per query name.
+     */
+    public void addAll(Map<String, Integer> counts) {
+        counts.forEach((name, n) -> {
+            count += n;
+            countsByName.merge(name, n, Integer::sum);
+        });
+        if (previous != null) {
+            previous.addAll(counts);
+        }
+    }
+
+    private void increment(String name) {
+        count++;
+        countsByName.merge(name, 1, Integer::sum);
+        if (previous != null) {
+            previous.increment(name);
+        }
+        if (enforce && isOverBudget()) {
+            throw new IllegalStateException("Query budget of " + budget + " statements exceeded by " + label
+                    + ": " + countsByName);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package crud.repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import crud.event.EntityChangedEvent;
+import crud.model.ChangeEvent;
+import crud.profiling.QueryScope;
+import crud.utils.ChangeOperation;
+import crud.utils.EntityType;
+
+/**
+ * Repository class for the change outbox.
+ * Writes are appended inside the transaction of the change they describe, so
+ * the feed contains exactly the committed changes.
+ */
+@Repository
+public class ChangeOutboxRepository {
+
+    private static final RowMapper<ChangeEvent> CHANGE_EVENT_MAPPER = (rs, rowNum) -> {
+        long relatedId = rs.getLong("related_id");
+        return new ChangeEvent(
+                rs.getLong("seq"),
+                EntityType.valueOf(rs.getString("entity_type")),
+                rs.getLong("entity_id"),
+                ChangeOperation.valueOf(rs.getString("operation")),
+                rs.wasNull() ? null : relatedId,
+                rs.getTimestamp("created_at").toInstant());
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Constructor to inject JdbcTemplate and ApplicationEventPublisher.
+     *
+     * @param jdbcTemplate   The JdbcTemplate to be used for database operations.
+     * @param eventPublisher The publisher notifying in-process listeners.
+     */
+    @Autowired
+    public ChangeOutboxRepository(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Appends a change to the outbox within the current transaction.
+     *
+     * @param entityType The type of the changed entity.
+     * @param entityId   The ID of the changed entity.
+     * @param operation  The operation that changed the entity.
+     * @param relatedId  The ID of the related entity for LINK and UNLINK, or null.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(EntityType entityType, Long entityId, ChangeOperation operation, Long relatedId) {
+        try (QueryScope ignored = QueryScope.open("outbox.append")) {
+            jdbcTemplate.update(
+                    "INSERT INTO change_outbox (entity_type, entity_id, operation, related_id) VALUES (?, ?, ?, ?)",
+                    entityType.name(),
+                    entityId,
+                    operation.name(),
+                    relatedId);
+        }
+        eventPublisher.publishEvent(new EntityChangedEvent(entityType, entityId, operation, relatedId));
+    }
+
+    /**
+     * Appends many changes to the outbox within the current transaction, through
+     * COPY on PostgreSQL and a batched insert elsewhere.
+     *
+     * @param changes The changes to append, in order.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(List<EntityChangedEvent> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(changes.size());
+        for (EntityChangedEvent change : changes) {
+            rows.add(new Object[] { change.getEntityType().name(), change.getEntityId(),
+                    change.getOperation().name(), change.getRelatedId() });
+        }
+        try (QueryScope ignored = QueryScope.open("outbox.appendAll")) {
+            if (!PgCopy.copy(jdbcTemplate, "change_outbox (entity_type, entity_id, operation, related_id)", rows)) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO change_outbox (entity_type, entity_id, operation, related_id) VALUES (?, ?, ?, ?)",
+                        rows);
+            }
+        }
+        for (EntityChangedEvent change : changes) {
+            eventPublisher.publishEvent(change);
+        }
+    }
+
+    /**
+     * Retrieves the changes after the given sequence number.
+     *
+     * @param afterSeq The sequence number to start after.
+     * @param upToSeq  The largest sequence number to include.
+     * @param limit    The maximum number of changes to return.
+     * @return The changes in sequence order.
+     */
+    public List<ChangeEvent> findAfter(long afterSeq, long upToSeq, int limit) {
+        try (QueryScope ignored = QueryScope.open("outbox.findAfter")) {
+            return jdbcTemplate.query(
+                    "SELECT seq, entity_type, entity_id, operation, related_id, created_at FROM change_outbox " +
+                            "WHERE seq > ? AND seq <= ? ORDER BY seq LIMIT ?",
+                    CHANGE_EVENT_MAPPER,
+                    afterSeq,
+                    upToSeq,
+                    limit);
+        }
+    }
+
+    /**
+     * Retrieves the largest sequence number in the outbox.
+     *
+     * @return The largest sequence number, or 0 if the outbox is empty.
+     */
+    public long findMaxSeq() {
+        Long max = jdbcTemplate.queryForObject("SELECT max(seq) FROM change_outbox", Long.class);
+        return max != null ? max : 0L;
+    }
+
+    /**
+     * Deletes changes recorded before the given time.
+     *
+     * @param before The retention cut-off.
+     * @return The number of deleted changes.
+     */
+    public int deleteOlderThan(Timestamp before) {
+        return jdbcTemplate.update("DELETE FROM change_outbox WHERE created_at < ?", before);
+    }
+}
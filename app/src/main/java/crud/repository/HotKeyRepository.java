@@ -0,0 +1,66 @@
+package crud.repository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import crud.model.HotKey;
+import crud.profiling.QueryScope;
+import crud.utils.EntityType;
+
+/**
+ * Repository class for the persisted list of most requested entities.
+ */
+@Repository
+public class HotKeyRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructor to inject JdbcTemplate.
+     *
+     * @param jdbcTemplate The JdbcTemplate to be used for database operations.
+     */
+    @Autowired
+    public HotKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Replaces the persisted hot keys. With several instances the last one to
+     * persist wins, which is enough for warming caches.
+     *
+     * @param hotKeys The hot keys.
+     */
+    @Transactional
+    public void replaceAll(List<HotKey> hotKeys) {
+        try (QueryScope ignored = QueryScope.open("hotKeys.replace")) {
+            jdbcTemplate.update("DELETE FROM hot_keys");
+            jdbcTemplate.batchUpdate("INSERT INTO hot_keys (entity_type, depth, entity_id, hits) VALUES (?, ?, ?, ?)",
+                    hotKeys.stream()
+                            .map(hotKey -> new Object[] { hotKey.getEntityType().name(), hotKey.getDepth(),
+                                    hotKey.getId(), hotKey.getHits() })
+                            .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Retrieves the persisted hot keys.
+     *
+     * @param limit The maximum number of keys to return.
+     * @return The hot keys, most requested first.
+     */
+    public List<HotKey> findTop(int limit) {
+        try (QueryScope ignored = QueryScope.open("hotKeys.findTop")) {
+            return jdbcTemplate.query(
+                    "SELECT entity_type, depth, entity_id, hits FROM hot_keys ORDER BY hits DESC LIMIT ?",
+                    (rs, rowNum) -> new HotKey(EntityType.valueOf(rs.getString("entity_type")),
+                            rs.getLong("entity_id"), rs.getString("depth"), rs.getLong("hits"), 0),
+                    limit);
+        }
+    }
+}
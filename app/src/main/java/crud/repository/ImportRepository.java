@@ -0,0 +1,237 @@
+package crud.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import crud.model.ImportProgress;
+import crud.profiling.QueryScope;
+import crud.utils.EntityType;
+
+/**
+ * Repository class for bulk imports: the batched writes of imported rows and the
+ * checkpoints and external keys that make an import resumable.
+ * Writes of a batch must run in one transaction together with its checkpoint.
+ */
+@Repository
+public class ImportRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructor to inject JdbcTemplate.
+     *
+     * @param jdbcTemplate The JdbcTemplate to be used for database operations.
+     */
+    @Autowired
+    public ImportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Registers a new running import.
+     *
+     * @return The ID of the import.
+     */
+    public long create() {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try (QueryScope ignored = QueryScope.open("import.create")) {
+            jdbcTemplate.update(con -> con.prepareStatement("INSERT INTO imports (status) VALUES ('RUNNING')",
+                    new String[] { "id" }), keyHolder);
+        }
+        return keyHolder.getKey().longValue();
+    }
+
+    /**
+     * Retrieves the last checkpoint of an import.
+     *
+     * @param importId The ID of the import.
+     * @return The progress at the checkpoint, without per-request figures, or
+     *         empty if the import does not exist.
+     */
+    public Optional<ImportProgress> findCheckpoint(long importId) {
+        try (QueryScope ignored = QueryScope.open("import.findCheckpoint")) {
+            return jdbcTemplate.query(
+                    "SELECT status, rows_processed, rows_failed FROM imports WHERE id = ?",
+                    (rs, rowNum) -> new ImportProgress(importId, rs.getString("status"),
+                            rs.getLong("rows_processed"), rs.getLong("rows_failed"), 0, 0, List.of()),
+                    importId).stream().findFirst();
+        }
+    }
+
+    /**
+     * Sets the status of an import.
+     *
+     * @param importId The ID of the import.
+     * @param status   RUNNING, COMPLETED or FAILED.
+     */
+    public void updateStatus(long importId, String status) {
+        try (QueryScope ignored = QueryScope.open("import.updateStatus")) {
+            jdbcTemplate.update("UPDATE imports SET status = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?",
+                    status, importId);
+        }
+    }
+
+    /**
+     * Records the rows processed so far, within the transaction of the batch
+     * that completed them.
+     *
+     * @param importId      The ID of the import.
+     * @param rowsProcessed The number of rows imported or rejected.
+     * @param rowsFailed    The number of rows rejected.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void checkpoint(long importId, long rowsProcessed, long rowsFailed) {
+        try (QueryScope ignored = QueryScope.open("import.checkpoint")) {
+            jdbcTemplate.update("UPDATE imports SET rows_processed = ?, rows_failed = ?, updated_at = CURRENT_TIMESTAMP "
+                    + "WHERE id = ?", rowsProcessed, rowsFailed, importId);
+        }
+    }
+
+    /**
+     * Retrieves the external keys an import has resolved so far.
+     *
+     * @param importId   The ID of the import.
+     * @param entityType The type of the keyed entities.
+     * @return The entity IDs by external key.
+     */
+    public Map<String, Long> findKeys(long importId, EntityType entityType) {
+        Map<String, Long> keys = new HashMap<>();
+        try (QueryScope ignored = QueryScope.open("import.findKeys")) {
+            jdbcTemplate.query(
+                    "SELECT external_key, entity_id FROM import_keys WHERE import_id = ? AND entity_type = ?",
+                    rs -> {
+                        keys.put(rs.getString("external_key"), rs.getLong("entity_id"));
+                    },
+                    importId, entityType.name());
+        }
+        return keys;
+    }
+
+    /**
+     * Records resolved external keys of an import.
+     *
+     * @param importId   The ID of the import.
+     * @param entityType The type of the keyed entities.
+     * @param keys       The external keys.
+     * @param ids        The entity IDs, in the order of the keys.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void insertKeys(long importId, EntityType entityType, List<String> keys, long[] ids) {
+        List<Object[]> rows = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            rows.add(new Object[] { importId, entityType.name(), keys.get(i), ids[i] });
+        }
+        try (QueryScope ignored = QueryScope.open("import.insertKeys")) {
+            if (!rows.isEmpty() && !PgCopy.copy(jdbcTemplate,
+                    "import_keys (import_id, entity_type, external_key, entity_id)", rows)) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO import_keys (import_id, entity_type, external_key, entity_id) VALUES (?, ?, ?, ?)",
+                        rows);
+            }
+        }
+    }
+
+    /**
+     * Inserts providers or services with one batched statement.
+     *
+     * @param entityType The type of the entities, provider or service.
+     * @param names      The names of the entities.
+     * @return The generated IDs, in the order of the names.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long[] insertEntities(EntityType entityType, List<String> names) {
+        long[] ids = new long[names.size()];
+        if (names.isEmpty()) {
+            return ids;
+        }
+        String table = entityType == EntityType.PROVIDER ? "providers" : "services";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try (QueryScope ignored = QueryScope.open("import.insert" + (entityType == EntityType.PROVIDER
+                ? "Providers" : "Services"))) {
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(
+                    "INSERT INTO " + table + " (name, is_deleted) VALUES (?, false)",
+                    new String[] { "id" }), new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setString(1, names.get(i));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return names.size();
+                        }
+                    }, keyHolder);
+        }
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = ((Number) keys.get(i).values().iterator().next()).longValue();
+        }
+        return ids;
+    }
+
+    /**
+     * Inserts provider-service links with one batched statement, skipping links
+     * that already exist, and increments the counters of the linked entities.
+     *
+     * @param links The links, each holding a provider ID and a service ID.
+     * @return For each link, whether it was inserted.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean[] insertLinks(List<long[]> links) {
+        boolean[] inserted = new boolean[links.size()];
+        if (links.isEmpty()) {
+            return inserted;
+        }
+        List<Object[]> rows = new ArrayList<>(links.size());
+        for (long[] link : links) {
+            rows.add(new Object[] { link[0], link[1] });
+        }
+
+        Map<Long, Integer> serviceCounts = new HashMap<>();
+        Map<Long, Integer> providerCounts = new HashMap<>();
+        try (QueryScope ignored = QueryScope.open("import.insertLinks")) {
+            int[] counts = jdbcTemplate.batchUpdate(
+                    "INSERT INTO provider_service (provider_id, service_id) VALUES (?, ?) "
+                            + "ON CONFLICT DO NOTHING",
+                    rows);
+            for (int i = 0; i < counts.length; i++) {
+                // Drivers that cannot report per-statement counts return
+                // SUCCESS_NO_INFO (-2); the link is then assumed inserted.
+                inserted[i] = counts[i] != 0;
+                if (inserted[i]) {
+                    serviceCounts.merge(links.get(i)[0], 1, Integer::sum);
+                    providerCounts.merge(links.get(i)[1], 1, Integer::sum);
+                }
+            }
+        }
+
+        try (QueryScope ignored = QueryScope.open("import.updateCounters")) {
+            jdbcTemplate.batchUpdate("UPDATE providers SET service_count = service_count + ? WHERE id = ?",
+                    toRows(serviceCounts));
+            jdbcTemplate.batchUpdate("UPDATE services SET provider_count = provider_count + ? WHERE id = ?",
+                    toRows(providerCounts));
+        }
+        return inserted;
+    }
+
+    private static List<Object[]> toRows(Map<Long, Integer> counts) {
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        counts.forEach((id, count) -> rows.add(new Object[] { count, id }));
+        return rows;
+    }
+}
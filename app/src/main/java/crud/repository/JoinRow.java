@@ -0,0 +1,49 @@
+package crud.repository;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+
+/**
+ * A row of the joins read by the reactive repositories.
+ * The queries alias their columns as parent, child and grandchild so that
+ * providers and services are read the same way; columns a query does not
+ * select, and columns of unmatched outer joins, are null.
+ */
+final class JoinRow {
+
+    final long parentId;
+    final String parentName;
+    final Long childId;
+    final String childName;
+    final Long grandchildId;
+    final String grandchildName;
+
+    private JoinRow(long parentId, String parentName, Long childId, String childName, Long grandchildId,
+            String grandchildName) {
+        this.parentId = parentId;
+        this.parentName = parentName;
+        this.childId = childId;
+        this.childName = childName;
+        this.grandchildId = grandchildId;
+        this.grandchildName = grandchildName;
+    }
+
+    /**
+     * Reads the aliased columns of a result row.
+     *
+     * @param row      The result row.
+     * @param metadata The metadata of the result.
+     * @return The join row.
+     */
+    static JoinRow of(Row row, RowMetadata metadata) {
+        boolean hasChild = metadata.contains("child_id");
+        boolean hasGrandchild = metadata.contains("grandchild_id");
+        return new JoinRow(
+                row.get("parent_id", Long.class),
+                row.get("parent_name", String.class),
+                hasChild ? row.get("child_id", Long.class) : null,
+                hasChild ? row.get("child_name", String.class) : null,
+                hasGrandchild ? row.get("grandchild_id", Long.class) : null,
+                hasGrandchild ? row.get("grandchild_name", String.class) : null);
+    }
+}
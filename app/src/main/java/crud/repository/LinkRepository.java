@@ -0,0 +1,159 @@
+package crud.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import crud.profiling.QueryScope;
+import crud.utils.ChangeOperation;
+import crud.utils.EntityType;
+
+/**
+ * Repository class for managing rows of the provider_service join table.
+ * Every link and unlink also maintains the denormalized service_count and
+ * provider_count columns and records the change in the outbox, so both must
+ * go through this class. The counters only count live peers: links to a
+ * deleted entity are kept with it, but no longer counted by its peers.
+ */
+@Repository
+public class LinkRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeOutboxRepository changeOutboxRepository;
+
+    /**
+     * Constructor to inject JdbcTemplate and ChangeOutboxRepository.
+     *
+     * @param jdbcTemplate           The JdbcTemplate to be used for database
+     *                               operations.
+     * @param changeOutboxRepository The outbox recording every link change.
+     */
+    @Autowired
+    public LinkRepository(JdbcTemplate jdbcTemplate, ChangeOutboxRepository changeOutboxRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.changeOutboxRepository = changeOutboxRepository;
+    }
+
+    /**
+     * Checks that a provider and a service both exist and are not deleted.
+     *
+     * @param providerId The ID of the provider.
+     * @param serviceId  The ID of the service.
+     * @return True if both are live, false otherwise.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean areLive(Long providerId, Long serviceId) {
+        try (QueryScope ignored = QueryScope.open("link.areLive")) {
+            Integer count = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM providers p, services s " +
+                            "WHERE p.id = ? AND p.is_deleted = false AND s.id = ? AND s.is_deleted = false",
+                    Integer.class,
+                    providerId,
+                    serviceId);
+            return count != null && count > 0;
+        }
+    }
+
+    /**
+     * Links a provider with a service and increments both counters, unless
+     * they are already linked.
+     *
+     * @param providerId The ID of the provider.
+     * @param serviceId  The ID of the service.
+     * @return True if a link was added, false if it already existed.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean link(Long providerId, Long serviceId) {
+        try (QueryScope ignored = QueryScope.open("link.link")) {
+            int added = jdbcTemplate.update(
+                    "INSERT INTO provider_service (provider_id, service_id) VALUES (?, ?) " +
+                            "ON CONFLICT DO NOTHING",
+                    providerId,
+                    serviceId);
+            if (added == 0) {
+                return false;
+            }
+            updateCounters(providerId, serviceId, 1);
+        }
+        changeOutboxRepository.append(EntityType.PROVIDER, providerId, ChangeOperation.LINK, serviceId);
+        return true;
+    }
+
+    /**
+     * Removes the link between a provider and a service and decrements both
+     * counters if the link existed.
+     *
+     * @param providerId The ID of the provider.
+     * @param serviceId  The ID of the service.
+     * @return True if a link was removed, false otherwise.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean unlink(Long providerId, Long serviceId) {
+        try (QueryScope ignored = QueryScope.open("link.unlink")) {
+            int removed = jdbcTemplate.update(
+                    "DELETE FROM provider_service WHERE provider_id = ? AND service_id = ?",
+                    providerId,
+                    serviceId);
+            if (removed == 0) {
+                return false;
+            }
+            updateCounters(providerId, serviceId, -1);
+        }
+        changeOutboxRepository.append(EntityType.PROVIDER, providerId, ChangeOperation.UNLINK, serviceId);
+        return true;
+    }
+
+    /**
+     * Stops counting a provider that was just deleted in the provider_count of
+     * its live services. Its links are kept.
+     *
+     * @param providerId The ID of the deleted provider.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void releaseProvider(Long providerId) {
+        try (QueryScope ignored = QueryScope.open("link.releaseProvider")) {
+            jdbcTemplate.update(
+                    "UPDATE services SET provider_count = provider_count - 1 " +
+                            "WHERE is_deleted = false " +
+                            "AND id IN (SELECT service_id FROM provider_service WHERE provider_id = ?)",
+                    providerId);
+        }
+    }
+
+    /**
+     * Stops counting a service that was just deleted in the service_count of
+     * its live providers. Its links are kept.
+     *
+     * @param serviceId The ID of the deleted service.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void releaseService(Long serviceId) {
+        try (QueryScope ignored = QueryScope.open("link.releaseService")) {
+            jdbcTemplate.update(
+                    "UPDATE providers SET service_count = service_count - 1 " +
+                            "WHERE is_deleted = false " +
+                            "AND id IN (SELECT provider_id FROM provider_service WHERE service_id = ?)",
+                    serviceId);
+        }
+    }
+
+    /**
+     * Adjusts both counters of a link, each only if the peer it counts is live.
+     */
+    private void updateCounters(Long providerId, Long serviceId, int delta) {
+        jdbcTemplate.update(
+                "UPDATE providers SET service_count = service_count + ? WHERE id = ? " +
+                        "AND EXISTS (SELECT 1 FROM services WHERE id = ? AND is_deleted = false)",
+                delta,
+                providerId,
+                serviceId);
+        jdbcTemplate.update(
+                "UPDATE services SET provider_count = provider_count + ? WHERE id = ? " +
+                        "AND EXISTS (SELECT 1 FROM providers WHERE id = ? AND is_deleted = false)",
+                delta,
+                serviceId,
+                providerId);
+    }
+}
@@ -0,0 +1,125 @@
+package crud.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiFunction;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import crud.model.SearchPage;
+import crud.utils.SearchCursor;
+
+/**
+ * Ranked, keyset-paginated name search shared by the provider and service
+ * repositories.
+ * Names starting with the query are returned first, followed by names that only
+ * contain it. Each rank is read with its own index-friendly statement: prefix
+ * matches through the "C"-collated btree on lower(name), substring matches
+ * through the trigram index. Both are ordered by (lower(name), id), which is
+ * also the keyset used for paging.
+ */
+final class NameSearch {
+
+    /**
+     * Substring matching is only attempted for queries long enough to produce
+     * a trigram.
+     */
+    private static final int MIN_SUBSTRING_LENGTH = 3;
+
+    private NameSearch() {
+    }
+
+    /**
+     * Searches the given table by name.
+     *
+     * @param jdbcTemplate The JdbcTemplate to be used for database operations.
+     * @param table        The table to search (providers or services).
+     * @param query        The text to match against names.
+     * @param limit        The maximum number of results in the page.
+     * @param cursor       The cursor returned by the previous page, or null.
+     * @param factory      Creates an entity from an id and a name.
+     * @param <T>          The entity type.
+     * @return The page of matching entities.
+     */
+    static <T> SearchPage<T> search(JdbcTemplate jdbcTemplate, String table, String query, int limit, String cursor,
+            BiFunction<Long, String, T> factory) {
+        String key = query.toLowerCase(Locale.ROOT);
+        String escaped = escapeLike(key);
+        SearchCursor after = SearchCursor.decode(cursor);
+
+        List<Row> rows = new ArrayList<>(limit + 1);
+
+        if (after.getRank() == SearchCursor.RANK_PREFIX) {
+            rows.addAll(jdbcTemplate.query(
+                    "SELECT id, name, lower(name) AS name_key FROM " + table + " " +
+                            "WHERE is_deleted = false " +
+                            "    AND lower(name) COLLATE \"C\" LIKE ? ESCAPE '\\' " +
+                            "    AND (lower(name) COLLATE \"C\", id) > (?, ?) " +
+                            "ORDER BY lower(name) COLLATE \"C\", id " +
+                            "LIMIT ?",
+                    (rs, rowNum) -> new Row(SearchCursor.RANK_PREFIX, rs.getLong("id"), rs.getString("name"),
+                            rs.getString("name_key")),
+                    escaped + "%", after.getNameKey(), after.getId(), limit + 1));
+        }
+
+        if (rows.size() <= limit && key.length() >= MIN_SUBSTRING_LENGTH) {
+            boolean continuing = after.getRank() == SearchCursor.RANK_SUBSTRING;
+            rows.addAll(jdbcTemplate.query(
+                    "SELECT id, name, lower(name) AS name_key FROM " + table + " " +
+                            "WHERE is_deleted = false " +
+                            "    AND lower(name) LIKE ? ESCAPE '\\' " +
+                            "    AND lower(name) NOT LIKE ? ESCAPE '\\' " +
+                            "    AND (lower(name) COLLATE \"C\", id) > (?, ?) " +
+                            "ORDER BY lower(name) COLLATE \"C\", id " +
+                            "LIMIT ?",
+                    (rs, rowNum) -> new Row(SearchCursor.RANK_SUBSTRING, rs.getLong("id"), rs.getString("name"),
+                            rs.getString("name_key")),
+                    "%" + escaped + "%", escaped + "%",
+                    continuing ? after.getNameKey() : "", continuing ? after.getId() : 0L,
+                    limit + 1 - rows.size()));
+        }
+
+        boolean hasMore = rows.size() > limit;
+        List<Row> page = hasMore ? rows.subList(0, limit) : rows;
+
+        List<T> items = new ArrayList<>(page.size());
+        for (Row row : page) {
+            items.add(factory.apply(row.id, row.name));
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Row last = page.get(page.size() - 1);
+            nextCursor = new SearchCursor(last.rank, last.nameKey, last.id).encode();
+        }
+        return new SearchPage<>(items, nextCursor);
+    }
+
+    /**
+     * Escapes LIKE wildcards so the query is matched literally.
+     *
+     * @param value The raw value.
+     * @return The escaped value.
+     */
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * A matched row together with its keyset position.
+     */
+    private static final class Row {
+        private final int rank;
+        private final long id;
+        private final String name;
+        private final String nameKey;
+
+        private Row(int rank, long id, String name, String nameKey) {
+            this.rank = rank;
+            this.id = id;
+            this.name = name;
+            this.nameKey = nameKey;
+        }
+    }
+}
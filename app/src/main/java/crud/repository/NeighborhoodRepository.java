@@ -0,0 +1,112 @@
+package crud.repository;
+
+import java.util.Collections;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import crud.profiling.QueryScope;
+import crud.utils.EntityType;
+
+/**
+ * Repository class expanding the provider-service graph one hop at a time.
+ * A whole frontier is expanded with a few batched queries instead of one query
+ * per node, and every query is limited so that a hub node cannot return more
+ * links than the caller can still accept.
+ */
+@Repository
+public class NeighborhoodRepository {
+
+    /**
+     * The number of ids bound into one query.
+     */
+    static final int BATCH_SIZE = 500;
+
+    /**
+     * Receives the links found by an expansion.
+     */
+    @FunctionalInterface
+    public interface LinkHandler {
+
+        /**
+         * Receives one link.
+         *
+         * @param providerId The ID of the provider.
+         * @param serviceId  The ID of the service.
+         * @return False to stop expanding after the current batch.
+         */
+        boolean accept(long providerId, long serviceId);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructor to inject JdbcTemplate.
+     *
+     * @param jdbcTemplate The JdbcTemplate to be used for database operations.
+     */
+    @Autowired
+    public NeighborhoodRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Checks whether a non-deleted entity exists.
+     *
+     * @param type The type of the entity.
+     * @param id   The ID of the entity.
+     * @return True if the entity exists and is not deleted.
+     */
+    public boolean exists(EntityType type, long id) {
+        String table = type == EntityType.PROVIDER ? "providers" : "services";
+        try (QueryScope ignored = QueryScope.open("neighborhood.exists")) {
+            Long count = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM " + table + " WHERE id = ? AND is_deleted = false", Long.class, id);
+            return count != null && count > 0;
+        }
+    }
+
+    /**
+     * Streams the links from the given entities to their non-deleted neighbors.
+     * Links beyond maxLinks, or after the handler asked to stop, are counted
+     * but not passed to the handler.
+     *
+     * @param type     The type of the given entities.
+     * @param ids      The IDs of the entities; only the first count are used.
+     * @param count    The number of IDs to expand.
+     * @param maxLinks The maximum number of links to return.
+     * @param handler  The handler receiving each link.
+     * @return The number of links returned, which is maxLinks + 1 if more than
+     *         maxLinks links exist.
+     */
+    public int expand(EntityType type, long[] ids, int count, int maxLinks, LinkHandler handler) {
+        String from = type == EntityType.PROVIDER ? "provider_id" : "service_id";
+        String to = type == EntityType.PROVIDER ? "service_id" : "provider_id";
+        String toTable = type == EntityType.PROVIDER ? "services" : "providers";
+        int[] found = new int[1];
+        boolean[] stopped = new boolean[1];
+        try (QueryScope ignored = QueryScope.open("neighborhood.expand")) {
+            for (int start = 0; start < count && found[0] <= maxLinks && !stopped[0]; start += BATCH_SIZE) {
+                int end = Math.min(count, start + BATCH_SIZE);
+                Object[] args = new Object[end - start + 1];
+                for (int i = start; i < end; i++) {
+                    args[i - start] = ids[i];
+                }
+                args[args.length - 1] = maxLinks - found[0] + 1;
+                String placeholders = String.join(", ", Collections.nCopies(end - start, "?"));
+                jdbcTemplate.query(
+                        "SELECT ps.provider_id, ps.service_id FROM provider_service ps" +
+                                " JOIN " + toTable + " t ON t.id = ps." + to + " AND t.is_deleted = false" +
+                                " WHERE ps." + from + " IN (" + placeholders + ") LIMIT ?",
+                        rs -> {
+                            if (++found[0] <= maxLinks && !stopped[0]) {
+                                stopped[0] = !handler.accept(rs.getLong(1), rs.getLong(2));
+                            }
+                        },
+                        args);
+            }
+        }
+        return found[0];
+    }
+}
@@ -0,0 +1,206 @@
+package crud.repository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import crud.profiling.QueryCancellation;
+import crud.profiling.QueryScope;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Reads large result sets by splitting them into id ranges that are fetched in
+ * parallel.
+ * The id range of the table is split into contiguous partitions of equal width,
+ * and each partition is fetched and extracted on its own pooled connection.
+ * The caller fetches the first partition itself while the others run on a
+ * bounded executor, in the cancellation scope of the caller so that its
+ * deadline also limits them. Partition results are concatenated in id order,
+ * so a statement ordered by id returns exactly what its serial form would.
+ * The number of partitions adapts to the connection pool: it never exceeds the
+ * connections that are free after keeping a reserve for other requests, and
+ * falls back to the serial statement when there is no headroom or the table is
+ * too small to be worth splitting.
+ */
+@Component
+public class PartitionedReader {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int maxParallelism;
+    private final long minPartitionSize;
+    private final int reservedConnections;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Constructs a new PartitionedReader.
+     *
+     * @param jdbcTemplate        The JdbcTemplate to be used for database
+     *                            operations.
+     * @param enabled             Whether large reads are partitioned at all.
+     * @param maxParallelism      The maximum number of partitions of one read,
+     *                            also the number of executor threads.
+     * @param minPartitionSize    The minimum width of the id range of a
+     *                            partition.
+     * @param reservedConnections The pooled connections left to other requests.
+     */
+    @Autowired
+    public PartitionedReader(JdbcTemplate jdbcTemplate,
+            @Value("${crud.partitioned-reads.enabled:false}") boolean enabled,
+            @Value("${crud.partitioned-reads.max-parallelism:4}") int maxParallelism,
+            @Value("${crud.partitioned-reads.min-partition-size:10000}") long minPartitionSize,
+            @Value("${crud.partitioned-reads.reserved-connections:2}") int reservedConnections) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.maxParallelism = Math.max(1, maxParallelism);
+        this.minPartitionSize = Math.max(1, minPartitionSize);
+        this.reservedConnections = Math.max(0, reservedConnections);
+
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.maxParallelism, this.maxParallelism, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(this.maxParallelism * 4), runnable -> {
+                    Thread thread = new Thread(runnable, "partitioned-read-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Checks whether large reads are partitioned.
+     *
+     * @return True if partitioned reads are enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reads all rows of a statement, partitioned by id.
+     *
+     * @param name      The query name of the statement.
+     * @param table     The table whose live ids are split, either providers or
+     *                  services.
+     * @param sql       The statement, with two parameters for the inclusive lower
+     *                  and upper id bound of a partition, ordered by that id.
+     * @param extractor Creates the extractor of one partition.
+     * @param <T>       The element type.
+     * @return The rows of all partitions in id order.
+     */
+    public <T> List<T> query(String name, String table, String sql,
+            Supplier<? extends ResultSetExtractor<List<T>>> extractor) {
+        Map<String, Object> bounds;
+        try (QueryScope ignored = QueryScope.open(name + ".bounds")) {
+            bounds = jdbcTemplate.queryForMap(
+                    "SELECT min(id) AS lo, max(id) AS hi FROM " + table + " WHERE is_deleted = false");
+        }
+        if (bounds.get("lo") == null) {
+            return new ArrayList<>();
+        }
+        long lo = ((Number) bounds.get("lo")).longValue();
+        long hi = ((Number) bounds.get("hi")).longValue();
+
+        int partitions = partitionsFor(hi - lo + 1);
+        long width = (hi - lo + partitions) / partitions;
+
+        List<Future<List<T>>> pending = new ArrayList<>();
+        try {
+            for (int i = 1; i < partitions; i++) {
+                long from = lo + i * width;
+                long to = Math.min(hi, from + width - 1);
+                pending.add(executor.submit(QueryCancellation.propagate(() -> fetch(name, sql, from, to, extractor))));
+            }
+            List<T> result = new ArrayList<>(fetch(name, sql, lo, Math.min(hi, lo + width - 1), extractor));
+            for (Future<List<T>> partition : pending) {
+                result.addAll(await(partition));
+            }
+            return result;
+        } finally {
+            for (Future<List<T>> partition : pending) {
+                partition.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Stops the executor threads.
+     */
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Decides the number of partitions for an id range from its width and the
+     * free connections of the pool.
+     *
+     * @param width The number of ids in the range.
+     * @return The number of partitions, at least 1.
+     */
+    int partitionsFor(long width) {
+        long bySize = width / minPartitionSize;
+        int byPool = freeConnections() - reservedConnections;
+        return (int) Math.max(1, Math.min(Math.min(maxParallelism, byPool), bySize));
+    }
+
+    private int freeConnections() {
+        DataSource dataSource = jdbcTemplate.getDataSource();
+        try {
+            if (dataSource == null || !dataSource.isWrapperFor(HikariDataSource.class)) {
+                return maxParallelism + reservedConnections;
+            }
+            HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            if (pool == null) {
+                return hikari.getMaximumPoolSize();
+            }
+            return hikari.getMaximumPoolSize() - pool.getActiveConnections();
+        } catch (SQLException e) {
+            return 1;
+        }
+    }
+
+    private <T> List<T> fetch(String name, String sql, long from, long to,
+            Supplier<? extends ResultSetExtractor<List<T>>> extractor) {
+        try (QueryScope ignored = QueryScope.open(name)) {
+            return jdbcTemplate.query(sql, extractor.get(), from, to);
+        }
+    }
+
+    private static <T> T await(Future<T> partition) {
+        try {
+            return partition.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a partition", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
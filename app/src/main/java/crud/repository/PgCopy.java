@@ -0,0 +1,67 @@
+package crud.repository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.util.List;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Bulk-loads rows through the COPY protocol of PostgreSQL.
+ * Rows are sent as CSV on the connection of the current transaction. On other
+ * databases nothing is written and the caller falls back to batched inserts.
+ */
+final class PgCopy {
+
+    private PgCopy() {
+    }
+
+    /**
+     * Copies rows into a table if the database is PostgreSQL.
+     *
+     * @param jdbcTemplate The JdbcTemplate whose connection is used.
+     * @param table        The table and column list, for example
+     *                     {@code provider_service (provider_id, service_id)}.
+     * @param rows         The rows, each holding one value per column; null
+     *                     values are written as NULL.
+     * @return True if the rows were copied, false if COPY is not available.
+     */
+    static boolean copy(JdbcTemplate jdbcTemplate, String table, List<Object[]> rows) {
+        Boolean copied = jdbcTemplate.execute((Connection con) -> {
+            if (!con.isWrapperFor(PGConnection.class)) {
+                return false;
+            }
+            CopyManager copyManager = con.unwrap(PGConnection.class).getCopyAPI();
+            try {
+                copyManager.copyIn("COPY " + table + " FROM STDIN WITH (FORMAT csv)", new StringReader(toCsv(rows)));
+            } catch (IOException e) {
+                throw new DataAccessResourceFailureException("COPY into " + table + " failed", e);
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(copied);
+    }
+
+    private static String toCsv(List<Object[]> rows) {
+        StringBuilder csv = new StringBuilder(rows.size() * 32);
+        for (Object[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    csv.append(',');
+                }
+                Object value = row[i];
+                if (value instanceof String) {
+                    csv.append('"').append(((String) value).replace("\"", "\"\"")).append('"');
+                } else if (value != null) {
+                    csv.append(value);
+                }
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+}
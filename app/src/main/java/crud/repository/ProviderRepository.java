@@ -1,12 +1,17 @@
 package crud.repository;
 
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
@@ -15,8 +20,14 @@ import org.springframework.transaction.annotation.Transactional;
 
 import crud.entity.ProviderEntity;
 import crud.entity.ServiceEntity;
+import crud.model.ProviderRecord;
+import crud.model.SearchPage;
+import crud.utils.ChangeOperation;
 import crud.mapper.ProviderResultExtractor;
+import crud.profiling.QueryScope;
+import crud.repository.QueryRegistry.Operation;
 import crud.utils.DepthLevel;
+import crud.utils.EntityType;
 
 /**
  * Repository class for managing ProviderEntity entities in the database.
@@ -25,15 +36,29 @@ import crud.utils.DepthLevel;
 public class ProviderRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final LinkRepository linkRepository;
+    private final ChangeOutboxRepository changeOutboxRepository;
+    private final PartitionedReader partitionedReader;
 
     /**
-     * Constructor to inject JdbcTemplate.
+     * Constructor to inject JdbcTemplate, LinkRepository and
+     * ChangeOutboxRepository.
      *
-     * @param jdbcTemplate The JdbcTemplate to be used for database operations.
+     * @param jdbcTemplate           The JdbcTemplate to be used for database
+     *                               operations.
+     * @param linkRepository         The repository maintaining provider-service
+     *                               links.
+     * @param changeOutboxRepository The outbox recording every provider change.
+     * @param partitionedReader      The reader splitting large MEDIUM reads into
+     *                               parallel partitions.
      */
     @Autowired
-    public ProviderRepository(JdbcTemplate jdbcTemplate) {
+    public ProviderRepository(JdbcTemplate jdbcTemplate, LinkRepository linkRepository,
+            ChangeOutboxRepository changeOutboxRepository, PartitionedReader partitionedReader) {
         this.jdbcTemplate = jdbcTemplate;
+        this.linkRepository = linkRepository;
+        this.changeOutboxRepository = changeOutboxRepository;
+        this.partitionedReader = partitionedReader;
     }
 
     /**
@@ -46,22 +71,22 @@ public class ProviderRepository {
     public ProviderEntity save(ProviderEntity provider) {
         // Step 1: Insert ProviderEntity and get its generated ID
         KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(con -> {
-            PreparedStatement ps = con.prepareStatement(
-                    "INSERT INTO providers (name) VALUES (?)",
-                    new String[] { "id" });
-            ps.setString(1, provider.getName());
-            return ps;
-        }, keyHolder);
+        try (QueryScope ignored = QueryScope.open("provider.insert")) {
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "INSERT INTO providers (name) VALUES (?)",
+                        new String[] { "id" });
+                ps.setString(1, provider.getName());
+                return ps;
+            }, keyHolder);
+        }
 
         Long providerId = keyHolder.getKey().longValue();
+        changeOutboxRepository.append(EntityType.PROVIDER, providerId, ChangeOperation.CREATE, null);
 
         // Step 2: Update join table with existing ServiceEntities
         for (ServiceEntity service : provider.getServices()) {
-            jdbcTemplate.update(
-                    "INSERT INTO provider_service (provider_id, service_id) VALUES (?, ?)",
-                    providerId,
-                    service.getId());
+            linkRepository.link(providerId, service.getId());
         }
 
         provider.setId(providerId);
@@ -69,26 +94,59 @@ public class ProviderRepository {
     }
 
     /**
-     * Retrieves all providers from the database with the specified depth.
+     * Saves a batch of new ProviderEntities with one batched insert in a single
+     * transaction.
      *
-     * @param depth The depth level of the retrieval (SHALLOW, MEDIUM).
-     * @return List of ProviderEntity objects.
+     * @param providers The ProviderEntities to be saved.
+     * @return The saved ProviderEntities with generated IDs, in the same order.
      */
-    public List<ProviderEntity> findAll(DepthLevel depth) {
-        String sql;
+    @Transactional
+    public List<ProviderEntity> saveAll(List<ProviderEntity> providers) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try (QueryScope ignored = QueryScope.open("provider.insertBatch")) {
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(
+                    "INSERT INTO providers (name) VALUES (?)",
+                    new String[] { "id" }), new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setString(1, providers.get(i).getName());
+                        }
 
-        switch (depth) {
-            case SHALLOW:
-                sql = getAllShallowSql();
-                break;
-            case MEDIUM:
-                sql = getAllMediumSql();
-                break;
-            default:
-                throw new IllegalArgumentException("Not supported or invalid depth parameter");
+                        @Override
+                        public int getBatchSize() {
+                            return providers.size();
+                        }
+                    }, keyHolder);
         }
 
-        return jdbcTemplate.query(sql, new ProviderResultExtractor());
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < providers.size(); i++) {
+            ProviderEntity provider = providers.get(i);
+            Long providerId = ((Number) keys.get(i).values().iterator().next()).longValue();
+            changeOutboxRepository.append(EntityType.PROVIDER, providerId, ChangeOperation.CREATE, null);
+            for (ServiceEntity service : provider.getServices()) {
+                linkRepository.link(providerId, service.getId());
+            }
+            provider.setId(providerId);
+        }
+        return providers;
+    }
+
+    /**
+     * Retrieves all providers from the database with the specified depth.
+     *
+     * @param depth The depth level of the retrieval (SHALLOW, MEDIUM).
+     * @return List of ProviderRecord objects.
+     */
+    public List<ProviderRecord> findAll(DepthLevel depth) {
+        if (depth == DepthLevel.MEDIUM && partitionedReader.isEnabled()) {
+            return partitionedReader.query(QueryRegistry.name(EntityType.PROVIDER, Operation.FIND_ALL_RANGE, depth), "providers",
+                    QueryRegistry.sql(EntityType.PROVIDER, Operation.FIND_ALL_RANGE, depth), ProviderResultExtractor::new);
+        }
+        String sql = QueryRegistry.sql(EntityType.PROVIDER, Operation.FIND_ALL, depth);
+        try (QueryScope ignored = QueryScope.open(QueryRegistry.name(EntityType.PROVIDER, Operation.FIND_ALL, depth))) {
+            return jdbcTemplate.query(sql, new ProviderResultExtractor());
+        }
     }
 
     /**
@@ -96,186 +154,142 @@ public class ProviderRepository {
      *
      * @param id    The ID of the provider to be retrieved.
      * @param depth The depth level of the retrieval (SHALLOW, MEDIUM, DEEP).
-     * @return An Optional containing the retrieved ProviderEntity, or empty if not
+     * @return An Optional containing the retrieved ProviderRecord, or empty if not
      *         found.
      */
-    public Optional<ProviderEntity> findById(Long id, DepthLevel depth) {
-        String sql;
-
-        switch (depth) {
-            case SHALLOW:
-                sql = getFindByIdShallowSql();
-                break;
-            case MEDIUM:
-                sql = getFindByIdMediumSql();
-                break;
-            case DEEP:
-                sql = getFindByIdDeepSql();
-                break;
-            default:
-                throw new IllegalArgumentException("Not supported or invalid depth parameter");
-        }
-        try {
-            return Optional.ofNullable(jdbcTemplate.query(sql, new ProviderResultExtractor(), id).get(0));
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();
+    public Optional<ProviderRecord> findById(Long id, DepthLevel depth) {
+        String sql = QueryRegistry.sql(EntityType.PROVIDER, Operation.FIND_BY_ID, depth);
+        try (QueryScope ignored = QueryScope.open(QueryRegistry.name(EntityType.PROVIDER, Operation.FIND_BY_ID, depth))) {
+            return jdbcTemplate.query(sql, new ProviderResultExtractor(), id).stream().findFirst();
         }
     }
 
     /**
-     * Updates an existing ProviderEntity in the database.
+     * Searches providers by name, ranking prefix matches before substring matches.
      *
-     * @param provider The updated ProviderEntity.
-     * @return The updated ProviderEntity.
+     * @param query  The text to match against provider names.
+     * @param limit  The maximum number of providers to return.
+     * @param cursor The cursor returned by the previous page, or null for the
+     *               first page.
+     * @return The page of matching shallow ProviderRecord objects.
      */
-    @Transactional
-    public ProviderEntity update(ProviderEntity provider) {
-        // Step 1: Update ProviderEntity name
-        jdbcTemplate.update(
-                "UPDATE providers SET name = ? WHERE id = ?",
-                provider.getName(),
-                provider.getId());
-
-        // Step 2: Retrieve current services associated with the provider
-        List<Long> currentServiceIds = jdbcTemplate.queryForList(
-                "SELECT service_id FROM provider_service WHERE provider_id = ?",
-                Long.class,
-                provider.getId());
-
-        // Step 3: Identify services to be removed
-        List<Long> servicesToRemove = currentServiceIds.stream()
-                .filter(serviceId -> !provider.containsService(serviceId))
-                .collect(Collectors.toList());
-
-        // Step 4: Identify services to be added
-        List<Long> servicesToAdd = provider.getServices().stream()
-                .filter(service -> !currentServiceIds.contains(service.getId()))
-                .map(ServiceEntity::getId)
-                .collect(Collectors.toList());
-
-        // Step 5: Remove services
-        for (Long serviceId : servicesToRemove) {
-            jdbcTemplate.update(
-                    "DELETE FROM provider_service WHERE provider_id = ? AND service_id = ?",
-                    provider.getId(),
-                    serviceId);
+    public SearchPage<ProviderRecord> searchByName(String query, int limit, String cursor) {
+        try (QueryScope ignored = QueryScope.open("provider.search")) {
+            return NameSearch.search(jdbcTemplate, "providers", query, limit, cursor, ProviderRecord::shallow);
         }
-
-        // Step 6: Add new services
-        for (Long serviceId : servicesToAdd) {
-            jdbcTemplate.update(
-                    "INSERT INTO provider_service (provider_id, service_id) VALUES (?, ?)",
-                    provider.getId(),
-                    serviceId);
-        }
-
-        return provider;
     }
 
     /**
-     * Deletes a provider by marking it as deleted in the database.
+     * Retrieves the names of the given non-deleted providers with one query.
      *
-     * @param id The ID of the provider to be deleted.
+     * @param ids The IDs of the providers.
+     * @return The names by ID, without the providers that are deleted or missing.
      */
-    public void delete(Long id) {
-        String sql = "UPDATE providers SET isDeleted = 1 WHERE id = ?";
-        jdbcTemplate.update(sql, id);
+    public Map<Long, String> findNames(Collection<Long> ids) {
+        Map<Long, String> names = new HashMap<>();
+        if (ids.isEmpty()) {
+            return names;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        try (QueryScope ignored = QueryScope.open("provider.findNames")) {
+            jdbcTemplate.query("SELECT id, name FROM providers WHERE id IN (" + placeholders + ") AND is_deleted = false",
+                    rs -> {
+                        names.put(rs.getLong("id"), rs.getString("name"));
+                    },
+                    ids.toArray());
+        }
+        return names;
     }
 
     /**
-     * Retrieves SQL query for fetching a shallow ProviderEntity by ID from the
-     * database.
+     * Streams the id and name of every non-deleted provider to the given consumer.
      *
-     * @return The SQL query.
+     * @param consumer The consumer receiving each id and name.
      */
-    private String getFindByIdShallowSql() {
-        return "SELECT id, name FROM providers WHERE id = ? AND isDeleted = 0";
+    public void forEachName(BiConsumer<Long, String> consumer) {
+        try (QueryScope ignored = QueryScope.open("provider.names")) {
+            jdbcTemplate.query("SELECT id, name FROM providers WHERE is_deleted = false",
+                    rs -> {
+                        consumer.accept(rs.getLong("id"), rs.getString("name"));
+                    });
+        }
     }
 
     /**
-     * Retrieves SQL query for fetching a medium-depth ProviderEntity by ID from the
-     * database.
+     * Links a service to a provider, unless they are already linked.
      *
-     * @return The SQL query.
+     * @param providerId The ID of the provider.
+     * @param serviceId  The ID of the service.
+     * @return True if both exist, false if either is missing or deleted.
      */
-    private String getFindByIdMediumSql() {
-        return "SELECT " +
-                "    p.id AS provider_id, " +
-                "    p.name AS provider_name, " +
-                "    s.id AS service_id, " +
-                "    s.name AS service_name " +
-                "FROM " +
-                "    providers p " +
-                "JOIN " +
-                "    service_providers sp ON p.id = sp.provider_id " +
-                "JOIN " +
-                "    services s ON sp.service_id = s.id " +
-                "WHERE " +
-                "    p.id = ? " +
-                "    AND p.isDeleted = 0" +
-                "    AND s.isDeleted = 0";
+    @Transactional
+    public boolean linkService(Long providerId, Long serviceId) {
+        if (!linkRepository.areLive(providerId, serviceId)) {
+            return false;
+        }
+        linkRepository.link(providerId, serviceId);
+        return true;
     }
 
     /**
-     * Retrieves SQL query for fetching a deep ProviderEntity by ID from the
-     * database.
+     * Removes a service from a provider, if they are linked.
      *
-     * @return The SQL query.
+     * @param providerId The ID of the provider.
+     * @param serviceId  The ID of the service.
+     * @return True if both exist, false if either is missing or deleted.
      */
-    private String getFindByIdDeepSql() {
-        return "SELECT " +
-                "    p.id AS provider_id, " +
-                "    p.name AS provider_name, " +
-                "    s.id AS service_id, " +
-                "    s.name AS service_name, " +
-                "    ps.id AS provider_service_id, " +
-                "    ps.name AS provider_service_name " +
-                "FROM " +
-                "    providers p " +
-                "JOIN " +
-                "    provider_service sp ON p.id = sp.provider_id " +
-                "JOIN " +
-                "    services s ON sp.service_id = s.id " +
-                "JOIN " +
-                "    provider_service ps ON p.id = ps.provider_id " +
-                "WHERE " +
-                "    s.id = ? " +
-                "    AND p.isDeleted = 0" +
-                "    AND s.isDeleted = 0" +
-                "    AND ps.isDeleted = 0";
+    @Transactional
+    public boolean unlinkService(Long providerId, Long serviceId) {
+        if (!linkRepository.areLive(providerId, serviceId)) {
+            return false;
+        }
+        linkRepository.unlink(providerId, serviceId);
+        return true;
     }
 
     /**
-     * Retrieves SQL query for fetching all shallow ProviderEntities from the
-     * database.
+     * Updates the name of an existing provider in the database.
+     * Its links are left as they are; they are changed with
+     * {@link #linkService} and {@link #unlinkService}.
      *
-     * @return The SQL query.
+     * @param provider The provider entity carrying the ID and the new name.
+     * @return The updated provider entity, or null if the provider does not exist or is
+     *         deleted.
      */
-    private String getAllShallowSql() {
-        return "SELECT id, name FROM providers WHERE isDeleted = 0";
+    @Transactional
+    public ProviderEntity update(ProviderEntity provider) {
+        int updated;
+        try (QueryScope ignored = QueryScope.open("provider.update")) {
+            updated = jdbcTemplate.update(
+                    "UPDATE providers SET name = ? WHERE id = ? AND is_deleted = false",
+                    provider.getName(),
+                    provider.getId());
+        }
+        if (updated == 0) {
+            return null;
+        }
+        changeOutboxRepository.append(EntityType.PROVIDER, provider.getId(), ChangeOperation.UPDATE, null);
+        return provider;
     }
 
     /**
-     * Retrieves SQL query for fetching all medium-depth ProviderEntities from the
-     * database.
+     * Deletes a provider by marking it as deleted in the database.
+     * Its links are kept, but its live services stop counting it. Deleting a
+     * provider that is already deleted changes nothing.
      *
-     * @return The SQL query.
+     * @param id The ID of the provider to be deleted.
      */
-    private String getAllMediumSql() {
-        return "SELECT " +
-                "    p.id AS provider_id, " +
-                "    p.name AS provider_name, " +
-                "    s.id AS service_id, " +
-                "    s.name AS service_name " +
-                "FROM " +
-                "    providers p " +
-                "JOIN " +
-                "    service_providers sp ON p.id = sp.provider_id " +
-                "JOIN " +
-                "    services s ON sp.service_id = s.id " +
-                "WHERE " +
-                "    AND p.isDeleted = 0" +
-                "    AND s.isDeleted = 0";
+    @Transactional
+    public void delete(Long id) {
+        String sql = QueryRegistry.sql(EntityType.PROVIDER, Operation.DELETE, DepthLevel.SHALLOW);
+        int deleted;
+        try (QueryScope ignored = QueryScope.open("provider.delete")) {
+            deleted = jdbcTemplate.update(sql, id);
+        }
+        if (deleted == 0) {
+            return;
+        }
+        linkRepository.releaseProvider(id);
+        changeOutboxRepository.append(EntityType.PROVIDER, id, ChangeOperation.DELETE, null);
     }
-
 }
@@ -0,0 +1,403 @@
+package crud.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import crud.model.QueryProfile;
+import crud.model.RegisteredQuery;
+import crud.profiling.QueryProfiler;
+import crud.utils.DepthLevel;
+import crud.utils.EntityType;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Registry of the statements reading and deleting providers and services.
+ * Every statement is built once, when the class is loaded, for each supported
+ * combination of entity type, operation and depth, and is named like the
+ * {@link crud.profiling.QueryScope} it runs in. At startup each statement is
+ * prepared against the live schema and its parameters and result columns are
+ * checked against what the extractors read, so a statement naming a missing
+ * table or column fails the start instead of the first request using it.
+ * As the SQL text of a statement never changes, the driver's server-side
+ * prepared statement cache parses it once per connection.
+ */
+@Component
+@Lazy(false)
+public class QueryRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryRegistry.class);
+
+    /**
+     * The operations with registered statements.
+     */
+    public enum Operation {
+        FIND_BY_ID("findById"),
+        FIND_ALL("findAll"),
+        /**
+         * A partition of a MEDIUM read of all entities, bounded by an id range.
+         */
+        FIND_ALL_RANGE("findAllRange"),
+        /**
+         * Marks the entity as deleted; writes only touch the row of the entity
+         * and are registered at SHALLOW depth.
+         */
+        DELETE("delete");
+
+        private final String value;
+
+        Operation(String value) {
+            this.value = value;
+        }
+    }
+
+    private static final List<String> PROVIDER_COLUMNS = List.of("provider_id", "provider_name");
+    private static final List<String> SERVICE_COLUMNS = List.of("service_id", "service_name");
+
+    private static final String PROVIDERS_MEDIUM = "SELECT " +
+            "    p.id AS provider_id, " +
+            "    p.name AS provider_name, " +
+            "    s.id AS service_id, " +
+            "    s.name AS service_name " +
+            "FROM " +
+            "    providers p " +
+            "LEFT JOIN " +
+            "    provider_service ps ON p.id = ps.provider_id " +
+            "LEFT JOIN " +
+            "    services s ON ps.service_id = s.id AND s.is_deleted = false " +
+            "WHERE " +
+            "    p.is_deleted = false";
+
+    private static final String SERVICES_MEDIUM = "SELECT " +
+            "    s.id AS service_id, " +
+            "    s.name AS service_name, " +
+            "    p.id AS provider_id, " +
+            "    p.name AS provider_name " +
+            "FROM " +
+            "    services s " +
+            "LEFT JOIN " +
+            "    provider_service ps ON s.id = ps.service_id " +
+            "LEFT JOIN " +
+            "    providers p ON ps.provider_id = p.id AND p.is_deleted = false " +
+            "WHERE " +
+            "    s.is_deleted = false";
+
+    private static final Map<EntityType, Map<Operation, Map<DepthLevel, Statement>>> STATEMENTS =
+            new EnumMap<>(EntityType.class);
+
+    static {
+        register(EntityType.PROVIDER, Operation.FIND_BY_ID, DepthLevel.SHALLOW,
+                "SELECT p.id AS provider_id, p.name AS provider_name FROM providers p " +
+                        "WHERE p.id = ? AND p.is_deleted = false",
+                PROVIDER_COLUMNS);
+        register(EntityType.PROVIDER, Operation.FIND_BY_ID, DepthLevel.MEDIUM,
+                PROVIDERS_MEDIUM + " AND p.id = ?",
+                concat(PROVIDER_COLUMNS, SERVICE_COLUMNS));
+        register(EntityType.PROVIDER, Operation.FIND_BY_ID, DepthLevel.DEEP, "SELECT " +
+                "    p.id AS provider_id, " +
+                "    p.name AS provider_name, " +
+                "    s.id AS service_id, " +
+                "    s.name AS service_name, " +
+                "    sp.id AS provider_service_id, " +
+                "    sp.name AS provider_service_name " +
+                "FROM " +
+                "    providers p " +
+                "LEFT JOIN " +
+                "    provider_service ps ON p.id = ps.provider_id " +
+                "LEFT JOIN " +
+                "    services s ON ps.service_id = s.id AND s.is_deleted = false " +
+                "LEFT JOIN " +
+                "    provider_service sps ON s.id = sps.service_id " +
+                "LEFT JOIN " +
+                "    providers sp ON sps.provider_id = sp.id AND sp.is_deleted = false " +
+                "WHERE " +
+                "    p.id = ? " +
+                "    AND p.is_deleted = false",
+                concat(PROVIDER_COLUMNS, SERVICE_COLUMNS, List.of("provider_service_id", "provider_service_name")));
+        register(EntityType.PROVIDER, Operation.FIND_ALL, DepthLevel.SHALLOW,
+                "SELECT p.id AS provider_id, p.name AS provider_name FROM providers p WHERE p.is_deleted = false",
+                PROVIDER_COLUMNS);
+        register(EntityType.PROVIDER, Operation.FIND_ALL, DepthLevel.MEDIUM,
+                PROVIDERS_MEDIUM + " ORDER BY p.id, s.id",
+                concat(PROVIDER_COLUMNS, SERVICE_COLUMNS));
+        register(EntityType.PROVIDER, Operation.FIND_ALL_RANGE, DepthLevel.MEDIUM,
+                PROVIDERS_MEDIUM + " AND p.id BETWEEN ? AND ? ORDER BY p.id, s.id",
+                concat(PROVIDER_COLUMNS, SERVICE_COLUMNS));
+        register(EntityType.PROVIDER, Operation.DELETE, DepthLevel.SHALLOW,
+                "UPDATE providers SET is_deleted = true WHERE id = ? AND is_deleted = false",
+                List.of());
+
+        register(EntityType.SERVICE, Operation.FIND_BY_ID, DepthLevel.SHALLOW,
+                "SELECT s.id AS service_id, s.name AS service_name FROM services s " +
+                        "WHERE s.id = ? AND s.is_deleted = false",
+                SERVICE_COLUMNS);
+        register(EntityType.SERVICE, Operation.FIND_BY_ID, DepthLevel.MEDIUM,
+                SERVICES_MEDIUM + " AND s.id = ?",
+                concat(SERVICE_COLUMNS, PROVIDER_COLUMNS));
+        register(EntityType.SERVICE, Operation.FIND_BY_ID, DepthLevel.DEEP, "SELECT " +
+                "    s.id AS service_id, " +
+                "    s.name AS service_name, " +
+                "    p.id AS provider_id, " +
+                "    p.name AS provider_name, " +
+                "    ps2.id AS provider_service_id, " +
+                "    ps2.name AS provider_service_name " +
+                "FROM " +
+                "    services s " +
+                "LEFT JOIN " +
+                "    provider_service ps ON s.id = ps.service_id " +
+                "LEFT JOIN " +
+                "    providers p ON ps.provider_id = p.id AND p.is_deleted = false " +
+                "LEFT JOIN " +
+                "    provider_service pss ON p.id = pss.provider_id " +
+                "LEFT JOIN " +
+                "    services ps2 ON pss.service_id = ps2.id AND ps2.is_deleted = false " +
+                "WHERE " +
+                "    s.id = ? " +
+                "    AND s.is_deleted = false",
+                concat(SERVICE_COLUMNS, PROVIDER_COLUMNS, List.of("provider_service_id", "provider_service_name")));
+        register(EntityType.SERVICE, Operation.FIND_ALL, DepthLevel.SHALLOW,
+                "SELECT s.id AS service_id, s.name AS service_name FROM services s WHERE s.is_deleted = false",
+                SERVICE_COLUMNS);
+        register(EntityType.SERVICE, Operation.FIND_ALL, DepthLevel.MEDIUM,
+                SERVICES_MEDIUM + " ORDER BY s.id, p.id",
+                concat(SERVICE_COLUMNS, PROVIDER_COLUMNS));
+        register(EntityType.SERVICE, Operation.FIND_ALL_RANGE, DepthLevel.MEDIUM,
+                SERVICES_MEDIUM + " AND s.id BETWEEN ? AND ? ORDER BY s.id, p.id",
+                concat(SERVICE_COLUMNS, PROVIDER_COLUMNS));
+        register(EntityType.SERVICE, Operation.DELETE, DepthLevel.SHALLOW,
+                "UPDATE services SET is_deleted = true WHERE id = ? AND is_deleted = false",
+                List.of());
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QueryProfiler queryProfiler;
+    private final boolean validate;
+    private final boolean failOnInvalid;
+    private final Map<String, Preparation> preparations = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new QueryRegistry.
+     *
+     * @param jdbcTemplate  The JdbcTemplate preparing the statements.
+     * @param queryProfiler The profiler holding the execution statistics.
+     * @param validate      Whether the statements are prepared and checked at
+     *                      startup.
+     * @param failOnInvalid Whether an invalid statement fails the startup
+     *                      instead of being logged.
+     */
+    @Autowired
+    public QueryRegistry(JdbcTemplate jdbcTemplate, QueryProfiler queryProfiler,
+            @Value("${crud.queries.validate:true}") boolean validate,
+            @Value("${crud.queries.fail-on-invalid:true}") boolean failOnInvalid) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queryProfiler = queryProfiler;
+        this.validate = validate;
+        this.failOnInvalid = failOnInvalid;
+    }
+
+    /**
+     * Returns the SQL of a registered statement.
+     *
+     * @param type      The entity type.
+     * @param operation The operation.
+     * @param depth     The depth level.
+     * @return The SQL text.
+     * @throws IllegalArgumentException If no statement is registered for the
+     *                                  combination.
+     */
+    public static String sql(EntityType type, Operation operation, DepthLevel depth) {
+        return statement(type, operation, depth).sql;
+    }
+
+    /**
+     * Returns the name of a registered statement, which is also the name of
+     * the query scope it runs in.
+     *
+     * @param type      The entity type.
+     * @param operation The operation.
+     * @param depth     The depth level.
+     * @return The statement name, for example provider.findById.medium.
+     * @throws IllegalArgumentException If no statement is registered for the
+     *                                  combination.
+     */
+    public static String name(EntityType type, Operation operation, DepthLevel depth) {
+        return statement(type, operation, depth).name;
+    }
+
+    /**
+     * Prepares every registered statement and checks its parameters and result
+     * columns.
+     *
+     * @throws IllegalStateException If a statement is invalid and invalid
+     *                               statements fail the startup.
+     */
+    @PostConstruct
+    public void validate() {
+        if (!validate) {
+            return;
+        }
+        List<String> failures = jdbcTemplate.execute((ConnectionCallback<List<String>>) connection -> {
+            List<String> invalid = new ArrayList<>();
+            for (Statement statement : statements()) {
+                Preparation preparation = prepare(connection, statement);
+                preparations.put(statement.key, preparation);
+                if (preparation.error != null) {
+                    invalid.add(statement.name + ": " + preparation.error);
+                }
+            }
+            return invalid;
+        });
+        if (failures.isEmpty()) {
+            logger.info("Validated {} registered statements", preparations.size());
+            return;
+        }
+        String message = "Invalid registered statements:\n  " + String.join("\n  ", failures);
+        if (failOnInvalid) {
+            throw new IllegalStateException(message);
+        }
+        logger.error(message);
+    }
+
+    /**
+     * Returns the registered statements with their preparation at startup and
+     * their executions since.
+     *
+     * @return The statements, in registration order.
+     */
+    public List<RegisteredQuery> getQueries() {
+        List<RegisteredQuery> queries = new ArrayList<>();
+        for (Statement statement : statements()) {
+            Preparation preparation = preparations.get(statement.key);
+            QueryProfile profile = queryProfiler.getProfile(statement.name, statement.sql);
+            queries.add(new RegisteredQuery(statement.name, statement.type, statement.operation, statement.depth,
+                    statement.sql,
+                    preparation != null ? preparation.error == null : null,
+                    preparation != null ? preparation.error : null,
+                    preparation != null ? preparation.nanos / 1_000_000.0 : 0.0,
+                    statement.parameters,
+                    statement.columns,
+                    profile != null ? profile.getCount() : 0,
+                    profile != null ? profile.getErrors() : 0,
+                    profile != null ? profile.getMeanMs() : 0.0,
+                    profile != null ? profile.getP99Ms() : 0.0));
+        }
+        return queries;
+    }
+
+    private static Preparation prepare(Connection connection, Statement statement) {
+        long start = System.nanoTime();
+        try (PreparedStatement prepared = connection.prepareStatement(statement.sql)) {
+            // Describing the statement makes drivers that defer the parse, such
+            // as PostgreSQL's, send it to the server.
+            int parameters = prepared.getParameterMetaData().getParameterCount();
+            ResultSetMetaData metaData = prepared.getMetaData();
+            long nanos = System.nanoTime() - start;
+            if (parameters != statement.parameters) {
+                return new Preparation(nanos, "expected " + statement.parameters + " parameters but found " + parameters);
+            }
+            List<String> missing = new ArrayList<>(statement.columns);
+            if (metaData != null) {
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    missing.remove(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT));
+                }
+            }
+            if (!missing.isEmpty()) {
+                return new Preparation(nanos, "missing result columns " + missing);
+            }
+            return new Preparation(nanos, null);
+        } catch (SQLException e) {
+            return new Preparation(System.nanoTime() - start, e.getMessage());
+        }
+    }
+
+    private static Statement statement(EntityType type, Operation operation, DepthLevel depth) {
+        Statement statement = STATEMENTS.getOrDefault(type, Collections.emptyMap())
+                .getOrDefault(operation, Collections.emptyMap())
+                .get(depth);
+        if (statement == null) {
+            throw new IllegalArgumentException("Not supported or invalid depth parameter");
+        }
+        return statement;
+    }
+
+    private static List<Statement> statements() {
+        List<Statement> statements = new ArrayList<>();
+        STATEMENTS.values().forEach(operations -> operations.values()
+                .forEach(depths -> statements.addAll(depths.values())));
+        return statements;
+    }
+
+    private static void register(EntityType type, Operation operation, DepthLevel depth, String sql,
+            List<String> columns) {
+        STATEMENTS.computeIfAbsent(type, ignored -> new EnumMap<>(Operation.class))
+                .computeIfAbsent(operation, ignored -> new EnumMap<>(DepthLevel.class))
+                .put(depth, new Statement(type, operation, depth, sql, columns));
+    }
+
+    @SafeVarargs
+    private static List<String> concat(List<String>... parts) {
+        List<String> columns = new ArrayList<>();
+        for (List<String> part : parts) {
+            columns.addAll(part);
+        }
+        return List.copyOf(columns);
+    }
+
+    /**
+     * A registered statement.
+     */
+    private static final class Statement {
+        private final EntityType type;
+        private final Operation operation;
+        private final DepthLevel depth;
+        private final String name;
+        private final String key;
+        private final String sql;
+        private final int parameters;
+        private final List<String> columns;
+
+        private Statement(EntityType type, Operation operation, DepthLevel depth, String sql, List<String> columns) {
+            this.type = type;
+            this.operation = operation;
+            this.depth = depth;
+            String entity = type.name().toLowerCase(Locale.ROOT);
+            this.name = operation == Operation.DELETE
+                    ? entity + "." + operation.value
+                    : entity + "." + operation.value + "." + depth.getValue();
+            this.key = type + "/" + operation + "/" + depth;
+            this.sql = sql;
+            this.parameters = (int) sql.chars().filter(c -> c == '?').count();
+            this.columns = columns;
+        }
+    }
+
+    /**
+     * The outcome of preparing a statement at startup.
+     */
+    private static final class Preparation {
+        private final long nanos;
+        private final String error;
+
+        private Preparation(long nanos, String error) {
+            this.nanos = nanos;
+            this.error = error;
+        }
+    }
+}
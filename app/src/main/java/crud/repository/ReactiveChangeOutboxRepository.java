@@ -0,0 +1,90 @@
+package crud.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import crud.event.EntityChangedEvent;
+import crud.utils.ChangeOperation;
+import crud.utils.EntityType;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link ChangeOutboxRepository} for the writes of the
+ * reactive profile.
+ * Reactive transactions are not bound to a thread, so the transactional event
+ * listeners cannot defer the events to the commit themselves. Writes therefore
+ * run through {@link #inTransaction(Function)}, which collects the appended
+ * changes and publishes them once the transaction has committed.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveChangeOutboxRepository {
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Constructor to inject DatabaseClient, TransactionalOperator and
+     * ApplicationEventPublisher.
+     *
+     * @param databaseClient        The DatabaseClient to be used for database
+     *                              operations.
+     * @param transactionalOperator The operator running writes in transactions.
+     * @param eventPublisher        The publisher notifying in-process listeners.
+     */
+    @Autowired
+    public ReactiveChangeOutboxRepository(DatabaseClient databaseClient, TransactionalOperator transactionalOperator,
+            ApplicationEventPublisher eventPublisher) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Runs a write in a transaction and publishes the changes it appended after
+     * the commit.
+     *
+     * @param work The write, given the list collecting its changes.
+     * @param <T>  The result type.
+     * @return The result of the write.
+     */
+    public <T> Mono<T> inTransaction(Function<List<EntityChangedEvent>, Mono<T>> work) {
+        return Mono.defer(() -> {
+            List<EntityChangedEvent> changes = new ArrayList<>();
+            return transactionalOperator.transactional(work.apply(changes))
+                    .doOnSuccess(result -> changes.forEach(eventPublisher::publishEvent));
+        });
+    }
+
+    /**
+     * Appends a change to the outbox within the current transaction.
+     *
+     * @param changes    The changes of the current transaction.
+     * @param entityType The type of the changed entity.
+     * @param entityId   The ID of the changed entity.
+     * @param operation  The operation that changed the entity.
+     * @param relatedId  The ID of the related entity for LINK and UNLINK, or null.
+     * @return Completion of the insert.
+     */
+    public Mono<Void> append(List<EntityChangedEvent> changes, EntityType entityType, Long entityId,
+            ChangeOperation operation, Long relatedId) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(
+                "INSERT INTO change_outbox (entity_type, entity_id, operation, related_id) " +
+                        "VALUES (:entityType, :entityId, :operation, :relatedId)")
+                .bind("entityType", entityType.name())
+                .bind("entityId", entityId)
+                .bind("operation", operation.name());
+        spec = relatedId != null ? spec.bind("relatedId", relatedId) : spec.bindNull("relatedId", Long.class);
+        return spec.then()
+                .doOnSuccess(ignored -> changes.add(new EntityChangedEvent(entityType, entityId, operation, relatedId)));
+    }
+}
@@ -0,0 +1,155 @@
+package crud.repository;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import crud.event.EntityChangedEvent;
+import crud.utils.ChangeOperation;
+import crud.utils.EntityType;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link LinkRepository}.
+ * Like the JDBC repository, every link and unlink also maintains the
+ * service_count and provider_count columns and records the change in the
+ * outbox.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveLinkRepository {
+
+    private final DatabaseClient databaseClient;
+    private final ReactiveChangeOutboxRepository changeOutboxRepository;
+
+    /**
+     * Constructor to inject DatabaseClient and ReactiveChangeOutboxRepository.
+     *
+     * @param databaseClient         The DatabaseClient to be used for database
+     *                               operations.
+     * @param changeOutboxRepository The outbox recording every link change.
+     */
+    @Autowired
+    public ReactiveLinkRepository(DatabaseClient databaseClient,
+            ReactiveChangeOutboxRepository changeOutboxRepository) {
+        this.databaseClient = databaseClient;
+        this.changeOutboxRepository = changeOutboxRepository;
+    }
+
+    /**
+     * Links a provider with a service within the current transaction and
+     * increments both counters, unless they are already linked.
+     *
+     * @param changes    The changes of the current transaction.
+     * @param providerId The ID of the provider.
+     * @param serviceId  The ID of the service.
+     * @return True if a link was added, false otherwise.
+     */
+    public Mono<Boolean> link(List<EntityChangedEvent> changes, Long providerId, Long serviceId) {
+        return databaseClient.sql(
+                "INSERT INTO provider_service (provider_id, service_id) VALUES (:providerId, :serviceId) " +
+                        "ON CONFLICT DO NOTHING")
+                .bind("providerId", providerId)
+                .bind("serviceId", serviceId)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(added -> added == 0 ? Mono.just(false)
+                        : updateCounters(providerId, serviceId, 1)
+                                .then(changeOutboxRepository.append(changes, EntityType.PROVIDER, providerId,
+                                        ChangeOperation.LINK, serviceId))
+                                .thenReturn(true));
+    }
+
+    /**
+     * Removes the link between a provider and a service within the current
+     * transaction and decrements both counters if the link existed.
+     *
+     * @param changes    The changes of the current transaction.
+     * @param providerId The ID of the provider.
+     * @param serviceId  The ID of the service.
+     * @return True if a link was removed, false otherwise.
+     */
+    public Mono<Boolean> unlink(List<EntityChangedEvent> changes, Long providerId, Long serviceId) {
+        return databaseClient.sql("DELETE FROM provider_service WHERE provider_id = :providerId AND service_id = :serviceId")
+                .bind("providerId", providerId)
+                .bind("serviceId", serviceId)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(removed -> removed == 0 ? Mono.just(false)
+                        : updateCounters(providerId, serviceId, -1)
+                                .then(changeOutboxRepository.append(changes, EntityType.PROVIDER, providerId,
+                                        ChangeOperation.UNLINK, serviceId))
+                                .thenReturn(true));
+    }
+
+    /**
+     * Links a provider with a service in a transaction of its own.
+     *
+     * @param providerId The ID of the provider.
+     * @param serviceId  The ID of the service.
+     * @return True if a link was added, false if it already existed.
+     */
+    public Mono<Boolean> addLink(Long providerId, Long serviceId) {
+        return changeOutboxRepository.inTransaction(changes -> link(changes, providerId, serviceId));
+    }
+
+    /**
+     * Removes the link between a provider and a service in a transaction of its
+     * own.
+     *
+     * @param providerId The ID of the provider.
+     * @param serviceId  The ID of the service.
+     * @return True if a link was removed, false if it did not exist.
+     */
+    public Mono<Boolean> removeLink(Long providerId, Long serviceId) {
+        return changeOutboxRepository.inTransaction(changes -> unlink(changes, providerId, serviceId));
+    }
+
+    /**
+     * Stops counting a provider that was just deleted in the provider_count of
+     * its live services, within the current transaction. Its links are kept.
+     *
+     * @param providerId The ID of the deleted provider.
+     * @return Completion of the update.
+     */
+    public Mono<Void> releaseProvider(Long providerId) {
+        return databaseClient.sql("UPDATE services SET provider_count = provider_count - 1 " +
+                "WHERE is_deleted = false " +
+                "AND id IN (SELECT service_id FROM provider_service WHERE provider_id = :id)")
+                .bind("id", providerId)
+                .then();
+    }
+
+    /**
+     * Stops counting a service that was just deleted in the service_count of
+     * its live providers, within the current transaction. Its links are kept.
+     *
+     * @param serviceId The ID of the deleted service.
+     * @return Completion of the update.
+     */
+    public Mono<Void> releaseService(Long serviceId) {
+        return databaseClient.sql("UPDATE providers SET service_count = service_count - 1 " +
+                "WHERE is_deleted = false " +
+                "AND id IN (SELECT provider_id FROM provider_service WHERE service_id = :id)")
+                .bind("id", serviceId)
+                .then();
+    }
+
+    private Mono<Void> updateCounters(Long providerId, Long serviceId, int delta) {
+        return databaseClient.sql("UPDATE providers SET service_count = service_count + :delta WHERE id = :providerId " +
+                        "AND EXISTS (SELECT 1 FROM services WHERE id = :serviceId AND is_deleted = false)")
+                .bind("delta", delta)
+                .bind("providerId", providerId)
+                .bind("serviceId", serviceId)
+                .then()
+                .then(databaseClient.sql("UPDATE services SET provider_count = provider_count + :delta WHERE id = :serviceId " +
+                                "AND EXISTS (SELECT 1 FROM providers WHERE id = :providerId AND is_deleted = false)")
+                        .bind("delta", delta)
+                        .bind("providerId", providerId)
+                        .bind("serviceId", serviceId)
+                        .then());
+    }
+}
@@ -0,0 +1,229 @@
+package crud.repository;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import crud.entity.ProviderEntity;
+import crud.entity.ServiceEntity;
+import crud.event.EntityChangedEvent;
+import crud.utils.ChangeOperation;
+import crud.utils.DepthLevel;
+import crud.utils.EntityType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link ProviderRepository} for the reactive profile.
+ * Reads are ordered by provider and grouped as the rows stream in, so a
+ * provider is emitted as soon as its last row has arrived and the full result
+ * is never held in memory.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveProviderRepository {
+
+    private final DatabaseClient databaseClient;
+    private final ReactiveLinkRepository linkRepository;
+    private final ReactiveChangeOutboxRepository changeOutboxRepository;
+
+    /**
+     * Constructor to inject DatabaseClient, ReactiveLinkRepository and
+     * ReactiveChangeOutboxRepository.
+     *
+     * @param databaseClient         The DatabaseClient to be used for database
+     *                               operations.
+     * @param linkRepository         The repository maintaining provider-service
+     *                               links.
+     * @param changeOutboxRepository The outbox recording every provider change.
+     */
+    @Autowired
+    public ReactiveProviderRepository(DatabaseClient databaseClient, ReactiveLinkRepository linkRepository,
+            ReactiveChangeOutboxRepository changeOutboxRepository) {
+        this.databaseClient = databaseClient;
+        this.linkRepository = linkRepository;
+        this.changeOutboxRepository = changeOutboxRepository;
+    }
+
+    /**
+     * Saves a new ProviderEntity and links it with its services.
+     *
+     * @param provider The ProviderEntity to be saved.
+     * @return The saved ProviderEntity with generated ID.
+     */
+    public Mono<ProviderEntity> save(ProviderEntity provider) {
+        return changeOutboxRepository.inTransaction(changes -> databaseClient
+                .sql("INSERT INTO providers (name, is_deleted) VALUES (:name, false)")
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .bind("name", provider.getName())
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(providerId -> changeOutboxRepository
+                        .append(changes, EntityType.PROVIDER, providerId, ChangeOperation.CREATE, null)
+                        .thenMany(Flux.fromIterable(servicesOf(provider)))
+                        .concatMap(service -> linkRepository.link(changes, providerId, service.getId()))
+                        .then(Mono.fromCallable(() -> {
+                            provider.setId(providerId);
+                            return provider;
+                        }))));
+    }
+
+    /**
+     * Streams all providers with the specified depth.
+     *
+     * @param depth The depth level of the retrieval (SHALLOW, MEDIUM).
+     * @return The providers in ID order.
+     */
+    public Flux<ProviderEntity> findAll(DepthLevel depth) {
+        String sql;
+
+        switch (depth) {
+            case SHALLOW:
+                sql = "SELECT id AS parent_id, name AS parent_name FROM providers " +
+                        "WHERE is_deleted = false ORDER BY id";
+                break;
+            case MEDIUM:
+                sql = "SELECT " +
+                        "    p.id AS parent_id, " +
+                        "    p.name AS parent_name, " +
+                        "    s.id AS child_id, " +
+                        "    s.name AS child_name " +
+                        "FROM providers p " +
+                        "LEFT JOIN provider_service ps ON ps.provider_id = p.id " +
+                        "LEFT JOIN services s ON s.id = ps.service_id AND s.is_deleted = false " +
+                        "WHERE p.is_deleted = false " +
+                        "ORDER BY p.id, s.id";
+                break;
+            default:
+                return Flux.error(new IllegalArgumentException("Not supported or invalid depth parameter"));
+        }
+
+        return group(databaseClient.sql(sql).map(JoinRow::of).all());
+    }
+
+    /**
+     * Retrieves a provider by ID with the specified depth.
+     *
+     * @param id    The ID of the provider to be retrieved.
+     * @param depth The depth level of the retrieval (SHALLOW, MEDIUM, DEEP).
+     * @return The provider, or empty if not found.
+     */
+    public Mono<ProviderEntity> findById(Long id, DepthLevel depth) {
+        String sql;
+
+        switch (depth) {
+            case SHALLOW:
+                sql = "SELECT id AS parent_id, name AS parent_name FROM providers " +
+                        "WHERE id = :id AND is_deleted = false";
+                break;
+            case MEDIUM:
+                sql = "SELECT " +
+                        "    p.id AS parent_id, " +
+                        "    p.name AS parent_name, " +
+                        "    s.id AS child_id, " +
+                        "    s.name AS child_name " +
+                        "FROM providers p " +
+                        "LEFT JOIN provider_service ps ON ps.provider_id = p.id " +
+                        "LEFT JOIN services s ON s.id = ps.service_id AND s.is_deleted = false " +
+                        "WHERE p.id = :id AND p.is_deleted = false " +
+                        "ORDER BY s.id";
+                break;
+            case DEEP:
+                sql = "SELECT " +
+                        "    p.id AS parent_id, " +
+                        "    p.name AS parent_name, " +
+                        "    s.id AS child_id, " +
+                        "    s.name AS child_name, " +
+                        "    sp.id AS grandchild_id, " +
+                        "    sp.name AS grandchild_name " +
+                        "FROM providers p " +
+                        "LEFT JOIN provider_service ps ON ps.provider_id = p.id " +
+                        "LEFT JOIN services s ON s.id = ps.service_id AND s.is_deleted = false " +
+                        "LEFT JOIN provider_service ps2 ON ps2.service_id = s.id " +
+                        "LEFT JOIN providers sp ON sp.id = ps2.provider_id AND sp.is_deleted = false " +
+                        "WHERE p.id = :id AND p.is_deleted = false " +
+                        "ORDER BY s.id, sp.id";
+                break;
+            default:
+                return Mono.error(new IllegalArgumentException("Not supported or invalid depth parameter"));
+        }
+
+        return group(databaseClient.sql(sql).bind("id", id).map(JoinRow::of).all()).next();
+    }
+
+    /**
+     * Updates the name of a provider, leaving its links as they are.
+     *
+     * @param provider The ProviderEntity carrying the ID and the new name.
+     * @return The updated ProviderEntity, or empty if the provider does not exist or is
+     *         deleted.
+     */
+    public Mono<ProviderEntity> update(ProviderEntity provider) {
+        return changeOutboxRepository.inTransaction(changes -> databaseClient
+                .sql("UPDATE providers SET name = :name WHERE id = :id AND is_deleted = false")
+                .bind("name", provider.getName())
+                .bind("id", provider.getId())
+                .fetch()
+                .rowsUpdated()
+                .flatMap(updated -> updated == 0 ? Mono.<ProviderEntity>empty()
+                        : changeOutboxRepository.append(changes, EntityType.PROVIDER, provider.getId(),
+                                ChangeOperation.UPDATE, null)
+                                .then(Mono.just(provider))));
+    }
+
+    /**
+     * Deletes a provider by marking it as deleted.
+     * Its links are kept, but its live services stop counting it.
+     *
+     * @param id The ID of the provider to be deleted.
+     * @return Completion of the delete.
+     */
+    public Mono<Void> delete(Long id) {
+        return changeOutboxRepository.inTransaction(changes -> databaseClient
+                .sql("UPDATE providers SET is_deleted = true WHERE id = :id AND is_deleted = false")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(deleted -> deleted == 0 ? Mono.<Void>empty()
+                        : linkRepository.releaseProvider(id)
+                                .then(changeOutboxRepository.append(changes, EntityType.PROVIDER, id,
+                                        ChangeOperation.DELETE, null))));
+    }
+
+    /**
+     * Groups consecutive rows of the same provider into one entity. The rows of a
+     * provider must be adjacent and ordered by service.
+     *
+     * @param rows The rows ordered by provider and service.
+     * @return The providers.
+     */
+    private static Flux<ProviderEntity> group(Flux<JoinRow> rows) {
+        return rows.bufferUntilChanged(row -> row.parentId).map(ReactiveProviderRepository::toProvider);
+    }
+
+    private static ProviderEntity toProvider(List<JoinRow> rows) {
+        JoinRow first = rows.get(0);
+        ProviderEntity provider = new ProviderEntity(first.parentId, first.parentName);
+        ServiceEntity service = null;
+        for (JoinRow row : rows) {
+            if (row.childId == null) {
+                continue;
+            }
+            if (service == null || !service.getId().equals(row.childId)) {
+                service = new ServiceEntity(row.childId, row.childName);
+                provider.addService(service);
+            }
+            if (row.grandchildId != null) {
+                service.addProvider(new ProviderEntity(row.grandchildId, row.grandchildName));
+            }
+        }
+        return provider;
+    }
+
+    private static List<ServiceEntity> servicesOf(ProviderEntity provider) {
+        return provider.getServices() == null ? List.of() : provider.getServices();
+    }
+}
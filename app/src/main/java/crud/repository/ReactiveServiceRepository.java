@@ -0,0 +1,228 @@
+package crud.repository;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import crud.entity.ProviderEntity;
+import crud.entity.ServiceEntity;
+import crud.utils.ChangeOperation;
+import crud.utils.DepthLevel;
+import crud.utils.EntityType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link ServiceRepository} for the reactive profile.
+ * Reads are ordered by service and grouped as the rows stream in, so a service
+ * is emitted as soon as its last row has arrived and the full result is never
+ * held in memory.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveServiceRepository {
+
+    private final DatabaseClient databaseClient;
+    private final ReactiveLinkRepository linkRepository;
+    private final ReactiveChangeOutboxRepository changeOutboxRepository;
+
+    /**
+     * Constructor to inject DatabaseClient, ReactiveLinkRepository and
+     * ReactiveChangeOutboxRepository.
+     *
+     * @param databaseClient         The DatabaseClient to be used for database
+     *                               operations.
+     * @param linkRepository         The repository maintaining provider-service
+     *                               links.
+     * @param changeOutboxRepository The outbox recording every service change.
+     */
+    @Autowired
+    public ReactiveServiceRepository(DatabaseClient databaseClient, ReactiveLinkRepository linkRepository,
+            ReactiveChangeOutboxRepository changeOutboxRepository) {
+        this.databaseClient = databaseClient;
+        this.linkRepository = linkRepository;
+        this.changeOutboxRepository = changeOutboxRepository;
+    }
+
+    /**
+     * Saves a new ServiceEntity and links it with its providers.
+     *
+     * @param service The ServiceEntity to be saved.
+     * @return The saved ServiceEntity with generated ID.
+     */
+    public Mono<ServiceEntity> save(ServiceEntity service) {
+        return changeOutboxRepository.inTransaction(changes -> databaseClient
+                .sql("INSERT INTO services (name, is_deleted) VALUES (:name, false)")
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .bind("name", service.getName())
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(serviceId -> changeOutboxRepository
+                        .append(changes, EntityType.SERVICE, serviceId, ChangeOperation.CREATE, null)
+                        .thenMany(Flux.fromIterable(providersOf(service)))
+                        .concatMap(provider -> linkRepository.link(changes, provider.getId(), serviceId))
+                        .then(Mono.fromCallable(() -> {
+                            service.setId(serviceId);
+                            return service;
+                        }))));
+    }
+
+    /**
+     * Streams all services with the specified depth.
+     *
+     * @param depth The depth level of the retrieval (SHALLOW, MEDIUM).
+     * @return The services in ID order.
+     */
+    public Flux<ServiceEntity> findAll(DepthLevel depth) {
+        String sql;
+
+        switch (depth) {
+            case SHALLOW:
+                sql = "SELECT id AS parent_id, name AS parent_name FROM services " +
+                        "WHERE is_deleted = false ORDER BY id";
+                break;
+            case MEDIUM:
+                sql = "SELECT " +
+                        "    s.id AS parent_id, " +
+                        "    s.name AS parent_name, " +
+                        "    p.id AS child_id, " +
+                        "    p.name AS child_name " +
+                        "FROM services s " +
+                        "LEFT JOIN provider_service ps ON ps.service_id = s.id " +
+                        "LEFT JOIN providers p ON p.id = ps.provider_id AND p.is_deleted = false " +
+                        "WHERE s.is_deleted = false " +
+                        "ORDER BY s.id, p.id";
+                break;
+            default:
+                return Flux.error(new IllegalArgumentException("Not supported or invalid depth parameter"));
+        }
+
+        return group(databaseClient.sql(sql).map(JoinRow::of).all());
+    }
+
+    /**
+     * Retrieves a service by ID with the specified depth.
+     *
+     * @param id    The ID of the service to be retrieved.
+     * @param depth The depth level of the retrieval (SHALLOW, MEDIUM, DEEP).
+     * @return The service, or empty if not found.
+     */
+    public Mono<ServiceEntity> findById(Long id, DepthLevel depth) {
+        String sql;
+
+        switch (depth) {
+            case SHALLOW:
+                sql = "SELECT id AS parent_id, name AS parent_name FROM services " +
+                        "WHERE id = :id AND is_deleted = false";
+                break;
+            case MEDIUM:
+                sql = "SELECT " +
+                        "    s.id AS parent_id, " +
+                        "    s.name AS parent_name, " +
+                        "    p.id AS child_id, " +
+                        "    p.name AS child_name " +
+                        "FROM services s " +
+                        "LEFT JOIN provider_service ps ON ps.service_id = s.id " +
+                        "LEFT JOIN providers p ON p.id = ps.provider_id AND p.is_deleted = false " +
+                        "WHERE s.id = :id AND s.is_deleted = false " +
+                        "ORDER BY p.id";
+                break;
+            case DEEP:
+                sql = "SELECT " +
+                        "    s.id AS parent_id, " +
+                        "    s.name AS parent_name, " +
+                        "    p.id AS child_id, " +
+                        "    p.name AS child_name, " +
+                        "    ss.id AS grandchild_id, " +
+                        "    ss.name AS grandchild_name " +
+                        "FROM services s " +
+                        "LEFT JOIN provider_service ps ON ps.service_id = s.id " +
+                        "LEFT JOIN providers p ON p.id = ps.provider_id AND p.is_deleted = false " +
+                        "LEFT JOIN provider_service ps2 ON ps2.provider_id = p.id " +
+                        "LEFT JOIN services ss ON ss.id = ps2.service_id AND ss.is_deleted = false " +
+                        "WHERE s.id = :id AND s.is_deleted = false " +
+                        "ORDER BY p.id, ss.id";
+                break;
+            default:
+                return Mono.error(new IllegalArgumentException("Not supported or invalid depth parameter"));
+        }
+
+        return group(databaseClient.sql(sql).bind("id", id).map(JoinRow::of).all()).next();
+    }
+
+    /**
+     * Updates the name of a service, leaving its links as they are.
+     *
+     * @param service The ServiceEntity carrying the ID and the new name.
+     * @return The updated ServiceEntity, or empty if the service does not exist or is
+     *         deleted.
+     */
+    public Mono<ServiceEntity> update(ServiceEntity service) {
+        return changeOutboxRepository.inTransaction(changes -> databaseClient
+                .sql("UPDATE services SET name = :name WHERE id = :id AND is_deleted = false")
+                .bind("name", service.getName())
+                .bind("id", service.getId())
+                .fetch()
+                .rowsUpdated()
+                .flatMap(updated -> updated == 0 ? Mono.<ServiceEntity>empty()
+                        : changeOutboxRepository.append(changes, EntityType.SERVICE, service.getId(),
+                                ChangeOperation.UPDATE, null)
+                                .then(Mono.just(service))));
+    }
+
+    /**
+     * Deletes a service by marking it as deleted.
+     * Its links are kept, but its live providers stop counting it.
+     *
+     * @param id The ID of the service to be deleted.
+     * @return Completion of the delete.
+     */
+    public Mono<Void> delete(Long id) {
+        return changeOutboxRepository.inTransaction(changes -> databaseClient
+                .sql("UPDATE services SET is_deleted = true WHERE id = :id AND is_deleted = false")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(deleted -> deleted == 0 ? Mono.<Void>empty()
+                        : linkRepository.releaseService(id)
+                                .then(changeOutboxRepository.append(changes, EntityType.SERVICE, id,
+                                        ChangeOperation.DELETE, null))));
+    }
+
+    /**
+     * Groups consecutive rows of the same service into one entity. The rows of a
+     * service must be adjacent and ordered by provider.
+     *
+     * @param rows The rows ordered by service and provider.
+     * @return The services.
+     */
+    private static Flux<ServiceEntity> group(Flux<JoinRow> rows) {
+        return rows.bufferUntilChanged(row -> row.parentId).map(ReactiveServiceRepository::toService);
+    }
+
+    private static ServiceEntity toService(List<JoinRow> rows) {
+        JoinRow first = rows.get(0);
+        ServiceEntity service = new ServiceEntity(first.parentId, first.parentName);
+        ProviderEntity provider = null;
+        for (JoinRow row : rows) {
+            if (row.childId == null) {
+                continue;
+            }
+            if (provider == null || !provider.getId().equals(row.childId)) {
+                provider = new ProviderEntity(row.childId, row.childName);
+                service.addProvider(provider);
+            }
+            if (row.grandchildId != null) {
+                provider.addService(new ServiceEntity(row.grandchildId, row.grandchildName));
+            }
+        }
+        return service;
+    }
+
+    private static List<ProviderEntity> providersOf(ServiceEntity service) {
+        return service.getProviders() == null ? List.of() : service.getProviders();
+    }
+}
@@ -1,12 +1,17 @@
 package crud.repository;
 
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
@@ -15,8 +20,14 @@ import org.springframework.transaction.annotation.Transactional;
 
 import crud.entity.ProviderEntity;
 import crud.entity.ServiceEntity;
+import crud.model.ServiceRecord;
+import crud.model.SearchPage;
+import crud.utils.ChangeOperation;
 import crud.mapper.ServiceResultExtractor;
+import crud.profiling.QueryScope;
+import crud.repository.QueryRegistry.Operation;
 import crud.utils.DepthLevel;
+import crud.utils.EntityType;
 
 /**
  * Repository class for managing operations related to services in the database.
@@ -25,10 +36,17 @@ import crud.utils.DepthLevel;
 public class ServiceRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final LinkRepository linkRepository;
+    private final ChangeOutboxRepository changeOutboxRepository;
+    private final PartitionedReader partitionedReader;
 
     @Autowired
-    public ServiceRepository(JdbcTemplate jdbcTemplate) {
+    public ServiceRepository(JdbcTemplate jdbcTemplate, LinkRepository linkRepository,
+            ChangeOutboxRepository changeOutboxRepository, PartitionedReader partitionedReader) {
         this.jdbcTemplate = jdbcTemplate;
+        this.linkRepository = linkRepository;
+        this.changeOutboxRepository = changeOutboxRepository;
+        this.partitionedReader = partitionedReader;
     }
 
     /**
@@ -42,49 +60,82 @@ public class ServiceRepository {
     public ServiceEntity save(ServiceEntity service) {
         // Step 1: Insert ServiceEntity and get its generated ID
         KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(con -> {
-            PreparedStatement ps = con.prepareStatement(
-                    "INSERT INTO services (name) VALUES (?)",
-                    new String[] { "id" });
-            ps.setString(1, service.getName());
-            return ps;
-        }, keyHolder);
+        try (QueryScope ignored = QueryScope.open("service.insert")) {
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "INSERT INTO services (name) VALUES (?)",
+                        new String[] { "id" });
+                ps.setString(1, service.getName());
+                return ps;
+            }, keyHolder);
+        }
 
         Long serviceId = keyHolder.getKey().longValue();
+        changeOutboxRepository.append(EntityType.SERVICE, serviceId, ChangeOperation.CREATE, null);
 
         // Step 2: Update join table with existing ProviderEntities
         for (ProviderEntity provider : service.getProviders()) {
-            jdbcTemplate.update(
-                    "INSERT INTO provider_service (provider_id, service_id) VALUES (?, ?)",
-                    provider.getId(),
-                    serviceId);
+            linkRepository.link(provider.getId(), serviceId);
         }
 
         service.setId(serviceId);
         return service;
     }
 
+    /**
+     * Saves a batch of new ServiceEntities with one batched insert in a single
+     * transaction.
+     *
+     * @param services The ServiceEntities to be saved.
+     * @return The saved ServiceEntities with generated IDs, in the same order.
+     */
+    @Transactional
+    public List<ServiceEntity> saveAll(List<ServiceEntity> services) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try (QueryScope ignored = QueryScope.open("service.insertBatch")) {
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(
+                    "INSERT INTO services (name) VALUES (?)",
+                    new String[] { "id" }), new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setString(1, services.get(i).getName());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return services.size();
+                        }
+                    }, keyHolder);
+        }
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < services.size(); i++) {
+            ServiceEntity service = services.get(i);
+            Long serviceId = ((Number) keys.get(i).values().iterator().next()).longValue();
+            changeOutboxRepository.append(EntityType.SERVICE, serviceId, ChangeOperation.CREATE, null);
+            for (ProviderEntity provider : service.getProviders()) {
+                linkRepository.link(provider.getId(), serviceId);
+            }
+            service.setId(serviceId);
+        }
+        return services;
+    }
+
     /**
      * Retrieves all services from the database based on the specified depth level.
      *
      * @param depth The depth level for fetching related entities.
      * @return A list of service entities.
      */
-    public List<ServiceEntity> findAll(DepthLevel depth) {
-        String sql;
-
-        switch (depth) {
-            case SHALLOW:
-                sql = getAllShallowSql();
-                break;
-            case MEDIUM:
-                sql = getAllMediumSql();
-                break;
-            default:
-                throw new IllegalArgumentException("Not supported or invalid depth parameter");
+    public List<ServiceRecord> findAll(DepthLevel depth) {
+        if (depth == DepthLevel.MEDIUM && partitionedReader.isEnabled()) {
+            return partitionedReader.query(QueryRegistry.name(EntityType.SERVICE, Operation.FIND_ALL_RANGE, depth), "services",
+                    QueryRegistry.sql(EntityType.SERVICE, Operation.FIND_ALL_RANGE, depth), ServiceResultExtractor::new);
+        }
+        String sql = QueryRegistry.sql(EntityType.SERVICE, Operation.FIND_ALL, depth);
+        try (QueryScope ignored = QueryScope.open(QueryRegistry.name(EntityType.SERVICE, Operation.FIND_ALL, depth))) {
+            return jdbcTemplate.query(sql, new ServiceResultExtractor());
         }
-
-        return jdbcTemplate.query(sql, new ServiceResultExtractor());
     }
 
     /**
@@ -95,183 +146,139 @@ public class ServiceRepository {
      * @param depth The depth level for fetching related entities.
      * @return An optional containing the service entity if found, otherwise empty.
      */
-    public Optional<ServiceEntity> findById(Long id, DepthLevel depth) {
-        String sql;
-
-        switch (depth) {
-            case SHALLOW:
-                sql = getFindByIdShallowSql();
-                break;
-            case MEDIUM:
-                sql = getFindByIdMediumSql();
-                break;
-            case DEEP:
-                sql = getFindByIdDeepSql();
-                break;
-            default:
-                throw new IllegalArgumentException("Not supported or invalid depth parameter");
-        }
-        try {
-            return Optional.ofNullable(jdbcTemplate.query(sql, new ServiceResultExtractor(), id).get(0));
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();
+    public Optional<ServiceRecord> findById(Long id, DepthLevel depth) {
+        String sql = QueryRegistry.sql(EntityType.SERVICE, Operation.FIND_BY_ID, depth);
+        try (QueryScope ignored = QueryScope.open(QueryRegistry.name(EntityType.SERVICE, Operation.FIND_BY_ID, depth))) {
+            return jdbcTemplate.query(sql, new ServiceResultExtractor(), id).stream().findFirst();
         }
     }
 
     /**
-     * Updates an existing service in the database.
+     * Searches services by name, ranking prefix matches before substring matches.
      *
-     * @param service The updated service entity.
-     * @return The updated service entity with new information.
+     * @param query  The text to match against service names.
+     * @param limit  The maximum number of services to return.
+     * @param cursor The cursor returned by the previous page, or null for the
+     *               first page.
+     * @return The page of matching shallow ServiceRecord objects.
      */
-    @Transactional
-    public ServiceEntity update(ServiceEntity service) {
-        // Step 1: Update ServiceEntity name
-        jdbcTemplate.update(
-                "UPDATE services SET name = ? WHERE id = ?",
-                service.getName(),
-                service.getId());
-
-        // Step 2: Retrieve current providers associated with the service
-        List<Long> currentProviderIds = jdbcTemplate.queryForList(
-                "SELECT provider_id FROM provider_service WHERE service_id = ?",
-                Long.class,
-                service.getId());
-
-        // Step 3: Identify providers to be removed
-        List<Long> providersToRemove = currentProviderIds.stream()
-                .filter(providerId -> !service.containsProvider(providerId))
-                .collect(Collectors.toList());
-
-        // Step 4: Identify providers to be added
-        List<Long> providersToAdd = service.getProviders().stream()
-                .filter(provider -> !currentProviderIds.contains(provider.getId()))
-                .map(ProviderEntity::getId)
-                .collect(Collectors.toList());
-
-        // Step 5: Remove providers
-        for (Long providerId : providersToRemove) {
-            jdbcTemplate.update(
-                    "DELETE FROM provider_service WHERE provider_id = ? AND service_id = ?",
-                    providerId,
-                    service.getId());
+    public SearchPage<ServiceRecord> searchByName(String query, int limit, String cursor) {
+        try (QueryScope ignored = QueryScope.open("service.search")) {
+            return NameSearch.search(jdbcTemplate, "services", query, limit, cursor, ServiceRecord::shallow);
         }
-
-        // Step 6: Add new providers
-        for (Long providerId : providersToAdd) {
-            jdbcTemplate.update(
-                    "INSERT INTO provider_service (provider_id, service_id) VALUES (?, ?)",
-                    providerId,
-                    service.getId());
-        }
-
-        return service;
     }
 
     /**
-     * Deletes a service by marking it as deleted in the database.
+     * Retrieves the names of the given non-deleted services with one query.
      *
-     * @param id The ID of the service to be deleted.
+     * @param ids The IDs of the services.
+     * @return The names by ID, without the services that are deleted or missing.
      */
-    public void delete(Long id) {
-        String sql = "UPDATE services SET isDeleted = 1 WHERE id = ?";
-        jdbcTemplate.update(sql, id);
+    public Map<Long, String> findNames(Collection<Long> ids) {
+        Map<Long, String> names = new HashMap<>();
+        if (ids.isEmpty()) {
+            return names;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        try (QueryScope ignored = QueryScope.open("service.findNames")) {
+            jdbcTemplate.query("SELECT id, name FROM services WHERE id IN (" + placeholders + ") AND is_deleted = false",
+                    rs -> {
+                        names.put(rs.getLong("id"), rs.getString("name"));
+                    },
+                    ids.toArray());
+        }
+        return names;
     }
 
     /**
-     * Retrieves a shallow view of a service by its ID from the database.
-     * Shallow view includes basic information such as ID and name.
+     * Streams the id and name of every non-deleted service to the given consumer.
      *
-     * @param id The ID of the service to be retrieved.
-     * @return A SQL query for fetching the shallow view of a service.
+     * @param consumer The consumer receiving each id and name.
      */
-    private String getFindByIdShallowSql() {
-        return "SELECT id, name FROM services WHERE id = ? AND isDeleted = 0";
+    public void forEachName(BiConsumer<Long, String> consumer) {
+        try (QueryScope ignored = QueryScope.open("service.names")) {
+            jdbcTemplate.query("SELECT id, name FROM services WHERE is_deleted = false",
+                    rs -> {
+                        consumer.accept(rs.getLong("id"), rs.getString("name"));
+                    });
+        }
     }
 
     /**
-     * Retrieves a medium view of a service by its ID from the database.
-     * Medium view includes service and provider details.
+     * Links a provider to a service, unless they are already linked.
      *
-     * @param id The ID of the service to be retrieved.
-     * @return A SQL query for fetching the medium view of a service.
+     * @param serviceId  The ID of the service.
+     * @param providerId The ID of the provider.
+     * @return True if both exist, false if either is missing or deleted.
      */
-    private String getFindByIdMediumSql() {
-        return "SELECT " +
-                "    s.id AS service_id, " +
-                "    s.name AS service_name, " +
-                "    p.id AS provider_id, " +
-                "    p.name AS provider_name " +
-                "FROM " +
-                "    services s " +
-                "JOIN " +
-                "    provider_service ps ON s.id = ps.service_id " +
-                "JOIN " +
-                "    providers p ON ps.provider_id = p.id " +
-                "WHERE " +
-                "    s.id = ? " +
-                "    AND s.isDeleted = 0" +
-                "    AND p.isDeleted = 0";
+    @Transactional
+    public boolean linkProvider(Long serviceId, Long providerId) {
+        if (!linkRepository.areLive(providerId, serviceId)) {
+            return false;
+        }
+        linkRepository.link(providerId, serviceId);
+        return true;
     }
 
     /**
-     * Retrieves a deep view of a service by its ID from the database.
-     * Deep view includes service, provider, and provider-service details.
+     * Removes a provider from a service, if they are linked.
      *
-     * @param id The ID of the service to be retrieved.
-     * @return A SQL query for fetching the deep view of a service.
+     * @param serviceId  The ID of the service.
+     * @param providerId The ID of the provider.
+     * @return True if both exist, false if either is missing or deleted.
      */
-    private String getFindByIdDeepSql() {
-        return "SELECT " +
-                "    s.id AS service_id, " +
-                "    s.name AS service_name, " +
-                "    p.id AS provider_id, " +
-                "    p.name AS provider_name, " +
-                "    ps.id AS provider_service_id, " +
-                "    ps.name AS provider_service_name " +
-                "FROM " +
-                "    services s " +
-                "JOIN " +
-                "    provider_service ps ON s.id = ps.service_id " +
-                "JOIN " +
-                "    providers p ON ps.provider_id = p.id " +
-                "WHERE " +
-                "    s.id = ? " +
-                "    AND s.isDeleted = 0" +
-                "    AND p.isDeleted = 0" +
-                "    AND ps.isDeleted = 0";
+    @Transactional
+    public boolean unlinkProvider(Long serviceId, Long providerId) {
+        if (!linkRepository.areLive(providerId, serviceId)) {
+            return false;
+        }
+        linkRepository.unlink(providerId, serviceId);
+        return true;
     }
 
     /**
-     * Retrieves a shallow view of all services from the database.
-     * Shallow view includes basic information such as ID and name.
+     * Updates the name of an existing service in the database.
+     * Its links are left as they are; they are changed with
+     * {@link #linkProvider} and {@link #unlinkProvider}.
      *
-     * @return A SQL query for fetching the shallow view of all services.
+     * @param service The service entity carrying the ID and the new name.
+     * @return The updated service entity, or null if the service does not exist or is
+     *         deleted.
      */
-    private String getAllShallowSql() {
-        return "SELECT id, name FROM services WHERE isDeleted = 0";
+    @Transactional
+    public ServiceEntity update(ServiceEntity service) {
+        int updated;
+        try (QueryScope ignored = QueryScope.open("service.update")) {
+            updated = jdbcTemplate.update(
+                    "UPDATE services SET name = ? WHERE id = ? AND is_deleted = false",
+                    service.getName(),
+                    service.getId());
+        }
+        if (updated == 0) {
+            return null;
+        }
+        changeOutboxRepository.append(EntityType.SERVICE, service.getId(), ChangeOperation.UPDATE, null);
+        return service;
     }
 
     /**
-     * Retrieves a medium view of all services from the database.
-     * Medium view includes service and provider details.
+     * Deletes a service by marking it as deleted in the database.
+     * Its links are kept, but its live providers stop counting it. Deleting a
+     * service that is already deleted changes nothing.
      *
-     * @return A SQL query for fetching the medium view of all services.
+     * @param id The ID of the service to be deleted.
      */
-    private String getAllMediumSql() {
-        return "SELECT " +
-                "    s.id AS service_id, " +
-                "    s.name AS service_name, " +
-                "    p.id AS provider_id, " +
-                "    p.name AS provider_name " +
-                "FROM " +
-                "    services s " +
-                "JOIN " +
-                "    provider_service ps ON s.id = ps.service_id " +
-                "JOIN " +
-                "    providers p ON ps.provider_id = p.id " +
-                "WHERE " +
-                "    s.isDeleted = 0" +
-                "    AND p.isDeleted = 0";
+    @Transactional
+    public void delete(Long id) {
+        String sql = QueryRegistry.sql(EntityType.SERVICE, Operation.DELETE, DepthLevel.SHALLOW);
+        int deleted;
+        try (QueryScope ignored = QueryScope.open("service.delete")) {
+            deleted = jdbcTemplate.update(sql, id);
+        }
+        if (deleted == 0) {
+            return;
+        }
+        linkRepository.releaseService(id);
+        changeOutboxRepository.append(EntityType.SERVICE, id, ChangeOperation.DELETE, null);
     }
 }
@@ -0,0 +1,179 @@
+package crud.repository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import crud.model.DegreeEntry;
+import crud.profiling.QueryScope;
+
+/**
+ * Repository class for aggregate queries over the denormalized association
+ * counters.
+ */
+@Repository
+public class StatsRepository {
+
+    private static final String LIVE_SERVICES_OF_PROVIDER = "SELECT count(*) FROM provider_service ps " +
+            "JOIN services s ON s.id = ps.service_id AND s.is_deleted = false WHERE ps.provider_id = p.id";
+
+    private static final String LIVE_PROVIDERS_OF_SERVICE = "SELECT count(*) FROM provider_service ps " +
+            "JOIN providers p ON p.id = ps.provider_id AND p.is_deleted = false WHERE ps.service_id = s.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructor to inject JdbcTemplate.
+     *
+     * @param jdbcTemplate The JdbcTemplate to be used for database operations.
+     */
+    @Autowired
+    public StatsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Counts the non-deleted providers.
+     *
+     * @return The number of providers.
+     */
+    public long countProviders() {
+        try (QueryScope ignored = QueryScope.open("stats.countProviders")) {
+            return jdbcTemplate.queryForObject("SELECT count(*) FROM providers WHERE is_deleted = false", Long.class);
+        }
+    }
+
+    /**
+     * Counts the non-deleted services.
+     *
+     * @return The number of services.
+     */
+    public long countServices() {
+        try (QueryScope ignored = QueryScope.open("stats.countServices")) {
+            return jdbcTemplate.queryForObject("SELECT count(*) FROM services WHERE is_deleted = false", Long.class);
+        }
+    }
+
+    /**
+     * Counts the provider-service links.
+     *
+     * @return The number of links.
+     */
+    public long countLinks() {
+        try (QueryScope ignored = QueryScope.open("stats.countLinks")) {
+            return jdbcTemplate.queryForObject("SELECT count(*) FROM provider_service", Long.class);
+        }
+    }
+
+    /**
+     * Retrieves how many providers have each number of services.
+     *
+     * @return Map from service count to the number of providers, ordered by
+     *         service count.
+     */
+    public Map<Long, Long> findProviderDegreeCounts() {
+        return findDegreeCounts("stats.findProviderDegreeCounts",
+                "SELECT service_count AS degree, count(*) AS total " +
+                "FROM providers WHERE is_deleted = false " +
+                "GROUP BY service_count ORDER BY service_count");
+    }
+
+    /**
+     * Retrieves how many services have each number of providers.
+     *
+     * @return Map from provider count to the number of services, ordered by
+     *         provider count.
+     */
+    public Map<Long, Long> findServiceDegreeCounts() {
+        return findDegreeCounts("stats.findServiceDegreeCounts",
+                "SELECT provider_count AS degree, count(*) AS total " +
+                "FROM services WHERE is_deleted = false " +
+                "GROUP BY provider_count ORDER BY provider_count");
+    }
+
+    /**
+     * Retrieves the providers with the most services.
+     *
+     * @param limit The maximum number of providers to return.
+     * @return The providers ordered by service count, highest first.
+     */
+    public List<DegreeEntry> findTopProviders(int limit) {
+        try (QueryScope ignored = QueryScope.open("stats.findTopProviders")) {
+            return jdbcTemplate.query(
+                    "SELECT id, name, service_count FROM providers WHERE is_deleted = false " +
+                            "ORDER BY service_count DESC, id LIMIT ?",
+                    (rs, rowNum) -> new DegreeEntry(rs.getLong("id"), rs.getString("name"), rs.getLong("service_count")),
+                    limit);
+        }
+    }
+
+    /**
+     * Retrieves the services with the most providers.
+     *
+     * @param limit The maximum number of services to return.
+     * @return The services ordered by provider count, highest first.
+     */
+    public List<DegreeEntry> findTopServices(int limit) {
+        try (QueryScope ignored = QueryScope.open("stats.findTopServices")) {
+            return jdbcTemplate.query(
+                    "SELECT id, name, provider_count FROM services WHERE is_deleted = false " +
+                            "ORDER BY provider_count DESC, id LIMIT ?",
+                    (rs, rowNum) -> new DegreeEntry(rs.getLong("id"), rs.getString("name"), rs.getLong("provider_count")),
+                    limit);
+        }
+    }
+
+    /**
+     * Recomputes service_count for every live provider whose stored value
+     * differs from its links to live services.
+     *
+     * @return The number of providers that were repaired.
+     */
+    @Transactional
+    public int reconcileProviderCounts() {
+        try (QueryScope ignored = QueryScope.open("stats.reconcileProviderCounts")) {
+            return jdbcTemplate.update(
+                    "UPDATE providers p " +
+                            "SET service_count = (" + LIVE_SERVICES_OF_PROVIDER + ") " +
+                            "WHERE p.is_deleted = false AND p.service_count <> (" + LIVE_SERVICES_OF_PROVIDER + ")");
+        }
+    }
+
+    /**
+     * Recomputes provider_count for every live service whose stored value
+     * differs from its links to live providers.
+     *
+     * @return The number of services that were repaired.
+     */
+    @Transactional
+    public int reconcileServiceCounts() {
+        try (QueryScope ignored = QueryScope.open("stats.reconcileServiceCounts")) {
+            return jdbcTemplate.update(
+                    "UPDATE services s " +
+                            "SET provider_count = (" + LIVE_PROVIDERS_OF_SERVICE + ") " +
+                            "WHERE s.is_deleted = false AND s.provider_count <> (" + LIVE_PROVIDERS_OF_SERVICE + ")");
+        }
+    }
+
+    /**
+     * Runs a (degree, total) aggregation and collects it into an ordered map.
+     *
+     * @param name The query name of the aggregation.
+     * @param sql  The aggregation query.
+     * @return Map from degree to the number of entities with that degree.
+     */
+    private Map<Long, Long> findDegreeCounts(String name, String sql) {
+        Map<Long, Long> counts = new LinkedHashMap<>();
+        try (QueryScope ignored = QueryScope.open(name)) {
+            jdbcTemplate.query(sql, rs -> {
+                counts.put(rs.getLong("degree"), rs.getLong("total"));
+            });
+        }
+        return counts;
+    }
+}
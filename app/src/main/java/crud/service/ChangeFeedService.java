@@ -0,0 +1,365 @@
+package crud.service;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import crud.event.EntityChangedEvent;
+import crud.model.ChangeBatch;
+import crud.model.ChangeEvent;
+import crud.repository.ChangeOutboxRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service class for reading the change outbox and streaming it to
+ * subscribers.
+ * A single poller thread advances a watermark over the outbox. Sequence
+ * numbers are assigned before commit, so a gap below the newest row may still
+ * be filled by a transaction in flight; the poller holds the watermark at a
+ * gap until it fills or the gap timeout passes, and reads the gap once more
+ * before skipping it. The gap timeout must exceed the longest write
+ * transaction. Catch-up reads and streams never go past the watermark, so
+ * consumers never skip a late commit.
+ * Streams are written by a pool of sender threads, so a slow client never
+ * holds up the poller; a subscriber that fell behind gets one catch-up batch
+ * per poll.
+ * The bean is never lazy so the poller and purge job run with lazy
+ * initialization enabled.
+ */
+@Service
+@Lazy(false)
+public class ChangeFeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeedService.class);
+
+    private final ChangeOutboxRepository changeOutboxRepository;
+    private final long pollIntervalMs;
+    private final long gapTimeoutMs;
+    private final int batchSize;
+    private final long emitterTimeoutMs;
+    private final Duration retention;
+    private final int senderThreads;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final List<Consumer<List<ChangeEvent>>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private ScheduledExecutorService poller;
+    private ExecutorService sender;
+
+    private volatile long watermark;
+    private long gapSeq = -1;
+    private long gapSince;
+
+    /**
+     * Constructs a new ChangeFeedService.
+     *
+     * @param changeOutboxRepository The repository for the change outbox.
+     * @param pollIntervalMs         How often the outbox is polled.
+     * @param gapTimeoutMs           How long to wait for a sequence gap to fill.
+     * @param batchSize              The maximum number of changes read at once.
+     * @param emitterTimeoutMs       The lifetime of an SSE stream.
+     * @param retentionHours         How long changes are kept in the outbox.
+     * @param senderThreads          The number of threads writing to streams.
+     */
+    @Autowired
+    public ChangeFeedService(ChangeOutboxRepository changeOutboxRepository,
+            @Value("${crud.changes.poll-interval-ms:500}") long pollIntervalMs,
+            @Value("${crud.changes.gap-timeout-ms:10000}") long gapTimeoutMs,
+            @Value("${crud.changes.batch-size:500}") int batchSize,
+            @Value("${crud.changes.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+            @Value("${crud.changes.retention-hours:168}") long retentionHours,
+            @Value("${crud.changes.sender-threads:2}") int senderThreads) {
+        this.changeOutboxRepository = changeOutboxRepository;
+        this.pollIntervalMs = pollIntervalMs;
+        this.gapTimeoutMs = gapTimeoutMs;
+        this.batchSize = batchSize;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.retention = Duration.ofHours(retentionHours);
+        this.senderThreads = Math.max(1, senderThreads);
+    }
+
+    /**
+     * Starts the poller at the current end of the outbox.
+     */
+    @PostConstruct
+    public void start() {
+        watermark = changeOutboxRepository.findMaxSeq();
+        poller = Executors.newSingleThreadScheduledExecutor(daemonThreads("change-feed-poller"));
+        sender = Executors.newFixedThreadPool(senderThreads, daemonThreads("change-feed-sender"));
+        poller.scheduleWithFixedDelay(this::pollSafely, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Change feed started at sequence {}.", watermark);
+    }
+
+    /**
+     * Stops the poller and completes all open streams.
+     */
+    @PreDestroy
+    public void stop() {
+        poller.shutdownNow();
+        sender.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    /**
+     * Wakes the poller as soon as a local write commits instead of waiting for
+     * the next poll.
+     *
+     * @param event The committed change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        wakeUp();
+    }
+
+    /**
+     * Runs a poll now instead of waiting for the next poll interval, for example
+     * when another instance signals a commit.
+     */
+    public void wakeUp() {
+        if (wakeupPending.compareAndSet(false, true)) {
+            poller.execute(this::pollSafely);
+        }
+    }
+
+    /**
+     * Registers a listener receiving every batch of changes the watermark moves
+     * over, including the changes of other instances. Listeners run on the
+     * poller thread and must return quickly.
+     *
+     * @param listener The listener receiving the changes in sequence order.
+     */
+    public void addListener(Consumer<List<ChangeEvent>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Reads a batch of changes after the given sequence number.
+     *
+     * @param since The sequence number to start after.
+     * @param limit The maximum number of changes to return.
+     * @return The batch of changes.
+     */
+    public ChangeBatch getChanges(long since, int limit) {
+        if (since < 0) {
+            throw new IllegalArgumentException("Sequence number must not be negative");
+        }
+        int effectiveLimit = Math.max(1, Math.min(limit, batchSize));
+        List<ChangeEvent> events = changeOutboxRepository.findAfter(since, watermark, effectiveLimit + 1);
+
+        boolean hasMore = events.size() > effectiveLimit;
+        if (hasMore) {
+            events = events.subList(0, effectiveLimit);
+        }
+        long nextSince = events.isEmpty() ? since : events.get(events.size() - 1).getSeq();
+        return new ChangeBatch(events, nextSince, hasMore);
+    }
+
+    /**
+     * Opens a stream of changes starting after the given sequence number.
+     *
+     * @param from The sequence number to resume after, or null to start at the
+     *             current end of the feed.
+     * @return The SSE emitter delivering the changes.
+     */
+    public SseEmitter subscribe(Long from) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, from != null ? from : watermark);
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        subscribers.add(subscriber);
+        wakeUp();
+        return emitter;
+    }
+
+    /**
+     * Deletes changes older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${crud.changes.purge-interval-ms:3600000}")
+    public void purge() {
+        int deleted = changeOutboxRepository.deleteOlderThan(Timestamp.from(Instant.now().minus(retention)));
+        if (deleted > 0) {
+            logger.info("Purged {} changes older than {}.", deleted, retention);
+        }
+    }
+
+    /**
+     * Runs one poll, logging instead of propagating failures so the poller
+     * keeps running.
+     */
+    private void pollSafely() {
+        wakeupPending.set(false);
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            logger.error("Change feed poll failed.", e);
+        }
+    }
+
+    /**
+     * Advances the watermark over newly committed changes, passes them to the
+     * listeners and hands the subscribers that are behind to the sender
+     * threads.
+     */
+    private void poll() {
+        long previous = watermark;
+        List<ChangeEvent> fresh = advanceWatermark();
+
+        if (!fresh.isEmpty()) {
+            for (Consumer<List<ChangeEvent>> listener : listeners) {
+                try {
+                    listener.accept(fresh);
+                } catch (RuntimeException e) {
+                    logger.error("Change listener failed.", e);
+                }
+            }
+        }
+
+        long target = watermark;
+        for (Subscriber subscriber : subscribers) {
+            // A subscriber still being written to is picked up by a later poll.
+            if (subscriber.lastSeq < target && subscriber.sending.compareAndSet(false, true)) {
+                sender.execute(() -> deliver(subscriber, fresh, previous, target));
+            }
+        }
+    }
+
+    /**
+     * Sends a subscriber the fresh changes if it has seen everything before
+     * them, otherwise one batch of its backlog from the outbox. Runs on a
+     * sender thread.
+     */
+    private void deliver(Subscriber subscriber, List<ChangeEvent> fresh, long previous, long target) {
+        try {
+            if (subscriber.lastSeq >= previous) {
+                send(subscriber, fresh);
+                return;
+            }
+            List<ChangeEvent> backlog = changeOutboxRepository.findAfter(subscriber.lastSeq, target, batchSize);
+            if (backlog.isEmpty()) {
+                subscriber.lastSeq = target;
+            } else {
+                send(subscriber, backlog);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Change feed delivery failed.", e);
+        } finally {
+            subscriber.sending.set(false);
+        }
+    }
+
+    /**
+     * Reads the changes after the watermark and moves it past the contiguous
+     * prefix, or past a gap that did not fill within the gap timeout.
+     *
+     * @return The changes the watermark moved over.
+     */
+    private List<ChangeEvent> advanceWatermark() {
+        List<ChangeEvent> rows = changeOutboxRepository.findAfter(watermark, Long.MAX_VALUE, batchSize);
+        if (rows.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        long expected = watermark + 1;
+        int accepted = 0;
+        for (ChangeEvent row : rows) {
+            if (row.getSeq() != expected) {
+                long now = System.currentTimeMillis();
+                if (gapSeq != expected) {
+                    gapSeq = expected;
+                    gapSince = now;
+                }
+                if (now - gapSince < gapTimeoutMs || gapFilled(expected, row.getSeq() - 1)) {
+                    break;
+                }
+                logger.debug("Skipping change sequence gap {}..{}.", expected, row.getSeq() - 1);
+            }
+            accepted++;
+            expected = row.getSeq() + 1;
+        }
+
+        if (accepted > 0) {
+            watermark = rows.get(accepted - 1).getSeq();
+        }
+        return rows.subList(0, accepted);
+    }
+
+    /**
+     * Reads a timed-out gap once more, since a row may have committed after
+     * the batch was read.
+     *
+     * @return True if a row of the gap is now visible.
+     */
+    private boolean gapFilled(long from, long to) {
+        return !changeOutboxRepository.findAfter(from - 1, to, 1).isEmpty();
+    }
+
+    /**
+     * Sends the changes after the subscriber's position, dropping the
+     * subscriber if the stream is broken.
+     */
+    private void send(Subscriber subscriber, List<ChangeEvent> events) {
+        try {
+            for (ChangeEvent event : events) {
+                if (event.getSeq() <= subscriber.lastSeq) {
+                    continue;
+                }
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(Long.toString(event.getSeq()))
+                        .name("change")
+                        .data(event));
+                subscriber.lastSeq = event.getSeq();
+            }
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * An open stream together with the last sequence number sent to it.
+     */
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile long lastSeq;
+
+        private Subscriber(SseEmitter emitter, long lastSeq) {
+            this.emitter = emitter;
+            this.lastSeq = lastSeq;
+        }
+    }
+}
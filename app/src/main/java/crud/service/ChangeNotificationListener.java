@@ -0,0 +1,129 @@
+package crud.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service class waking the change feed when any instance commits a change.
+ * On PostgreSQL a trigger on the outbox notifies the change_outbox channel at
+ * commit; this listener keeps one connection listening on it and runs a poll
+ * of the {@link ChangeFeedService} for every notification, so changes of other
+ * instances are seen within milliseconds instead of at the next poll. On other
+ * databases it stops at startup and the feed relies on polling alone.
+ */
+@Service
+@Lazy(false)
+public class ChangeNotificationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeNotificationListener.class);
+
+    private static final String CHANNEL = "change_outbox";
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    private final DataSource dataSource;
+    private final ChangeFeedService changeFeedService;
+    private final boolean enabled;
+    private final int waitTimeoutMs;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    /**
+     * Constructs a new ChangeNotificationListener.
+     *
+     * @param dataSource        The data source providing the listening
+     *                          connection.
+     * @param changeFeedService The change feed polled on every notification.
+     * @param enabled           Whether notifications are listened to at all.
+     * @param waitTimeoutMs     How long one wait for notifications blocks, which
+     *                          bounds how long shutdown takes.
+     */
+    @Autowired
+    public ChangeNotificationListener(DataSource dataSource, ChangeFeedService changeFeedService,
+            @Value("${crud.changes.notifications-enabled:true}") boolean enabled,
+            @Value("${crud.changes.poll-interval-ms:500}") int waitTimeoutMs) {
+        this.dataSource = dataSource;
+        this.changeFeedService = changeFeedService;
+        this.enabled = enabled;
+        this.waitTimeoutMs = waitTimeoutMs;
+    }
+
+    /**
+     * Starts listening on a daemon thread.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "change-notification-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    /**
+     * Stops listening and releases the connection.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    /**
+     * Holds a listening connection and wakes the change feed for every batch of
+     * notifications, reconnecting after failures.
+     */
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                if (!connection.isWrapperFor(PGConnection.class)) {
+                    logger.info("Database does not support notifications, the change feed relies on polling.");
+                    return;
+                }
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                logger.info("Listening for change notifications on channel {}.", CHANNEL);
+
+                // Changes committed while no connection was listening are picked up here
+                changeFeedService.wakeUp();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(waitTimeoutMs);
+                    if (notifications != null && notifications.length > 0) {
+                        changeFeedService.wakeUp();
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Change notification connection failed, reconnecting in {} ms.", RECONNECT_DELAY_MS, e);
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+}
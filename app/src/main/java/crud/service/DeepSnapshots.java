@@ -0,0 +1,329 @@
+package crud.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import crud.event.EntityChangedEvent;
+import crud.model.ChangeEvent;
+import crud.model.ProviderRecord;
+import crud.model.ServiceRecord;
+import crud.repository.ProviderRepository;
+import crud.repository.ServiceRepository;
+import crud.utils.DepthLevel;
+import crud.utils.EntityType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service class keeping materialized DEEP graphs of providers and services in
+ * memory.
+ * A snapshot is built by the first DEEP read of an entity and from then on
+ * refreshed in the background: changes of any instance mark the snapshots
+ * showing the changed entities as stale and queue them, and a refresher
+ * thread rebuilds the queued snapshots once the debounce window after the
+ * first queued change has passed, so a burst of link changes around a hub
+ * costs one rebuild. Stale snapshots are still served until they have been
+ * stale for longer than the maximum staleness, after which reads go to the
+ * database until the refresh lands. Snapshots are immutable records shared
+ * between callers.
+ */
+@Service
+public class DeepSnapshots {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeepSnapshots.class);
+
+    private final boolean enabled;
+    private final long debounceMs;
+    private final long maxStalenessMs;
+    private final int maximumSize;
+    private final ProviderRepository providerRepository;
+    private final ServiceRepository serviceRepository;
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final DependencyIndex dependencies = new DependencyIndex();
+    private final Set<String> pending = new HashSet<>();
+    private final Counter[] readCounters;
+    private final Counter refreshes;
+    private ScheduledExecutorService refresher;
+    private boolean refreshScheduled;
+    private long generation;
+
+    /**
+     * Constructs a new DeepSnapshots and subscribes it to the change feed.
+     *
+     * @param enabled            Whether DEEP reads are served from snapshots.
+     * @param debounceMs         How long changes are collected before the
+     *                           affected snapshots are rebuilt.
+     * @param maxStalenessMs     How long a snapshot may be served after a change
+     *                           it does not show yet.
+     * @param maximumSize        The maximum number of snapshots; DEEP reads of
+     *                           further entities go to the database.
+     * @param providerRepository The repository rebuilding provider snapshots.
+     * @param serviceRepository  The repository rebuilding service snapshots.
+     * @param changeFeedService  The change feed delivering the changes of all
+     *                           instances.
+     * @param meterRegistry      The registry receiving the read and refresh
+     *                           counters.
+     */
+    @Autowired
+    public DeepSnapshots(@Value("${crud.snapshots.enabled:false}") boolean enabled,
+            @Value("${crud.snapshots.debounce-ms:200}") long debounceMs,
+            @Value("${crud.snapshots.max-staleness-ms:2000}") long maxStalenessMs,
+            @Value("${crud.snapshots.maximum-size:1000}") int maximumSize,
+            ProviderRepository providerRepository, ServiceRepository serviceRepository,
+            ChangeFeedService changeFeedService, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.debounceMs = debounceMs;
+        this.maxStalenessMs = maxStalenessMs;
+        this.maximumSize = maximumSize;
+        this.providerRepository = providerRepository;
+        this.serviceRepository = serviceRepository;
+        this.readCounters = new Counter[] {
+                readCounter(meterRegistry, "fresh"),
+                readCounter(meterRegistry, "stale"),
+                readCounter(meterRegistry, "miss")
+        };
+        this.refreshes = Counter.builder("crud.snapshots.refreshes")
+                .description("DEEP snapshots rebuilt after a change")
+                .register(meterRegistry);
+        meterRegistry.gaugeMapSize("crud.snapshots.size", Tags.empty(), snapshots);
+
+        if (enabled) {
+            refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "deep-snapshot-refresher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            changeFeedService.addListener(this::onChanges);
+        }
+    }
+
+    /**
+     * Checks whether DEEP reads are served from snapshots.
+     *
+     * @return True if snapshots are enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the DEEP graph of a provider from its snapshot, building the
+     * snapshot on the first read.
+     *
+     * @param id The ID of the provider.
+     * @return The provider, or empty if not found.
+     */
+    public Optional<ProviderRecord> getProvider(Long id) {
+        return get(EntityType.PROVIDER, id, this::loadProvider);
+    }
+
+    /**
+     * Returns the DEEP graph of a service from its snapshot, building the
+     * snapshot on the first read.
+     *
+     * @param id The ID of the service.
+     * @return The service, or empty if not found.
+     */
+    public Optional<ServiceRecord> getService(Long id) {
+        return get(EntityType.SERVICE, id, this::loadService);
+    }
+
+    /**
+     * Queues the snapshots showing an entity committed by this instance.
+     *
+     * @param event The committed change.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        markStale(event.getEntityType(), event.getEntityId(), event.getRelatedId());
+    }
+
+    /**
+     * Queues the snapshots showing entities changed by any instance.
+     *
+     * @param changes The changes read from the outbox.
+     */
+    public void onChanges(List<ChangeEvent> changes) {
+        for (ChangeEvent change : changes) {
+            markStale(change.getEntityType(), change.getEntityId(), change.getRelatedId());
+        }
+    }
+
+    /**
+     * Stops the refresher.
+     */
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Optional<T> get(EntityType type, Long id, LongFunction<Snapshot> loader) {
+        String key = DependencyIndex.refOf(type, id);
+        Snapshot snapshot = snapshots.get(key);
+        if (snapshot != null) {
+            if (snapshot.staleSince == 0) {
+                readCounters[0].increment();
+                return Optional.of((T) snapshot.entity);
+            }
+            if (System.currentTimeMillis() - snapshot.staleSince <= maxStalenessMs) {
+                readCounters[1].increment();
+                return Optional.of((T) snapshot.entity);
+            }
+        }
+
+        readCounters[2].increment();
+        Snapshot loaded = build(key, loader, snapshot != null || snapshots.size() < maximumSize);
+        return loaded != null ? Optional.of((T) loaded.entity) : Optional.empty();
+    }
+
+    /**
+     * Loads the DEEP graph of an entity and, if requested, stores it as its
+     * snapshot. A snapshot loaded while a change arrived may not show the
+     * change and is stored stale and queued again.
+     *
+     * @return The loaded snapshot, or null if the entity does not exist.
+     */
+    private Snapshot build(String key, LongFunction<Snapshot> loader, boolean store) {
+        long observed;
+        long started = System.currentTimeMillis();
+        synchronized (this) {
+            observed = generation;
+        }
+        Snapshot loaded = loader.apply(idOf(key));
+
+        synchronized (this) {
+            Snapshot previous = snapshots.get(key);
+            if (loaded == null) {
+                if (previous != null) {
+                    snapshots.remove(key);
+                    dependencies.remove(key, previous.refs);
+                }
+                return null;
+            }
+            if (!store) {
+                return loaded;
+            }
+            if (previous != null) {
+                dependencies.remove(key, previous.refs);
+            }
+            if (generation != observed) {
+                loaded = loaded.stale(started);
+                schedule(key);
+            }
+            snapshots.put(key, loaded);
+            dependencies.add(key, loaded.refs);
+            return loaded;
+        }
+    }
+
+    private synchronized void markStale(EntityType entityType, long entityId, Long relatedId) {
+        if (!enabled) {
+            return;
+        }
+        generation++;
+        long now = System.currentTimeMillis();
+        Set<String> keys = new HashSet<>(dependencies.dependentsOf(DependencyIndex.refOf(entityType, entityId)));
+        if (relatedId != null) {
+            // Links are recorded on the provider with the service as related entity
+            keys.addAll(dependencies.dependentsOf(DependencyIndex.refOf(EntityType.SERVICE, relatedId)));
+        }
+        for (String key : keys) {
+            snapshots.computeIfPresent(key, (k, snapshot) -> snapshot.staleSince == 0 ? snapshot.stale(now) : snapshot);
+            schedule(key);
+        }
+    }
+
+    private void schedule(String key) {
+        pending.add(key);
+        if (!refreshScheduled) {
+            refreshScheduled = true;
+            refresher.schedule(this::refresh, debounceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Rebuilds the queued snapshots, logging instead of propagating failures so
+     * the refresher keeps running.
+     */
+    private void refresh() {
+        Set<String> keys;
+        synchronized (this) {
+            keys = new HashSet<>(pending);
+            pending.clear();
+            refreshScheduled = false;
+        }
+        for (String key : keys) {
+            try {
+                build(key, key.startsWith("provider:") ? this::loadProvider : this::loadService, true);
+                refreshes.increment();
+            } catch (RuntimeException e) {
+                logger.error("Failed to refresh DEEP snapshot {}.", key, e);
+            }
+        }
+    }
+
+    private Snapshot loadProvider(long id) {
+        return providerRepository.findById(id, DepthLevel.DEEP)
+                .map(provider -> new Snapshot(provider, DependencyIndex.refsOf(provider), 0))
+                .orElse(null);
+    }
+
+    private Snapshot loadService(long id) {
+        return serviceRepository.findById(id, DepthLevel.DEEP)
+                .map(service -> new Snapshot(service, DependencyIndex.refsOf(service), 0))
+                .orElse(null);
+    }
+
+    private static long idOf(String key) {
+        return Long.parseLong(key.substring(key.indexOf(':') + 1));
+    }
+
+    private static Counter readCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("crud.snapshots.reads")
+                .description("DEEP reads served from a fresh or stale snapshot or loaded from the database")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * A DEEP graph together with the entities it shows and the time since which
+     * it is known to be stale, or 0 if it is fresh.
+     */
+    private static final class Snapshot {
+        private final Object entity;
+        private final Set<String> refs;
+        private final long staleSince;
+
+        private Snapshot(Object entity, Set<String> refs, long staleSince) {
+            this.entity = entity;
+            this.refs = refs;
+            this.staleSince = staleSince;
+        }
+
+        private Snapshot stale(long since) {
+            return new Snapshot(entity, refs, since);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package crud.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import crud.model.ProviderRecord;
+import crud.model.ServiceRecord;
+import crud.utils.EntityType;
+
+/**
+ * Index from providers and services to the cached reads that show them.
+ * A read is registered under the references of every entity in its graph, as
+ * returned by {@link #refsOf(ProviderRecord)} and
+ * {@link #refsOf(ServiceRecord)}, so a change to any of them finds every read
+ * it affects. The index is not thread-safe; callers synchronize.
+ */
+final class DependencyIndex {
+
+    private final Map<String, Set<String>> dependents = new HashMap<>();
+
+    /**
+     * Registers a read under the entities it shows.
+     *
+     * @param key  The key of the read.
+     * @param refs The references of the entities it shows.
+     */
+    void add(String key, Set<String> refs) {
+        for (String ref : refs) {
+            dependents.computeIfAbsent(ref, r -> new HashSet<>()).add(key);
+        }
+    }
+
+    /**
+     * Unregisters a read from the entities it showed.
+     *
+     * @param key  The key of the read.
+     * @param refs The references it was registered under.
+     */
+    void remove(String key, Set<String> refs) {
+        for (String ref : refs) {
+            Set<String> keys = dependents.get(ref);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                dependents.remove(ref);
+            }
+        }
+    }
+
+    /**
+     * Returns the reads showing an entity.
+     *
+     * @param ref The reference of the entity.
+     * @return The keys of the reads, empty if none.
+     */
+    Set<String> dependentsOf(String ref) {
+        return dependents.getOrDefault(ref, Collections.emptySet());
+    }
+
+    /**
+     * Removes and returns the reads showing an entity.
+     *
+     * @param ref The reference of the entity.
+     * @return The keys of the removed reads, empty if none.
+     */
+    Set<String> removeDependentsOf(String ref) {
+        Set<String> keys = dependents.remove(ref);
+        return keys != null ? keys : Collections.emptySet();
+    }
+
+    /**
+     * Returns the reference of an entity, for example provider:5.
+     *
+     * @param type The type of the entity.
+     * @param id   The ID of the entity.
+     * @return The reference.
+     */
+    static String refOf(EntityType type, long id) {
+        return type.name().toLowerCase() + ":" + id;
+    }
+
+    /**
+     * Returns the references of a provider and every entity in its graph.
+     *
+     * @param provider The provider read at any depth.
+     * @return The references.
+     */
+    static Set<String> refsOf(ProviderRecord provider) {
+        Set<String> refs = new HashSet<>();
+        refs.add(refOf(EntityType.PROVIDER, provider.id()));
+        for (ServiceRecord service : provider.services()) {
+            refs.add(refOf(EntityType.SERVICE, service.id()));
+            service.providers().forEach(p -> refs.add(refOf(EntityType.PROVIDER, p.id())));
+        }
+        return refs;
+    }
+
+    /**
+     * Returns the references of a service and every entity in its graph.
+     *
+     * @param service The service read at any depth.
+     * @return The references.
+     */
+    static Set<String> refsOf(ServiceRecord service) {
+        Set<String> refs = new HashSet<>();
+        refs.add(refOf(EntityType.SERVICE, service.id()));
+        for (ProviderRecord provider : service.providers()) {
+            refs.add(refOf(EntityType.PROVIDER, provider.id()));
+            provider.services().forEach(s -> refs.add(refOf(EntityType.SERVICE, s.id())));
+        }
+        return refs;
+    }
+}
@@ -0,0 +1,189 @@
+package crud.service;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import crud.profiling.QueryProfiler;
+import crud.utils.DepthLevel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Service class serving cheaper depths while the database is saturated.
+ * The load is evaluated periodically from the utilization of the connection
+ * pool, counting threads waiting for a connection, and the mean statement
+ * latency since the previous evaluation. While either is above its high
+ * threshold, the served depth is capped one step further per evaluation:
+ * first at MEDIUM, then at SHALLOW. Once both stay below their low thresholds
+ * for the recovery period, the cap is lifted one step at a time. Only requests
+ * that allow it are degraded; each degraded request is counted in
+ * crud.depth.degradations by requested and served depth.
+ */
+@Service
+public class DepthDegrader {
+
+    /**
+     * The response header carrying the depth that was served.
+     */
+    public static final String HEADER = "X-Depth-Served";
+
+    private static final Logger logger = LoggerFactory.getLogger(DepthDegrader.class);
+
+    private static final DepthLevel[] CAPS = { DepthLevel.DEEP, DepthLevel.MEDIUM, DepthLevel.SHALLOW };
+
+    private final boolean enabled;
+    private final double poolHigh;
+    private final double poolLow;
+    private final long latencyHighMs;
+    private final long latencyLowMs;
+    private final long recoveryMs;
+    private final DataSource dataSource;
+    private final QueryProfiler queryProfiler;
+    private final Counter[][] degradations;
+    private volatile int level;
+    private long calmSinceMs = -1;
+
+    /**
+     * Constructs a new DepthDegrader.
+     *
+     * @param enabled       Whether requests may be degraded at all.
+     * @param poolHigh      The pool utilization, from 0 to 1, at which the cap
+     *                      is tightened.
+     * @param poolLow       The pool utilization below which the cap may be
+     *                      lifted.
+     * @param latencyHighMs The mean statement latency at which the cap is
+     *                      tightened, or 0 to ignore latency.
+     * @param latencyLowMs  The mean statement latency below which the cap may be
+     *                      lifted.
+     * @param recoveryMs    How long the load must stay low before the cap is
+     *                      lifted by one step.
+     * @param dataSource    The data source whose pool is watched.
+     * @param queryProfiler The profiler measuring statement latency.
+     * @param meterRegistry The registry receiving the degradation metrics.
+     */
+    @Autowired
+    public DepthDegrader(@Value("${crud.degradation.enabled:false}") boolean enabled,
+            @Value("${crud.degradation.pool-high:0.9}") double poolHigh,
+            @Value("${crud.degradation.pool-low:0.6}") double poolLow,
+            @Value("${crud.degradation.latency-high-ms:250}") long latencyHighMs,
+            @Value("${crud.degradation.latency-low-ms:100}") long latencyLowMs,
+            @Value("${crud.degradation.recovery-ms:10000}") long recoveryMs,
+            DataSource dataSource, QueryProfiler queryProfiler, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.poolHigh = poolHigh;
+        this.poolLow = poolLow;
+        this.latencyHighMs = latencyHighMs;
+        this.latencyLowMs = latencyLowMs;
+        this.recoveryMs = recoveryMs;
+        this.dataSource = dataSource;
+        this.queryProfiler = queryProfiler;
+
+        DepthLevel[] depths = DepthLevel.values();
+        this.degradations = new Counter[depths.length][depths.length];
+        for (DepthLevel requested : depths) {
+            for (DepthLevel served : depths) {
+                if (served.ordinal() < requested.ordinal()) {
+                    degradations[requested.ordinal()][served.ordinal()] = Counter.builder("crud.depth.degradations")
+                            .description("Requests served at a lower depth than requested because of load")
+                            .tag("requested", requested.getValue())
+                            .tag("served", served.getValue())
+                            .register(meterRegistry);
+                }
+            }
+        }
+        Gauge.builder("crud.depth.cap", this, degrader -> degrader.level)
+                .description("Depth steps removed from requests that allow degradation")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Chooses the depth to serve a request at.
+     *
+     * @param requested The requested depth.
+     * @param allowed   Whether the request accepts a lower depth.
+     * @return The requested depth, or a lower one while the database is
+     *         saturated.
+     */
+    public DepthLevel serve(DepthLevel requested, boolean allowed) {
+        if (!enabled || !allowed) {
+            return requested;
+        }
+        DepthLevel cap = CAPS[level];
+        if (requested.ordinal() <= cap.ordinal()) {
+            return requested;
+        }
+        degradations[requested.ordinal()][cap.ordinal()].increment();
+        return cap;
+    }
+
+    /**
+     * Re-evaluates the load and adjusts the depth cap.
+     */
+    @Scheduled(fixedDelayString = "${crud.degradation.evaluation-interval-ms:1000}")
+    public void evaluate() {
+        if (enabled) {
+            evaluate(poolUtilization(), TimeUnit.NANOSECONDS.toMillis(queryProfiler.takeRecentMeanNanos()),
+                    System.currentTimeMillis());
+        }
+    }
+
+    synchronized void evaluate(double utilization, long latencyMs, long nowMs) {
+        boolean overloaded = utilization >= poolHigh || (latencyHighMs > 0 && latencyMs >= latencyHighMs);
+        boolean calm = utilization < poolLow && (latencyHighMs <= 0 || latencyMs < latencyLowMs);
+        if (overloaded) {
+            calmSinceMs = -1;
+            if (level < CAPS.length - 1) {
+                level++;
+                logger.warn("Database saturated (pool {}%, latency {} ms), capping degradable reads at {}",
+                        Math.round(utilization * 100), latencyMs, CAPS[level].getValue());
+            }
+        } else if (!calm) {
+            calmSinceMs = -1;
+        } else if (calmSinceMs < 0) {
+            calmSinceMs = nowMs;
+        } else if (level > 0 && nowMs - calmSinceMs >= recoveryMs) {
+            level--;
+            calmSinceMs = nowMs;
+            logger.info("Database load recovered, capping degradable reads at {}", CAPS[level].getValue());
+        }
+    }
+
+    /**
+     * Returns the current cap.
+     *
+     * @return The deepest depth served to requests that allow degradation.
+     */
+    public DepthLevel getCap() {
+        return CAPS[level];
+    }
+
+    private double poolUtilization() {
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return 0;
+            }
+            HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            if (pool == null) {
+                return 0;
+            }
+            return (double) (pool.getActiveConnections() + pool.getThreadsAwaitingConnection())
+                    / hikari.getMaximumPoolSize();
+        } catch (SQLException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package crud.service;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+
+import crud.event.EntityChangedEvent;
+import crud.model.ChangeEvent;
+import crud.repository.ProviderRepository;
+import crud.repository.ServiceRepository;
+import crud.utils.ChangeOperation;
+import crud.utils.EntityType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Service class keeping an in-memory Bloom filter of the live provider and
+ * service ids, so reads and links of ids that do not exist can be answered
+ * without a query.
+ * A filter never misses a live id but may report a missing one as present, so
+ * only its misses are trusted. Creates of this instance are added when they
+ * are written and again once committed, creates of other instances when they
+ * arrive through the change feed. Deleted ids cannot be removed from a Bloom
+ * filter; they stay present until the next periodic rebuild.
+ * Ids are allocated before commit, so an id below the highest one a rebuild
+ * read may still be committed by another instance afterwards and only arrive
+ * through the change feed later. Misses are therefore trusted only up to the
+ * highest id of a rebuild that finished at least the settle time ago; newer
+ * ids are always reported as present and checked in the database.
+ * The expected and the observed false-positive rate and the memory of each
+ * filter are exported as metrics.
+ */
+@Service
+public class ExistenceFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExistenceFilter.class);
+
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double fpp;
+    private final long settleNanos;
+    private final ProviderRepository providerRepository;
+    private final ServiceRepository serviceRepository;
+    private final Map<EntityType, Membership> memberships = new EnumMap<>(EntityType.class);
+
+    /**
+     * Constructs a new ExistenceFilter.
+     *
+     * @param enabled            Whether misses are answered from the filters.
+     * @param expectedInsertions The minimum number of ids a filter is sized for.
+     * @param fpp                The target false-positive probability.
+     * @param settleMs           How long after a rebuild its misses are
+     *                           trusted; must exceed the longest write
+     *                           transaction plus the change feed's gap timeout.
+     * @param providerRepository The repository streaming the live provider ids.
+     * @param serviceRepository  The repository streaming the live service ids.
+     * @param changeFeedService  The feed delivering the creates of other
+     *                           instances.
+     * @param meterRegistry      The registry receiving the filter metrics.
+     */
+    @Autowired
+    public ExistenceFilter(@Value("${crud.existence.enabled:true}") boolean enabled,
+            @Value("${crud.existence.expected-insertions:1000000}") long expectedInsertions,
+            @Value("${crud.existence.fpp:0.01}") double fpp,
+            @Value("${crud.existence.settle-ms:30000}") long settleMs,
+            ProviderRepository providerRepository, ServiceRepository serviceRepository,
+            ChangeFeedService changeFeedService, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.expectedInsertions = Math.max(1, expectedInsertions);
+        this.fpp = fpp;
+        this.settleNanos = TimeUnit.MILLISECONDS.toNanos(settleMs);
+        this.providerRepository = providerRepository;
+        this.serviceRepository = serviceRepository;
+        for (EntityType type : List.of(EntityType.PROVIDER, EntityType.SERVICE)) {
+            memberships.put(type, new Membership(type, meterRegistry));
+        }
+
+        if (enabled) {
+            changeFeedService.addListener(this::onChanges);
+        }
+    }
+
+    /**
+     * Checks whether an entity may exist.
+     *
+     * @param type The entity type, provider or service.
+     * @param id   The ID of the entity.
+     * @return False if the entity definitely does not exist; true if it may.
+     */
+    public boolean mightExist(EntityType type, Long id) {
+        if (!enabled) {
+            return true;
+        }
+        Membership membership = memberships.get(type);
+        BloomFilter<Long> filter = membership.current;
+        if (filter == null || id > membership.bound.trustedMaxId() || filter.mightContain(id)) {
+            membership.counters[0].increment();
+            return true;
+        }
+        membership.counters[1].increment();
+        return false;
+    }
+
+    /**
+     * Records that an entity reported as possibly existing was not found,
+     * which feeds the observed false-positive rate.
+     *
+     * @param type The entity type, provider or service.
+     */
+    public void recordFalsePositive(EntityType type) {
+        if (enabled) {
+            memberships.get(type).counters[2].increment();
+        }
+    }
+
+    /**
+     * Adds a created entity as soon as its write is recorded.
+     *
+     * @param event The recorded change.
+     */
+    @EventListener
+    public void onWriteStarted(EntityChangedEvent event) {
+        onCreated(event.getEntityType(), event.getEntityId(), event.getOperation());
+    }
+
+    /**
+     * Adds a created entity again once its transaction has committed, so that a
+     * rebuild reading the ids in the meantime cannot lose it.
+     *
+     * @param event The recorded change.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onWriteCommitted(EntityChangedEvent event) {
+        onCreated(event.getEntityType(), event.getEntityId(), event.getOperation());
+    }
+
+    /**
+     * Adds the entities created by any instance.
+     *
+     * @param changes The changes read from the outbox.
+     */
+    public void onChanges(List<ChangeEvent> changes) {
+        for (ChangeEvent change : changes) {
+            onCreated(change.getEntityType(), change.getEntityId(), change.getOperation());
+        }
+    }
+
+    /**
+     * Rebuilds both filters from the live ids, dropping deleted ids and resizing
+     * the filters to the current number of entities.
+     */
+    @Scheduled(fixedDelayString = "${crud.existence.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        if (enabled) {
+            rebuild(memberships.get(EntityType.PROVIDER), providerRepository::forEachName);
+            rebuild(memberships.get(EntityType.SERVICE), serviceRepository::forEachName);
+        }
+    }
+
+    private void onCreated(EntityType type, long id, ChangeOperation operation) {
+        if (!enabled || operation != ChangeOperation.CREATE) {
+            return;
+        }
+        Membership membership = memberships.get(type);
+        if (membership == null) {
+            return;
+        }
+        // The filter being built is read before the current one: the rebuild
+        // publishes its filter as current before it stops collecting adds.
+        BloomFilter<Long> building = membership.building;
+        if (building != null) {
+            building.put(id);
+        }
+        BloomFilter<Long> current = membership.current;
+        if (current != null) {
+            current.put(id);
+        }
+    }
+
+    private synchronized void rebuild(Membership membership, IdSource source) {
+        BloomFilter<Long> next = BloomFilter.create(Funnels.longFunnel(),
+                Math.max(expectedInsertions, membership.lastCount * 2), fpp);
+        membership.building = next;
+        AtomicLong count = new AtomicLong();
+        AtomicLong maxId = new AtomicLong();
+        try {
+            source.forEachName((id, name) -> {
+                next.put(id);
+                count.incrementAndGet();
+                maxId.accumulateAndGet(id, Math::max);
+            });
+            membership.current = next;
+        } finally {
+            membership.building = null;
+        }
+        membership.bound = new TrustBound(membership.bound.trustedMaxId(), maxId.get(),
+                System.nanoTime() + settleNanos);
+        membership.lastCount = count.get();
+        membership.bytes = sizeOf(next);
+        logger.info("Rebuilt the {} existence filter with {} ids in {} bytes, expected false-positive rate {}",
+                membership.type.name().toLowerCase(), count.get(), membership.bytes, next.expectedFpp());
+    }
+
+    private static long sizeOf(BloomFilter<Long> filter) {
+        CountingOutputStream out = new CountingOutputStream(ByteStreams.nullOutputStream());
+        try {
+            filter.writeTo(out);
+        } catch (IOException e) {
+            return -1;
+        }
+        return out.getCount();
+    }
+
+    /**
+     * Streams the id and name of every live entity.
+     */
+    @FunctionalInterface
+    private interface IdSource {
+        void forEachName(BiConsumer<Long, String> consumer);
+    }
+
+    /**
+     * The highest id whose misses are trusted, and the highest id of the last
+     * rebuild that takes its place once it has settled.
+     */
+    private static final class TrustBound {
+        private final long trustedMaxId;
+        private final long rebuiltMaxId;
+        private final long settlesAt;
+
+        private TrustBound(long trustedMaxId, long rebuiltMaxId, long settlesAt) {
+            this.trustedMaxId = trustedMaxId;
+            this.rebuiltMaxId = rebuiltMaxId;
+            this.settlesAt = settlesAt;
+        }
+
+        private long trustedMaxId() {
+            return System.nanoTime() - settlesAt >= 0 ? rebuiltMaxId : trustedMaxId;
+        }
+    }
+
+    /**
+     * The filter and metrics of one entity type.
+     */
+    private static final class Membership {
+        private final EntityType type;
+        private final Counter[] counters;
+        private volatile TrustBound bound = new TrustBound(0, 0, 0);
+        private volatile BloomFilter<Long> current;
+        private volatile BloomFilter<Long> building;
+        private volatile long lastCount;
+        private volatile long bytes;
+
+        private Membership(EntityType type, MeterRegistry meterRegistry) {
+            this.type = type;
+            String entity = type.name().toLowerCase();
+            this.counters = new Counter[] {
+                    checkCounter(meterRegistry, entity, "maybe"),
+                    checkCounter(meterRegistry, entity, "miss"),
+                    checkCounter(meterRegistry, entity, "false_positive")
+            };
+            Gauge.builder("crud.existence.bytes", this, membership -> membership.bytes)
+                    .description("Serialized size of the existence filter")
+                    .baseUnit("bytes")
+                    .tag("entity", entity)
+                    .register(meterRegistry);
+            Gauge.builder("crud.existence.expected.fpp", this,
+                    membership -> membership.current != null ? membership.current.expectedFpp() : 0)
+                    .description("Expected false-positive probability of the existence filter")
+                    .tag("entity", entity)
+                    .register(meterRegistry);
+        }
+
+        private static Counter checkCounter(MeterRegistry meterRegistry, String entity, String result) {
+            return Counter.builder("crud.existence.checks")
+                    .description("Existence checks answered as possibly present, definitely missing, or present "
+                            + "but then not found")
+                    .tag("entity", entity)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package crud.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import crud.model.HotKey;
+import crud.repository.HotKeyRepository;
+import crud.utils.DepthLevel;
+import crud.utils.EntityType;
+import crud.utils.SpaceSaving;
+
+/**
+ * Service class tracking the most requested providers and services per depth
+ * and warming the caches with them after a restart.
+ * Requests by id are counted in one Space-Saving sketch per entity type and
+ * depth, so memory stays fixed however many ids are requested. The top keys
+ * are persisted periodically, after which all counts are halved so that keys
+ * that cooled down make room. Once the application is ready, and before it
+ * reports that it accepts traffic, the persisted keys are read through the
+ * services in parallel, which fills the near cache and the database buffer
+ * cache and warms the JIT. The warm-up stops when its time budget runs out.
+ * The bean is never lazy so the warm-up also runs with lazy initialization
+ * enabled.
+ */
+@Service
+@Lazy(false)
+public class HotKeys {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotKeys.class);
+
+    private final boolean enabled;
+    private final int topK;
+    private final long warmUpBudgetMs;
+    private final int warmUpParallelism;
+    private final HotKeyRepository hotKeyRepository;
+    private final ProviderService providerService;
+    private final ServiceService serviceService;
+    private final Map<EntityType, SpaceSaving[]> sketches = new EnumMap<>(EntityType.class);
+
+    /**
+     * Constructs a new HotKeys.
+     *
+     * @param enabled           Whether requests are tracked and caches warmed.
+     * @param capacity          The number of ids counted per entity type and
+     *                          depth.
+     * @param topK              The number of keys persisted and warmed.
+     * @param warmUpBudgetMs    The time the warm-up may delay readiness.
+     * @param warmUpParallelism The number of keys loaded concurrently.
+     * @param hotKeyRepository  The repository persisting the hot keys.
+     * @param providerService   The service loading hot providers.
+     * @param serviceService    The service loading hot services.
+     */
+    @Autowired
+    public HotKeys(@Value("${crud.hot-keys.enabled:true}") boolean enabled,
+            @Value("${crud.hot-keys.capacity:1000}") int capacity,
+            @Value("${crud.hot-keys.top-k:200}") int topK,
+            @Value("${crud.hot-keys.warm-up-budget-ms:10000}") long warmUpBudgetMs,
+            @Value("${crud.hot-keys.warm-up-parallelism:4}") int warmUpParallelism,
+            HotKeyRepository hotKeyRepository, ProviderService providerService, ServiceService serviceService) {
+        this.enabled = enabled;
+        this.topK = topK;
+        this.warmUpBudgetMs = warmUpBudgetMs;
+        this.warmUpParallelism = Math.max(1, warmUpParallelism);
+        this.hotKeyRepository = hotKeyRepository;
+        this.providerService = providerService;
+        this.serviceService = serviceService;
+        for (EntityType type : List.of(EntityType.PROVIDER, EntityType.SERVICE)) {
+            SpaceSaving[] byDepth = new SpaceSaving[DepthLevel.values().length];
+            for (int i = 0; i < byDepth.length; i++) {
+                byDepth[i] = new SpaceSaving(capacity);
+            }
+            sketches.put(type, byDepth);
+        }
+    }
+
+    /**
+     * Counts a request for an entity.
+     *
+     * @param type  The entity type, provider or service.
+     * @param id    The ID of the entity.
+     * @param depth The depth it was served at.
+     */
+    public void record(EntityType type, long id, DepthLevel depth) {
+        if (enabled) {
+            sketches.get(type)[depth.ordinal()].offer(id);
+        }
+    }
+
+    /**
+     * Retrieves the most requested entities since the counts were last halved.
+     *
+     * @param limit The maximum number of keys to return.
+     * @return The hot keys, most requested first.
+     */
+    public List<HotKey> getTop(int limit) {
+        List<HotKey> hotKeys = new ArrayList<>();
+        sketches.forEach((type, byDepth) -> {
+            for (DepthLevel depth : DepthLevel.values()) {
+                for (SpaceSaving.Entry entry : byDepth[depth.ordinal()].top(limit)) {
+                    hotKeys.add(new HotKey(type, entry.getId(), depth.getValue(), entry.getCount(),
+                            entry.getError()));
+                }
+            }
+        });
+        hotKeys.sort(Comparator.comparingLong(HotKey::getHits).reversed());
+        return hotKeys.size() > limit ? new ArrayList<>(hotKeys.subList(0, limit)) : hotKeys;
+    }
+
+    /**
+     * Persists the top keys and halves all counts. Nothing is persisted before
+     * the first request, so a restarted instance keeps the previous keys.
+     */
+    @Scheduled(fixedDelayString = "${crud.hot-keys.persist-interval-ms:60000}",
+            initialDelayString = "${crud.hot-keys.persist-interval-ms:60000}")
+    public void persist() {
+        if (!enabled) {
+            return;
+        }
+        List<HotKey> hotKeys = getTop(topK);
+        if (hotKeys.isEmpty()) {
+            return;
+        }
+        hotKeyRepository.replaceAll(hotKeys);
+        sketches.values().forEach(byDepth -> {
+            for (SpaceSaving sketch : byDepth) {
+                sketch.decay();
+            }
+        });
+        logger.debug("Persisted {} hot keys", hotKeys.size());
+    }
+
+    /**
+     * Loads the persisted hot keys through the services before the application
+     * reports that it accepts traffic, and restores their counts.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        List<HotKey> hotKeys;
+        try {
+            hotKeys = hotKeyRepository.findTop(topK);
+        } catch (DataAccessException e) {
+            logger.warn("Skipping the cache warm-up, the hot keys could not be read: {}", e.getMessage());
+            return;
+        }
+        if (hotKeys.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(warmUpBudgetMs);
+        AtomicInteger warmed = new AtomicInteger();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(warmUpParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "cache-warm-up-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (HotKey hotKey : hotKeys) {
+            sketches.get(hotKey.getEntityType())[DepthLevel.fromString(hotKey.getDepth()).ordinal()]
+                    .offer(hotKey.getId(), Math.max(1, hotKey.getHits() / 2));
+            executor.execute(() -> {
+                if (System.nanoTime() < deadline && load(hotKey)) {
+                    warmed.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(warmUpBudgetMs, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Warmed {} of {} hot keys in {} ms", warmed.get(), hotKeys.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private boolean load(HotKey hotKey) {
+        DepthLevel depth = DepthLevel.fromString(hotKey.getDepth());
+        try {
+            Object entity = hotKey.getEntityType() == EntityType.PROVIDER
+                    ? providerService.getProviderById(hotKey.getId(), depth)
+                    : serviceService.getServiceById(hotKey.getId(), depth);
+            return entity != null;
+        } catch (RuntimeException e) {
+            logger.debug("Could not warm {} {}: {}", hotKey.getEntityType(), hotKey.getId(), e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package crud.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import crud.event.EntityChangedEvent;
+import crud.model.ImportError;
+import crud.model.ImportProgress;
+import crud.model.ImportRecord;
+import crud.repository.ChangeOutboxRepository;
+import crud.repository.ImportRepository;
+import crud.utils.ChangeOperation;
+import crud.utils.CsvLine;
+import crud.utils.EntityType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Service class importing providers, services and links in bulk from a CSV or
+ * NDJSON stream.
+ * The stream is read one row at a time and written in batches of a configured
+ * size, each batch in one transaction together with a checkpoint, so memory
+ * stays bounded by the batch size and the external key maps. Rows reference
+ * providers and services by external keys, which are resolved to generated
+ * ids through in-memory maps; an entity must be imported before the links
+ * referencing it. Rejected rows are reported with their row number without
+ * stopping the import. If a batch fails, the import stops and can be resumed
+ * by sending the same stream again with its ID: rows up to the checkpoint are
+ * skipped and the keys resolved so far are reloaded. The names of each batch
+ * are added to the autocomplete indexes once the batch has committed.
+ */
+@Service
+public class ImportService {
+
+    /**
+     * The formats of an import stream.
+     */
+    public enum Format {
+        /**
+         * CSV with a header naming the columns type, key, name, provider and
+         * service.
+         */
+        CSV,
+        /**
+         * One JSON object per line with the fields type, key, name, provider and
+         * service.
+         */
+        NDJSON
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportService.class);
+
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private final ImportRepository importRepository;
+    private final ChangeOutboxRepository changeOutboxRepository;
+    private final ProviderService providerService;
+    private final ServiceService serviceService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader recordReader;
+    private final int batchSize;
+    private final int maxReportedErrors;
+    private final Counter importedRows;
+    private final Counter failedRows;
+    private final Map<Long, ImportJob> running = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new ImportService.
+     *
+     * @param importRepository       The repository writing imported rows and
+     *                               checkpoints.
+     * @param changeOutboxRepository The outbox recording every imported change.
+     * @param providerService        The service indexing imported provider
+     *                               names for autocomplete.
+     * @param serviceService         The service indexing imported service
+     *                               names for autocomplete.
+     * @param transactionManager     The manager of the batch transactions.
+     * @param objectMapper           The mapper parsing NDJSON rows.
+     * @param batchSize              The number of rows written per transaction.
+     * @param maxReportedErrors      The maximum number of rejected rows reported
+     *                               per request.
+     * @param transactionTimeout     The limit in seconds of a batch transaction,
+     *                               which must stay below the change feed's gap
+     *                               timeout.
+     * @param meterRegistry          The registry receiving the row counters.
+     */
+    @Autowired
+    public ImportService(ImportRepository importRepository, ChangeOutboxRepository changeOutboxRepository,
+            ProviderService providerService, ServiceService serviceService,
+            PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+            @Value("${crud.import.batch-size:10000}") int batchSize,
+            @Value("${crud.import.max-reported-errors:1000}") int maxReportedErrors,
+            @Value("${crud.import.transaction-timeout-seconds:5}") int transactionTimeout,
+            MeterRegistry meterRegistry) {
+        this.importRepository = importRepository;
+        this.changeOutboxRepository = changeOutboxRepository;
+        this.providerService = providerService;
+        this.serviceService = serviceService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(transactionTimeout);
+        this.recordReader = objectMapper.readerFor(ImportRecord.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxReportedErrors = maxReportedErrors;
+        this.importedRows = rowCounter(meterRegistry, "imported");
+        this.failedRows = rowCounter(meterRegistry, "failed");
+    }
+
+    /**
+     * Imports a stream, or resumes an earlier import of the same stream.
+     *
+     * @param input    The stream to read.
+     * @param format   The format of the stream.
+     * @param importId The ID of the import to resume, or null to start a new
+     *                 one.
+     * @return The progress once the stream is consumed or the import failed.
+     * @throws IOException              if the stream cannot be read.
+     * @throws IllegalArgumentException if the import to resume does not exist.
+     * @throws IllegalStateException    if the import to resume is running.
+     */
+    public ImportProgress importStream(InputStream input, Format format, Long importId) throws IOException {
+        ImportJob job;
+        if (importId == null) {
+            job = new ImportJob(importRepository.create(), 0, 0);
+        } else {
+            ImportProgress checkpoint = importRepository.findCheckpoint(importId)
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown import: " + importId));
+            job = new ImportJob(importId, checkpoint.getRowsProcessed(), checkpoint.getRowsFailed());
+            job.providerKeys.putAll(importRepository.findKeys(importId, EntityType.PROVIDER));
+            job.serviceKeys.putAll(importRepository.findKeys(importId, EntityType.SERVICE));
+        }
+        if (running.putIfAbsent(job.id, job) != null) {
+            throw new IllegalStateException("Import " + job.id + " is already running");
+        }
+
+        try {
+            if (importId != null) {
+                importRepository.updateStatus(job.id, "RUNNING");
+            }
+            boolean read = read(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)), format,
+                    job);
+            job.status = read ? "COMPLETED" : "FAILED";
+        } catch (DataAccessException e) {
+            logger.error("Import {} failed after row {}", job.id, job.rowsProcessed, e);
+            job.status = "FAILED";
+            job.reject(job.rowsProcessed + 1, "Import stopped, resume after fixing the cause: "
+                    + e.getMostSpecificCause().getMessage(), maxReportedErrors);
+        } finally {
+            if (job.status.equals("RUNNING")) {
+                job.status = "FAILED";
+            }
+            running.remove(job.id);
+            importRepository.updateStatus(job.id, job.status);
+        }
+        logger.info("Import {} {} with {} rows read at {} rows/s", job.id, job.status.toLowerCase(), job.rowsRead,
+                String.format("%.0f", job.rowsPerSecond()));
+        return job.toProgress();
+    }
+
+    /**
+     * Retrieves the progress of an import.
+     *
+     * @param importId The ID of the import.
+     * @return The live progress of a running import, otherwise its last
+     *         checkpoint.
+     * @throws IllegalArgumentException if the import does not exist.
+     */
+    public ImportProgress getProgress(long importId) {
+        ImportJob job = running.get(importId);
+        if (job != null) {
+            return job.toProgress();
+        }
+        return importRepository.findCheckpoint(importId)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown import: " + importId));
+    }
+
+    private boolean read(BufferedReader reader, Format format, ImportJob job) throws IOException {
+        List<String> header = null;
+        if (format == Format.CSV) {
+            String line = reader.readLine();
+            if (line == null) {
+                return true;
+            }
+            try {
+                header = CsvLine.parse(line.trim());
+            } catch (IllegalArgumentException e) {
+                header = List.of();
+            }
+            if (!header.contains("type")) {
+                job.reject(0, "The CSV header must name the columns type, key, name, provider and service",
+                        maxReportedErrors);
+                return false;
+            }
+        }
+
+        Batch batch = new Batch();
+        long row = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            row++;
+            if (row <= job.skip) {
+                continue;
+            }
+            job.rowsRead++;
+            try {
+                batch.add(row, validate(format == Format.CSV ? parseCsv(header, line) : parseJson(line)));
+            } catch (IllegalArgumentException e) {
+                batch.failed++;
+                job.reject(row, e.getMessage(), maxReportedErrors);
+            }
+            if (batch.size() >= batchSize) {
+                flush(batch, row, job);
+                batch = new Batch();
+            }
+        }
+        flush(batch, row, job);
+        return true;
+    }
+
+    private void flush(Batch batch, long lastRow, ImportJob job) {
+        if (lastRow <= job.rowsProcessed) {
+            return;
+        }
+        List<String[]> rejected = new ArrayList<>();
+        Map<Long, String> providerNames = new HashMap<>();
+        Map<Long, String> serviceNames = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<EntityChangedEvent> changes = new ArrayList<>();
+            insertEntities(EntityType.PROVIDER, batch.providers, job.providerKeys, job.id, changes, rejected,
+                    providerNames);
+            insertEntities(EntityType.SERVICE, batch.services, job.serviceKeys, job.id, changes, rejected,
+                    serviceNames);
+            insertLinks(batch.links, job, changes, rejected);
+            changeOutboxRepository.appendAll(changes);
+            importRepository.checkpoint(job.id, lastRow, job.rowsFailedAtCheckpoint + batch.failed + rejected.size());
+        });
+        // Only committed names are offered for autocomplete.
+        providerService.indexNames(providerNames);
+        serviceService.indexNames(serviceNames);
+
+        for (String[] rejection : rejected) {
+            job.reject(Long.parseLong(rejection[0]), rejection[1], maxReportedErrors);
+        }
+        long failed = batch.failed + rejected.size();
+        importedRows.increment(batch.size() - rejected.size());
+        failedRows.increment(failed);
+        job.rowsProcessed = lastRow;
+        job.rowsFailedAtCheckpoint += failed;
+    }
+
+    private void insertEntities(EntityType type, List<Row> rows, Map<String, Long> keys, long importId,
+            List<EntityChangedEvent> changes, List<String[]> rejected, Map<Long, String> inserted) {
+        List<String> newKeys = new ArrayList<>(rows.size());
+        List<String> names = new ArrayList<>(rows.size());
+        Map<String, Long> batchKeys = new HashMap<>();
+        for (Row row : rows) {
+            String key = row.record.getKey();
+            if (keys.containsKey(key) || batchKeys.putIfAbsent(key, row.number) != null) {
+                rejected.add(new String[] { String.valueOf(row.number), "Duplicate " + row.record.getType()
+                        + " key: " + key });
+                continue;
+            }
+            newKeys.add(key);
+            names.add(row.record.getName());
+        }
+
+        long[] ids = importRepository.insertEntities(type, names);
+        importRepository.insertKeys(importId, type, newKeys, ids);
+        for (int i = 0; i < ids.length; i++) {
+            keys.put(newKeys.get(i), ids[i]);
+            inserted.put(ids[i], names.get(i));
+            changes.add(new EntityChangedEvent(type, ids[i], ChangeOperation.CREATE, null));
+        }
+    }
+
+    private void insertLinks(List<Row> rows, ImportJob job, List<EntityChangedEvent> changes,
+            List<String[]> rejected) {
+        List<long[]> links = new ArrayList<>(rows.size());
+        List<Row> linkRows = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            Long providerId = job.providerKeys.get(row.record.getProvider());
+            Long serviceId = job.serviceKeys.get(row.record.getService());
+            if (providerId == null || serviceId == null) {
+                rejected.add(new String[] { String.valueOf(row.number), providerId == null
+                        ? "Unknown provider key: " + row.record.getProvider()
+                        : "Unknown service key: " + row.record.getService() });
+                continue;
+            }
+            links.add(new long[] { providerId, serviceId });
+            linkRows.add(row);
+        }
+
+        boolean[] inserted = importRepository.insertLinks(links);
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i]) {
+                changes.add(new EntityChangedEvent(EntityType.PROVIDER, links.get(i)[0], ChangeOperation.LINK,
+                        links.get(i)[1]));
+            } else {
+                rejected.add(new String[] { String.valueOf(linkRows.get(i).number), "Link already exists" });
+            }
+        }
+    }
+
+    private static ImportRecord parseCsv(List<String> header, String line) {
+        List<String> fields = CsvLine.parse(line);
+        ImportRecord record = new ImportRecord();
+        for (int i = 0; i < header.size() && i < fields.size(); i++) {
+            String value = fields.get(i).isEmpty() ? null : fields.get(i);
+            switch (header.get(i)) {
+                case "type":
+                    record.setType(value);
+                    break;
+                case "key":
+                    record.setKey(value);
+                    break;
+                case "name":
+                    record.setName(value);
+                    break;
+                case "provider":
+                    record.setProvider(value);
+                    break;
+                case "service":
+                    record.setService(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return record;
+    }
+
+    private ImportRecord parseJson(String line) {
+        try {
+            return recordReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static ImportRecord validate(ImportRecord record) {
+        String type = record.getType();
+        if ("provider".equals(type) || "service".equals(type)) {
+            if (record.getKey() == null || record.getName() == null || record.getName().isBlank()) {
+                throw new IllegalArgumentException("A " + type + " row needs a key and a name");
+            }
+            if (record.getName().length() > MAX_NAME_LENGTH || record.getKey().length() > MAX_NAME_LENGTH) {
+                throw new IllegalArgumentException("Name or key longer than " + MAX_NAME_LENGTH + " characters");
+            }
+        } else if ("link".equals(type)) {
+            if (record.getProvider() == null || record.getService() == null) {
+                throw new IllegalArgumentException("A link row needs a provider and a service key");
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown row type: " + type);
+        }
+        return record;
+    }
+
+    private static Counter rowCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("crud.import.rows")
+                .description("Rows of bulk imports, imported or rejected")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * A row of an import with its row number.
+     */
+    private static final class Row {
+        private final long number;
+        private final ImportRecord record;
+
+        private Row(long number, ImportRecord record) {
+            this.number = number;
+            this.record = record;
+        }
+    }
+
+    /**
+     * The valid rows read since the last checkpoint, by kind.
+     */
+    private static final class Batch {
+        private final List<Row> providers = new ArrayList<>();
+        private final List<Row> services = new ArrayList<>();
+        private final List<Row> links = new ArrayList<>();
+        private long failed;
+
+        private void add(long number, ImportRecord record) {
+            Row row = new Row(number, record);
+            switch (record.getType()) {
+                case "provider":
+                    providers.add(row);
+                    break;
+                case "service":
+                    services.add(row);
+                    break;
+                default:
+                    links.add(row);
+                    break;
+            }
+        }
+
+        private long size() {
+            return providers.size() + services.size() + links.size() + failed;
+        }
+    }
+
+    /**
+     * The state of a running import.
+     */
+    private static final class ImportJob {
+        private final long id;
+        private final long skip;
+        private final long startNanos = System.nanoTime();
+        private final Map<String, Long> providerKeys = new HashMap<>();
+        private final Map<String, Long> serviceKeys = new HashMap<>();
+        private final List<ImportError> errors = Collections.synchronizedList(new ArrayList<>());
+        private volatile String status = "RUNNING";
+        private volatile long rowsProcessed;
+        private volatile long rowsFailedAtCheckpoint;
+        private volatile long rowsRead;
+
+        private ImportJob(long id, long rowsProcessed, long rowsFailed) {
+            this.id = id;
+            this.skip = rowsProcessed;
+            this.rowsProcessed = rowsProcessed;
+            this.rowsFailedAtCheckpoint = rowsFailed;
+        }
+
+        private void reject(long row, String message, int maxReportedErrors) {
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ImportError(row, message));
+            }
+        }
+
+        private double rowsPerSecond() {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            return elapsedNanos > 0 ? rowsRead * 1e9 / elapsedNanos : 0;
+        }
+
+        private ImportProgress toProgress() {
+            List<ImportError> reported;
+            synchronized (errors) {
+                reported = new ArrayList<>(errors);
+            }
+            return new ImportProgress(id, status, rowsProcessed, rowsFailedAtCheckpoint, rowsRead, rowsPerSecond(),
+                    reported);
+        }
+    }
+}
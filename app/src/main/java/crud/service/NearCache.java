@@ -0,0 +1,222 @@
+package crud.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+
+import crud.event.EntityChangedEvent;
+import crud.model.ChangeEvent;
+import crud.model.ProviderRecord;
+import crud.model.ServiceRecord;
+import crud.utils.DepthLevel;
+import crud.utils.EntityType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Service class caching provider and service reads by ID and depth on this
+ * instance.
+ * Every cached entity is indexed under the providers and services it embeds,
+ * so a change to any of them evicts exactly the entries that show it. Local
+ * writes evict at commit; writes of other instances evict when the
+ * {@link ChangeFeedService} reads them from the outbox, which on PostgreSQL
+ * happens within milliseconds of their commit. A read that was loading while
+ * any eviction happened is returned but not cached, since it may predate the
+ * change, and evictions detach the reads in flight in the
+ * {@link ReadCoalescer} so later callers cannot join them. Cached records are
+ * immutable and shared between callers.
+ */
+@Service
+public class NearCache {
+
+    private final boolean enabled;
+    private final ReadCoalescer readCoalescer;
+    private final Cache<String, Entry> cache;
+    private final DependencyIndex dependencies = new DependencyIndex();
+    private final Counter[] providerCounters;
+    private final Counter[] serviceCounters;
+    private final Counter invalidations;
+    private long generation;
+
+    /**
+     * Constructs a new NearCache and subscribes it to the change feed.
+     *
+     * @param enabled           Whether reads are cached at all.
+     * @param maximumSize       The maximum number of cached entities.
+     * @param ttlSeconds        How long an entity stays cached at most, as a
+     *                          bound on staleness should a change be missed.
+     * @param meterRegistry     The registry receiving the hit and miss counters.
+     * @param changeFeedService The change feed delivering the changes of all
+     *                          instances.
+     * @param readCoalescer     The coalescer whose in-flight reads are detached
+     *                          on every eviction.
+     */
+    @Autowired
+    public NearCache(@Value("${crud.cache.enabled:true}") boolean enabled,
+            @Value("${crud.cache.maximum-size:10000}") long maximumSize,
+            @Value("${crud.cache.ttl-seconds:60}") long ttlSeconds,
+            MeterRegistry meterRegistry, ChangeFeedService changeFeedService, ReadCoalescer readCoalescer) {
+        this.enabled = enabled;
+        this.readCoalescer = readCoalescer;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .removalListener(this::onRemoval)
+                .build();
+        this.providerCounters = requestCounters(meterRegistry, "provider");
+        this.serviceCounters = requestCounters(meterRegistry, "service");
+        this.invalidations = Counter.builder("crud.cache.invalidations")
+                .description("Near cache entries evicted because an entity they show changed")
+                .register(meterRegistry);
+        meterRegistry.gauge("crud.cache.size", Tags.empty(), cache, Cache::size);
+        changeFeedService.addListener(this::onChanges);
+    }
+
+    /**
+     * Returns a cached provider, or loads and caches it.
+     *
+     * @param id     The ID of the provider.
+     * @param depth  The depth level of the read.
+     * @param loader The read to run on a miss.
+     * @return The provider, or empty if not found.
+     */
+    public Optional<ProviderRecord> getProvider(Long id, DepthLevel depth, Supplier<Optional<ProviderRecord>> loader) {
+        return get(EntityType.PROVIDER, id, depth, loader, DependencyIndex::refsOf, providerCounters);
+    }
+
+    /**
+     * Returns a cached service, or loads and caches it.
+     *
+     * @param id     The ID of the service.
+     * @param depth  The depth level of the read.
+     * @param loader The read to run on a miss.
+     * @return The service, or empty if not found.
+     */
+    public Optional<ServiceRecord> getService(Long id, DepthLevel depth, Supplier<Optional<ServiceRecord>> loader) {
+        return get(EntityType.SERVICE, id, depth, loader, DependencyIndex::refsOf, serviceCounters);
+    }
+
+    /**
+     * Evicts the entries showing an entity committed by this instance.
+     *
+     * @param event The committed change.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        invalidate(event.getEntityType(), event.getEntityId(), event.getRelatedId());
+    }
+
+    /**
+     * Evicts the entries showing entities changed by any instance.
+     *
+     * @param changes The changes read from the outbox.
+     */
+    public void onChanges(List<ChangeEvent> changes) {
+        for (ChangeEvent change : changes) {
+            invalidate(change.getEntityType(), change.getEntityId(), change.getRelatedId());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Optional<T> get(EntityType type, Long id, DepthLevel depth, Supplier<Optional<T>> loader,
+            Function<T, Set<String>> refs, Counter[] counters) {
+        if (!enabled) {
+            return loader.get();
+        }
+        String key = DependencyIndex.refOf(type, id) + ":" + depth.getValue();
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            counters[0].increment();
+            return Optional.of((T) cached.value);
+        }
+
+        counters[1].increment();
+        long observed;
+        synchronized (this) {
+            observed = generation;
+        }
+        Optional<T> loaded = loader.get();
+        if (loaded.isPresent()) {
+            Set<String> entityRefs = refs.apply(loaded.get());
+            synchronized (this) {
+                if (generation == observed) {
+                    dependencies.add(key, entityRefs);
+                    cache.put(key, new Entry(loaded.get(), entityRefs));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private synchronized void invalidate(EntityType entityType, long entityId, Long relatedId) {
+        readCoalescer.detachAll();
+        generation++;
+        evictDependents(DependencyIndex.refOf(entityType, entityId));
+        if (relatedId != null) {
+            // Links are recorded on the provider with the service as related entity
+            evictDependents(DependencyIndex.refOf(EntityType.SERVICE, relatedId));
+        }
+    }
+
+    private void evictDependents(String ref) {
+        Set<String> keys = dependencies.removeDependentsOf(ref);
+        if (!keys.isEmpty()) {
+            invalidations.increment(keys.size());
+            cache.invalidateAll(keys);
+        }
+    }
+
+    /**
+     * Drops an evicted or expired entry from the index of the entities it
+     * showed.
+     */
+    private synchronized void onRemoval(RemovalNotification<String, Entry> notification) {
+        if (notification.getCause() == RemovalCause.REPLACED) {
+            return;
+        }
+        dependencies.remove(notification.getKey(), notification.getValue().refs);
+    }
+
+    private static Counter[] requestCounters(MeterRegistry meterRegistry, String entity) {
+        return new Counter[] {
+                requestCounter(meterRegistry, entity, "hit"),
+                requestCounter(meterRegistry, entity, "miss")
+        };
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String entity, String result) {
+        return Counter.builder("crud.cache.requests")
+                .description("Reads served from the near cache or loaded from the database")
+                .tag("entity", entity)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * A cached entity together with the entities it shows.
+     */
+    private static final class Entry {
+        private final Object value;
+        private final Set<String> refs;
+
+        private Entry(Object value, Set<String> refs) {
+            this.value = value;
+            this.refs = refs;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package crud.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Service;
+
+import crud.model.Neighborhood;
+import crud.model.NeighborhoodLink;
+import crud.model.NeighborhoodNode;
+import crud.model.ProviderPath;
+import crud.repository.NeighborhoodRepository;
+import crud.utils.EntityType;
+import crud.utils.LongHashSet;
+import crud.utils.LongLongHashMap;
+
+/**
+ * Service class finding the entities within any number of hops of a provider
+ * or service, beyond the fixed reads of {@link crud.utils.DepthLevel}.
+ * The graph is expanded level by level: each hop expands the whole frontier
+ * with batched queries, and the ids already reached are kept in primitive sets
+ * so that no entity is expanded twice. The traversal stops early once the
+ * requested number of nodes or the configured number of links is reached, so
+ * a hub cannot make one request load an unbounded part of the graph; the
+ * result is then marked as truncated.
+ * Shortest paths between two providers are found with a bidirectional search
+ * that always expands the smaller of the two frontiers, so a path of k hops
+ * only explores the neighborhoods of k/2 hops around either end.
+ */
+@Service
+public class NeighborhoodService {
+
+    private final NeighborhoodRepository neighborhoodRepository;
+    private final int maxHops;
+    private final int maxNodes;
+    private final int maxLinks;
+    private final int maxPathHops;
+    private final long pathTimeoutMs;
+
+    /**
+     * Constructs a new NeighborhoodService.
+     *
+     * @param neighborhoodRepository The repository expanding the graph.
+     * @param maxHops                The largest number of hops a request may
+     *                               ask for.
+     * @param maxNodes               The largest number of nodes a request may
+     *                               ask for.
+     * @param maxLinks               The number of links read at most per
+     *                               request.
+     * @param maxPathHops            The longest path a request may ask for.
+     * @param pathTimeoutMs          The time a path search may take.
+     */
+    @Autowired
+    public NeighborhoodService(NeighborhoodRepository neighborhoodRepository,
+            @Value("${crud.neighborhood.max-hops:6}") int maxHops,
+            @Value("${crud.neighborhood.max-nodes:10000}") int maxNodes,
+            @Value("${crud.neighborhood.max-links:100000}") int maxLinks,
+            @Value("${crud.neighborhood.max-path-hops:12}") int maxPathHops,
+            @Value("${crud.neighborhood.path-timeout-ms:5000}") long pathTimeoutMs) {
+        this.neighborhoodRepository = neighborhoodRepository;
+        this.maxHops = maxHops;
+        this.maxNodes = maxNodes;
+        this.maxLinks = maxLinks;
+        this.maxPathHops = maxPathHops;
+        this.pathTimeoutMs = pathTimeoutMs;
+    }
+
+    /**
+     * Retrieves the neighborhood of an entity.
+     *
+     * @param type  The type of the entity.
+     * @param id    The ID of the entity.
+     * @param hops  The number of hops to follow, capped at the configured
+     *              maximum.
+     * @param limit The maximum number of nodes to return, including the root,
+     *              capped at the configured maximum.
+     * @return The neighborhood, or null if the entity does not exist.
+     */
+    public Neighborhood getNeighborhood(EntityType type, long id, int hops, int limit) {
+        if (!neighborhoodRepository.exists(type, id)) {
+            return null;
+        }
+        int maxHop = Math.max(1, Math.min(hops, maxHops));
+        int maxSize = Math.max(1, Math.min(limit, maxNodes));
+
+        // Indexed by EntityType ordinal, as provider and service ids overlap.
+        LongHashSet[] visited = { new LongHashSet(Math.min(maxSize, 1024)), new LongHashSet(Math.min(maxSize, 1024)) };
+        List<NeighborhoodNode> nodes = new ArrayList<>();
+        List<NeighborhoodLink> links = new ArrayList<>();
+        visited[type.ordinal()].add(id);
+        nodes.add(new NeighborhoodNode(type, id, 0));
+
+        long[] frontier = { id };
+        int frontierSize = 1;
+        EntityType side = type;
+        int linkBudget = maxLinks;
+        int hopsReached = 0;
+        boolean truncated = false;
+        for (int hop = 1; hop <= maxHop && frontierSize > 0 && !truncated; hop++) {
+            EntityType next = opposite(side);
+            LongHashSet seen = visited[next.ordinal()];
+            // Links to nodes of the previous hop were already returned with them.
+            LongHashSet reachedNow = new LongHashSet(Math.min(maxSize, 1024));
+            long[] nextFrontier = new long[maxSize - nodes.size()];
+            int[] nextSize = new int[1];
+            boolean[] full = new boolean[1];
+            int currentHop = hop;
+            int found = neighborhoodRepository.expand(side, frontier, frontierSize, linkBudget,
+                    (providerId, serviceId) -> {
+                        long neighbor = next == EntityType.PROVIDER ? providerId : serviceId;
+                        if (seen.contains(neighbor)) {
+                            if (reachedNow.contains(neighbor)) {
+                                links.add(new NeighborhoodLink(providerId, serviceId));
+                            }
+                            return true;
+                        }
+                        if (nextSize[0] == nextFrontier.length) {
+                            full[0] = true;
+                            return false;
+                        }
+                        seen.add(neighbor);
+                        reachedNow.add(neighbor);
+                        nodes.add(new NeighborhoodNode(next, neighbor, currentHop));
+                        links.add(new NeighborhoodLink(providerId, serviceId));
+                        nextFrontier[nextSize[0]++] = neighbor;
+                        return true;
+                    });
+            truncated = full[0] || found > linkBudget;
+            linkBudget -= Math.min(found, linkBudget);
+            if (nextSize[0] > 0) {
+                hopsReached = hop;
+            }
+            frontier = nextFrontier;
+            frontierSize = nextSize[0];
+            side = next;
+        }
+        return new Neighborhood(type, id, maxHop, hopsReached, truncated, nodes, links);
+    }
+
+    /**
+     * Finds a shortest chain of shared services between two providers.
+     *
+     * @param fromId The ID of the provider the path starts at.
+     * @param toId   The ID of the provider the path ends at.
+     * @param hops   The maximum number of links in the path, capped at the
+     *               configured maximum.
+     * @return The path, which is empty if none was found within the limits, or
+     *         null if either provider does not exist.
+     * @throws QueryTimeoutException If the search takes longer than the
+     *                               configured timeout.
+     */
+    public ProviderPath findPath(long fromId, long toId, int hops) {
+        if (!neighborhoodRepository.exists(EntityType.PROVIDER, fromId)
+                || !neighborhoodRepository.exists(EntityType.PROVIDER, toId)) {
+            return null;
+        }
+        if (fromId == toId) {
+            return new ProviderPath(fromId, toId, true, false,
+                    List.of(new NeighborhoodNode(EntityType.PROVIDER, fromId, 0)));
+        }
+        int maxHop = Math.max(1, Math.min(hops, maxPathHops));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pathTimeoutMs);
+        Search forward = new Search(fromId);
+        Search backward = new Search(toId);
+        int[] linkBudget = { maxLinks };
+        int[] nodeBudget = { maxNodes };
+        for (int hop = 1; hop <= maxHop; hop++) {
+            Search search = forward.frontierSize <= backward.frontierSize ? forward : backward;
+            expand(search, search == forward ? backward : forward, linkBudget, nodeBudget, deadline);
+            if (search.timedOut) {
+                throw new QueryTimeoutException("Path search from provider " + fromId + " to provider " + toId
+                        + " exceeded its timeout of " + pathTimeoutMs + " ms");
+            }
+            if (search.met) {
+                return new ProviderPath(fromId, toId, true, false, join(forward, backward, search.side, search.meeting));
+            }
+            if (search.truncated || search.frontierSize == 0) {
+                return new ProviderPath(fromId, toId, false, search.truncated, Collections.emptyList());
+            }
+        }
+        return new ProviderPath(fromId, toId, false, false, Collections.emptyList());
+    }
+
+    /**
+     * Expands the frontier of one search by one hop and stops at the first
+     * entity already reached by the other search. As the other search only
+     * expands a level once it is complete, the first such entity lies on a
+     * shortest path.
+     */
+    private void expand(Search search, Search other, int[] linkBudget, int[] nodeBudget, long deadline) {
+        EntityType side = search.side;
+        EntityType next = opposite(side);
+        LongLongHashMap parents = search.parents[next.ordinal()];
+        LongLongHashMap otherParents = other.parents[next.ordinal()];
+        long[][] nextFrontier = { new long[Math.max(16, search.frontierSize)] };
+        int[] nextSize = new int[1];
+        int found = neighborhoodRepository.expand(side, search.frontier, search.frontierSize, linkBudget[0],
+                (providerId, serviceId) -> {
+                    long node = side == EntityType.PROVIDER ? providerId : serviceId;
+                    long neighbor = side == EntityType.PROVIDER ? serviceId : providerId;
+                    if (parents.containsKey(neighbor)) {
+                        return true;
+                    }
+                    parents.put(neighbor, node);
+                    if (otherParents.containsKey(neighbor)) {
+                        search.met = true;
+                        search.meeting = neighbor;
+                        return false;
+                    }
+                    if (--nodeBudget[0] < 0) {
+                        search.truncated = true;
+                        return false;
+                    }
+                    if (System.nanoTime() - deadline > 0) {
+                        search.timedOut = true;
+                        return false;
+                    }
+                    if (nextSize[0] == nextFrontier[0].length) {
+                        nextFrontier[0] = Arrays.copyOf(nextFrontier[0], nextSize[0] * 2);
+                    }
+                    nextFrontier[0][nextSize[0]++] = neighbor;
+                    return true;
+                });
+        if (found > linkBudget[0] && !search.met) {
+            search.truncated = true;
+        }
+        linkBudget[0] -= Math.min(found, linkBudget[0]);
+        if (System.nanoTime() - deadline > 0 && !search.met) {
+            search.timedOut = true;
+        }
+        search.frontier = nextFrontier[0];
+        search.frontierSize = nextSize[0];
+        search.side = next;
+    }
+
+    /**
+     * Joins the chains from the meeting entity back to both ends.
+     */
+    private static List<NeighborhoodNode> join(Search forward, Search backward, EntityType type, long meeting) {
+        List<long[]> chain = forward.chainFrom(type, meeting);
+        Collections.reverse(chain);
+        List<long[]> rest = backward.chainFrom(type, meeting);
+        chain.addAll(rest.subList(1, rest.size()));
+        List<NeighborhoodNode> path = new ArrayList<>(chain.size());
+        for (long[] node : chain) {
+            path.add(new NeighborhoodNode(EntityType.values()[(int) node[0]], node[1], path.size()));
+        }
+        return path;
+    }
+
+    private static EntityType opposite(EntityType type) {
+        return type == EntityType.PROVIDER ? EntityType.SERVICE : EntityType.PROVIDER;
+    }
+
+    /**
+     * The state of one direction of a path search.
+     */
+    private static final class Search {
+
+        private final long root;
+        // The entity each entity was reached from, by EntityType ordinal.
+        private final LongLongHashMap[] parents = { new LongLongHashMap(64), new LongLongHashMap(64) };
+        private long[] frontier;
+        private int frontierSize = 1;
+        private EntityType side = EntityType.PROVIDER;
+        private boolean met;
+        private long meeting;
+        private boolean truncated;
+        private boolean timedOut;
+
+        private Search(long root) {
+            this.root = root;
+            this.frontier = new long[] { root };
+            parents[EntityType.PROVIDER.ordinal()].put(root, root);
+        }
+
+        /**
+         * Returns the entities from the given one back to the root, as pairs
+         * of EntityType ordinal and ID.
+         */
+        private List<long[]> chainFrom(EntityType type, long id) {
+            List<long[]> chain = new ArrayList<>();
+            while (true) {
+                chain.add(new long[] { type.ordinal(), id });
+                if (type == EntityType.PROVIDER && id == root) {
+                    return chain;
+                }
+                id = parents[type.ordinal()].get(id, root);
+                type = opposite(type);
+            }
+        }
+    }
+}
@@ -1,16 +1,29 @@
 package crud.service;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import crud.entity.ProviderEntity;
+import crud.logging.OperationLogger;
+import crud.model.ChangeEvent;
+import crud.model.ProviderRecord;
+import crud.model.SearchPage;
 import crud.repository.ProviderRepository;
+import crud.utils.ChangeOperation;
 import crud.utils.DepthLevel;
+import crud.utils.EntityType;
+import crud.utils.NameIndex;
 
 /**
  * Service class for managing providers in the system.
@@ -19,94 +32,269 @@ import crud.utils.DepthLevel;
 public class ProviderService {
 
     private final ProviderRepository providerRepository;
+    private final OperationLogger operationLogger;
+    private final ReadCoalescer readCoalescer;
+    private final NearCache nearCache;
+    private final DeepSnapshots deepSnapshots;
+    private final WriteCombiner writeCombiner;
+    private final ExistenceFilter existenceFilter;
     private static final Logger logger = LoggerFactory.getLogger(ProviderService.class);
 
+    /**
+     * Maximum number of results returned by search and autocomplete.
+     */
+    private static final int MAX_SEARCH_LIMIT = 100;
+
+    private final NameIndex nameIndex = new NameIndex();
+
     /**
      * Constructs a new ProviderService with the specified ProviderRepository.
      *
      * @param providerRepository The repository for managing provider entities.
+     * @param operationLogger    The sampled logger for provider operations.
+     * @param readCoalescer      The coalescer sharing identical concurrent reads.
+     * @param nearCache          The cache of provider reads on this instance.
+     * @param deepSnapshots      The materialized DEEP graphs.
+     * @param writeCombiner      The combiner batching concurrent creates.
+     * @param existenceFilter    The filter answering reads of missing ids.
+     * @param changeFeedService  The feed delivering the provider writes of all
+     *                           instances to the autocomplete index.
      */
     @Autowired
-    public ProviderService(ProviderRepository providerRepository) {
+    public ProviderService(ProviderRepository providerRepository, OperationLogger operationLogger,
+            ReadCoalescer readCoalescer, NearCache nearCache, DeepSnapshots deepSnapshots,
+            WriteCombiner writeCombiner, ExistenceFilter existenceFilter, ChangeFeedService changeFeedService) {
         this.providerRepository = providerRepository;
+        this.operationLogger = operationLogger;
+        this.readCoalescer = readCoalescer;
+        this.nearCache = nearCache;
+        this.deepSnapshots = deepSnapshots;
+        this.writeCombiner = writeCombiner;
+        this.existenceFilter = existenceFilter;
+        changeFeedService.addListener(this::onChanges);
+    }
+
+    /**
+     * Loads the names of all providers into the autocomplete index once the
+     * application is ready, keeping the load off the startup path.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadNameIndex() {
+        logger.info("Loading provider names into the autocomplete index...");
+        providerRepository.forEachName(nameIndex::put);
+        logger.info("Autocomplete index loaded with {} providers.", nameIndex.size());
+    }
+
+    /**
+     * Reloads the names of the providers created, renamed or deleted by any
+     * instance into the autocomplete index, with one query per batch of
+     * changes.
+     *
+     * @param changes The changes read from the outbox.
+     */
+    public void onChanges(List<ChangeEvent> changes) {
+        Set<Long> ids = new HashSet<>();
+        for (ChangeEvent change : changes) {
+            if (change.getEntityType() == EntityType.PROVIDER && change.getOperation() != ChangeOperation.LINK
+                    && change.getOperation() != ChangeOperation.UNLINK) {
+                ids.add(change.getEntityId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Long, String> names = providerRepository.findNames(ids);
+        for (Long id : ids) {
+            String name = names.get(id);
+            if (name != null) {
+                nameIndex.put(id, name);
+            } else {
+                nameIndex.remove(id);
+            }
+        }
     }
 
     /**
      * Saves a new provider.
+     * Concurrent creates are written together in one batch when write
+     * combining is enabled.
      *
      * @param provider The provider to be saved.
      * @return The saved provider entity.
      */
     public ProviderEntity createProvider(ProviderEntity provider) {
-        logger.info("Creating a new provider: {}", provider);
-        ProviderEntity savedProvider = providerRepository.save(provider);
-        logger.info("Provider created successfully. Details: {}", savedProvider);
+        long start = System.nanoTime();
+        ProviderEntity savedProvider = writeCombiner.write("provider.create", provider, providerRepository::saveAll,
+                providerRepository::save);
+        nameIndex.put(savedProvider.getId(), savedProvider.getName());
+        operationLogger.info(logger, "provider.create", start)
+                .with("id", savedProvider.getId())
+                .with("services", childCount(savedProvider))
+                .log();
         return savedProvider;
     }
 
     /**
      * Retrieves all providers with the specified depth level.
+     * Identical concurrent reads share one execution, so the returned records
+     * may be shared with other callers.
      *
      * @param depth The depth level for retrieving associated entities.
      * @return List of all providers.
      */
-    public List<ProviderEntity> getAllProviders(DepthLevel depth) {
-        logger.info("Retrieving all providers with depth level: {}", depth);
-        List<ProviderEntity> providers = providerRepository.findAll(depth);
-        logger.info("Retrieved {} providers.", providers.size());
+    public List<ProviderRecord> getAllProviders(DepthLevel depth) {
+        long start = System.nanoTime();
+        List<ProviderRecord> providers = readCoalescer.read("provider.findAll", "provider:all:" + depth.getValue(),
+                () -> providerRepository.findAll(depth));
+        operationLogger.info(logger, "provider.findAll", start)
+                .with("depth", depth)
+                .with("rows", providers.size())
+                .log();
         return providers;
     }
 
     /**
      * Retrieves a provider by its ID with the specified depth level.
+     * IDs the existence filter knows to be missing are answered without a
+     * query.
+     * DEEP reads are served from the snapshots if enabled, other reads from the
+     * near cache when possible, and identical concurrent reads share one
+     * execution, so the returned record may be shared with other callers.
      *
      * @param id    The unique identifier of the provider.
      * @param depth The depth level for retrieving associated entities.
      * @return The provider entity if found, otherwise null.
      */
-    public ProviderEntity getProviderById(Long id, DepthLevel depth) {
-        logger.info("Retrieving provider by ID: {} with depth level: {}", id, depth);
-        Optional<ProviderEntity> optionalProvider = providerRepository.findById(id, depth);
+    public ProviderRecord getProviderById(Long id, DepthLevel depth) {
+        long start = System.nanoTime();
+        Optional<ProviderRecord> optionalProvider = Optional.empty();
+        boolean mightExist = existenceFilter.mightExist(EntityType.PROVIDER, id);
+        if (mightExist) {
+            optionalProvider = depth == DepthLevel.DEEP && deepSnapshots.isEnabled()
+                    ? deepSnapshots.getProvider(id)
+                    : nearCache.getProvider(id, depth,
+                            () -> readCoalescer.read("provider.findById", "provider:" + id + ":" + depth.getValue(),
+                                    () -> providerRepository.findById(id, depth)));
+            if (optionalProvider.isEmpty()) {
+                existenceFilter.recordFalsePositive(EntityType.PROVIDER);
+            }
+        }
 
-        if (optionalProvider.isPresent()) {
-            ProviderEntity foundProvider = optionalProvider.get();
-            logger.info("Provider found: {}", foundProvider);
-            return foundProvider;
-        } else {
-            logger.info("Provider not found for ID: {}", id);
-            return null;
+        operationLogger.info(logger, "provider.findById", start)
+                .with("id", id)
+                .with("depth", depth)
+                .with("found", optionalProvider.isPresent())
+                .with("filtered", !mightExist)
+                .with("services", optionalProvider.map(found -> found.services().size()).orElse(0))
+                .log();
+        return optionalProvider.orElse(null);
+    }
+
+    /**
+     * Searches providers by name with prefix and substring matching.
+     *
+     * @param query  The text to match against provider names.
+     * @param limit  The maximum number of results in the page.
+     * @param cursor The cursor returned by the previous page, or null.
+     * @return The page of matching providers.
+     */
+    public SearchPage<ProviderRecord> searchProviders(String query, int limit, String cursor) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be empty");
         }
+        long start = System.nanoTime();
+        SearchPage<ProviderRecord> page = providerRepository.searchByName(query.trim(), clampLimit(limit), cursor);
+        operationLogger.info(logger, "provider.search", start)
+                .with("rows", page.getItems().size())
+                .with("hasMore", page.getNextCursor() != null)
+                .log();
+        return page;
+    }
+
+    /**
+     * Completes a name prefix against the in-memory autocomplete index.
+     *
+     * @param prefix The prefix typed so far.
+     * @param limit  The maximum number of suggestions.
+     * @return Shallow providers whose name starts with the prefix.
+     */
+    public List<ProviderRecord> autocompleteProviders(String prefix, int limit) {
+        return nameIndex.complete(prefix == null ? "" : prefix, clampLimit(limit)).stream()
+                .map(entry -> ProviderRecord.shallow(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Adds the names of providers written without this service, such as by an
+     * import, to the autocomplete index. Call it once their transaction has
+     * committed.
+     *
+     * @param names The names by provider ID.
+     */
+    public void indexNames(Map<Long, String> names) {
+        names.forEach(nameIndex::put);
     }
 
     /**
      * Updates a provider with the specified ID.
+     * Only the name is updated; services are linked and unlinked with
+     * {@link #linkService} and {@link #unlinkService}.
      *
      * @param id              The unique identifier of the provider to be updated.
      * @param updatedProvider The updated provider entity.
      * @return The updated provider entity if found, otherwise null.
      */
     public ProviderEntity updateProvider(Long id, ProviderEntity updatedProvider) {
-        logger.info("Updating provider with ID: {}", id);
-
-        Optional<ProviderEntity> optionalProvider = providerRepository.findById(id, DepthLevel.MEDIUM);
-
-        if (optionalProvider.isPresent()) {
-            ProviderEntity existingProvider = optionalProvider.get();
-            existingProvider.setName(updatedProvider.getName());
-            // Add more fields to update if needed
-            ProviderEntity updatedEntity = providerRepository.update(existingProvider);
-
-            if (updatedEntity != null) {
-                logger.info("Provider updated successfully. Updated details: {}", updatedEntity);
-            } else {
-                logger.error("Failed to update provider. Repository returned null.");
-            }
+        long start = System.nanoTime();
+        ProviderEntity updatedEntity = providerRepository.update(new ProviderEntity(id, updatedProvider.getName()));
 
-            return updatedEntity;
+        if (updatedEntity != null) {
+            nameIndex.put(id, updatedEntity.getName());
+            operationLogger.info(logger, "provider.update", start)
+                    .with("id", id)
+                    .log();
         } else {
             logger.warn("Provider with ID {} not found for update.", id);
-            return null; // Provider not found
         }
+        return updatedEntity;
+    }
+
+    /**
+     * Links a service to a provider, unless they are already linked.
+     * The link and both counters are written in one transaction.
+     *
+     * @param providerId The ID of the provider.
+     * @param serviceId  The ID of the service.
+     * @return True if both exist, false otherwise.
+     */
+    public boolean linkService(Long providerId, Long serviceId) {
+        long start = System.nanoTime();
+        boolean found = providerRepository.linkService(providerId, serviceId);
+        operationLogger.info(logger, "provider.link", start)
+                .with("id", providerId)
+                .with("serviceId", serviceId)
+                .with("found", found)
+                .log();
+        return found;
+    }
+
+    /**
+     * Removes a service from a provider, if they are linked.
+     * The link and both counters are written in one transaction.
+     *
+     * @param providerId The ID of the provider.
+     * @param serviceId  The ID of the service.
+     * @return True if both exist, false otherwise.
+     */
+    public boolean unlinkService(Long providerId, Long serviceId) {
+        long start = System.nanoTime();
+        boolean found = providerRepository.unlinkService(providerId, serviceId);
+        operationLogger.info(logger, "provider.unlink", start)
+                .with("id", providerId)
+                .with("serviceId", serviceId)
+                .with("found", found)
+                .log();
+        return found;
     }
 
     /**
@@ -115,8 +303,35 @@ public class ProviderService {
      * @param id The unique identifier of the provider to be deleted.
      */
     public void deleteProvider(Long id) {
-        logger.info("Deleting provider with ID: {}", id);
+        long start = System.nanoTime();
         providerRepository.delete(id);
-        logger.info("Provider deleted successfully.");
+        nameIndex.remove(id);
+        operationLogger.info(logger, "provider.delete", start)
+                .with("id", id)
+                .log();
+    }
+
+    /**
+     * Counts the services loaded into a provider, used to summarize it in logs
+     * instead of rendering the whole graph.
+     *
+     * @param provider The provider entity.
+     * @return The number of loaded services.
+     */
+    private static int childCount(ProviderEntity provider) {
+        return provider.getServices() == null ? 0 : provider.getServices().size();
+    }
+
+    /**
+     * Validates a requested result limit and caps it at the maximum page size.
+     *
+     * @param limit The requested limit.
+     * @return The effective limit.
+     */
+    private static int clampLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return Math.min(limit, MAX_SEARCH_LIMIT);
     }
 }
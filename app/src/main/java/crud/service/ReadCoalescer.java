@@ -0,0 +1,196 @@
+package crud.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import crud.event.EntityChangedEvent;
+import crud.profiling.QueryCancellation;
+import crud.profiling.QueryCancellation.Reason;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Service class coalescing identical concurrent reads into a single database
+ * execution.
+ * The first caller for a key runs the read on its own thread; callers arriving
+ * while it is in flight wait for it and receive the same result. Any write
+ * detaches all in-flight reads, both when the write is recorded and again when
+ * its transaction completes, so a caller arriving after a write never joins a
+ * read that may predate it. Results are shared between the coalesced callers
+ * and must not be modified.
+ * A caller waits for a shared read only until its own request deadline. A
+ * read cancelled by the deadline or disconnect of the caller that ran it fails
+ * for that caller alone; the callers waiting for it read again.
+ */
+@Service
+public class ReadCoalescer {
+
+    /**
+     * Completes a read whose caller's own deadline or disconnect cancelled it,
+     * so that the callers that joined it read again instead of failing.
+     */
+    private static final Object ABANDONED = new Object();
+
+    private final boolean enabled;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter[]> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new ReadCoalescer.
+     *
+     * @param enabled       Whether reads are coalesced at all.
+     * @param meterRegistry The registry receiving the executed and coalesced read
+     *                      counters.
+     */
+    @Autowired
+    public ReadCoalescer(@Value("${crud.coalescing.enabled:true}") boolean enabled, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gaugeMapSize("crud.reads.in.flight", Tags.empty(), inFlight);
+    }
+
+    /**
+     * Runs a read, or joins an identical read already in flight.
+     *
+     * @param operation The operation name used to tag the metrics, for example
+     *                  provider.findById.
+     * @param key       The key identifying identical reads.
+     * @param loader    The read to run.
+     * @param <T>       The result type.
+     * @return The result of the read.
+     * @throws QueryTimeoutException if the deadline of the caller passes while
+     *                               it waits for an identical read.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(String operation, String key, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        while (true) {
+            CompletableFuture<Object> flight = new CompletableFuture<>();
+            CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+            if (existing != null) {
+                countersFor(operation)[1].increment();
+                Object result = await(operation, existing);
+                if (result == ABANDONED) {
+                    // The read was cancelled by the deadline of the caller that
+                    // ran it, which says nothing about this caller: read again.
+                    continue;
+                }
+                return (T) result;
+            }
+
+            countersFor(operation)[0].increment();
+            T result;
+            try {
+                result = loader.get();
+            } catch (RuntimeException | Error e) {
+                inFlight.remove(key, flight);
+                QueryCancellation scope = QueryCancellation.current();
+                if (scope != null && scope.getReason() != null) {
+                    flight.complete(ABANDONED);
+                } else {
+                    flight.completeExceptionally(e);
+                }
+                throw e;
+            }
+            inFlight.remove(key, flight);
+            flight.complete(result);
+            return result;
+        }
+    }
+
+    /**
+     * Detaches all in-flight reads as soon as a write is recorded.
+     *
+     * @param event The recorded change.
+     */
+    @EventListener
+    public void onWriteStarted(EntityChangedEvent event) {
+        inFlight.clear();
+    }
+
+    /**
+     * Detaches all in-flight reads once the transaction of a write completes.
+     *
+     * @param event The recorded change.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onWriteCompleted(EntityChangedEvent event) {
+        inFlight.clear();
+    }
+
+    /**
+     * Detaches all in-flight reads, for example when a write of another instance
+     * becomes visible.
+     */
+    public void detachAll() {
+        inFlight.clear();
+    }
+
+    private Counter[] countersFor(String operation) {
+        return counters.computeIfAbsent(operation, name -> new Counter[] {
+                readCounter(name, "executed"),
+                readCounter(name, "coalesced")
+        });
+    }
+
+    private Counter readCounter(String operation, String result) {
+        return Counter.builder("crud.reads")
+                .description("Reads executed against the database or coalesced into an identical in-flight read")
+                .tag("operation", operation)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits for a read in flight until the deadline of the current caller.
+     *
+     * @return The result of the read, or {@link #ABANDONED}.
+     * @throws QueryTimeoutException if the deadline passes first.
+     */
+    private static Object await(String operation, CompletableFuture<Object> flight) {
+        QueryCancellation scope = QueryCancellation.current();
+        long remainingNanos = scope != null ? scope.remainingNanos() : Long.MAX_VALUE;
+        try {
+            if (remainingNanos == Long.MAX_VALUE) {
+                return flight.get();
+            }
+            if (remainingNanos <= 0) {
+                throw new TimeoutException();
+            }
+            return flight.get(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            scope.cancel(Reason.DEADLINE);
+            throw new QueryTimeoutException("Deadline passed while waiting for a coalesced " + operation, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a coalesced read", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package crud.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import crud.profiling.CapturedBody;
+import crud.service.TableGenerations.Table;
+import crud.utils.DepthLevel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Service class caching serialized collection responses by the generations of
+ * the tables they are read from.
+ * The ETag of a response names the endpoint, the depth and the generations of
+ * the tables the depth reads, SHALLOW lists only their own table and deeper
+ * lists all three, plus a random epoch of this instance since generations
+ * restart at zero, and the current max-age period, so writes the generations
+ * never see, such as those of other instances still held back by the change
+ * feed or made outside the application, show up within the max age. A request
+ * whose If-None-Match still names the current ETag is answered with 304
+ * without touching the database or the cache; otherwise the serialized body
+ * is served from the cache, or read and streamed to the response by the JSON
+ * converter, which hands the bytes back for caching unless they exceed the
+ * cache size. Writes never evict anything: they bump a generation, which
+ * changes the ETag, and the stale bodies age out of the least recently used
+ * end of the cache, whose total size is capped in bytes.
+ */
+@Service
+public class ResponseCache {
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxAgeMs;
+    private final TableGenerations tableGenerations;
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final LinkedHashMap<String, byte[]> bodies = new LinkedHashMap<>(16, 0.75f, true);
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter notModified;
+    private long bytes;
+
+    /**
+     * Constructs a new ResponseCache.
+     *
+     * @param enabled          Whether responses are cached and revalidated.
+     * @param maxBytes         The total size of the cached bodies at most.
+     * @param maxAgeMs         How long a body and its ETag stay valid at most,
+     *                         or 0 for as long as the generations are current.
+     * @param tableGenerations The generations keying the responses.
+     * @param meterRegistry    The registry receiving the cache metrics.
+     */
+    @Autowired
+    public ResponseCache(@Value("${crud.response-cache.enabled:true}") boolean enabled,
+            @Value("${crud.response-cache.max-bytes:67108864}") long maxBytes,
+            @Value("${crud.response-cache.max-age-ms:60000}") long maxAgeMs,
+            TableGenerations tableGenerations, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+        this.tableGenerations = tableGenerations;
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.misses = requestCounter(meterRegistry, "miss");
+        this.notModified = requestCounter(meterRegistry, "not-modified");
+        Gauge.builder("crud.response-cache.bytes", this, ResponseCache::getBytes)
+                .description("Total size of the cached response bodies")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Serves a collection response.
+     *
+     * @param table       The table the collection lists.
+     * @param depth       The depth the collection is read at.
+     * @param ifNoneMatch The If-None-Match header of the request, or null.
+     * @param loader      The read to run on a miss.
+     * @return The response, with an ETag unless caching is disabled. The body
+     *         of a miss is a {@link CapturedBody} for the JSON converter.
+     */
+    public ResponseEntity<?> serve(Table table, DepthLevel depth, String ifNoneMatch, Supplier<?> loader) {
+        if (!enabled) {
+            return ResponseEntity.ok(loader.get());
+        }
+        String etag = etag(table, depth);
+        if (matches(ifNoneMatch, etag)) {
+            notModified.increment();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        Object body = get(etag);
+        if (body != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            body = new CapturedBody(loader.get(), maxBytes, bytes -> put(etag, bytes));
+        }
+        return ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Returns the total size of the cached bodies.
+     *
+     * @return The size in bytes.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    String etag(Table table, DepthLevel depth) {
+        StringBuilder etag = new StringBuilder("\"").append(epoch).append('-')
+                .append(table.name().toLowerCase()).append('-').append(depth.getValue());
+        if (maxAgeMs > 0) {
+            etag.append('-').append(System.currentTimeMillis() / maxAgeMs);
+        }
+        if (depth == DepthLevel.SHALLOW) {
+            etag.append('-').append(tableGenerations.get(table));
+        } else {
+            for (Table read : Table.values()) {
+                etag.append('-').append(tableGenerations.get(read));
+            }
+        }
+        return etag.append('"').toString();
+    }
+
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals(etag) || trimmed.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized byte[] get(String key) {
+        return bodies.get(key);
+    }
+
+    private synchronized void put(String key, byte[] body) {
+        if (body.length > maxBytes) {
+            return;
+        }
+        byte[] previous = bodies.put(key, body);
+        bytes += body.length - (previous != null ? previous.length : 0);
+        Iterator<Map.Entry<String, byte[]>> eldest = bodies.entrySet().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("crud.response-cache.requests")
+                .description("Collection requests answered from the response cache, read anew or not modified")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -1,16 +1,29 @@
 package crud.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import crud.entity.ServiceEntity;
+import crud.logging.OperationLogger;
+import crud.model.ChangeEvent;
+import crud.model.SearchPage;
+import crud.model.ServiceRecord;
 import crud.repository.ServiceRepository;
+import crud.utils.ChangeOperation;
 import crud.utils.DepthLevel;
+import crud.utils.EntityType;
+import crud.utils.NameIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Service class for managing services in the system.
@@ -19,95 +32,269 @@ import java.util.Optional;
 public class ServiceService {
 
     private final ServiceRepository serviceRepository;
+    private final OperationLogger operationLogger;
+    private final ReadCoalescer readCoalescer;
+    private final NearCache nearCache;
+    private final DeepSnapshots deepSnapshots;
+    private final WriteCombiner writeCombiner;
+    private final ExistenceFilter existenceFilter;
     private static final Logger logger = LoggerFactory.getLogger(ServiceService.class);
 
+    /**
+     * Maximum number of results returned by search and autocomplete.
+     */
+    private static final int MAX_SEARCH_LIMIT = 100;
+
+    private final NameIndex nameIndex = new NameIndex();
+
     /**
      * Constructs a new ServiceService with the specified ServiceRepository.
      *
      * @param serviceRepository The repository for managing service entities.
+     * @param operationLogger    The sampled logger for service operations.
+     * @param readCoalescer      The coalescer sharing identical concurrent reads.
+     * @param nearCache          The cache of service reads on this instance.
+     * @param deepSnapshots      The materialized DEEP graphs.
+     * @param writeCombiner      The combiner batching concurrent creates.
+     * @param existenceFilter    The filter answering reads of missing ids.
+     * @param changeFeedService  The feed delivering the service writes of all
+     *                           instances to the autocomplete index.
      */
     @Autowired
-    public ServiceService(ServiceRepository serviceRepository) {
+    public ServiceService(ServiceRepository serviceRepository, OperationLogger operationLogger,
+            ReadCoalescer readCoalescer, NearCache nearCache, DeepSnapshots deepSnapshots,
+            WriteCombiner writeCombiner, ExistenceFilter existenceFilter, ChangeFeedService changeFeedService) {
         this.serviceRepository = serviceRepository;
+        this.operationLogger = operationLogger;
+        this.readCoalescer = readCoalescer;
+        this.nearCache = nearCache;
+        this.deepSnapshots = deepSnapshots;
+        this.writeCombiner = writeCombiner;
+        this.existenceFilter = existenceFilter;
+        changeFeedService.addListener(this::onChanges);
+    }
+
+    /**
+     * Loads the names of all services into the autocomplete index once the
+     * application is ready, keeping the load off the startup path.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadNameIndex() {
+        logger.info("Loading service names into the autocomplete index...");
+        serviceRepository.forEachName(nameIndex::put);
+        logger.info("Autocomplete index loaded with {} services.", nameIndex.size());
+    }
+
+    /**
+     * Reloads the names of the services created, renamed or deleted by any
+     * instance into the autocomplete index, with one query per batch of
+     * changes.
+     *
+     * @param changes The changes read from the outbox.
+     */
+    public void onChanges(List<ChangeEvent> changes) {
+        Set<Long> ids = new HashSet<>();
+        for (ChangeEvent change : changes) {
+            if (change.getEntityType() == EntityType.SERVICE && change.getOperation() != ChangeOperation.LINK
+                    && change.getOperation() != ChangeOperation.UNLINK) {
+                ids.add(change.getEntityId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Long, String> names = serviceRepository.findNames(ids);
+        for (Long id : ids) {
+            String name = names.get(id);
+            if (name != null) {
+                nameIndex.put(id, name);
+            } else {
+                nameIndex.remove(id);
+            }
+        }
     }
 
     /**
      * Saves a new service.
+     * Concurrent creates are written together in one batch when write
+     * combining is enabled.
      *
      * @param service The service to be saved.
      * @return The saved service entity.
      */
     public ServiceEntity createService(ServiceEntity service) {
-        logger.info("Creating a new service: {}", service);
-        ServiceEntity savedService = serviceRepository.save(service);
-        logger.info("Service created successfully. Details: {}", savedService);
+        long start = System.nanoTime();
+        ServiceEntity savedService = writeCombiner.write("service.create", service, serviceRepository::saveAll,
+                serviceRepository::save);
+        nameIndex.put(savedService.getId(), savedService.getName());
+        operationLogger.info(logger, "service.create", start)
+                .with("id", savedService.getId())
+                .with("providers", childCount(savedService))
+                .log();
         return savedService;
     }
 
     /**
      * Retrieves all services with the specified depth level.
+     * Identical concurrent reads share one execution, so the returned records
+     * may be shared with other callers.
      *
      * @param depth The depth level for retrieving associated entities.
      * @return List of all services.
      */
-    public List<ServiceEntity> getAllServices(DepthLevel depth) {
-        logger.info("Retrieving all services with depth level: {}", depth);
-        List<ServiceEntity> services = serviceRepository.findAll(depth);
-        logger.info("Retrieved {} services.", services.size());
+    public List<ServiceRecord> getAllServices(DepthLevel depth) {
+        long start = System.nanoTime();
+        List<ServiceRecord> services = readCoalescer.read("service.findAll", "service:all:" + depth.getValue(),
+                () -> serviceRepository.findAll(depth));
+        operationLogger.info(logger, "service.findAll", start)
+                .with("depth", depth)
+                .with("rows", services.size())
+                .log();
         return services;
     }
 
     /**
      * Retrieves a service by its ID with the specified depth level.
+     * IDs the existence filter knows to be missing are answered without a
+     * query.
+     * DEEP reads are served from the snapshots if enabled, other reads from the
+     * near cache when possible, and identical concurrent reads share one
+     * execution, so the returned record may be shared with other callers.
      *
      * @param id    The unique identifier of the service.
      * @param depth The depth level for retrieving associated entities.
      * @return The service entity if found, otherwise null.
      */
-    public ServiceEntity getServiceById(Long id, DepthLevel depth) {
-        logger.info("Retrieving service by ID: {} with depth level: {}", id, depth);
-        Optional<ServiceEntity> optionalService = serviceRepository.findById(id, depth);
+    public ServiceRecord getServiceById(Long id, DepthLevel depth) {
+        long start = System.nanoTime();
+        Optional<ServiceRecord> optionalService = Optional.empty();
+        boolean mightExist = existenceFilter.mightExist(EntityType.SERVICE, id);
+        if (mightExist) {
+            optionalService = depth == DepthLevel.DEEP && deepSnapshots.isEnabled()
+                    ? deepSnapshots.getService(id)
+                    : nearCache.getService(id, depth,
+                            () -> readCoalescer.read("service.findById", "service:" + id + ":" + depth.getValue(),
+                                    () -> serviceRepository.findById(id, depth)));
+            if (optionalService.isEmpty()) {
+                existenceFilter.recordFalsePositive(EntityType.SERVICE);
+            }
+        }
 
-        if (optionalService.isPresent()) {
-            ServiceEntity foundService = optionalService.get();
-            logger.info("Service found: {}", foundService);
-            return foundService;
-        } else {
-            logger.info("Service not found for ID: {}", id);
-            return null;
+        operationLogger.info(logger, "service.findById", start)
+                .with("id", id)
+                .with("depth", depth)
+                .with("found", optionalService.isPresent())
+                .with("filtered", !mightExist)
+                .with("providers", optionalService.map(found -> found.providers().size()).orElse(0))
+                .log();
+        return optionalService.orElse(null);
+    }
+
+    /**
+     * Searches services by name with prefix and substring matching.
+     *
+     * @param query  The text to match against service names.
+     * @param limit  The maximum number of results in the page.
+     * @param cursor The cursor returned by the previous page, or null.
+     * @return The page of matching services.
+     */
+    public SearchPage<ServiceRecord> searchServices(String query, int limit, String cursor) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be empty");
         }
+        long start = System.nanoTime();
+        SearchPage<ServiceRecord> page = serviceRepository.searchByName(query.trim(), clampLimit(limit), cursor);
+        operationLogger.info(logger, "service.search", start)
+                .with("rows", page.getItems().size())
+                .with("hasMore", page.getNextCursor() != null)
+                .log();
+        return page;
+    }
+
+    /**
+     * Completes a name prefix against the in-memory autocomplete index.
+     *
+     * @param prefix The prefix typed so far.
+     * @param limit  The maximum number of suggestions.
+     * @return Shallow services whose name starts with the prefix.
+     */
+    public List<ServiceRecord> autocompleteServices(String prefix, int limit) {
+        return nameIndex.complete(prefix == null ? "" : prefix, clampLimit(limit)).stream()
+                .map(entry -> ServiceRecord.shallow(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Adds the names of services written without this service, such as by an
+     * import, to the autocomplete index. Call it once their transaction has
+     * committed.
+     *
+     * @param names The names by service ID.
+     */
+    public void indexNames(Map<Long, String> names) {
+        names.forEach(nameIndex::put);
     }
 
     /**
      * Updates a service with the specified ID.
+     * Only the name is updated; providers are linked and unlinked with
+     * {@link #linkProvider} and {@link #unlinkProvider}.
      *
      * @param id             The unique identifier of the service to be updated.
      * @param updatedService The updated service entity.
      * @return The updated service entity if found, otherwise null.
      */
     public ServiceEntity updateService(Long id, ServiceEntity updatedService) {
-        logger.info("Updating service with ID: {}", id);
-
-        Optional<ServiceEntity> optionalService = serviceRepository.findById(id, DepthLevel.MEDIUM);
-
-        if (optionalService.isPresent()) {
-            ServiceEntity existingService = optionalService.get();
-            existingService.setName(updatedService.getName());
-            existingService.setProviders(updatedService.getProviders());
-
-            ServiceEntity updatedEntity = serviceRepository.update(existingService);
+        long start = System.nanoTime();
+        ServiceEntity updatedEntity = serviceRepository.update(new ServiceEntity(id, updatedService.getName()));
 
-            if (updatedEntity != null) {
-                logger.info("Service updated successfully. Updated details: {}", updatedEntity);
-            } else {
-                logger.error("Failed to update service. Repository returned null.");
-            }
-
-            return updatedEntity;
+        if (updatedEntity != null) {
+            nameIndex.put(id, updatedEntity.getName());
+            operationLogger.info(logger, "service.update", start)
+                    .with("id", id)
+                    .log();
         } else {
             logger.warn("Service with ID {} not found for update.", id);
-            return null; // Service not found
         }
+        return updatedEntity;
+    }
+
+    /**
+     * Links a provider to a service, unless they are already linked.
+     * The link and both counters are written in one transaction.
+     *
+     * @param serviceId  The ID of the service.
+     * @param providerId The ID of the provider.
+     * @return True if both exist, false otherwise.
+     */
+    public boolean linkProvider(Long serviceId, Long providerId) {
+        long start = System.nanoTime();
+        boolean found = serviceRepository.linkProvider(serviceId, providerId);
+        operationLogger.info(logger, "service.link", start)
+                .with("id", serviceId)
+                .with("providerId", providerId)
+                .with("found", found)
+                .log();
+        return found;
+    }
+
+    /**
+     * Removes a provider from a service, if they are linked.
+     * The link and both counters are written in one transaction.
+     *
+     * @param serviceId  The ID of the service.
+     * @param providerId The ID of the provider.
+     * @return True if both exist, false otherwise.
+     */
+    public boolean unlinkProvider(Long serviceId, Long providerId) {
+        long start = System.nanoTime();
+        boolean found = serviceRepository.unlinkProvider(serviceId, providerId);
+        operationLogger.info(logger, "service.unlink", start)
+                .with("id", serviceId)
+                .with("providerId", providerId)
+                .with("found", found)
+                .log();
+        return found;
     }
 
     /**
@@ -116,8 +303,35 @@ public class ServiceService {
      * @param id The unique identifier of the service to be deleted.
      */
     public void deleteService(Long id) {
-        logger.info("Deleting service with ID: {}", id);
+        long start = System.nanoTime();
         serviceRepository.delete(id);
-        logger.info("Service deleted successfully.");
+        nameIndex.remove(id);
+        operationLogger.info(logger, "service.delete", start)
+                .with("id", id)
+                .log();
+    }
+
+    /**
+     * Counts the providers loaded into a service, used to summarize it in logs
+     * instead of rendering the whole graph.
+     *
+     * @param service The service entity.
+     * @return The number of loaded providers.
+     */
+    private static int childCount(ServiceEntity service) {
+        return service.getProviders() == null ? 0 : service.getProviders().size();
+    }
+
+    /**
+     * Validates a requested result limit and caps it at the maximum page size.
+     *
+     * @param limit The requested limit.
+     * @return The effective limit.
+     */
+    private static int clampLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return Math.min(limit, MAX_SEARCH_LIMIT);
     }
 }
@@ -0,0 +1,128 @@
+package crud.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import crud.model.DegreeBucket;
+import crud.model.StatsSnapshot;
+import crud.repository.StatsRepository;
+
+/**
+ * Service class for aggregate statistics over providers and services.
+ * Statistics are computed in the background from the denormalized association
+ * counters and served from the latest snapshot, so reading them never touches
+ * the database. A separate reconciliation job repairs counters that drifted
+ * from the join table. The bean is never lazy so its jobs are scheduled even
+ * with lazy initialization enabled.
+ */
+@Service
+@Lazy(false)
+public class StatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatsService.class);
+
+    private final StatsRepository statsRepository;
+    private final int topN;
+    private final AtomicReference<StatsSnapshot> snapshot = new AtomicReference<>();
+
+    /**
+     * Constructs a new StatsService.
+     *
+     * @param statsRepository The repository for aggregate queries.
+     * @param topN            The number of entities in the top-N lists.
+     */
+    @Autowired
+    public StatsService(StatsRepository statsRepository, @Value("${crud.stats.top-n:10}") int topN) {
+        this.statsRepository = statsRepository;
+        this.topN = topN;
+    }
+
+    /**
+     * Returns the latest statistics snapshot, computing the first one if none
+     * exists yet.
+     *
+     * @return The statistics snapshot.
+     */
+    public StatsSnapshot getStats() {
+        if (snapshot.get() == null) {
+            refresh();
+        }
+        return snapshot.get();
+    }
+
+    /**
+     * Recomputes the statistics snapshot.
+     */
+    @Scheduled(fixedDelayString = "${crud.stats.refresh-interval-ms:30000}")
+    public void refresh() {
+        StatsSnapshot computed = new StatsSnapshot(
+                statsRepository.countProviders(),
+                statsRepository.countServices(),
+                statsRepository.countLinks(),
+                toHistogram(statsRepository.findProviderDegreeCounts()),
+                toHistogram(statsRepository.findServiceDegreeCounts()),
+                statsRepository.findTopProviders(topN),
+                statsRepository.findTopServices(topN),
+                Instant.now());
+        snapshot.set(computed);
+    }
+
+    /**
+     * Repairs association counters that drifted from the join table.
+     */
+    @Scheduled(fixedDelayString = "${crud.stats.reconcile-interval-ms:3600000}",
+            initialDelayString = "${crud.stats.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        int providers = statsRepository.reconcileProviderCounts();
+        int services = statsRepository.reconcileServiceCounts();
+
+        if (providers > 0 || services > 0) {
+            logger.warn("Repaired association counters of {} providers and {} services.", providers, services);
+            refresh();
+        } else {
+            logger.info("Association counters are consistent.");
+        }
+    }
+
+    /**
+     * Groups exact degree counts into power-of-two buckets.
+     *
+     * @param degreeCounts Map from degree to the number of entities, ordered by
+     *                     degree.
+     * @return The histogram buckets, in ascending order of degree.
+     */
+    static List<DegreeBucket> toHistogram(Map<Long, Long> degreeCounts) {
+        List<DegreeBucket> buckets = new ArrayList<>();
+        long min = -1;
+        long max = -1;
+        long count = 0;
+
+        for (Map.Entry<Long, Long> entry : degreeCounts.entrySet()) {
+            long degree = entry.getKey();
+            if (degree > max) {
+                if (count > 0) {
+                    buckets.add(new DegreeBucket(min, max, count));
+                }
+                min = degree == 0 ? 0 : Long.highestOneBit(degree);
+                max = degree == 0 ? 0 : min * 2 - 1;
+                count = 0;
+            }
+            count += entry.getValue();
+        }
+        if (count > 0) {
+            buckets.add(new DegreeBucket(min, max, count));
+        }
+        return buckets;
+    }
+}
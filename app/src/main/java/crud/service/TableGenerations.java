@@ -0,0 +1,105 @@
+package crud.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import crud.event.EntityChangedEvent;
+import crud.model.ChangeEvent;
+import crud.utils.ChangeOperation;
+import crud.utils.EntityType;
+
+/**
+ * Service class counting the writes to the providers, services and
+ * provider_service tables, so that anything derived from a table can be
+ * keyed by its generation instead of being invalidated.
+ * Every write recorded in the outbox bumps the generation of its table twice:
+ * when it is recorded, and when its transaction completes. A result computed
+ * under a generation therefore never shows a write that committed after the
+ * generation was read, as such a write bumps it again. Writes of other
+ * instances bump the generation when the {@link ChangeFeedService} reads them.
+ * Generations start at zero on every start and are only meaningful on this
+ * instance.
+ */
+@Service
+public class TableGenerations {
+
+    /**
+     * The tables whose writes are counted.
+     */
+    public enum Table {
+        PROVIDERS,
+        SERVICES,
+        LINKS
+    }
+
+    private final AtomicLongArray generations = new AtomicLongArray(Table.values().length);
+
+    /**
+     * Constructs a new TableGenerations and subscribes it to the change feed.
+     *
+     * @param changeFeedService The change feed delivering the changes of all
+     *                          instances.
+     */
+    @Autowired
+    public TableGenerations(ChangeFeedService changeFeedService) {
+        changeFeedService.addListener(this::onChanges);
+    }
+
+    /**
+     * Returns the current generation of a table.
+     *
+     * @param table The table.
+     * @return The number of times the table was bumped.
+     */
+    public long get(Table table) {
+        return generations.get(table.ordinal());
+    }
+
+    /**
+     * Bumps the table of a write as soon as it is recorded.
+     *
+     * @param event The recorded change.
+     */
+    @EventListener
+    public void onWriteStarted(EntityChangedEvent event) {
+        bump(tableOf(event.getEntityType(), event.getOperation()));
+    }
+
+    /**
+     * Bumps the table of a write once its transaction completes.
+     *
+     * @param event The recorded change.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onWriteCompleted(EntityChangedEvent event) {
+        bump(tableOf(event.getEntityType(), event.getOperation()));
+    }
+
+    /**
+     * Bumps the tables of changes made by any instance.
+     *
+     * @param changes The changes read from the outbox.
+     */
+    public void onChanges(List<ChangeEvent> changes) {
+        for (ChangeEvent change : changes) {
+            bump(tableOf(change.getEntityType(), change.getOperation()));
+        }
+    }
+
+    private void bump(Table table) {
+        generations.incrementAndGet(table.ordinal());
+    }
+
+    static Table tableOf(EntityType entityType, ChangeOperation operation) {
+        if (operation == ChangeOperation.LINK || operation == ChangeOperation.UNLINK) {
+            return Table.LINKS;
+        }
+        return entityType == EntityType.PROVIDER ? Table.PROVIDERS : Table.SERVICES;
+    }
+}
@@ -0,0 +1,268 @@
+package crud.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Service;
+
+import crud.profiling.QueryCancellation;
+import crud.profiling.QueryCancellation.Reason;
+import crud.profiling.StatementCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service class combining concurrent single-entity writes into batches, so
+ * many writes share one transaction and one commit.
+ * The first write of an operation opens a window; writes of the same operation
+ * arriving within it, up to the maximum batch size, are written together by a
+ * single writer thread while their callers wait. If a batch fails, each of its
+ * writes is retried on its own, so a bad entity only fails its own caller.
+ * A write written on its own runs in the cancellation scope of its caller; a
+ * batch runs in a scope with the earliest deadline of its callers. Callers
+ * stop waiting when their deadline passes, and the statements written for
+ * them are added to their statement counter.
+ */
+@Service
+public class WriteCombiner {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteCombiner.class);
+
+    private final boolean enabled;
+    private final long windowMs;
+    private final int maxBatchSize;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Group<?>> groups = new ConcurrentHashMap<>();
+    private final Map<String, Counter[]> counters = new ConcurrentHashMap<>();
+    private ScheduledExecutorService writer;
+
+    /**
+     * Constructs a new WriteCombiner.
+     *
+     * @param enabled       Whether writes are combined at all.
+     * @param windowMs      How long the first write of a batch waits for others.
+     * @param maxBatchSize  The maximum number of writes in one batch.
+     * @param meterRegistry The registry receiving the batch counters.
+     */
+    @Autowired
+    public WriteCombiner(@Value("${crud.write-combining.enabled:false}") boolean enabled,
+            @Value("${crud.write-combining.window-ms:2}") long windowMs,
+            @Value("${crud.write-combining.max-batch-size:100}") int maxBatchSize,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.windowMs = windowMs;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.meterRegistry = meterRegistry;
+
+        if (enabled) {
+            writer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "write-combiner");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Writes an entity, batched with concurrent writes of the same operation.
+     *
+     * @param operation    The operation name identifying writes that can be
+     *                     batched together, for example provider.create.
+     * @param item         The entity to write.
+     * @param batchWriter  Writes a batch in one transaction and returns the
+     *                     written entities in the same order.
+     * @param singleWriter Writes one entity in its own transaction.
+     * @param <T>          The entity type.
+     * @return The written entity.
+     * @throws QueryTimeoutException if the deadline of the caller passes while
+     *                               waiting for the write.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T write(String operation, T item, Function<List<T>, List<T>> batchWriter,
+            UnaryOperator<T> singleWriter) {
+        if (!enabled) {
+            return singleWriter.apply(item);
+        }
+        Group<T> group = (Group<T>) groups.computeIfAbsent(operation,
+                name -> new Group<>(name, batchWriter));
+        QueryCancellation scope = QueryCancellation.current();
+        long remainingNanos = scope != null ? scope.remainingNanos() : Long.MAX_VALUE;
+        PendingWrite<T> write = new PendingWrite<>(item,
+                QueryCancellation.propagate(() -> singleWriter.apply(item)),
+                remainingNanos != Long.MAX_VALUE ? System.nanoTime() + remainingNanos : 0);
+
+        synchronized (group) {
+            group.pending.add(write);
+            if (group.pending.size() == maxBatchSize) {
+                writer.execute(() -> flush(group));
+            } else if (group.pending.size() == 1) {
+                writer.schedule(() -> flush(group), windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        T written = await(group.operation, write.result);
+        StatementCounter counter = StatementCounter.current();
+        if (counter != null) {
+            counter.addAll(write.statements);
+        }
+        return written;
+    }
+
+    /**
+     * Stops the writer thread.
+     */
+    @PreDestroy
+    public void stop() {
+        if (writer != null) {
+            writer.shutdownNow();
+        }
+    }
+
+    private <T> void flush(Group<T> group) {
+        List<PendingWrite<T>> batch;
+        synchronized (group) {
+            int size = Math.min(group.pending.size(), maxBatchSize);
+            if (size == 0) {
+                return;
+            }
+            List<PendingWrite<T>> head = group.pending.subList(0, size);
+            batch = new ArrayList<>(head);
+            head.clear();
+            if (group.pending.size() >= maxBatchSize) {
+                writer.execute(() -> flush(group));
+            } else if (!group.pending.isEmpty()) {
+                writer.schedule(() -> flush(group), windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        Counter[] counters = countersFor(group.operation);
+        if (batch.size() > 1) {
+            List<T> items = new ArrayList<>(batch.size());
+            long deadlineNanos = 0;
+            for (PendingWrite<T> write : batch) {
+                items.add(write.item);
+                if (write.deadlineNanos != 0 && (deadlineNanos == 0 || write.deadlineNanos - deadlineNanos < 0)) {
+                    deadlineNanos = write.deadlineNanos;
+                }
+            }
+            QueryCancellation scope = QueryCancellation.start(deadlineNanos);
+            StatementCounter counter = StatementCounter.start(group.operation + " batch", 0, false);
+            try {
+                List<T> written = group.batchWriter.apply(items);
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).statements = counter.getCountsByName();
+                    batch.get(i).result.complete(written.get(i));
+                }
+                counters[0].increment(batch.size());
+                return;
+            } catch (RuntimeException | Error e) {
+                logger.warn("Batch of {} {} writes failed, retrying them one by one", batch.size(),
+                        group.operation, e);
+            } finally {
+                counter.stop();
+                scope.stop();
+            }
+        }
+
+        for (PendingWrite<T> write : batch) {
+            StatementCounter counter = StatementCounter.start(group.operation, 0, false);
+            try {
+                T written = write.single.call();
+                write.statements = counter.getCountsByName();
+                write.result.complete(written);
+            } catch (Exception | Error e) {
+                write.result.completeExceptionally(e);
+            } finally {
+                counter.stop();
+            }
+        }
+        counters[1].increment(batch.size());
+    }
+
+    private Counter[] countersFor(String operation) {
+        return counters.computeIfAbsent(operation, name -> new Counter[] {
+                writeCounter(name, "batched"),
+                writeCounter(name, "single")
+        });
+    }
+
+    private Counter writeCounter(String operation, String result) {
+        return Counter.builder("crud.writes")
+                .description("Writes combined into a batch or written on their own")
+                .tag("operation", operation)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static <T> T await(String operation, CompletableFuture<T> result) {
+        QueryCancellation scope = QueryCancellation.current();
+        long remainingNanos = scope != null ? scope.remainingNanos() : Long.MAX_VALUE;
+        try {
+            if (remainingNanos == Long.MAX_VALUE) {
+                return result.get();
+            }
+            if (remainingNanos <= 0) {
+                throw new TimeoutException();
+            }
+            return result.get(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            scope.cancel(Reason.DEADLINE);
+            throw new QueryTimeoutException("Deadline passed while waiting for a combined " + operation, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a combined write", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    private static final class Group<T> {
+        private final String operation;
+        private final Function<List<T>, List<T>> batchWriter;
+        private final List<PendingWrite<T>> pending = new ArrayList<>();
+
+        private Group(String operation, Function<List<T>, List<T>> batchWriter) {
+            this.operation = operation;
+            this.batchWriter = batchWriter;
+        }
+    }
+
+    private static final class PendingWrite<T> {
+        private final T item;
+        private final Callable<T> single;
+        private final long deadlineNanos;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private Map<String, Integer> statements = Map.of();
+
+        private PendingWrite(T item, Callable<T> single, long deadlineNanos) {
+            this.item = item;
+            this.single = single;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
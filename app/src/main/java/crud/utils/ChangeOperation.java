@@ -0,0 +1,14 @@
+package crud.utils;
+
+/**
+ * Enumeration representing the write operations recorded in the change feed.
+ * LINK and UNLINK are always recorded against the provider, with the service
+ * as the related entity.
+ */
+public enum ChangeOperation {
+    CREATE,
+    UPDATE,
+    DELETE,
+    LINK,
+    UNLINK
+}
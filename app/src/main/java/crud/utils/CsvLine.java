@@ -0,0 +1,64 @@
+package crud.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits one line of RFC 4180 CSV into its fields.
+ * Fields may be quoted, with quotes inside a quoted field doubled. Line breaks
+ * inside quoted fields are not supported, so every record is one line.
+ */
+public final class CsvLine {
+
+    private CsvLine() {
+    }
+
+    /**
+     * Parses a line into its fields.
+     *
+     * @param line The line without its line terminator.
+     * @return The unquoted fields.
+     * @throws IllegalArgumentException if a quoted field is not terminated or is
+     *                                  followed by anything but a separator.
+     */
+    public static List<String> parse(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        int length = line.length();
+        while (true) {
+            if (i < length && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        throw new IllegalArgumentException("Unterminated quoted field");
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < length && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < length && line.charAt(i) != ',') {
+                    throw new IllegalArgumentException("Unexpected character after quoted field at position " + i);
+                }
+            } else {
+                int end = line.indexOf(',', i);
+                end = end < 0 ? length : end;
+                field.append(line, i, end);
+                i = end;
+            }
+
+            fields.add(field.toString());
+            field.setLength(0);
+            if (i >= length) {
+                return fields;
+            }
+            i++;
+        }
+    }
+}
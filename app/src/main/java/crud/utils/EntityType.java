@@ -0,0 +1,9 @@
+package crud.utils;
+
+/**
+ * Enumeration representing the types of entities recorded in the change feed.
+ */
+public enum EntityType {
+    PROVIDER,
+    SERVICE
+}
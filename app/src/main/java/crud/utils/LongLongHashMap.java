@@ -0,0 +1,122 @@
+package crud.utils;
+
+import java.util.Arrays;
+
+/**
+ * Map from primitive longs to primitive longs using open addressing with
+ * linear probing, the map counterpart of {@link LongHashSet}. Like the set it
+ * only grows and is not thread-safe.
+ */
+public class LongLongHashMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private boolean containsEmpty;
+    private long emptyValue;
+
+    /**
+     * Constructs a new LongLongHashMap.
+     *
+     * @param expectedSize The number of keys expected, to size the table.
+     */
+    public LongLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Associates a value with a key, replacing any previous value.
+     *
+     * @param key   The key.
+     * @param value The value.
+     */
+    public void put(long key, long value) {
+        if (key == EMPTY) {
+            if (!containsEmpty) {
+                containsEmpty = true;
+                size++;
+            }
+            emptyValue = value;
+            return;
+        }
+        int index = indexOf(key, keys);
+        values[index] = value;
+        if (keys[index] != key) {
+            keys[index] = key;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key          The key.
+     * @param defaultValue The value to return if the key is absent.
+     * @return The value, or defaultValue.
+     */
+    public long get(long key, long defaultValue) {
+        if (key == EMPTY) {
+            return containsEmpty ? emptyValue : defaultValue;
+        }
+        int index = indexOf(key, keys);
+        return keys[index] == key ? values[index] : defaultValue;
+    }
+
+    /**
+     * Checks whether a key is in the map.
+     *
+     * @param key The key.
+     * @return True if a value was put for the key.
+     */
+    public boolean containsKey(long key) {
+        return key == EMPTY ? containsEmpty : keys[indexOf(key, keys)] == key;
+    }
+
+    /**
+     * Returns the number of keys in the map.
+     *
+     * @return The number of keys.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] grownKeys = new long[keys.length * 2];
+        long[] grownValues = new long[keys.length * 2];
+        Arrays.fill(grownKeys, EMPTY);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                int index = indexOf(keys[i], grownKeys);
+                grownKeys[index] = keys[i];
+                grownValues[index] = values[i];
+            }
+        }
+        keys = grownKeys;
+        values = grownValues;
+    }
+
+    /**
+     * Returns the slot holding a key, or the empty slot where it belongs.
+     */
+    private static int indexOf(long key, long[] table) {
+        int mask = table.length - 1;
+        int index = mix(key) & mask;
+        while (table[index] != EMPTY && table[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
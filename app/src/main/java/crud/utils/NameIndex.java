@@ -0,0 +1,249 @@
+package crud.utils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory prefix index over entity names used for autocomplete.
+ * Names are indexed case-insensitively. Completions are ranked with exact
+ * matches first, followed by longer names in lexicographic order, and ties are
+ * broken by id.
+ * Entries are kept in parallel arrays sorted by normalized name and id, so the
+ * completions of a prefix are a contiguous range found by binary search and
+ * an entry costs three array slots instead of a tree node per character.
+ * Updates go to a small sorted set of pending entries and mark replaced array
+ * slots as removed; both are merged into new arrays once they grow past an
+ * eighth of the index. The index is safe for concurrent use: lookups share a
+ * read lock, updates take the write lock.
+ */
+public class NameIndex {
+
+    /**
+     * The number of pending changes always allowed before a merge.
+     */
+    private static final int MIN_PENDING = 1024;
+
+    private String[] keys = new String[0];
+    private long[] ids = new long[0];
+    private String[] values = new String[0];
+    private BitSet removed = new BitSet();
+    private int removedCount;
+    private final TreeSet<Entry> pending = new TreeSet<>();
+    private final Map<Long, String> names = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Adds or renames the entry with the given id.
+     *
+     * @param id   The id of the entity.
+     * @param name The current name of the entity.
+     */
+    public void put(long id, String name) {
+        if (name == null) {
+            remove(id);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            String previous = names.put(id, name);
+            if (previous != null) {
+                unlink(id, previous);
+            }
+            pending.add(new Entry(normalize(name), id, name));
+            mergeIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the entry with the given id, if present.
+     *
+     * @param id The id of the entity.
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            String previous = names.remove(id);
+            if (previous != null) {
+                unlink(id, previous);
+                mergeIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} entries whose name starts with the given
+     * prefix.
+     *
+     * @param prefix The prefix to complete, matched case-insensitively.
+     * @param limit  The maximum number of entries to return.
+     * @return The completions as (id, name) entries, best ranked first.
+     */
+    public List<Map.Entry<Long, String>> complete(String prefix, int limit) {
+        List<Map.Entry<Long, String>> result = new ArrayList<>(Math.min(limit, 64));
+        lock.readLock().lock();
+        try {
+            String key = normalize(prefix);
+            int i = lowerBound(key, Long.MIN_VALUE);
+            Iterator<Entry> changes = pending.tailSet(new Entry(key, Long.MIN_VALUE, null), true).iterator();
+            Entry change = nextMatch(changes, key);
+
+            // Both sources are sorted by normalized name, which puts a name
+            // before its extensions, so merging them ranks the completions.
+            while (result.size() < limit) {
+                i = removed.nextClearBit(i);
+                boolean inArrays = i < keys.length && keys[i].startsWith(key);
+                if (!inArrays && change == null) {
+                    break;
+                }
+                if (change == null || inArrays && compare(keys[i], ids[i], change.key, change.id) < 0) {
+                    result.add(Map.entry(ids[i], values[i]));
+                    i++;
+                } else {
+                    result.add(Map.entry(change.id, change.name));
+                    change = nextMatch(changes, key);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of indexed entries.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the entry of the id under the given name, either from the
+     * pending entries or by marking its array slot. Must be called with the
+     * write lock held.
+     */
+    private void unlink(long id, String name) {
+        String key = normalize(name);
+        if (pending.remove(new Entry(key, id, null))) {
+            return;
+        }
+        int i = lowerBound(key, id);
+        if (i < keys.length && ids[i] == id && keys[i].equals(key) && !removed.get(i)) {
+            removed.set(i);
+            removedCount++;
+        }
+    }
+
+    /**
+     * Merges the pending entries into new arrays, leaving out the removed
+     * slots, once there are enough changes. Must be called with the write lock
+     * held.
+     */
+    private void mergeIfNeeded() {
+        if (pending.size() + removedCount <= Math.max(MIN_PENDING, keys.length / 8)) {
+            return;
+        }
+        int size = keys.length - removedCount + pending.size();
+        String[] mergedKeys = new String[size];
+        long[] mergedIds = new long[size];
+        String[] mergedValues = new String[size];
+        Iterator<Entry> changes = pending.iterator();
+        Entry change = changes.hasNext() ? changes.next() : null;
+        int i = removed.nextClearBit(0);
+        for (int n = 0; n < size; n++) {
+            if (change == null || i < keys.length && compare(keys[i], ids[i], change.key, change.id) < 0) {
+                mergedKeys[n] = keys[i];
+                mergedIds[n] = ids[i];
+                mergedValues[n] = values[i];
+                i = removed.nextClearBit(i + 1);
+            } else {
+                mergedKeys[n] = change.key;
+                mergedIds[n] = change.id;
+                mergedValues[n] = change.name;
+                change = changes.hasNext() ? changes.next() : null;
+            }
+        }
+        keys = mergedKeys;
+        ids = mergedIds;
+        values = mergedValues;
+        removed = new BitSet();
+        removedCount = 0;
+        pending.clear();
+    }
+
+    /**
+     * Finds the first array slot ordered at or after the given name and id.
+     */
+    private int lowerBound(String key, long id) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(keys[mid], ids[mid], key, id) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static Entry nextMatch(Iterator<Entry> changes, String key) {
+        if (!changes.hasNext()) {
+            return null;
+        }
+        Entry next = changes.next();
+        return next.key.startsWith(key) ? next : null;
+    }
+
+    private static int compare(String key, long id, String otherKey, long otherId) {
+        int byKey = key.compareTo(otherKey);
+        return byKey != 0 ? byKey : Long.compare(id, otherId);
+    }
+
+    /**
+     * Lower-cases a name. The name itself is returned, and shared by the
+     * index, when it has no upper-case characters.
+     */
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A pending entry, ordered by normalized name and id.
+     */
+    private static final class Entry implements Comparable<Entry> {
+        private final String key;
+        private final long id;
+        private final String name;
+
+        private Entry(String key, long id, String name) {
+            this.key = key;
+            this.id = id;
+            this.name = name;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return compare(key, id, other.key, other.id);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package crud.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position inside a ranked name search.
+ * A cursor points at the last row of a page: its match rank, its lower-cased
+ * name and its id. The next page starts strictly after that position.
+ */
+public final class SearchCursor {
+
+    /**
+     * Rank of names that start with the query.
+     */
+    public static final int RANK_PREFIX = 0;
+
+    /**
+     * Rank of names that only contain the query.
+     */
+    public static final int RANK_SUBSTRING = 1;
+
+    /**
+     * Position before the first result.
+     */
+    public static final SearchCursor START = new SearchCursor(RANK_PREFIX, "", 0L);
+
+    private final int rank;
+    private final String nameKey;
+    private final long id;
+
+    /**
+     * Constructs a new SearchCursor.
+     *
+     * @param rank    The match rank of the last returned row.
+     * @param nameKey The lower-cased name of the last returned row.
+     * @param id      The id of the last returned row.
+     */
+    public SearchCursor(int rank, String nameKey, long id) {
+        this.rank = rank;
+        this.nameKey = nameKey;
+        this.id = id;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public String getNameKey() {
+        return nameKey;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Encodes the cursor into an opaque, URL-safe string.
+     *
+     * @return The encoded cursor.
+     */
+    public String encode() {
+        String raw = rank + ":" + id + ":" + nameKey;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #encode()}.
+     *
+     * @param value The encoded cursor, may be null or empty for the first page.
+     * @return The decoded cursor, or {@link #START} if no cursor was given.
+     * @throws IllegalArgumentException if the value is not a valid cursor.
+     */
+    public static SearchCursor decode(String value) {
+        if (value == null || value.isEmpty()) {
+            return START;
+        }
+        SearchCursor cursor;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int first = raw.indexOf(':');
+            int second = raw.indexOf(':', first + 1);
+            cursor = new SearchCursor(Integer.parseInt(raw.substring(0, first)), raw.substring(second + 1),
+                    Long.parseLong(raw.substring(first + 1, second)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid search cursor: " + value, e);
+        }
+        if (cursor.rank != RANK_PREFIX && cursor.rank != RANK_SUBSTRING) {
+            throw new IllegalArgumentException("Invalid search cursor: " + value);
+        }
+        return cursor;
+    }
+}
@@ -0,0 +1,217 @@
+package crud.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving sketch finding the most frequent ids of a stream in constant
+ * memory.
+ * At most {@code capacity} ids are counted. When a new id arrives and all
+ * counters are taken, the id with the smallest count is replaced and the new
+ * id inherits that count plus one; the inherited part is kept as the error of
+ * the new id. Every id occurring more often than the total count divided by
+ * the capacity is guaranteed to be counted, and no count is too low. The
+ * counters are kept in a min-heap, so each offer takes logarithmic time. The
+ * sketch is safe for concurrent use.
+ */
+public class SpaceSaving {
+
+    /**
+     * A counted id.
+     */
+    public static final class Entry {
+
+        private final long id;
+        private final long count;
+        private final long error;
+
+        private Entry(long id, long count, long error) {
+            this.id = id;
+            this.count = count;
+            this.error = error;
+        }
+
+        /**
+         * Returns the id.
+         *
+         * @return The id.
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Returns the estimated number of occurrences, which is never too low.
+         *
+         * @return The count.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns by how much the count may be too high.
+         *
+         * @return The maximum overestimation.
+         */
+        public long getError() {
+            return error;
+        }
+    }
+
+    private final Map<Long, Slot> slots = new HashMap<>();
+    private final Slot[] heap;
+    private int size;
+
+    /**
+     * Constructs a new SpaceSaving sketch.
+     *
+     * @param capacity The number of ids counted at a time.
+     */
+    public SpaceSaving(int capacity) {
+        this.heap = new Slot[Math.max(1, capacity)];
+    }
+
+    /**
+     * Counts one occurrence of an id.
+     *
+     * @param id The id.
+     */
+    public void offer(long id) {
+        offer(id, 1);
+    }
+
+    /**
+     * Counts several occurrences of an id, for example to restore counts saved
+     * earlier.
+     *
+     * @param id    The id.
+     * @param count The number of occurrences, at least 1.
+     */
+    public synchronized void offer(long id, long count) {
+        Slot slot = slots.get(id);
+        if (slot == null) {
+            if (size < heap.length) {
+                slot = new Slot(id, count, 0, size);
+                heap[size++] = slot;
+                slots.put(id, slot);
+                siftUp(slot.index);
+                return;
+            }
+            slot = heap[0];
+            slots.remove(slot.id);
+            slot.id = id;
+            slot.error = slot.count;
+            slots.put(id, slot);
+        }
+        slot.count += count;
+        siftDown(slot.index);
+    }
+
+    /**
+     * Returns the ids with the highest counts.
+     *
+     * @param limit The maximum number of ids to return.
+     * @return The entries, highest count first.
+     */
+    public synchronized List<Entry> top(int limit) {
+        List<Entry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new Entry(heap[i].id, heap[i].count, heap[i].error));
+        }
+        entries.sort(Comparator.comparingLong(Entry::getCount).reversed().thenComparingLong(Entry::getId));
+        return entries.size() > limit ? new ArrayList<>(entries.subList(0, Math.max(0, limit))) : entries;
+    }
+
+    /**
+     * Halves every count, so that ids that stopped occurring are eventually
+     * replaced. Ids whose count drops to zero are forgotten.
+     */
+    public synchronized void decay() {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            Slot slot = heap[i];
+            slot.count /= 2;
+            slot.error /= 2;
+            if (slot.count > 0) {
+                heap[kept++] = slot;
+            } else {
+                slots.remove(slot.id);
+            }
+        }
+        Arrays.fill(heap, kept, size, null);
+        size = kept;
+        for (int i = 0; i < size; i++) {
+            heap[i].index = i;
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Returns the number of ids counted.
+     *
+     * @return The number of ids.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private void siftUp(int index) {
+        Slot slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent].count <= slot.count) {
+                break;
+            }
+            heap[index] = heap[parent];
+            heap[index].index = index;
+            index = parent;
+        }
+        heap[index] = slot;
+        slot.index = index;
+    }
+
+    private void siftDown(int index) {
+        Slot slot = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (heap[child].count >= slot.count) {
+                break;
+            }
+            heap[index] = heap[child];
+            heap[index].index = index;
+            index = child;
+        }
+        heap[index] = slot;
+        slot.index = index;
+    }
+
+    /**
+     * The counter of one id, at its position in the heap.
+     */
+    private static final class Slot {
+        private long id;
+        private long count;
+        private long error;
+        private int index;
+
+        private Slot(long id, long count, long error, int index) {
+            this.id = id;
+            this.count = count;
+            this.error = error;
+            this.index = index;
+        }
+    }
+}
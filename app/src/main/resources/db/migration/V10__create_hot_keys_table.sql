@@ -0,0 +1,10 @@
+-- Most requested ids per entity type and depth, persisted periodically so a
+-- restarted instance can warm its caches before taking traffic
+CREATE TABLE IF NOT EXISTS hot_keys (
+    entity_type VARCHAR(16) NOT NULL,
+    depth VARCHAR(16) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    hits BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (entity_type, depth, entity_id)
+);
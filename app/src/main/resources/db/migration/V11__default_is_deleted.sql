@@ -0,0 +1,3 @@
+-- Inserts only name the entity, so new rows must not be deleted by default
+ALTER TABLE providers ALTER COLUMN is_deleted SET DEFAULT false;
+ALTER TABLE services ALTER COLUMN is_deleted SET DEFAULT false;
@@ -0,0 +1,13 @@
+-- The counters only count live peers; the V6 backfill also counted links to
+-- deleted entities.
+UPDATE providers p
+SET service_count = (
+    SELECT count(*) FROM provider_service ps
+    JOIN services s ON s.id = ps.service_id AND s.is_deleted = false
+    WHERE ps.provider_id = p.id);
+
+UPDATE services s
+SET provider_count = (
+    SELECT count(*) FROM provider_service ps
+    JOIN providers p ON p.id = ps.provider_id AND p.is_deleted = false
+    WHERE ps.service_id = s.id);
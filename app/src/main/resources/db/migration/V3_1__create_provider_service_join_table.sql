@@ -0,0 +1,16 @@
+-- V3 created the join table as service_provider, while the seed data and every
+-- statement use provider_service, keyed by provider first. Move any existing
+-- links over and drop the old table.
+CREATE TABLE IF NOT EXISTS provider_service (
+    provider_id BIGINT NOT NULL REFERENCES providers (id),
+    service_id BIGINT NOT NULL REFERENCES services (id),
+    PRIMARY KEY (provider_id, service_id)
+);
+
+-- Reads of the providers of a service
+CREATE INDEX IF NOT EXISTS idx_provider_service_service ON provider_service (service_id);
+
+INSERT INTO provider_service (provider_id, service_id)
+SELECT provider_id, service_id FROM service_provider;
+
+DROP TABLE IF EXISTS service_provider;
@@ -23,7 +23,7 @@ INSERT INTO provider_service (provider_id, service_id) VALUES
     (4, 1), -- Provider 4 connected to Service 1
     (4, 2), -- Provider 4 connected to Service 2
     (4, 3), -- Provider 4 connected to Service 3
-    (5, 1); -- Provider 5 connected to Service 1
-    (5, 2); -- Provider 5 connected to Service 2
-    (5, 3); -- Provider 5 connected to Service 3
+    (5, 1), -- Provider 5 connected to Service 1
+    (5, 2), -- Provider 5 connected to Service 2
+    (5, 3), -- Provider 5 connected to Service 3
     (5, 4); -- Provider 5 connected to Service 4
@@ -0,0 +1,19 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Prefix matching and keyset ordering on the lower-cased name
+CREATE INDEX IF NOT EXISTS idx_providers_name_prefix
+    ON providers ((lower(name) COLLATE "C"), id)
+    WHERE is_deleted = false;
+
+CREATE INDEX IF NOT EXISTS idx_services_name_prefix
+    ON services ((lower(name) COLLATE "C"), id)
+    WHERE is_deleted = false;
+
+-- Substring matching through trigrams
+CREATE INDEX IF NOT EXISTS idx_providers_name_trgm
+    ON providers USING gin (lower(name) gin_trgm_ops)
+    WHERE is_deleted = false;
+
+CREATE INDEX IF NOT EXISTS idx_services_name_trgm
+    ON services USING gin (lower(name) gin_trgm_ops)
+    WHERE is_deleted = false;
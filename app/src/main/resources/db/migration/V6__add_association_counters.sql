@@ -0,0 +1,18 @@
+ALTER TABLE providers ADD COLUMN IF NOT EXISTS service_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE services ADD COLUMN IF NOT EXISTS provider_count INTEGER NOT NULL DEFAULT 0;
+
+-- Backfill from the existing links
+UPDATE providers p
+SET service_count = (SELECT count(*) FROM provider_service ps WHERE ps.provider_id = p.id);
+
+UPDATE services s
+SET provider_count = (SELECT count(*) FROM provider_service ps WHERE ps.service_id = s.id);
+
+-- Top-N by degree
+CREATE INDEX IF NOT EXISTS idx_providers_service_count
+    ON providers (service_count DESC, id)
+    WHERE is_deleted = false;
+
+CREATE INDEX IF NOT EXISTS idx_services_provider_count
+    ON services (provider_count DESC, id)
+    WHERE is_deleted = false;
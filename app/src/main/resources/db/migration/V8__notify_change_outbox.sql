@@ -0,0 +1,16 @@
+-- Signals every instance listening on the change_outbox channel when changes
+-- commit, so change feeds and near caches do not wait for their next poll.
+-- Notifications are delivered at commit and identical ones are folded per
+-- transaction, so a write sends at most one.
+CREATE OR REPLACE FUNCTION notify_change_outbox() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('change_outbox', '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS change_outbox_notify ON change_outbox;
+
+CREATE TRIGGER change_outbox_notify
+    AFTER INSERT ON change_outbox
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_change_outbox();
@@ -0,0 +1,18 @@
+CREATE TABLE IF NOT EXISTS imports (
+    id BIGSERIAL PRIMARY KEY,
+    status VARCHAR(16) NOT NULL,
+    rows_processed BIGINT NOT NULL DEFAULT 0,
+    rows_failed BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- External keys of an import resolved to generated ids, so a resumed import
+-- can link entities created before its checkpoint
+CREATE TABLE IF NOT EXISTS import_keys (
+    import_id BIGINT NOT NULL REFERENCES imports (id) ON DELETE CASCADE,
+    entity_type VARCHAR(16) NOT NULL,
+    external_key VARCHAR(255) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    PRIMARY KEY (import_id, entity_type, external_key)
+);
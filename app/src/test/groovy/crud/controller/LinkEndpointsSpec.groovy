@@ -0,0 +1,127 @@
+import spock.lang.Specification
+import org.springframework.context.ApplicationEventPublisher
+import org.springframework.http.HttpStatus
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.web.server.ResponseStatusException
+import crud.controller.ProviderController
+import crud.controller.ServiceController
+import crud.entity.ProviderEntity
+import crud.entity.ServiceEntity
+import crud.service.ChangeFeedService
+
+class LinkEndpointsSpec extends Specification {
+
+    JdbcTemplate jdbcTemplate
+
+    ProviderController providerController = new ProviderController()
+    ServiceController serviceController = new ServiceController()
+
+    def setup() {
+        jdbcTemplate = TestDatabase.reset("link-endpoints")
+        jdbcTemplate.execute("INSERT INTO providers (id, name) VALUES (1, 'Provider 1')")
+        jdbcTemplate.execute("INSERT INTO services (id, name) VALUES (1, 'Service 1')")
+        jdbcTemplate.execute("INSERT INTO services (id, name, is_deleted) VALUES (2, 'Service 2', TRUE)")
+
+        def wiring = new TestWiring(jdbcTemplate, Mock(ChangeFeedService), Mock(ApplicationEventPublisher))
+        [providerController, serviceController].each {
+            it.providerService = wiring.providerService
+            it.serviceService = wiring.serviceService
+            it.existenceFilter = wiring.existenceFilter
+        }
+    }
+
+    def "should link and unlink a service through the provider endpoints"() {
+        when:
+        def response = providerController.addServiceToProvider(1L, 1L)
+
+        then:
+        response.statusCode == HttpStatus.NO_CONTENT
+        links() == 1
+        serviceCount() == 1
+        providerCount() == 1
+        outbox() == ["LINK"]
+
+        when: "the link is added again"
+        providerController.addServiceToProvider(1L, 1L)
+
+        then:
+        links() == 1
+        serviceCount() == 1
+
+        when:
+        response = providerController.removeServiceFromProvider(1L, 1L)
+
+        then:
+        response.statusCode == HttpStatus.NO_CONTENT
+        links() == 0
+        serviceCount() == 0
+        providerCount() == 0
+        outbox() == ["LINK", "UNLINK"]
+    }
+
+    def "should link and unlink a provider through the service endpoints"() {
+        when:
+        serviceController.addProviderToService(1L, 1L)
+
+        then:
+        links() == 1
+        serviceCount() == 1
+
+        when:
+        serviceController.removeProviderFromService(1L, 1L)
+
+        then:
+        links() == 0
+        serviceCount() == 0
+    }
+
+    def "should not link a deleted service"() {
+        when:
+        providerController.addServiceToProvider(1L, 2L)
+
+        then:
+        thrown(ResponseStatusException)
+        links() == 0
+        serviceCount() == 0
+    }
+
+    def "should keep the links of a provider when it is renamed"() {
+        given: "a link to a service that was deleted afterwards"
+        jdbcTemplate.execute("INSERT INTO provider_service (provider_id, service_id) VALUES (1, 2)")
+
+        when:
+        def provider = providerController.updateProvider(1L, new ProviderEntity(name: "Renamed"))
+
+        then:
+        provider.name == "Renamed"
+        jdbcTemplate.queryForObject("SELECT name FROM providers WHERE id = 1", String) == "Renamed"
+        links() == 1
+        serviceCount() == 0
+        outbox() == []
+    }
+
+    def "should not rename a deleted service"() {
+        when:
+        def service = serviceController.updateService(2L, new ServiceEntity(name: "Renamed"))
+
+        then:
+        service == null
+        jdbcTemplate.queryForObject("SELECT name FROM services WHERE id = 2", String) == "Service 2"
+    }
+
+    private long links() {
+        jdbcTemplate.queryForObject("SELECT count(*) FROM provider_service WHERE provider_id = 1", Long)
+    }
+
+    private int serviceCount() {
+        jdbcTemplate.queryForObject("SELECT service_count FROM providers WHERE id = 1", Integer)
+    }
+
+    private int providerCount() {
+        jdbcTemplate.queryForObject("SELECT provider_count FROM services WHERE id = 1", Integer)
+    }
+
+    private List<String> outbox() {
+        jdbcTemplate.queryForList("SELECT operation FROM change_outbox WHERE operation IN ('LINK', 'UNLINK') ORDER BY seq", String)
+    }
+}
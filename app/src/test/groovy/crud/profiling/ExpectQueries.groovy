@@ -0,0 +1,19 @@
+import java.lang.annotation.ElementType
+import java.lang.annotation.Retention
+import java.lang.annotation.RetentionPolicy
+import java.lang.annotation.Target
+
+import org.spockframework.runtime.extension.ExtensionAnnotation
+
+/**
+ * Asserts the number of SQL statements a feature method executes through a
+ * ProfilingDataSource. The closure returns the expected count and may refer
+ * to the data variables of the current iteration, for example
+ * {@code @ExpectQueries({ expected })}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@ExtensionAnnotation(ExpectQueriesExtension)
+@interface ExpectQueries {
+    Class<? extends Closure> value()
+}
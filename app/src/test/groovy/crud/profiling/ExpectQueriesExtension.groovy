@@ -0,0 +1,36 @@
+import org.spockframework.runtime.extension.IAnnotationDrivenExtension
+import org.spockframework.runtime.extension.IMethodInvocation
+import org.spockframework.runtime.model.FeatureInfo
+
+import crud.profiling.StatementCounter
+
+/**
+ * Counts the statements of each iteration of an {@link ExpectQueries} feature
+ * and fails the iteration if the count differs from the expected one.
+ */
+class ExpectQueriesExtension implements IAnnotationDrivenExtension<ExpectQueries> {
+
+    @Override
+    void visitFeatureAnnotation(ExpectQueries annotation, FeatureInfo feature) {
+        feature.featureMethod.addInterceptor { IMethodInvocation invocation ->
+            Map<String, Object> data = [:]
+            feature.parameterNames.eachWithIndex { String name, int i -> data[name] = invocation.arguments[i] }
+
+            Closure expectation = annotation.value().newInstance(invocation.instance, invocation.instance)
+            expectation.delegate = data
+            expectation.resolveStrategy = Closure.DELEGATE_FIRST
+            int expected = expectation.call() as int
+
+            StatementCounter counter = StatementCounter.start(feature.name, 0, false)
+            try {
+                invocation.proceed()
+            } finally {
+                counter.stop()
+            }
+            if (counter.count != expected) {
+                throw new AssertionError("Expected $expected statements but ${counter.count} were executed: "
+                        + counter.countsByName)
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.lang.reflect.Proxy
+import java.sql.Connection
+import java.sql.DatabaseMetaData
+import java.sql.ParameterMetaData
+import java.sql.PreparedStatement
+import java.sql.ResultSet
+import java.sql.ResultSetMetaData
+import java.sql.Statement
+import javax.sql.DataSource
+
+/**
+ * In-memory JDBC stand-in for counting statements without a database.
+ * Every query returns one row whose numeric columns are 1 and whose text
+ * columns are "name"; every update affects one row and generates the key 1.
+ * The columns of a result are the labels of the select list of its statement.
+ */
+class FakeJdbc {
+
+    static DataSource dataSource() {
+        proxy(DataSource) { String method, Object[] args ->
+            method == "getConnection" ? connection() : null
+        }
+    }
+
+    private static Connection connection() {
+        Connection connection
+        connection = proxy(Connection) { String method, Object[] args ->
+            switch (method) {
+                case "prepareStatement": return proxy(PreparedStatement, statementHandler(connection, args[0] as String))
+                case "createStatement": return proxy(Statement, statementHandler(connection, null))
+                case "getAutoCommit": return true
+                case "getMetaData": return proxy(DatabaseMetaData) { String name, Object[] ignored ->
+                    name in ["getDatabaseProductName", "getDriverName"] ? "FakeJdbc" : null
+                }
+                default: return null
+            }
+        }
+        connection
+    }
+
+    private static Closure statementHandler(Connection connection, String sql) {
+        return { String method, Object[] args ->
+            switch (method) {
+                case "executeQuery": return resultSet(labels(args ? args[0] as String : sql))
+                case "executeUpdate": return 1
+                case "execute": return false
+                case "getUpdateCount": return 1
+                case "getGeneratedKeys": return resultSet(["id"])
+                case "getConnection": return connection
+                case "getParameterMetaData": return proxy(ParameterMetaData) { String name, Object[] ignored -> null }
+                default: return null
+            }
+        }
+    }
+
+    private static List<String> labels(String sql) {
+        def select = sql =~ /(?is)^\s*SELECT\s+(.*?)\s+FROM\s/
+        if (!select.find()) {
+            return ["id"]
+        }
+        select.group(1).split(",").collect { it.trim().split(/\s+/).last().replaceAll(/^.*\./, "") }
+    }
+
+    private static ResultSet resultSet(List<String> labels) {
+        int rows = 1
+        ResultSetMetaData metaData = proxy(ResultSetMetaData) { String method, Object[] args ->
+            switch (method) {
+                case "getColumnCount": return labels.size()
+                case "getColumnLabel":
+                case "getColumnName": return labels[(args[0] as int) - 1]
+                default: return null
+            }
+        }
+        proxy(ResultSet) { String method, Object[] args ->
+            switch (method) {
+                case "next": return rows-- > 0
+                case "getLong": return 1L
+                case "getInt": return 1
+                case "getString": return "name"
+                case "getObject": return 1L
+                case "wasNull": return false
+                case "getMetaData": return metaData
+                default: return null
+            }
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, Closure handler) {
+        (T) Proxy.newProxyInstance(FakeJdbc.classLoader, [type] as Class[]) { proxy, method, args ->
+            def result = handler.call(method.name, args)
+            if (result == null && method.returnType.primitive && method.returnType != void.class) {
+                return method.returnType == boolean.class ? false : 0.asType(method.returnType)
+            }
+            result
+        }
+    }
+}
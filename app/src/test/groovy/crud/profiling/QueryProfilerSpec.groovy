@@ -0,0 +1,70 @@
+import java.util.concurrent.TimeUnit
+
+import spock.lang.Specification
+import crud.profiling.QueryProfiler
+import crud.profiling.QueryScope
+
+class QueryProfilerSpec extends Specification {
+
+    QueryProfiler profiler = new QueryProfiler(1000, false)
+
+    def "should rank statements by their slowest execution"() {
+        given:
+        profiler.record("provider.findById.shallow", "SELECT 1", [] as Object[], ms(2), 1, false)
+        profiler.record("provider.findById.shallow", "SELECT 1", [] as Object[], ms(40), 1, false)
+        profiler.record("provider.findAll.medium", "SELECT 2", [] as Object[], ms(10), 500, false)
+
+        when:
+        def profiles = profiler.getSlowest(10, "max")
+
+        then:
+        profiles*.name == ["provider.findById.shallow", "provider.findAll.medium"]
+        profiles[0].count == 2
+        profiles[0].rows == 2
+        profiles[0].maxMs == 40.0d
+        profiles[0].histogram*.count.sum() == 2
+        profiler.getSlowest(1, "total")*.name == ["provider.findById.shallow"]
+    }
+
+    def "should cap percentiles at the largest latency"() {
+        given:
+        profiler.record("service.search", "SELECT 3", [] as Object[], ms(3), 0, false)
+
+        when:
+        def profile = profiler.getSlowest(1, "mean")[0]
+
+        then:
+        profile.p50Ms == 3.0d
+        profile.p99Ms == 3.0d
+        profile.histogram.size() == 1
+        profile.histogram[0].fromMs <= 3.0d
+        profile.histogram[0].toMs > 3.0d
+    }
+
+    def "should reject an unknown ordering"() {
+        when:
+        profiler.getSlowest(10, "median")
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "should restore the enclosing query name when a scope closes"() {
+        when:
+        def outer = QueryScope.open("provider.update")
+        def inner = QueryScope.open("outbox.append")
+        def innerName = QueryScope.currentName()
+        inner.close()
+        def outerName = QueryScope.currentName()
+        outer.close()
+
+        then:
+        innerName == "outbox.append"
+        outerName == "provider.update"
+        QueryScope.currentName() == QueryScope.UNNAMED
+    }
+
+    private static long ms(long millis) {
+        TimeUnit.MILLISECONDS.toNanos(millis)
+    }
+}
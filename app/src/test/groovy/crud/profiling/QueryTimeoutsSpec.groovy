@@ -0,0 +1,167 @@
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+import spock.lang.Specification
+import spock.lang.Timeout
+import spock.lang.Unroll
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.dao.QueryTimeoutException
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import crud.config.QueryTimeoutProperties
+import crud.profiling.ProfilingDataSource
+import crud.profiling.QueryCancellation
+import crud.profiling.QueryCancellation.Reason
+import crud.profiling.QueryProfiler
+import crud.profiling.QueryScope
+import crud.profiling.QueryTimeouts
+import crud.profiling.RequestDeadlineFilter
+
+@Timeout(30)
+class QueryTimeoutsSpec extends Specification {
+
+    static final String URL = "jdbc:h2:mem:query-timeouts;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"
+
+    // Runs for many seconds unless cancelled.
+    static final String SLOW_SQL = "SELECT MAX(RAND()) FROM SYSTEM_RANGE(1, 100000) a, SYSTEM_RANGE(1, 100000) b"
+
+    QueryTimeoutProperties properties = new QueryTimeoutProperties(
+            depths: [deep: 50L, medium: 5000L],
+            operations: ["provider.findAll.deep": 20L, "service.findAll": 30L])
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    QueryTimeouts timeouts = new QueryTimeouts(properties, meterRegistry)
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(new ProfilingDataSource(new DriverManagerDataSource(URL, "sa", ""),
+            new QueryProfiler(1000, false), timeouts))
+
+    def cleanup() {
+        timeouts.destroy()
+    }
+
+    @Unroll
+    def "should resolve the timeout of #name to #expected ms"() {
+        expect:
+        timeouts.timeoutMs(name) == expected
+
+        where:
+        name                        | expected
+        "provider.findAll.deep"     | 20
+        "service.findAll.deep"      | 30
+        "provider.findById.deep"    | 50
+        "provider.findById.medium"  | 5000
+        "provider.findById.shallow" | 0
+        "outbox.append"             | 0
+    }
+
+    def "should cancel a statement that exceeds the timeout of its operation"() {
+        when:
+        def scope = QueryScope.open("provider.findAll.deep")
+        try {
+            jdbcTemplate.queryForObject(SLOW_SQL, Double)
+        } finally {
+            scope.close()
+        }
+
+        then:
+        def e = thrown(QueryTimeoutException)
+        e.message.contains("exceeded its timeout of 20 ms")
+        cancelled("provider.findAll.deep", "timeout") == 1
+    }
+
+    def "should cancel the running statement when the deadline passes and reject the next one"() {
+        given:
+        def cancellation = QueryCancellation.start(System.nanoTime() + 50_000_000L)
+
+        when:
+        def first = failure { jdbcTemplate.queryForObject(SLOW_SQL, Double) }
+        def second = failure { jdbcTemplate.queryForObject("SELECT 1", Long) }
+
+        then:
+        first instanceof QueryTimeoutException
+        second instanceof QueryTimeoutException
+        cancellation.reason == Reason.DEADLINE
+        cancelled(QueryScope.UNNAMED, "deadline") == 2
+
+        cleanup:
+        cancellation.stop()
+    }
+
+    def "should cancel the running statement from another thread"() {
+        given:
+        def cancellation = QueryCancellation.start(0)
+        def canceller = Thread.start {
+            Thread.sleep(100)
+            cancellation.cancel(Reason.DISCONNECT)
+        }
+
+        when:
+        def e = failure { jdbcTemplate.queryForObject(SLOW_SQL, Double) }
+        canceller.join()
+
+        then:
+        e instanceof QueryTimeoutException
+        cancelled(QueryScope.UNNAMED, "disconnect") == 1
+
+        cleanup:
+        cancellation.stop()
+    }
+
+    def "should cancel the statements of tasks running in the scope on other threads"() {
+        given:
+        def executor = Executors.newFixedThreadPool(2)
+        def cancellation = QueryCancellation.start(0)
+        def task = QueryCancellation.propagate({ failure { jdbcTemplate.queryForObject(SLOW_SQL, Double) } } as Callable)
+
+        when:
+        def workers = [executor.submit(task), executor.submit(task)]
+        Thread.sleep(100)
+        cancellation.cancel(Reason.DISCONNECT)
+
+        then:
+        workers*.get().every { it instanceof QueryTimeoutException }
+        cancelled(QueryScope.UNNAMED, "disconnect") == 2
+
+        cleanup:
+        cancellation.stop()
+        executor.shutdownNow()
+    }
+
+    def "should run statements within their limits"() {
+        given:
+        def cancellation = QueryCancellation.start(System.nanoTime() + 10_000_000_000L)
+
+        expect:
+        jdbcTemplate.queryForObject("SELECT 1", Long) == 1
+
+        cleanup:
+        cancellation.stop()
+    }
+
+    @Unroll
+    def "should combine a header of #header with a request timeout of #configured ms into #expected ms"() {
+        expect:
+        RequestDeadlineFilter.timeoutMs(header, configured) == expected
+
+        where:
+        header  | configured | expected
+        null    | 0          | 0
+        "250"   | 0          | 250
+        null    | 1000       | 1000
+        "250"   | 1000       | 250
+        "5000"  | 1000       | 1000
+        "0"     | 0          | 1
+        "later" | 1000       | 1000
+    }
+
+    private double cancelled(String query, String reason) {
+        meterRegistry.find("crud.queries.cancelled").tag("query", query).tag("reason", reason).counter()?.count() ?: 0
+    }
+
+    private static Throwable failure(Closure work) {
+        try {
+            work()
+            return null
+        } catch (Throwable e) {
+            return e
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import spock.lang.Requires
+import spock.lang.Specification
+import org.springframework.mock.web.MockFilterChain
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.web.servlet.HandlerMapping
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import crud.profiling.RequestResources
+import crud.profiling.RequestResources.Phase
+import crud.profiling.ResourceUsageFilter
+import crud.service.DepthDegrader
+
+@Requires({ RequestResources.isSupported() })
+class ResourceUsageFilterSpec extends Specification {
+
+    static final int ALLOCATION = 4 * 1024 * 1024
+
+    def "should attribute allocations to the phase they happen in"() {
+        given:
+        def resources = RequestResources.start()
+
+        when:
+        def sql = RequestResources.enter(Phase.SQL)
+        def nested = RequestResources.enter(Phase.SERIALIZATION)
+        allocate()
+        nested.close()
+        sql.close()
+        allocate()
+        resources.stop()
+
+        then:
+        resources.getBytes(Phase.SQL) >= ALLOCATION
+        resources.getBytes(Phase.SERIALIZATION) == 0
+        resources.getBytes(Phase.OTHER) >= ALLOCATION
+        resources.totalBytes >= resources.getBytes(Phase.SQL) + resources.getBytes(Phase.OTHER)
+    }
+
+    def "should record each phase tagged by endpoint and served depth and return the debug header"() {
+        given:
+        def meterRegistry = new SimpleMeterRegistry()
+        def filter = new ResourceUsageFilter(true, true, meterRegistry)
+        def request = new MockHttpServletRequest("GET", "/providers/1")
+        request.setParameter("depth", "DEEP")
+        def response = new MockHttpServletResponse()
+        def chain = new MockFilterChain() {
+            @Override
+            void doFilter(jakarta.servlet.ServletRequest req, jakarta.servlet.ServletResponse res) {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/providers/{id}")
+                res.setHeader(DepthDegrader.HEADER, "medium")
+                def scope = RequestResources.enter(Phase.EXTRACTION)
+                allocate()
+                scope.close()
+                res.writer.write("{}")
+            }
+        }
+
+        when:
+        filter.doFilter(request, response, chain)
+
+        then:
+        def extraction = meterRegistry.find("crud.request.allocation")
+                .tags("endpoint", "GET /providers/{id}", "depth", "medium", "phase", "extraction").summary()
+        extraction.count() == 1
+        extraction.totalAmount() >= ALLOCATION
+        meterRegistry.find("crud.request.cpu").tags("phase", "total").timer().count() == 1
+        response.getHeader(ResourceUsageFilter.HEADER).startsWith("total;bytes=")
+        response.getHeader(ResourceUsageFilter.HEADER).contains("extraction;bytes=")
+        response.contentAsString == "{}"
+    }
+
+    private static byte[] allocate() {
+        def bytes = new byte[ALLOCATION]
+        bytes[ALLOCATION - 1] = 1
+        bytes
+    }
+}
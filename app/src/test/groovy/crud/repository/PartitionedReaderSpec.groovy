@@ -0,0 +1,87 @@
+import spock.lang.Specification
+import spock.lang.Unroll
+import org.springframework.context.ApplicationEventPublisher
+import org.springframework.jdbc.core.JdbcTemplate
+import crud.repository.PartitionedReader
+import crud.repository.ProviderRepository
+import crud.repository.ServiceRepository
+import crud.utils.DepthLevel
+
+class PartitionedReaderSpec extends Specification {
+
+    JdbcTemplate jdbcTemplate
+
+    def setup() {
+        jdbcTemplate = TestDatabase.reset("partitioned-reads")
+    }
+
+    @Unroll
+    def "should read the same providers in #parallelism partitions as serially"() {
+        given:
+        seed(97)
+
+        expect:
+        def serial = providers(0).findAll(DepthLevel.MEDIUM)
+        !serial.isEmpty()
+        providers(parallelism).findAll(DepthLevel.MEDIUM).collect { [it.id, it.name, it.services*.id] } ==
+                serial.collect { [it.id, it.name, it.services*.id] }
+
+        where:
+        parallelism << [1, 2, 3, 8]
+    }
+
+    @Unroll
+    def "should read the same services in #parallelism partitions as serially"() {
+        given:
+        seed(97)
+
+        expect:
+        def serial = services(0).findAll(DepthLevel.MEDIUM)
+        !serial.isEmpty()
+        services(parallelism).findAll(DepthLevel.MEDIUM).collect { [it.id, it.name, it.providers*.id] } ==
+                serial.collect { [it.id, it.name, it.providers*.id] }
+
+        where:
+        parallelism << [1, 2, 3, 8]
+    }
+
+    def "should read nothing from an empty table"() {
+        expect:
+        providers(4).findAll(DepthLevel.MEDIUM).isEmpty()
+    }
+
+    def "should not split ranges narrower than the minimum partition size"() {
+        given:
+        def reader = new PartitionedReader(jdbcTemplate, true, 8, 100, 2)
+
+        expect:
+        reader.partitionsFor(50) == 1
+        reader.partitionsFor(350) == 3
+        reader.partitionsFor(100_000) == 8
+    }
+
+    private void seed(int count) {
+        (1..count).each { id ->
+            jdbcTemplate.update("INSERT INTO providers (id, name, is_deleted) VALUES (?, ?, ?)", id, "Provider " + id, id % 13 == 0)
+            jdbcTemplate.update("INSERT INTO services (id, name, is_deleted) VALUES (?, ?, ?)", id, "Service " + id, id % 11 == 0)
+        }
+        (1..count).each { provider ->
+            (1..3).each { step ->
+                long service = (provider * 7 + step * 31) % count + 1
+                jdbcTemplate.update("INSERT INTO provider_service VALUES (?, ?)", provider, service)
+            }
+        }
+    }
+
+    private ProviderRepository providers(int parallelism) {
+        TestWiring.providerRepository(jdbcTemplate, Mock(ApplicationEventPublisher), reader(parallelism))
+    }
+
+    private ServiceRepository services(int parallelism) {
+        TestWiring.serviceRepository(jdbcTemplate, Mock(ApplicationEventPublisher), reader(parallelism))
+    }
+
+    private PartitionedReader reader(int parallelism) {
+        new PartitionedReader(jdbcTemplate, parallelism > 0, Math.max(1, parallelism), 1, 0)
+    }
+}
@@ -1,34 +1,36 @@
 import spock.lang.Specification
-import spock.lang.AutoCleanup
 import spock.lang.Subject
-import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
-import org.springframework.boot.test.context.SpringBootTest
-import org.springframework.transaction.annotation.Transactional
+import org.springframework.context.ApplicationEventPublisher
+import org.springframework.jdbc.core.JdbcTemplate
 import crud.entity.ProviderEntity
 import crud.entity.ServiceEntity
+import crud.mapper.ProviderResultExtractor
 import crud.utils.DepthLevel
 import crud.repository.ProviderRepository
+import crud.repository.QueryRegistry
+import crud.repository.QueryRegistry.Operation
+import crud.utils.EntityType
 
-@SpringBootTest
-@AutoConfigureTestDatabase
-@Transactional
 class ProviderRepositorySpec extends Specification {
 
+    JdbcTemplate jdbcTemplate
+
     @Subject
     ProviderRepository providerRepository
 
-    @AutoCleanup
     ProviderEntity createdProvider
 
     def setup() {
-        providerRepository = new ProviderRepository(jdbcTemplate)
+        jdbcTemplate = TestDatabase.reset("provider-repository")
+        providerRepository = TestWiring.providerRepository(jdbcTemplate, Mock(ApplicationEventPublisher))
     }
 
     def "should save a new provider with services"() {
         given:
+        jdbcTemplate.update("INSERT INTO services (id, name) VALUES (1, 'Service 1'), (2, 'Service 2')")
         ProviderEntity provider = new ProviderEntity(name: "Test Provider")
-        ServiceEntity service1 = new ServiceEntity(name: "Service 1")
-        ServiceEntity service2 = new ServiceEntity(name: "Service 2")
+        ServiceEntity service1 = new ServiceEntity(1L, "Service 1")
+        ServiceEntity service2 = new ServiceEntity(2L, "Service 2")
         provider.setServices([service1, service2])
 
         when:
@@ -39,6 +41,7 @@ class ProviderRepositorySpec extends Specification {
         createdProvider.name == "Test Provider"
         createdProvider.services.size() == 2
         createdProvider.services*.name == ["Service 1", "Service 2"]
+        jdbcTemplate.queryForObject("SELECT count(*) FROM provider_service WHERE provider_id = ?", Long, createdProvider.id) == 2
     }
 
     def "should find all providers with shallow depth"() {
@@ -75,8 +78,7 @@ class ProviderRepositorySpec extends Specification {
         def existingProvider = providerRepository.findById(providerId, DepthLevel.SHALLOW).orElseThrow()
 
         when:
-        existingProvider.name = "Updated Provider"
-        createdProvider = providerRepository.update(existingProvider)
+        createdProvider = providerRepository.update(new ProviderEntity(existingProvider.id(), "Updated Provider"))
 
         then:
         createdProvider.name == "Updated Provider"
@@ -91,7 +93,40 @@ class ProviderRepositorySpec extends Specification {
         providerRepository.delete(providerId)
 
         then:
-        def deletedProvider = jdbcTemplate.query("SELECT * FROM providers WHERE id = ?", new ProviderResultExtractor(), providerId)
+        def deletedProvider = jdbcTemplate.query(QueryRegistry.sql(EntityType.PROVIDER, Operation.FIND_BY_ID, DepthLevel.SHALLOW),
+                new ProviderResultExtractor(), providerId)
         deletedProvider.isEmpty()
     }
+
+    def "should stop counting a deleted provider in its services"() {
+        given:
+        jdbcTemplate.update("INSERT INTO services (id, name) VALUES (1, 'Service 1'), (2, 'Service 2')")
+        def provider = new ProviderEntity(name: "Provider")
+        provider.setServices([new ServiceEntity(1L, "Service 1"), new ServiceEntity(2L, "Service 2")])
+        def providerId = providerRepository.save(provider).id
+        jdbcTemplate.update("UPDATE services SET is_deleted = true WHERE id = 2")
+
+        when:
+        providerRepository.delete(providerId)
+        providerRepository.delete(providerId)
+
+        then:
+        jdbcTemplate.queryForObject("SELECT provider_count FROM services WHERE id = 1", Integer) == 0
+        jdbcTemplate.queryForObject("SELECT count(*) FROM provider_service WHERE provider_id = ?", Long, providerId) == 2
+        jdbcTemplate.queryForList("SELECT operation FROM change_outbox WHERE entity_type = 'PROVIDER' ORDER BY seq", String)
+                .count("DELETE") == 1
+    }
+
+    def "should not count a link to a deleted service"() {
+        given:
+        jdbcTemplate.update("INSERT INTO services (id, name, is_deleted) VALUES (1, 'Service 1', TRUE)")
+        def provider = new ProviderEntity(name: "Provider")
+        provider.setServices([new ServiceEntity(1L, "Service 1")])
+
+        when:
+        def providerId = providerRepository.save(provider).id
+
+        then:
+        jdbcTemplate.queryForObject("SELECT service_count FROM providers WHERE id = ?", Integer, providerId) == 0
+    }
 }
@@ -0,0 +1,115 @@
+import spock.lang.Specification
+import org.springframework.jdbc.core.JdbcTemplate
+import crud.mapper.ProviderResultExtractor
+import crud.mapper.ServiceResultExtractor
+import crud.profiling.ProfilingDataSource
+import crud.profiling.QueryProfiler
+import crud.profiling.QueryScope
+import crud.repository.QueryRegistry
+import crud.repository.QueryRegistry.Operation
+import crud.utils.DepthLevel
+import crud.utils.EntityType
+
+class QueryRegistrySpec extends Specification {
+
+    JdbcTemplate jdbcTemplate
+    QueryProfiler profiler = new QueryProfiler(1000, false)
+
+    def setup() {
+        jdbcTemplate = TestDatabase.reset("registry")
+    }
+
+    def "should validate every registered statement against the schema"() {
+        given:
+        def registry = new QueryRegistry(jdbcTemplate, profiler, true, true)
+
+        when:
+        registry.validate()
+
+        then:
+        registry.queries.size() == 14
+        registry.queries.every { it.valid && it.prepareMs >= 0 }
+        registry.queries*.name.toUnique().size() == 14
+        registry.queries*.name.containsAll(["provider.findById.deep", "service.findAll.medium",
+                "provider.findAllRange.medium", "service.delete"])
+    }
+
+    def "should fail the startup on a statement the schema does not support"() {
+        given:
+        jdbcTemplate.execute("ALTER TABLE services DROP COLUMN is_deleted")
+
+        when:
+        new QueryRegistry(jdbcTemplate, profiler, true, true).validate()
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message.contains("service.findById.shallow")
+        e.message.contains("provider.findById.medium")
+    }
+
+    def "should report invalid statements when they do not fail the startup"() {
+        given:
+        jdbcTemplate.execute("DROP TABLE provider_service")
+        def registry = new QueryRegistry(jdbcTemplate, profiler, true, false)
+
+        when:
+        registry.validate()
+
+        then:
+        registry.queries.find { it.name == "provider.findById.shallow" }.valid
+        !registry.queries.find { it.name == "provider.findById.medium" }.valid
+        registry.queries.find { it.name == "provider.findById.medium" }.error != null
+    }
+
+    def "should read entities at every depth with the registered statements"() {
+        given: "p1 - s1 - p2 and a deleted service linked to p1"
+        jdbcTemplate.execute("INSERT INTO providers (id, name) VALUES (1, 'Provider 1'), (2, 'Provider 2'), (3, 'Provider 3')")
+        jdbcTemplate.execute("INSERT INTO services (id, name) VALUES (1, 'Service 1')")
+        jdbcTemplate.execute("INSERT INTO services (id, name, is_deleted) VALUES (2, 'Service 2', true)")
+        jdbcTemplate.execute("INSERT INTO provider_service VALUES (1, 1), (2, 1), (1, 2)")
+
+        expect:
+        providers(Operation.FIND_BY_ID, DepthLevel.SHALLOW, 1)*.name() == ["Provider 1"]
+        providers(Operation.FIND_BY_ID, DepthLevel.MEDIUM, 1)[0].services()*.id() == [1L]
+        providers(Operation.FIND_BY_ID, DepthLevel.MEDIUM, 3)[0].services().isEmpty()
+        providers(Operation.FIND_BY_ID, DepthLevel.DEEP, 1)[0].services()[0].providers()*.id() as Set == [1L, 2L] as Set
+        providers(Operation.FIND_ALL, DepthLevel.MEDIUM).collect { [it.id(), it.services()*.id()] } == [[1L, [1L]], [2L, [1L]], [3L, []]]
+        services(Operation.FIND_BY_ID, DepthLevel.DEEP, 1)[0].providers().find { it.id() == 1L }.services()*.id() == [1L]
+        services(Operation.FIND_ALL, DepthLevel.SHALLOW)*.id() == [1L]
+    }
+
+    def "should expose the executions of the registered statements"() {
+        given:
+        def profiled = new JdbcTemplate(new ProfilingDataSource(jdbcTemplate.dataSource, profiler))
+        def registry = new QueryRegistry(profiled, profiler, true, true)
+        registry.validate()
+
+        when:
+        2.times {
+            try (def ignored = QueryScope.open(QueryRegistry.name(EntityType.PROVIDER, Operation.FIND_BY_ID, DepthLevel.SHALLOW))) {
+                profiled.query(QueryRegistry.sql(EntityType.PROVIDER, Operation.FIND_BY_ID, DepthLevel.SHALLOW),
+                        new ProviderResultExtractor(), 1L)
+            }
+        }
+
+        then:
+        registry.queries.find { it.name == "provider.findById.shallow" }.executions == 2
+        registry.queries.find { it.name == "provider.findById.medium" }.executions == 0
+    }
+
+    def "should reject combinations without a statement"() {
+        when:
+        QueryRegistry.sql(EntityType.PROVIDER, Operation.FIND_ALL, DepthLevel.DEEP)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    private List providers(Operation operation, DepthLevel depth, Object... args) {
+        jdbcTemplate.query(QueryRegistry.sql(EntityType.PROVIDER, operation, depth), new ProviderResultExtractor(), args)
+    }
+
+    private List services(Operation operation, DepthLevel depth, Object... args) {
+        jdbcTemplate.query(QueryRegistry.sql(EntityType.SERVICE, operation, depth), new ServiceResultExtractor(), args)
+    }
+}
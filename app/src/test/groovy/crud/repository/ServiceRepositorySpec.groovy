@@ -1,34 +1,36 @@
 import spock.lang.Specification
-import spock.lang.AutoCleanup
 import spock.lang.Subject
-import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
-import org.springframework.boot.test.context.SpringBootTest
-import org.springframework.transaction.annotation.Transactional
+import org.springframework.context.ApplicationEventPublisher
+import org.springframework.jdbc.core.JdbcTemplate
 import crud.entity.ProviderEntity
 import crud.entity.ServiceEntity
+import crud.mapper.ServiceResultExtractor
 import crud.utils.DepthLevel
 import crud.repository.ServiceRepository
+import crud.repository.QueryRegistry
+import crud.repository.QueryRegistry.Operation
+import crud.utils.EntityType
 
-@SpringBootTest
-@AutoConfigureTestDatabase
-@Transactional
 class ServiceRepositorySpec extends Specification {
 
+    JdbcTemplate jdbcTemplate
+
     @Subject
     ServiceRepository serviceRepository
 
-    @AutoCleanup
     ServiceEntity createdService
 
     def setup() {
-        serviceRepository = new ServiceRepository(jdbcTemplate)
+        jdbcTemplate = TestDatabase.reset("service-repository")
+        serviceRepository = TestWiring.serviceRepository(jdbcTemplate, Mock(ApplicationEventPublisher))
     }
 
     def "should save a new service with providers"() {
         given:
+        jdbcTemplate.update("INSERT INTO providers (id, name) VALUES (1, 'Provider 1'), (2, 'Provider 2')")
         ServiceEntity service = new ServiceEntity(name: "Test Service")
-        ProviderEntity provider1 = new ProviderEntity(name: "Provider 1")
-        ProviderEntity provider2 = new ProviderEntity(name: "Provider 2")
+        ProviderEntity provider1 = new ProviderEntity(1L, "Provider 1")
+        ProviderEntity provider2 = new ProviderEntity(2L, "Provider 2")
         service.setProviders([provider1, provider2])
 
         when:
@@ -39,6 +41,7 @@ class ServiceRepositorySpec extends Specification {
         createdService.name == "Test Service"
         createdService.providers.size() == 2
         createdService.providers*.name == ["Provider 1", "Provider 2"]
+        jdbcTemplate.queryForObject("SELECT count(*) FROM provider_service WHERE service_id = ?", Long, createdService.id) == 2
     }
 
     def "should find all services with shallow depth"() {
@@ -75,8 +78,7 @@ class ServiceRepositorySpec extends Specification {
         def existingService = serviceRepository.findById(serviceId, DepthLevel.SHALLOW).orElseThrow()
 
         when:
-        existingService.name = "Updated Service"
-        createdService = serviceRepository.update(existingService)
+        createdService = serviceRepository.update(new ServiceEntity(existingService.id(), "Updated Service"))
 
         then:
         createdService.name == "Updated Service"
@@ -91,7 +93,8 @@ class ServiceRepositorySpec extends Specification {
         serviceRepository.delete(serviceId)
 
         then:
-        def deletedService = jdbcTemplate.query("SELECT * FROM services WHERE id = ?", new ServiceResultExtractor(), serviceId)
+        def deletedService = jdbcTemplate.query(QueryRegistry.sql(EntityType.SERVICE, Operation.FIND_BY_ID, DepthLevel.SHALLOW),
+                new ServiceResultExtractor(), serviceId)
         deletedService.isEmpty()
     }
 }
@@ -0,0 +1,19 @@
+import org.springframework.core.io.ClassPathResource
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator
+
+/**
+ * Named in-memory H2 databases in PostgreSQL mode, recreated from
+ * test-schema.sql. A database lives until the JVM exits, so specs reset it in
+ * their setup.
+ */
+class TestDatabase {
+
+    static JdbcTemplate reset(String name) {
+        def dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:$name;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "")
+        new ResourceDatabasePopulator(new ClassPathResource("test-schema.sql")).execute(dataSource)
+        new JdbcTemplate(dataSource)
+    }
+}
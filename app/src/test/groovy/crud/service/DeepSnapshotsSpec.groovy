@@ -0,0 +1,103 @@
+import spock.lang.Specification
+import spock.lang.Timeout
+import spock.util.concurrent.PollingConditions
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import crud.event.EntityChangedEvent
+import crud.model.ProviderRecord
+import crud.model.ServiceRecord
+import crud.repository.ProviderRepository
+import crud.repository.ServiceRepository
+import crud.service.ChangeFeedService
+import crud.service.DeepSnapshots
+import crud.utils.ChangeOperation
+import crud.utils.DepthLevel
+import crud.utils.EntityType
+
+@Timeout(10)
+class DeepSnapshotsSpec extends Specification {
+
+    ProviderRepository providerRepository = Mock()
+    ServiceRepository serviceRepository = Mock()
+    DeepSnapshots deepSnapshots
+    String serviceName = "Service 2"
+    int loads
+
+    def setup() {
+        providerRepository.findById(_, DepthLevel.DEEP) >> { Long id, DepthLevel depth -> loads++; Optional.of(deepProvider(id)) }
+    }
+
+    def cleanup() {
+        deepSnapshots?.stop()
+    }
+
+    def "should serve repeated DEEP reads from the snapshot"() {
+        given:
+        start(200, 2000)
+
+        when:
+        3.times { deepSnapshots.getProvider(1L) }
+
+        then:
+        1 * providerRepository.findById(1L, DepthLevel.DEEP) >> Optional.of(deepProvider(1L))
+    }
+
+    def "should rebuild a snapshot once after a burst of changes it shows"() {
+        given:
+        start(200, 2000)
+        deepSnapshots.getProvider(1L)
+
+        when:
+        serviceName = "Renamed"
+        5.times { change(EntityType.SERVICE, 2L) }
+
+        then: "the stale snapshot is served until the refresh lands"
+        deepSnapshots.getProvider(1L).get().services[0].name == "Service 2"
+        new PollingConditions(timeout: 5).eventually {
+            assert deepSnapshots.getProvider(1L).get().services[0].name == "Renamed"
+        }
+        loads == 2
+    }
+
+    def "should read from the database once a snapshot is staler than allowed"() {
+        given:
+        start(60000, 0)
+        deepSnapshots.getProvider(1L)
+
+        when:
+        serviceName = "Renamed"
+        change(EntityType.SERVICE, 2L)
+        sleep(5)
+
+        then:
+        deepSnapshots.getProvider(1L).get().services[0].name == "Renamed"
+    }
+
+    def "should leave snapshots not showing a changed entity fresh"() {
+        given:
+        start(10, 2000)
+        deepSnapshots.getProvider(1L)
+
+        when:
+        serviceName = "Renamed"
+        change(EntityType.SERVICE, 9L)
+        sleep(100)
+
+        then:
+        deepSnapshots.getProvider(1L).get().services[0].name == "Service 2"
+    }
+
+    private void start(long debounceMs, long maxStalenessMs) {
+        deepSnapshots = new DeepSnapshots(true, debounceMs, maxStalenessMs, 100, providerRepository, serviceRepository,
+                Mock(ChangeFeedService), new SimpleMeterRegistry())
+    }
+
+    private void change(EntityType type, Long id) {
+        deepSnapshots.onEntityChanged(new EntityChangedEvent(type, id, ChangeOperation.UPDATE, null))
+    }
+
+    private ProviderRecord deepProvider(Long id) {
+        def service = new ServiceRecord(2L, serviceName,
+                [ProviderRecord.shallow(id, "Provider " + id), ProviderRecord.shallow(3L, "Provider 3")])
+        new ProviderRecord(id, "Provider " + id, [service])
+    }
+}
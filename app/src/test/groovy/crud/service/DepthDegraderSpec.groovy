@@ -0,0 +1,88 @@
+import spock.lang.Specification
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import crud.profiling.QueryProfiler
+import crud.service.DepthDegrader
+import crud.utils.DepthLevel
+
+class DepthDegraderSpec extends Specification {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    DepthDegrader degrader = new DepthDegrader(true, 0.9d, 0.6d, 250, 100, 1000,
+            new DriverManagerDataSource("jdbc:h2:mem:depth-degrader"), new QueryProfiler(1000, false), meterRegistry)
+
+    def "should serve the requested depth while the database is not saturated"() {
+        when:
+        degrader.evaluate(0.5d, 20, 0)
+
+        then:
+        degrader.serve(DepthLevel.DEEP, true) == DepthLevel.DEEP
+        degrader.cap == DepthLevel.DEEP
+    }
+
+    def "should step the cap down one depth per overloaded evaluation"() {
+        when:
+        degrader.evaluate(0.95d, 20, 0)
+
+        then:
+        degrader.serve(DepthLevel.DEEP, true) == DepthLevel.MEDIUM
+        degrader.serve(DepthLevel.MEDIUM, true) == DepthLevel.MEDIUM
+
+        when:
+        degrader.evaluate(0.5d, 400, 1000)
+        degrader.evaluate(0.5d, 400, 2000)
+
+        then:
+        degrader.serve(DepthLevel.DEEP, true) == DepthLevel.SHALLOW
+        degrader.serve(DepthLevel.MEDIUM, true) == DepthLevel.SHALLOW
+        degradations("deep", "medium") == 1
+        degradations("deep", "shallow") == 1
+        degradations("medium", "shallow") == 1
+    }
+
+    def "should not degrade requests that do not allow it"() {
+        given:
+        degrader.evaluate(1.0d, 1000, 0)
+
+        expect:
+        degrader.serve(DepthLevel.DEEP, false) == DepthLevel.DEEP
+        degradations("deep", "medium") == 0
+    }
+
+    def "should lift the cap only after the load stayed low for the recovery period"() {
+        given:
+        degrader.evaluate(1.0d, 0, 0)
+        degrader.evaluate(1.0d, 0, 0)
+
+        when: "the load is between the thresholds"
+        degrader.evaluate(0.7d, 50, 1000)
+        degrader.evaluate(0.7d, 50, 5000)
+
+        then:
+        degrader.cap == DepthLevel.SHALLOW
+
+        when: "the load is low but not for long enough"
+        degrader.evaluate(0.3d, 50, 6000)
+        degrader.evaluate(0.3d, 50, 6500)
+
+        then:
+        degrader.cap == DepthLevel.SHALLOW
+
+        when:
+        degrader.evaluate(0.3d, 50, 7000)
+
+        then:
+        degrader.cap == DepthLevel.MEDIUM
+
+        when:
+        degrader.evaluate(0.3d, 50, 7500)
+        degrader.evaluate(0.3d, 50, 8000)
+
+        then:
+        degrader.cap == DepthLevel.DEEP
+    }
+
+    private double degradations(String requested, String served) {
+        meterRegistry.get("crud.depth.degradations").tag("requested", requested).tag("served", served).counter().count()
+    }
+}
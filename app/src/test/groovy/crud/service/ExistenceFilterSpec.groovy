@@ -0,0 +1,89 @@
+import java.time.Instant
+import java.util.function.BiConsumer
+
+import spock.lang.Specification
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import crud.event.EntityChangedEvent
+import crud.model.ChangeEvent
+import crud.repository.ProviderRepository
+import crud.repository.ServiceRepository
+import crud.service.ChangeFeedService
+import crud.service.ExistenceFilter
+import crud.utils.ChangeOperation
+import crud.utils.EntityType
+
+class ExistenceFilterSpec extends Specification {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    List<Long> providerIds = [1L, 2L, 3L, 5L, 8L]
+    ExistenceFilter filter = filter(0)
+
+    private ExistenceFilter filter(long settleMs) {
+        def providerRepository = Stub(ProviderRepository) {
+            forEachName(_) >> { BiConsumer<Long, String> consumer -> providerIds.each { consumer.accept(it, "p" + it) } }
+        }
+        def serviceRepository = Stub(ServiceRepository) {
+            forEachName(_) >> { BiConsumer<Long, String> consumer -> consumer.accept(1L, "s1") }
+        }
+        new ExistenceFilter(true, 1000, 0.001, settleMs, providerRepository, serviceRepository,
+                Mock(ChangeFeedService), meterRegistry)
+    }
+
+    def "should report every id as possibly existing before the first build"() {
+        expect:
+        filter.mightExist(EntityType.PROVIDER, 4L)
+    }
+
+    def "should answer misses below the highest id of the last rebuild and defer to the database above it"() {
+        when:
+        filter.rebuild()
+
+        then:
+        providerIds.every { filter.mightExist(EntityType.PROVIDER, it) }
+        !filter.mightExist(EntityType.PROVIDER, 4L)
+        !filter.mightExist(EntityType.PROVIDER, 7L)
+        filter.mightExist(EntityType.PROVIDER, 9L)
+        filter.mightExist(EntityType.SERVICE, 1L)
+        meterRegistry.get("crud.existence.checks").tags("entity", "provider", "result", "miss").counter().count() == 2
+        meterRegistry.get("crud.existence.bytes").tags("entity", "provider").gauge().value() > 0
+    }
+
+    def "should not trust misses until the rebuild has settled"() {
+        given: "a rebuild that may have missed ids committed after it read them"
+        def unsettled = filter(60000)
+
+        when:
+        unsettled.rebuild()
+
+        then:
+        unsettled.mightExist(EntityType.PROVIDER, 4L)
+        unsettled.mightExist(EntityType.PROVIDER, 7L)
+    }
+
+    def "should add the creates of this and of other instances"() {
+        given:
+        filter.rebuild()
+
+        when:
+        filter.onWriteStarted(new EntityChangedEvent(EntityType.PROVIDER, 4L, ChangeOperation.CREATE, null))
+        filter.onChanges([new ChangeEvent(1L, EntityType.PROVIDER, 6L, ChangeOperation.CREATE, null, Instant.now())])
+
+        then:
+        filter.mightExist(EntityType.PROVIDER, 4L)
+        filter.mightExist(EntityType.PROVIDER, 6L)
+        !filter.mightExist(EntityType.PROVIDER, 7L)
+    }
+
+    def "should drop deleted ids on rebuild"() {
+        given:
+        filter.rebuild()
+
+        when:
+        providerIds.remove(3L)
+        filter.rebuild()
+
+        then:
+        !filter.mightExist(EntityType.PROVIDER, 3L)
+        filter.mightExist(EntityType.PROVIDER, 2L)
+    }
+}
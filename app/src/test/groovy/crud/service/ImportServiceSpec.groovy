@@ -0,0 +1,153 @@
+import spock.lang.Specification
+import com.fasterxml.jackson.databind.ObjectMapper
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.context.ApplicationEventPublisher
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.DataSourceTransactionManager
+import crud.repository.ChangeOutboxRepository
+import crud.repository.ImportRepository
+import crud.service.ImportService
+import crud.service.ImportService.Format
+import crud.service.ProviderService
+import crud.service.ServiceService
+
+class ImportServiceSpec extends Specification {
+
+    JdbcTemplate jdbcTemplate
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    ApplicationEventPublisher eventPublisher = Mock()
+    ProviderService providerService = Mock()
+    ServiceService serviceService = Mock()
+
+    def setup() {
+        jdbcTemplate = TestDatabase.reset("imports")
+    }
+
+    def "should import providers, services and links from CSV"() {
+        when:
+        def progress = service(2).importStream(stream(
+                "type,key,name,provider,service",
+                "provider,p1,\"Acme, Inc.\",,",
+                "service,s1,Hosting,,",
+                "service,s2,Storage,,",
+                "",
+                "link,,,p1,s1",
+                "link,,,p1,s2"), Format.CSV, null)
+
+        then:
+        progress.status == "COMPLETED"
+        progress.rowsProcessed == 5
+        progress.rowsFailed == 0
+        progress.errors.isEmpty()
+        jdbcTemplate.queryForList("SELECT name FROM providers", String) == ["Acme, Inc."]
+        jdbcTemplate.queryForObject("SELECT count(*) FROM provider_service", Long) == 2
+        jdbcTemplate.queryForObject("SELECT service_count FROM providers", Integer) == 2
+        jdbcTemplate.queryForList("SELECT operation FROM change_outbox ORDER BY seq", String) ==
+                ["CREATE", "CREATE", "CREATE", "LINK", "LINK"]
+        meterRegistry.get("crud.import.rows").tag("result", "imported").counter().count() == 5
+    }
+
+    def "should import NDJSON and report rejected rows by number"() {
+        when:
+        def progress = service(100).importStream(stream(
+                '{"type":"provider","key":"p1","name":"Acme"}',
+                '{"type":"provider","key":"p1","name":"Duplicate"}',
+                '{"type":"service","key":"s1"}',
+                '{"type":"unknown"}',
+                'not json',
+                '{"type":"link","provider":"p1","service":"missing"}',
+                '{"type":"service","key":"s2","name":"Storage"}',
+                '{"type":"link","provider":"p1","service":"s2"}',
+                '{"type":"link","provider":"p1","service":"s2"}'), Format.NDJSON, null)
+
+        then:
+        progress.status == "COMPLETED"
+        progress.rowsProcessed == 9
+        progress.rowsFailed == 6
+        progress.errors*.row.sort() == [2L, 3L, 4L, 5L, 6L, 9L]
+        progress.errors.find { it.row == 6 }.message == "Unknown service key: missing"
+        jdbcTemplate.queryForObject("SELECT count(*) FROM provider_service", Long) == 1
+        service(100).getProgress(progress.id).rowsFailed == 6
+    }
+
+    def "should resume after the checkpoint with the keys resolved before it"() {
+        given:
+        def rows = [
+                "type,key,name,provider,service",
+                "provider,p1,Acme,,",
+                "service,s1,Hosting,,",
+                "link,,,p1,s1",
+                "service,s2,Storage,,",
+                "link,,,p1,s2"]
+        def first = service(2).importStream(stream(*rows[0..3]), Format.CSV, null)
+
+        when:
+        def resumed = service(2).importStream(stream(*rows), Format.CSV, first.id)
+
+        then:
+        first.rowsProcessed == 3
+        resumed.status == "COMPLETED"
+        resumed.rowsRead == 2
+        resumed.rowsProcessed == 5
+        resumed.errors.isEmpty()
+        jdbcTemplate.queryForObject("SELECT count(*) FROM providers", Long) == 1
+        jdbcTemplate.queryForObject("SELECT count(*) FROM provider_service", Long) == 2
+    }
+
+    def "should index the names of committed batches for autocomplete"() {
+        given:
+        def providerNames = []
+        def serviceNames = []
+
+        when:
+        service(2).importStream(stream(
+                "type,key,name,provider,service",
+                "provider,p1,Acme,,",
+                "service,s1,Hosting,,",
+                "service,s2,Storage,,"), Format.CSV, null)
+
+        then:
+        2 * providerService.indexNames(_) >> { Map<Long, String> names -> providerNames.addAll(names.values()) }
+        2 * serviceService.indexNames(_) >> { Map<Long, String> names -> serviceNames.addAll(names.values()) }
+        providerNames == ["Acme"]
+        serviceNames == ["Hosting", "Storage"]
+    }
+
+    def "should reject resuming an unknown import"() {
+        when:
+        service(2).importStream(stream("type"), Format.CSV, 42L)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "should import a large stream in batches"() {
+        given:
+        def lines = new StringBuilder("type,key,name,provider,service\n")
+        (1..10_000).each { lines.append("provider,p").append(it).append(",Provider ").append(it).append(",,\n") }
+        (1..10_000).each { lines.append("service,s").append(it).append(",Service ").append(it).append(",,\n") }
+        (1..10_000).each { lines.append("link,,,p").append(it).append(",s").append(it).append("\n") }
+
+        when:
+        def progress = service(10_000).importStream(
+                new ByteArrayInputStream(lines.toString().getBytes("UTF-8")), Format.CSV, null)
+
+        then:
+        progress.status == "COMPLETED"
+        progress.rowsProcessed == 30_000
+        progress.rowsFailed == 0
+        progress.rowsPerSecond > 0
+        jdbcTemplate.queryForObject("SELECT count(*) FROM provider_service", Long) == 10_000
+        jdbcTemplate.queryForObject("SELECT count(*) FROM change_outbox", Long) == 30_000
+    }
+
+    private ImportService service(int batchSize) {
+        new ImportService(new ImportRepository(jdbcTemplate), new ChangeOutboxRepository(jdbcTemplate, eventPublisher),
+                providerService, serviceService, new DataSourceTransactionManager(jdbcTemplate.dataSource),
+                new ObjectMapper(), batchSize, 100, 5, meterRegistry)
+    }
+
+    private static InputStream stream(String... lines) {
+        new ByteArrayInputStream(lines.join("\n").getBytes("UTF-8"))
+    }
+}
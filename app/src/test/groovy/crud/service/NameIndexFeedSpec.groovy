@@ -0,0 +1,91 @@
+import java.time.Instant
+
+import spock.lang.Specification
+import spock.lang.Timeout
+import spock.util.concurrent.PollingConditions
+import org.springframework.context.ApplicationEventPublisher
+import org.springframework.jdbc.core.JdbcTemplate
+import crud.entity.ProviderEntity
+import crud.logging.OperationLogger
+import crud.model.ChangeEvent
+import crud.repository.ChangeOutboxRepository
+import crud.repository.ProviderRepository
+import crud.service.ChangeFeedService
+import crud.service.DeepSnapshots
+import crud.service.ExistenceFilter
+import crud.service.NearCache
+import crud.service.ProviderService
+import crud.service.ReadCoalescer
+import crud.service.WriteCombiner
+import crud.utils.ChangeOperation
+import crud.utils.EntityType
+
+@Timeout(30)
+class NameIndexFeedSpec extends Specification {
+
+    JdbcTemplate jdbcTemplate
+    ChangeFeedService feed
+    ProviderService providerService
+    ProviderRepository otherInstance
+
+    def setup() {
+        jdbcTemplate = TestDatabase.reset("name-index-feed")
+        jdbcTemplate.execute("INSERT INTO providers (id, name) VALUES (1, 'Alpha'), (2, 'Beta')")
+        jdbcTemplate.execute("ALTER TABLE providers ALTER COLUMN id RESTART WITH 3")
+
+        otherInstance = repository()
+        feed = new ChangeFeedService(new ChangeOutboxRepository(jdbcTemplate, Stub(ApplicationEventPublisher)),
+                20, 2000, 500, 60000, 168, 1)
+        providerService = new ProviderService(repository(), Mock(OperationLogger), Mock(ReadCoalescer),
+                Mock(NearCache), Mock(DeepSnapshots), Mock(WriteCombiner), Mock(ExistenceFilter), feed)
+        feed.start()
+        providerService.loadNameIndex()
+    }
+
+    def cleanup() {
+        feed.stop()
+    }
+
+    def "should follow the creates, renames and deletes of another instance"() {
+        when:
+        otherInstance.save(new ProviderEntity(name: "Alpine", services: []))
+        otherInstance.update(new ProviderEntity(2L, "Alps"))
+        otherInstance.delete(1L)
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert completions("al") == ["Alpine", "Alps"]
+        }
+        completions("b") == []
+    }
+
+    def "should reload the names of a batch of changes with one query"() {
+        given:
+        def repository = Spy(repository())
+        def service = new ProviderService(repository, Mock(OperationLogger), Mock(ReadCoalescer), Mock(NearCache),
+                Mock(DeepSnapshots), Mock(WriteCombiner), Mock(ExistenceFilter), Mock(ChangeFeedService))
+        service.loadNameIndex()
+        jdbcTemplate.execute("UPDATE providers SET name = 'Gamma' WHERE id = 1")
+        jdbcTemplate.execute("UPDATE providers SET is_deleted = TRUE WHERE id = 2")
+
+        when:
+        service.onChanges([change(1L, ChangeOperation.UPDATE), change(2L, ChangeOperation.DELETE),
+                           change(1L, ChangeOperation.LINK)])
+
+        then:
+        1 * repository.findNames([1L, 2L] as Set)
+        service.autocompleteProviders("", 10)*.name() == ["Gamma"]
+    }
+
+    private List<String> completions(String prefix) {
+        providerService.autocompleteProviders(prefix, 10)*.name()
+    }
+
+    private static ChangeEvent change(Long id, ChangeOperation operation) {
+        new ChangeEvent(0L, EntityType.PROVIDER, id, operation, null, Instant.now())
+    }
+
+    private ProviderRepository repository() {
+        TestWiring.providerRepository(jdbcTemplate, Stub(ApplicationEventPublisher))
+    }
+}
@@ -0,0 +1,97 @@
+import spock.lang.Specification
+import spock.lang.Timeout
+import spock.util.concurrent.PollingConditions
+import org.springframework.context.ApplicationEventPublisher
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import crud.model.ProviderRecord
+import crud.model.ServiceRecord
+import crud.repository.ChangeOutboxRepository
+import crud.service.ChangeFeedService
+import crud.service.NearCache
+import crud.service.ReadCoalescer
+import crud.utils.ChangeOperation
+import crud.utils.DepthLevel
+import crud.utils.EntityType
+
+@Timeout(30)
+class NearCacheInvalidationSpec extends Specification {
+
+    static final String URL = "jdbc:h2:mem:near-cache;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"
+
+    List<ChangeFeedService> feeds = []
+    int loads
+
+    def setup() {
+        def jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", ""))
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS change_outbox (
+                    seq BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    entity_type VARCHAR(16) NOT NULL,
+                    entity_id BIGINT NOT NULL,
+                    operation VARCHAR(16) NOT NULL,
+                    related_id BIGINT,
+                    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)""")
+        jdbcTemplate.execute("DELETE FROM change_outbox")
+    }
+
+    def cleanup() {
+        feeds*.stop()
+    }
+
+    def "should evict on one instance the entries changed by another"() {
+        given:
+        def writer = startInstance()
+        def reader = startInstance()
+        read(reader.cache, 1L, [2L])
+        read(reader.cache, 3L, [4L])
+
+        when:
+        writer.outbox.append(EntityType.SERVICE, 2L, ChangeOperation.UPDATE, null)
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            read(reader.cache, 1L, [2L])
+            assert loads == 3
+        }
+
+        and:
+        read(reader.cache, 3L, [4L])
+        loads == 3
+    }
+
+    def "should evict the links written by another instance"() {
+        given:
+        def writer = startInstance()
+        def reader = startInstance()
+        read(reader.cache, 1L, [])
+
+        when:
+        writer.outbox.append(EntityType.PROVIDER, 1L, ChangeOperation.LINK, 2L)
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            read(reader.cache, 1L, [2L])
+            assert loads == 2
+        }
+    }
+
+    private Map startInstance() {
+        def jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", ""))
+        def outbox = new ChangeOutboxRepository(jdbcTemplate, Stub(ApplicationEventPublisher))
+        def feed = new ChangeFeedService(outbox, 20, 2000, 500, 60000, 168, 1)
+        def cache = new NearCache(true, 100, 60, new SimpleMeterRegistry(), feed,
+                new ReadCoalescer(true, new SimpleMeterRegistry()))
+        feed.start()
+        feeds << feed
+        [outbox: outbox, cache: cache]
+    }
+
+    private ProviderRecord read(NearCache cache, Long id, List<Long> serviceIds) {
+        cache.getProvider(id, DepthLevel.MEDIUM, {
+            loads++
+            Optional.of(new ProviderRecord(id, "Provider " + id, serviceIds.collect { ServiceRecord.shallow(it, "Service " + it) }))
+        }).get()
+    }
+}
@@ -0,0 +1,94 @@
+import spock.lang.Specification
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import crud.event.EntityChangedEvent
+import crud.model.ProviderRecord
+import crud.model.ServiceRecord
+import crud.service.ChangeFeedService
+import crud.service.NearCache
+import crud.service.ReadCoalescer
+import crud.utils.ChangeOperation
+import crud.utils.DepthLevel
+import crud.utils.EntityType
+
+class NearCacheSpec extends Specification {
+
+    NearCache nearCache = new NearCache(true, 100, 60, new SimpleMeterRegistry(), Mock(ChangeFeedService),
+            new ReadCoalescer(true, new SimpleMeterRegistry()))
+    Map<String, Integer> loads = [:].withDefault { 0 }
+
+    def "should serve repeated reads from the cache"() {
+        when:
+        3.times { provider(1L, DepthLevel.SHALLOW) }
+
+        then:
+        loads["provider:1:shallow"] == 1
+    }
+
+    def "should evict the entries showing a changed entity"() {
+        given:
+        provider(1L, DepthLevel.MEDIUM, [2L])
+        provider(4L, DepthLevel.MEDIUM, [3L])
+        service(2L, DepthLevel.SHALLOW)
+
+        when:
+        nearCache.onEntityChanged(new EntityChangedEvent(EntityType.SERVICE, 2L, ChangeOperation.UPDATE, null))
+        provider(1L, DepthLevel.MEDIUM, [2L])
+        provider(4L, DepthLevel.MEDIUM, [3L])
+        service(2L, DepthLevel.SHALLOW)
+
+        then:
+        loads["provider:1:medium"] == 2
+        loads["provider:4:medium"] == 1
+        loads["service:2:shallow"] == 2
+    }
+
+    def "should evict both ends of a link"() {
+        given:
+        provider(1L, DepthLevel.MEDIUM)
+        service(2L, DepthLevel.MEDIUM)
+
+        when:
+        nearCache.onEntityChanged(new EntityChangedEvent(EntityType.PROVIDER, 1L, ChangeOperation.LINK, 2L))
+        provider(1L, DepthLevel.MEDIUM)
+        service(2L, DepthLevel.MEDIUM)
+
+        then:
+        loads["provider:1:medium"] == 2
+        loads["service:2:medium"] == 2
+    }
+
+    def "should not cache a read that overlapped a change"() {
+        when:
+        nearCache.getProvider(1L, DepthLevel.SHALLOW, {
+            loads["provider:1:shallow"]++
+            nearCache.onEntityChanged(new EntityChangedEvent(EntityType.PROVIDER, 9L, ChangeOperation.UPDATE, null))
+            Optional.of(ProviderRecord.shallow(1L, "Provider 1"))
+        })
+        provider(1L, DepthLevel.SHALLOW)
+
+        then:
+        loads["provider:1:shallow"] == 2
+    }
+
+    def "should not cache missing entities"() {
+        when:
+        2.times { nearCache.getProvider(1L, DepthLevel.SHALLOW, { loads["missing"]++; Optional.empty() }) }
+
+        then:
+        loads["missing"] == 2
+    }
+
+    private ProviderRecord provider(Long id, DepthLevel depth, List<Long> serviceIds = []) {
+        nearCache.getProvider(id, depth, {
+            loads["provider:" + id + ":" + depth.value]++
+            Optional.of(new ProviderRecord(id, "Provider " + id, serviceIds.collect { ServiceRecord.shallow(it, "Service " + it) }))
+        }).get()
+    }
+
+    private ServiceRecord service(Long id, DepthLevel depth) {
+        nearCache.getService(id, depth, {
+            loads["service:" + id + ":" + depth.value]++
+            Optional.of(ServiceRecord.shallow(id, "Service " + id))
+        }).get()
+    }
+}
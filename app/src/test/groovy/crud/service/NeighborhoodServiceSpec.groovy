@@ -0,0 +1,123 @@
+import spock.lang.Specification
+import org.springframework.jdbc.core.JdbcTemplate
+import crud.repository.NeighborhoodRepository
+import crud.service.NeighborhoodService
+import crud.utils.EntityType
+
+class NeighborhoodServiceSpec extends Specification {
+
+    JdbcTemplate jdbcTemplate
+    NeighborhoodService service
+
+    def setup() {
+        jdbcTemplate = TestDatabase.reset("neighborhood")
+        service = new NeighborhoodService(new NeighborhoodRepository(jdbcTemplate), 6, 10000, 100000, 12, 5000)
+    }
+
+    def "should return the bipartite neighborhood level by level"() {
+        given: "a chain p1 - s1 - p2 - s2 - p3 with a shortcut p1 - s2"
+        providers(1, 2, 3)
+        services(1, 2)
+        link(1, 1); link(2, 1); link(2, 2); link(3, 2); link(1, 2)
+
+        when:
+        def neighborhood = service.getNeighborhood(EntityType.PROVIDER, 1, 2, 100)
+
+        then:
+        nodes(neighborhood) == ["PROVIDER 1 @0", "SERVICE 1 @1", "SERVICE 2 @1", "PROVIDER 2 @2", "PROVIDER 3 @2"] as Set
+        neighborhood.links.collect { [it.providerId, it.serviceId] } as Set == [[1, 1], [1, 2], [2, 1], [2, 2], [3, 2]] as Set
+        neighborhood.links.size() == 5
+        neighborhood.hopsReached == 2
+        !neighborhood.truncated
+    }
+
+    def "should stop at the node limit and mark the result as truncated"() {
+        given: "a hub service linked to 50 providers"
+        services(1)
+        providers(*(1..50))
+        (1..50).each { link(it, 1) }
+
+        when:
+        def neighborhood = service.getNeighborhood(EntityType.SERVICE, 1, 3, 10)
+
+        then:
+        neighborhood.nodes.size() == 10
+        neighborhood.links.size() == 9
+        neighborhood.truncated
+    }
+
+    def "should skip deleted neighbors and stop when the graph is exhausted"() {
+        given:
+        providers(1)
+        services(1, 2)
+        jdbcTemplate.update("UPDATE services SET is_deleted = true WHERE id = 2")
+        link(1, 1); link(1, 2)
+
+        when:
+        def neighborhood = service.getNeighborhood(EntityType.PROVIDER, 1, 6, 100)
+
+        then:
+        nodes(neighborhood) == ["PROVIDER 1 @0", "SERVICE 1 @1"] as Set
+        neighborhood.hops == 6
+        neighborhood.hopsReached == 1
+        !neighborhood.truncated
+    }
+
+    def "should return null for a missing root"() {
+        expect:
+        service.getNeighborhood(EntityType.PROVIDER, 42, 2, 100) == null
+    }
+
+    def "should find a shortest path of alternating providers and services"() {
+        given: "a long chain p1 - s1 - p2 - s2 - p3 - s3 - p4 and a shortcut p1 - s4 - p4"
+        providers(1, 2, 3, 4)
+        services(1, 2, 3, 4)
+        link(1, 1); link(2, 1); link(2, 2); link(3, 2); link(3, 3); link(4, 3)
+
+        when:
+        def longPath = service.findPath(1, 4, 6)
+
+        then:
+        longPath.found
+        longPath.path.collect { "${it.type} ${it.id}".toString() } ==
+                ["PROVIDER 1", "SERVICE 1", "PROVIDER 2", "SERVICE 2", "PROVIDER 3", "SERVICE 3", "PROVIDER 4"]
+        longPath.path*.hop == 0..6
+
+        when:
+        link(1, 4); link(4, 4)
+        def shortPath = service.findPath(4, 1, 6)
+
+        then:
+        shortPath.path.collect { "${it.type} ${it.id}".toString() } == ["PROVIDER 4", "SERVICE 4", "PROVIDER 1"]
+    }
+
+    def "should report when no path exists within the hop limit"() {
+        given:
+        providers(1, 2, 3, 4)
+        services(1, 2, 3)
+        link(1, 1); link(2, 1); link(2, 2); link(3, 2); link(3, 3); link(4, 3)
+
+        expect:
+        !service.findPath(1, 4, 4).found
+        service.findPath(1, 4, 4).path.isEmpty()
+        service.findPath(1, 3, 4).found
+        service.findPath(2, 2, 4).path*.id == [2L]
+        service.findPath(1, 42, 4) == null
+    }
+
+    private void providers(long... ids) {
+        ids.each { jdbcTemplate.update("INSERT INTO providers (id, name) VALUES (?, ?)", it, "Provider " + it) }
+    }
+
+    private void services(long... ids) {
+        ids.each { jdbcTemplate.update("INSERT INTO services (id, name) VALUES (?, ?)", it, "Service " + it) }
+    }
+
+    private void link(long providerId, long serviceId) {
+        jdbcTemplate.update("INSERT INTO provider_service VALUES (?, ?)", providerId, serviceId)
+    }
+
+    private static Set<String> nodes(neighborhood) {
+        neighborhood.nodes.collect { "${it.type} ${it.id} @${it.hop}".toString() } as Set
+    }
+}
@@ -0,0 +1,133 @@
+import spock.lang.Specification
+import spock.lang.Unroll
+import org.springframework.context.ApplicationEventPublisher
+import org.springframework.jdbc.core.JdbcTemplate
+import crud.entity.ProviderEntity
+import crud.entity.ServiceEntity
+import crud.profiling.ProfilingDataSource
+import crud.profiling.QueryProfiler
+import crud.service.ChangeFeedService
+import crud.service.ProviderService
+import crud.service.ServiceService
+import crud.utils.DepthLevel
+
+class QueryCountSpec extends Specification {
+
+    ProviderService providerService
+    ServiceService serviceService
+
+    def setup() {
+        def jdbcTemplate = new JdbcTemplate(new ProfilingDataSource(FakeJdbc.dataSource(), new QueryProfiler(1000, false)))
+        def wiring = new TestWiring(jdbcTemplate, Mock(ChangeFeedService), Mock(ApplicationEventPublisher))
+        providerService = wiring.providerService
+        serviceService = wiring.serviceService
+    }
+
+    @Unroll
+    @ExpectQueries({ expected })
+    def "should read all providers at #depth depth in #expected statements"() {
+        expect:
+        providerService.getAllProviders(depth) != null
+
+        where:
+        depth              | expected
+        DepthLevel.SHALLOW | 1
+        DepthLevel.MEDIUM  | 1
+    }
+
+    @Unroll
+    @ExpectQueries({ expected })
+    def "should read a provider at #depth depth in #expected statements"() {
+        expect:
+        providerService.getProviderById(1L, depth) != null
+
+        where:
+        depth              | expected
+        DepthLevel.SHALLOW | 1
+        DepthLevel.MEDIUM  | 1
+        DepthLevel.DEEP    | 1
+    }
+
+    @Unroll
+    @ExpectQueries({ expected })
+    def "should read all services at #depth depth in #expected statements"() {
+        expect:
+        serviceService.getAllServices(depth) != null
+
+        where:
+        depth              | expected
+        DepthLevel.SHALLOW | 1
+        DepthLevel.MEDIUM  | 1
+    }
+
+    @Unroll
+    @ExpectQueries({ expected })
+    def "should read a service at #depth depth in #expected statements"() {
+        expect:
+        serviceService.getServiceById(1L, depth) != null
+
+        where:
+        depth              | expected
+        DepthLevel.SHALLOW | 1
+        DepthLevel.MEDIUM  | 1
+        DepthLevel.DEEP    | 1
+    }
+
+    @ExpectQueries({ 10 })
+    def "should create a provider with two services in 10 statements"() {
+        given:
+        def provider = new ProviderEntity(name: "Provider")
+        provider.setServices([new ServiceEntity(2L, "Service 2"), new ServiceEntity(3L, "Service 3")])
+
+        expect:
+        providerService.createProvider(provider).id == 1L
+    }
+
+    @ExpectQueries({ 2 })
+    def "should create a service without providers in 2 statements"() {
+        expect:
+        serviceService.createService(new ServiceEntity(name: "Service", providers: [])).id == 1L
+    }
+
+    @ExpectQueries({ 2 })
+    def "should rename a provider in 2 statements"() {
+        expect:
+        providerService.updateProvider(1L, new ProviderEntity(name: "Renamed")) != null
+    }
+
+    @ExpectQueries({ 2 })
+    def "should rename a service in 2 statements"() {
+        expect:
+        serviceService.updateService(1L, new ServiceEntity(name: "Renamed")) != null
+    }
+
+    @ExpectQueries({ 5 })
+    def "should link a service to a provider in 5 statements"() {
+        expect:
+        providerService.linkService(1L, 2L)
+    }
+
+    @ExpectQueries({ 5 })
+    def "should unlink a service from a provider in 5 statements"() {
+        expect:
+        providerService.unlinkService(1L, 2L)
+    }
+
+    @ExpectQueries({ 3 })
+    def "should delete a provider in 3 statements"() {
+        when:
+        providerService.deleteProvider(1L)
+
+        then:
+        noExceptionThrown()
+    }
+
+    @ExpectQueries({ 3 })
+    def "should delete a service in 3 statements"() {
+        when:
+        serviceService.deleteService(1L)
+
+        then:
+        noExceptionThrown()
+    }
+}
@@ -0,0 +1,172 @@
+import java.util.concurrent.Callable
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+import spock.lang.Specification
+import spock.lang.Timeout
+import org.springframework.dao.QueryTimeoutException
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import crud.event.EntityChangedEvent
+import crud.profiling.QueryCancellation
+import crud.profiling.QueryCancellation.Reason
+import crud.service.ReadCoalescer
+import crud.utils.ChangeOperation
+import crud.utils.EntityType
+
+@Timeout(10)
+class ReadCoalescerSpec extends Specification {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    ReadCoalescer coalescer = new ReadCoalescer(true, meterRegistry)
+    def executor = Executors.newCachedThreadPool()
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "should share one execution between concurrent identical reads"() {
+        given:
+        def release = new CountDownLatch(1)
+        def executions = new AtomicInteger()
+        def loader = { executions.incrementAndGet(); release.await(); "result" }
+
+        when:
+        def leader = executor.submit({ coalescer.read("provider.findById", "provider:1:deep", loader) } as Callable)
+        waitUntil { executions.get() == 1 }
+        def follower = executor.submit({ coalescer.read("provider.findById", "provider:1:deep", loader) } as Callable)
+        waitUntil { count("coalesced") == 1 }
+        release.countDown()
+
+        then:
+        leader.get() == "result"
+        follower.get() == "result"
+        executions.get() == 1
+        count("executed") == 1
+    }
+
+    def "should not join a read that started before a write"() {
+        given:
+        def release = new CountDownLatch(1)
+        def executions = new AtomicInteger()
+        def loader = { executions.incrementAndGet() == 1 ? { release.await(); "before" }() : "after" }
+
+        when:
+        def stale = executor.submit({ coalescer.read("provider.findById", "provider:1:deep", loader) } as Callable)
+        waitUntil { executions.get() == 1 }
+        coalescer.onWriteStarted(new EntityChangedEvent(EntityType.PROVIDER, 1L, ChangeOperation.UPDATE, null))
+        def fresh = coalescer.read("provider.findById", "provider:1:deep", loader)
+        release.countDown()
+
+        then:
+        fresh == "after"
+        stale.get() == "before"
+        count("coalesced") == 0
+    }
+
+    def "should pass a failure on to every coalesced caller"() {
+        given:
+        def release = new CountDownLatch(1)
+        def started = new AtomicInteger()
+        def loader = { started.incrementAndGet(); release.await(); throw new IllegalArgumentException("boom") }
+
+        when:
+        def leader = executor.submit({ coalescer.read("service.findAll", "service:all:medium", loader) } as Callable)
+        waitUntil { started.get() == 1 }
+        def follower = executor.submit({ coalescer.read("service.findAll", "service:all:medium", loader) } as Callable)
+        waitUntil { count("coalesced", "service.findAll") == 1 }
+        release.countDown()
+        follower.get()
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof IllegalArgumentException
+        started.get() == 1
+    }
+
+    def "should stop waiting for a shared read at the deadline of the caller"() {
+        given:
+        def release = new CountDownLatch(1)
+        def executions = new AtomicInteger()
+        def loader = { executions.incrementAndGet(); release.await(); "result" }
+        def leader = executor.submit({ coalescer.read("provider.findById", "provider:1:deep", loader) } as Callable)
+        waitUntil { executions.get() == 1 }
+
+        when:
+        executor.submit({
+            def scope = QueryCancellation.start(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50))
+            try {
+                coalescer.read("provider.findById", "provider:1:deep", loader)
+            } finally {
+                scope.stop()
+            }
+        } as Callable).get()
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof QueryTimeoutException
+
+        when:
+        release.countDown()
+
+        then:
+        leader.get() == "result"
+        executions.get() == 1
+    }
+
+    def "should read again when the read was cancelled for the caller that ran it"() {
+        given:
+        def release = new CountDownLatch(1)
+        def executions = new AtomicInteger()
+        def leaderScope = new CompletableFuture<QueryCancellation>()
+        def loader = {
+            if (executions.incrementAndGet() == 1) {
+                release.await()
+                throw new QueryTimeoutException("cancelled")
+            }
+            "result"
+        }
+
+        when:
+        def leader = executor.submit({
+            def scope = QueryCancellation.start(0)
+            leaderScope.complete(scope)
+            try {
+                coalescer.read("provider.findById", "provider:1:deep", loader)
+            } finally {
+                scope.stop()
+            }
+        } as Callable)
+        waitUntil { executions.get() == 1 }
+        def follower = executor.submit({ coalescer.read("provider.findById", "provider:1:deep", loader) } as Callable)
+        waitUntil { count("coalesced") == 1 }
+        leaderScope.get().cancel(Reason.DEADLINE)
+        release.countDown()
+
+        then:
+        follower.get() == "result"
+        executions.get() == 2
+
+        when:
+        leader.get()
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof QueryTimeoutException
+    }
+
+    private double count(String result, String operation = "provider.findById") {
+        def counter = meterRegistry.find("crud.reads").tags("operation", operation, "result", result).counter()
+        counter ? counter.count() : 0
+    }
+
+    private static void waitUntil(Closure<Boolean> condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5)
+        while (!condition() && System.nanoTime() < deadline) {
+            Thread.sleep(1)
+        }
+    }
+}
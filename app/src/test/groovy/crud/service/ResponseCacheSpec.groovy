@@ -0,0 +1,144 @@
+import spock.lang.Specification
+import com.fasterxml.jackson.databind.ObjectMapper
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.http.HttpStatus
+import org.springframework.http.MediaType
+import org.springframework.http.ResponseEntity
+import org.springframework.mock.http.MockHttpOutputMessage
+import crud.event.EntityChangedEvent
+import crud.profiling.CapturedBody
+import crud.profiling.MeasuredJacksonConverter
+import crud.service.ChangeFeedService
+import crud.service.ResponseCache
+import crud.service.TableGenerations
+import crud.service.TableGenerations.Table
+import crud.utils.ChangeOperation
+import crud.utils.DepthLevel
+import crud.utils.EntityType
+
+class ResponseCacheSpec extends Specification {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    TableGenerations generations = new TableGenerations(Mock(ChangeFeedService))
+    ResponseCache cache = new ResponseCache(true, 1000, 0, generations, meterRegistry)
+    MeasuredJacksonConverter converter = new MeasuredJacksonConverter(new ObjectMapper())
+    int loads = 0
+
+    def "should serve the cached body until a table the depth reads is written"() {
+        when:
+        def first = render(cache.serve(Table.PROVIDERS, DepthLevel.MEDIUM, null, this.&load))
+        def second = render(cache.serve(Table.PROVIDERS, DepthLevel.MEDIUM, null, this.&load))
+
+        then:
+        loads == 1
+        second.body == '["response 1"]'
+        second.headers.ETag == first.headers.ETag
+
+        when:
+        generations.onWriteStarted(new EntityChangedEvent(EntityType.SERVICE, 1, ChangeOperation.LINK, 2L))
+        def third = render(cache.serve(Table.PROVIDERS, DepthLevel.MEDIUM, null, this.&load))
+
+        then:
+        loads == 2
+        third.body == '["response 2"]'
+        third.headers.ETag != first.headers.ETag
+    }
+
+    def "should keep shallow lists across writes to other tables"() {
+        given:
+        def first = render(cache.serve(Table.PROVIDERS, DepthLevel.SHALLOW, null, this.&load))
+
+        when:
+        generations.onWriteStarted(new EntityChangedEvent(EntityType.SERVICE, 1, ChangeOperation.UPDATE, null))
+        def second = render(cache.serve(Table.PROVIDERS, DepthLevel.SHALLOW, null, this.&load))
+
+        then:
+        loads == 1
+        second.headers.ETag == first.headers.ETag
+    }
+
+    def "should answer a current If-None-Match with 304 without reading"() {
+        given:
+        def etag = render(cache.serve(Table.SERVICES, DepthLevel.SHALLOW, null, this.&load)).headers.ETag[0]
+
+        when:
+        def response = render(cache.serve(Table.SERVICES, DepthLevel.SHALLOW, "\"other\", W/" + etag, this.&load))
+
+        then:
+        response.statusCode == HttpStatus.NOT_MODIFIED
+        response.body == null
+        loads == 1
+        meterRegistry.get("crud.response-cache.requests").tag("result", "not-modified").counter().count() == 1
+    }
+
+    def "should evict the least recently used bodies beyond the byte cap"() {
+        given:
+        def big = { "x" * 400 }
+
+        when:
+        render(cache.serve(Table.PROVIDERS, DepthLevel.SHALLOW, null, big))
+        render(cache.serve(Table.SERVICES, DepthLevel.SHALLOW, null, big))
+        render(cache.serve(Table.PROVIDERS, DepthLevel.SHALLOW, null, big))
+        render(cache.serve(Table.SERVICES, DepthLevel.MEDIUM, null, big))
+
+        then: "the provider list was used last and stays, the service list is evicted"
+        cache.bytes <= 1000
+        meterRegistry.get("crud.response-cache.requests").tag("result", "hit").counter().count() == 1
+
+        when:
+        render(cache.serve(Table.PROVIDERS, DepthLevel.SHALLOW, null, this.&load))
+        render(cache.serve(Table.SERVICES, DepthLevel.SHALLOW, null, this.&load))
+
+        then:
+        loads == 1
+    }
+
+    def "should stream bodies larger than the cache without caching them"() {
+        given:
+        def big = { loads++; "x" * 2000 }
+
+        when:
+        def first = render(cache.serve(Table.PROVIDERS, DepthLevel.SHALLOW, null, big))
+        render(cache.serve(Table.PROVIDERS, DepthLevel.SHALLOW, null, big))
+
+        then:
+        first.body.length() == 2002
+        loads == 2
+        cache.bytes == 0
+    }
+
+    def "should change the ETag and read again once the max age passes"() {
+        given:
+        def aging = new ResponseCache(true, 1000, 50, generations, meterRegistry)
+        def first = render(aging.serve(Table.PROVIDERS, DepthLevel.SHALLOW, null, this.&load))
+
+        when:
+        sleep(120)
+        def second = render(aging.serve(Table.PROVIDERS, DepthLevel.SHALLOW, first.headers.ETag[0], this.&load))
+
+        then:
+        second.statusCode == HttpStatus.OK
+        second.headers.ETag != first.headers.ETag
+        loads == 2
+    }
+
+    private ResponseEntity<String> render(ResponseEntity<?> response) {
+        if (response.body == null) {
+            return (ResponseEntity<String>) response
+        }
+        String body
+        if (response.body instanceof CapturedBody) {
+            def message = new MockHttpOutputMessage()
+            converter.write(response.body, MediaType.APPLICATION_JSON, message)
+            body = message.bodyAsString
+        } else {
+            body = new String((byte[]) response.body)
+        }
+        ResponseEntity.status(response.statusCode).headers(response.headers).body(body)
+    }
+
+    private List<String> load() {
+        loads++
+        ["response " + loads]
+    }
+}
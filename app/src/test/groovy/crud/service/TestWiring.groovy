@@ -0,0 +1,68 @@
+import org.springframework.context.ApplicationEventPublisher
+import org.springframework.jdbc.core.JdbcTemplate
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import crud.config.OperationLogProperties
+import crud.logging.OperationLogger
+import crud.repository.ChangeOutboxRepository
+import crud.repository.LinkRepository
+import crud.repository.PartitionedReader
+import crud.repository.ProviderRepository
+import crud.repository.ServiceRepository
+import crud.service.ChangeFeedService
+import crud.service.DeepSnapshots
+import crud.service.ExistenceFilter
+import crud.service.NearCache
+import crud.service.ProviderService
+import crud.service.ReadCoalescer
+import crud.service.ServiceService
+import crud.service.WriteCombiner
+
+/**
+ * The repositories and services of one JdbcTemplate, wired as in the
+ * application with coalescing, caches, snapshots, write combining and the
+ * existence filter disabled. The change feed and the event publisher are
+ * passed in, usually as mocks of the spec.
+ */
+class TestWiring {
+
+    final ProviderRepository providerRepository
+    final ServiceRepository serviceRepository
+    final ExistenceFilter existenceFilter
+    final ProviderService providerService
+    final ServiceService serviceService
+
+    TestWiring(JdbcTemplate jdbcTemplate, ChangeFeedService changeFeedService, ApplicationEventPublisher eventPublisher) {
+        providerRepository = providerRepository(jdbcTemplate, eventPublisher)
+        serviceRepository = serviceRepository(jdbcTemplate, eventPublisher)
+        def operationLogger = new OperationLogger(new OperationLogProperties())
+        def readCoalescer = new ReadCoalescer(false, new SimpleMeterRegistry())
+        def nearCache = new NearCache(false, 1, 1, new SimpleMeterRegistry(), changeFeedService, readCoalescer)
+        def deepSnapshots = new DeepSnapshots(false, 0, 0, 0, providerRepository, serviceRepository,
+                changeFeedService, new SimpleMeterRegistry())
+        def writeCombiner = new WriteCombiner(false, 0, 1, new SimpleMeterRegistry())
+        existenceFilter = new ExistenceFilter(false, 1, 0.01, 0, providerRepository, serviceRepository,
+                changeFeedService, new SimpleMeterRegistry())
+        providerService = new ProviderService(providerRepository, operationLogger, readCoalescer, nearCache,
+                deepSnapshots, writeCombiner, existenceFilter, changeFeedService)
+        serviceService = new ServiceService(serviceRepository, operationLogger, readCoalescer, nearCache,
+                deepSnapshots, writeCombiner, existenceFilter, changeFeedService)
+    }
+
+    static ProviderRepository providerRepository(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher,
+            PartitionedReader reader = serialReader(jdbcTemplate)) {
+        def changeOutboxRepository = new ChangeOutboxRepository(jdbcTemplate, eventPublisher)
+        new ProviderRepository(jdbcTemplate, new LinkRepository(jdbcTemplate, changeOutboxRepository),
+                changeOutboxRepository, reader)
+    }
+
+    static ServiceRepository serviceRepository(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher,
+            PartitionedReader reader = serialReader(jdbcTemplate)) {
+        def changeOutboxRepository = new ChangeOutboxRepository(jdbcTemplate, eventPublisher)
+        new ServiceRepository(jdbcTemplate, new LinkRepository(jdbcTemplate, changeOutboxRepository),
+                changeOutboxRepository, reader)
+    }
+
+    static PartitionedReader serialReader(JdbcTemplate jdbcTemplate) {
+        new PartitionedReader(jdbcTemplate, false, 1, 1, 0)
+    }
+}
@@ -0,0 +1,224 @@
+import java.util.concurrent.Callable
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+
+import spock.lang.Specification
+import spock.lang.Timeout
+import org.springframework.context.ApplicationEventPublisher
+import org.springframework.dao.QueryTimeoutException
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import crud.entity.ProviderEntity
+import crud.profiling.QueryCancellation
+import crud.profiling.StatementCounter
+import crud.repository.ChangeOutboxRepository
+import crud.repository.LinkRepository
+import crud.repository.PartitionedReader
+import crud.repository.ProviderRepository
+import crud.service.WriteCombiner
+
+@Timeout(10)
+class WriteCombinerSpec extends Specification {
+
+    def executor = Executors.newCachedThreadPool()
+    List<List<String>> batches = new CopyOnWriteArrayList<>()
+    List<String> singles = new CopyOnWriteArrayList<>()
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "should write on the calling thread when disabled"() {
+        given:
+        def combiner = new WriteCombiner(false, 1000, 10, new SimpleMeterRegistry())
+
+        expect:
+        combiner.write("provider.create", "a", this.&writeBatch, this.&writeSingle) == "a:single"
+        batches.isEmpty()
+    }
+
+    def "should combine concurrent writes into one batch and return each its own result"() {
+        given:
+        def combiner = new WriteCombiner(true, 5000, 4, new SimpleMeterRegistry())
+
+        when:
+        def results = ["a", "b", "c", "d"].collect { item ->
+            executor.submit({ combiner.write("provider.create", item, this.&writeBatch, this.&writeSingle) } as Callable)
+        }*.get()
+
+        then:
+        results == ["a:batch", "b:batch", "c:batch", "d:batch"]
+        batches.size() == 1
+        batches[0].sort() == ["a", "b", "c", "d"]
+
+        cleanup:
+        combiner.stop()
+    }
+
+    def "should not exceed the maximum batch size"() {
+        given:
+        def combiner = new WriteCombiner(true, 50, 3, new SimpleMeterRegistry())
+
+        when:
+        def results = (1..7).collect { item ->
+            executor.submit({ combiner.write("provider.create", "$item".toString(), this.&writeBatch, this.&writeSingle) } as Callable)
+        }*.get()
+
+        then:
+        results.size() == 7
+        (batches*.size() + singles.collect { 1 }).sum() == 7
+        batches.every { it.size() <= 3 }
+
+        cleanup:
+        combiner.stop()
+    }
+
+    def "should fail only the bad write of a failed batch"() {
+        given:
+        def combiner = new WriteCombiner(true, 5000, 3, new SimpleMeterRegistry())
+        def failingBatch = { List<String> items -> throw new IllegalStateException("batch failed") }
+
+        when:
+        def futures = ["a", "bad", "c"].collect { item ->
+            executor.submit({ combiner.write("provider.create", item, failingBatch, this.&writeSingle) } as Callable)
+        }
+
+        then:
+        futures[0].get() == "a:single"
+        futures[2].get() == "c:single"
+
+        when:
+        futures[1].get()
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof IllegalArgumentException
+
+        cleanup:
+        combiner.stop()
+    }
+
+    def "should stop waiting once the deadline of the caller passes"() {
+        given:
+        def combiner = new WriteCombiner(true, 1, 10, new SimpleMeterRegistry())
+        def release = new CountDownLatch(1)
+        def blocked = { String item -> release.await(); item }
+        def scope = QueryCancellation.start(System.nanoTime() + 100_000_000L)
+
+        when:
+        combiner.write("provider.create", "a", this.&writeBatch, blocked)
+
+        then:
+        thrown(QueryTimeoutException)
+        scope.reason == QueryCancellation.Reason.DEADLINE
+
+        cleanup:
+        scope.stop()
+        release.countDown()
+        combiner.stop()
+    }
+
+    def "should write a batch under the earliest deadline of its callers"() {
+        given:
+        def combiner = new WriteCombiner(true, 5000, 2, new SimpleMeterRegistry())
+        def remaining = []
+        def batchWriter = { List<String> items ->
+            remaining << QueryCancellation.current().remainingNanos()
+            items
+        }
+
+        when:
+        [1_000L, 60_000L].collect { ms ->
+            executor.submit({
+                def scope = QueryCancellation.start(System.nanoTime() + ms * 1_000_000L)
+                try {
+                    combiner.write("provider.create", "$ms".toString(), batchWriter, this.&writeSingle)
+                } finally {
+                    scope.stop()
+                }
+            } as Callable)
+        }*.get()
+
+        then:
+        remaining.size() == 1
+        remaining[0] <= 1_000_000_000L
+
+        cleanup:
+        combiner.stop()
+    }
+
+    def "should run a single write in the scope of its caller and count it for the caller"() {
+        given:
+        def combiner = new WriteCombiner(true, 1, 10, new SimpleMeterRegistry())
+        def scope = QueryCancellation.start(0)
+        def counter = StatementCounter.start("test", 0, false)
+        def writerScope = null
+        def single = { String item ->
+            writerScope = QueryCancellation.current()
+            StatementCounter.current().addAll(["provider.insert": 1])
+            item
+        }
+
+        when:
+        combiner.write("provider.create", "a", this.&writeBatch, single)
+
+        then:
+        writerScope.is(scope)
+        counter.countsByName == ["provider.insert": 1]
+
+        cleanup:
+        counter.stop()
+        scope.stop()
+        combiner.stop()
+    }
+
+    def "should insert a batch of providers in order with their generated ids"() {
+        given:
+        def jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:write-combiner;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", ""))
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS providers (
+                    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    name VARCHAR(255) NOT NULL,
+                    is_deleted BOOLEAN NOT NULL DEFAULT FALSE)""")
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS provider_service (provider_id BIGINT, service_id BIGINT)")
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS change_outbox (
+                    seq BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    entity_type VARCHAR(16) NOT NULL,
+                    entity_id BIGINT NOT NULL,
+                    operation VARCHAR(16) NOT NULL,
+                    related_id BIGINT,
+                    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)""")
+        def changeOutboxRepository = new ChangeOutboxRepository(jdbcTemplate, Stub(ApplicationEventPublisher))
+        def repository = new ProviderRepository(jdbcTemplate, new LinkRepository(jdbcTemplate, changeOutboxRepository),
+                changeOutboxRepository, new PartitionedReader(jdbcTemplate, false, 1, 1, 0))
+        def providers = ["A", "B", "C"].collect { new ProviderEntity(name: it, services: []) }
+
+        when:
+        def saved = repository.saveAll(providers)
+
+        then:
+        saved*.id.every { it != null }
+        saved*.id.unique().size() == 3
+        saved.collect { jdbcTemplate.queryForObject("SELECT name FROM providers WHERE id = ?", String, it.id) } ==
+                ["A", "B", "C"]
+        jdbcTemplate.queryForList("SELECT entity_id FROM change_outbox ORDER BY seq", Long) == saved*.id
+    }
+
+    private List<String> writeBatch(List<String> items) {
+        batches << new ArrayList<>(items)
+        items.collect { it + ":batch" }
+    }
+
+    private String writeSingle(String item) {
+        if (item == "bad") {
+            throw new IllegalArgumentException("bad item")
+        }
+        singles << item
+        item + ":single"
+    }
+}
@@ -0,0 +1,36 @@
+import spock.lang.Specification
+import crud.utils.LongHashSet
+
+class LongHashSetSpec extends Specification {
+
+    def "should add each id once and grow past its expected size"() {
+        given:
+        def set = new LongHashSet(4)
+        def random = new Random(7)
+        def expected = new HashSet<Long>()
+
+        when:
+        10_000.times {
+            long id = random.nextInt(5_000) - 2_500
+            assert set.add(id) == expected.add(id)
+        }
+
+        then:
+        set.size() == expected.size()
+        expected.every { set.contains(it) }
+        !set.contains(1_000_000L)
+    }
+
+    def "should hold the extreme values"() {
+        given:
+        def set = new LongHashSet(1)
+
+        expect:
+        set.add(Long.MIN_VALUE)
+        !set.add(Long.MIN_VALUE)
+        set.add(Long.MAX_VALUE)
+        set.add(0L)
+        set.contains(Long.MIN_VALUE)
+        set.size() == 3
+    }
+}
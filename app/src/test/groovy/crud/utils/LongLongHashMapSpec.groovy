@@ -0,0 +1,24 @@
+import spock.lang.Specification
+import crud.utils.LongLongHashMap
+
+class LongLongHashMapSpec extends Specification {
+
+    def "should map ids to values and grow past its expected size"() {
+        given:
+        def map = new LongLongHashMap(4)
+
+        when:
+        (1L..5_000L).each { map.put(it * 31, it) }
+        map.put(31L, -1L)
+        map.put(Long.MIN_VALUE, 7L)
+
+        then:
+        map.size() == 5_001
+        map.get(31L, 0L) == -1L
+        map.get(62L, 0L) == 2L
+        map.get(Long.MIN_VALUE, 0L) == 7L
+        map.get(32L, 0L) == 0L
+        map.containsKey(155_000L)
+        !map.containsKey(155_001L)
+    }
+}
@@ -0,0 +1,76 @@
+import spock.lang.Specification
+import crud.utils.NameIndex
+
+class NameIndexSpec extends Specification {
+
+    NameIndex index = new NameIndex()
+
+    def "should complete prefixes case-insensitively with exact matches first"() {
+        given:
+        index.put(3L, "Cloud Storage")
+        index.put(1L, "Cloud")
+        index.put(2L, "cloudflare")
+        index.put(4L, "Compute")
+
+        expect:
+        index.complete("CLOUD", 10)*.key == [1L, 3L, 2L]
+        index.complete("c", 2)*.key == [1L, 3L]
+        index.complete("x", 10).isEmpty()
+    }
+
+    def "should move an entry when it is renamed"() {
+        given:
+        index.put(1L, "Alpha")
+
+        when:
+        index.put(1L, "Beta")
+
+        then:
+        index.complete("al", 10).isEmpty()
+        index.complete("be", 10)*.value == ["Beta"]
+        index.size() == 1
+    }
+
+    def "should remove entries and prune empty branches"() {
+        given:
+        index.put(1L, "Alpha")
+        index.put(2L, "Alpine")
+
+        when:
+        index.remove(1L)
+        index.remove(42L)
+
+        then:
+        index.complete("alp", 10)*.key == [2L]
+        index.size() == 1
+    }
+
+    def "should rank the same across merges of pending changes"() {
+        given:
+        def random = new Random(42)
+        def expected = [:]
+        (1..5000).each { id ->
+            def name = "Name " + random.nextInt(2000)
+            index.put(id, name)
+            expected[id as long] = name
+        }
+        (1..5000).step(3) { id ->
+            def name = "name " + random.nextInt(2000)
+            index.put(id, name)
+            expected[id as long] = name
+        }
+        (1..5000).step(7) { id ->
+            index.remove(id)
+            expected.remove(id as long)
+        }
+
+        expect:
+        ["", "name 1", "NAME 19", "name 1999"].each { prefix ->
+            def matches = expected.findAll { it.value.toLowerCase().startsWith(prefix.toLowerCase()) }
+                    .sort { a, b -> a.value.toLowerCase() <=> b.value.toLowerCase() ?: a.key <=> b.key }
+                    .collect { it.key }
+            assert index.complete(prefix, 50)*.key == matches.take(50)
+        }
+        index.size() == expected.size()
+    }
+}
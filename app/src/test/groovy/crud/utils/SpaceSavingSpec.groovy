@@ -0,0 +1,74 @@
+import spock.lang.Specification
+import crud.utils.SpaceSaving
+
+class SpaceSavingSpec extends Specification {
+
+    SpaceSaving sketch = new SpaceSaving(10)
+
+    def "should count ids exactly while they fit"() {
+        given:
+        [1L, 2L, 1L, 3L, 1L, 2L].each { sketch.offer(it) }
+
+        expect:
+        sketch.top(10)*.id == [1L, 2L, 3L]
+        sketch.top(10)*.count == [3L, 2L, 1L]
+        sketch.top(10)*.error == [0L, 0L, 0L]
+        sketch.top(2)*.id == [1L, 2L]
+    }
+
+    def "should find the heavy hitters of a long tail with bounded errors"() {
+        given:
+        def random = new Random(42)
+        def exact = [:].withDefault { 0L }
+        100_000.times {
+            long id = random.nextInt(10) < 3 ? random.nextInt(5) : 1000 + random.nextInt(100_000)
+            sketch.offer(id)
+            exact[id]++
+        }
+
+        when:
+        def top = sketch.top(5)
+
+        then:
+        top*.id as Set == (0L..4L) as Set
+        top.every { it.count >= exact[it.id] && it.count - it.error <= exact[it.id] }
+        sketch.size() == 10
+    }
+
+    def "should halve counts on decay and forget ids that drop to zero"() {
+        given:
+        4.times { sketch.offer(1L) }
+        sketch.offer(2L)
+
+        when:
+        sketch.decay()
+
+        then:
+        sketch.top(10)*.id == [1L]
+        sketch.top(10)*.count == [2L]
+        sketch.size() == 1
+
+        when:
+        sketch.offer(3L)
+        sketch.offer(3L)
+        sketch.offer(3L)
+
+        then:
+        sketch.top(10)*.id == [3L, 1L]
+    }
+
+    def "should restore saved counts"() {
+        given:
+        def small = new SpaceSaving(2)
+        small.offer(1L, 50)
+        small.offer(2L, 10)
+
+        when:
+        small.offer(3L)
+
+        then:
+        small.top(10)*.id == [1L, 3L]
+        small.top(10)*.count == [50L, 11L]
+        small.top(10)*.error == [0L, 10L]
+    }
+}
@@ -0,0 +1,54 @@
+-- Schema of the H2 specs: the tables of the migrations in their final shape,
+-- written for H2 in PostgreSQL mode and recreated empty before each feature
+DROP TABLE IF EXISTS import_keys;
+DROP TABLE IF EXISTS imports;
+DROP TABLE IF EXISTS change_outbox;
+DROP TABLE IF EXISTS provider_service;
+DROP TABLE IF EXISTS providers;
+DROP TABLE IF EXISTS services;
+
+CREATE TABLE providers (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    is_deleted BOOLEAN NOT NULL DEFAULT FALSE,
+    service_count INTEGER NOT NULL DEFAULT 0
+);
+
+CREATE TABLE services (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    is_deleted BOOLEAN NOT NULL DEFAULT FALSE,
+    provider_count INTEGER NOT NULL DEFAULT 0
+);
+
+CREATE TABLE provider_service (
+    provider_id BIGINT NOT NULL,
+    service_id BIGINT NOT NULL,
+    PRIMARY KEY (provider_id, service_id)
+);
+
+CREATE TABLE change_outbox (
+    seq BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    entity_type VARCHAR(16) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    operation VARCHAR(16) NOT NULL,
+    related_id BIGINT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE imports (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    status VARCHAR(16) NOT NULL,
+    rows_processed BIGINT NOT NULL DEFAULT 0,
+    rows_failed BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE import_keys (
+    import_id BIGINT NOT NULL REFERENCES imports (id) ON DELETE CASCADE,
+    entity_type VARCHAR(16) NOT NULL,
+    external_key VARCHAR(255) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    PRIMARY KEY (import_id, entity_type, external_key)
+);
@@ -0,0 +1,81 @@
+#!/usr/bin/env bash
+#
+# Compares the throughput of the servlet (JDBC) and reactive (R2DBC) stacks.
+#
+# Starts the application once per stack and drives GET /providers/{id} with wrk
+# at CONNECTIONS concurrent connections, then prints requests/s, latency and
+# socket errors of each run side by side. The database configured in .env must
+# be reachable and seeded, exactly as for ./gradlew bootRun. The open-files
+# limit must allow CONNECTIONS sockets on both the client and the server.
+#
+# Usage: scripts/compare-stacks.sh [connections]
+#   PORT=8080           port the application listens on
+#   DURATION=60s        length of each wrk run
+#   THREADS=8           wrk threads
+#   PROBE_PATH=/providers/1?depth=medium
+#                       endpoint driven by wrk
+#   POOL_SIZE=50        JDBC and R2DBC connection pool size
+
+set -euo pipefail
+
+CONNECTIONS="${1:-10000}"
+PORT="${PORT:-8080}"
+DURATION="${DURATION:-60s}"
+THREADS="${THREADS:-8}"
+PROBE_PATH="${PROBE_PATH:-/providers/1?depth=medium}"
+POOL_SIZE="${POOL_SIZE:-50}"
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+OUT_DIR="$ROOT/app/build/compare-stacks"
+
+command -v wrk >/dev/null || { echo "wrk is required, see https://github.com/wg/wrk" >&2; exit 1; }
+
+cd "$ROOT"
+./gradlew -q :app:bootJar
+JAR="$(ls app/build/libs/*.jar | grep -v plain | head -n 1)"
+mkdir -p "$OUT_DIR"
+
+if [[ -f .env ]]; then
+    set -a
+    # shellcheck disable=SC1091
+    source .env
+    set +a
+fi
+
+run_stack() {
+    local stack="$1" profiles="$2"
+    (cd app && exec java -jar "$ROOT/$JAR" \
+        --spring.profiles.active="$profiles" --server.port="$PORT" \
+        --spring.datasource.hikari.maximum-pool-size="$POOL_SIZE" \
+        --spring.r2dbc.pool.max-size="$POOL_SIZE" \
+        --server.tomcat.max-connections="$CONNECTIONS" \
+        --crud.logging.sampling.default-rate=0) >"$OUT_DIR/$stack-app.log" 2>&1 &
+    local pid=$!
+
+    until curl -fs -o /dev/null "http://localhost:$PORT$PROBE_PATH"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "Application exited, see $OUT_DIR/$stack-app.log" >&2
+            exit 1
+        fi
+        sleep 0.1
+    done
+
+    # Short warm-up so both stacks are measured after JIT compilation
+    wrk -t"$THREADS" -c100 -d10s "http://localhost:$PORT$PROBE_PATH" >/dev/null
+    wrk -t"$THREADS" -c"$CONNECTIONS" -d"$DURATION" --latency "http://localhost:$PORT$PROBE_PATH" \
+        | tee "$OUT_DIR/$stack-wrk.txt"
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+}
+
+echo "== servlet (JDBC) =="
+run_stack servlet default
+echo "== reactive (R2DBC) =="
+run_stack reactive reactive
+
+echo
+for stack in servlet reactive; do
+    printf '%-9s %s | %s\n' "$stack" \
+        "$(grep 'Requests/sec' "$OUT_DIR/$stack-wrk.txt" | xargs)" \
+        "$(grep -E 'Socket errors|Non-2xx' "$OUT_DIR/$stack-wrk.txt" | xargs || true)"
+done
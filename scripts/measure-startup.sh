@@ -0,0 +1,73 @@
+#!/usr/bin/env bash
+#
+# Measures time-to-first-request of the fast-startup profile.
+#
+# Builds the AppCDS archive (unless SKIP_TRAINING=1), then starts the
+# application RUNS times and reports how long it took from process launch
+# until the first successful HTTP response. The database configured in .env
+# must be reachable, exactly as for ./gradlew bootRun.
+#
+# Usage: scripts/measure-startup.sh [runs]
+#   PORT=8080           port the application listens on
+#   PROBE_PATH=/stats   endpoint polled for the first successful response
+#   USE_CDS=1           set to 0 to measure without the CDS archive
+
+set -euo pipefail
+
+RUNS="${1:-5}"
+PORT="${PORT:-8080}"
+PROBE_PATH="${PROBE_PATH:-/stats}"
+USE_CDS="${USE_CDS:-1}"
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+CDS_DIR="$ROOT/app/build/cds"
+
+cd "$ROOT"
+
+if [[ "${SKIP_TRAINING:-0}" != "1" ]]; then
+    ./gradlew -q :app:cdsArchive
+fi
+
+if [[ -f .env ]]; then
+    set -a
+    # shellcheck disable=SC1091
+    source .env
+    set +a
+fi
+
+JAVA_OPTS=(-cp "$(cat "$CDS_DIR/classpath.txt")")
+if [[ "$USE_CDS" == "1" ]]; then
+    JAVA_OPTS+=(-XX:SharedArchiveFile="$CDS_DIR/app.jsa" -Xshare:auto)
+fi
+
+now_ms() {
+    date +%s%3N
+}
+
+results=()
+for run in $(seq 1 "$RUNS"); do
+    start=$(now_ms)
+    (cd app && exec java "${JAVA_OPTS[@]}" crud.App \
+        --spring.profiles.active=fast-startup --server.port="$PORT") >"$CDS_DIR/run-$run.log" 2>&1 &
+    pid=$!
+
+    until curl -fs -o /dev/null "http://localhost:$PORT$PROBE_PATH"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "Application exited during run $run, see $CDS_DIR/run-$run.log" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+
+    elapsed=$(( $(now_ms) - start ))
+    results+=("$elapsed")
+    echo "run $run: ${elapsed} ms"
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+done
+
+sorted=($(printf '%s\n' "${results[@]}" | sort -n))
+echo "time-to-first-request over $RUNS runs (cds=$USE_CDS):" \
+    "min=${sorted[0]} ms" \
+    "median=${sorted[$(( RUNS / 2 ))]} ms" \
+    "max=${sorted[$(( RUNS - 1 ))]} ms"